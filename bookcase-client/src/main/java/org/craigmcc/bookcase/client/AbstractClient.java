@@ -15,9 +15,17 @@
  */
 package org.craigmcc.bookcase.client;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
+
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -31,6 +39,11 @@ public abstract class AbstractClient {
 
     // Manifest Constants ----------------------------------------------------
 
+    /**
+     * <p>Media type for Jackson Smile (binary JSON) request and response bodies.</p>
+     */
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
     /**
      * <p>Default for base URI if not specified.</p>
      */
@@ -42,6 +55,13 @@ public abstract class AbstractClient {
      */
     public static final String PROPERTY_BASE_URI = "org.craigmcc.bookcase.client.baseUri";
 
+    /**
+     * <p>System property that, if set to <code>false</code>, requests JSON
+     * responses only.  Otherwise, Smile responses are preferred, with JSON
+     * accepted as a fallback from servers that do not support Smile.</p>
+     */
+    public static final String PROPERTY_BINARY = "org.craigmcc.bookcase.client.binary";
+
     /**
      * <p>System property containing the connect timeout in milliseconds.  If not specified,
      * this property is not configured, so the predefined default value will be used.</p>
@@ -75,6 +95,20 @@ public abstract class AbstractClient {
      */
     private static Client client = null;
 
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the media types (in order of preference) that responses
+     * from model endpoints are requested in.</p>
+     */
+    public String[] getAcceptedMediaTypes() {
+        if (Boolean.parseBoolean(System.getProperty(PROPERTY_BINARY, "true"))) {
+            return new String[] { APPLICATION_SMILE, MediaType.APPLICATION_JSON + ";q=0.5" };
+        } else {
+            return new String[] { MediaType.APPLICATION_JSON };
+        }
+    }
+
     // Protected Methods -----------------------------------------------------
 
     /**
@@ -110,9 +144,27 @@ public abstract class AbstractClient {
             if (value != null) {
                 clientBuilder.readTimeout(Long.valueOf(value), TimeUnit.MILLISECONDS);
             }
+            clientBuilder.register(ContentEncodingFilter.class);
+            clientBuilder.register(new JacksonSmileProvider(createSmileMapper()));
             client = clientBuilder.build();
         }
         return client;
     }
 
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Create a Smile mapper configured to match the server's mappers.</p>
+     */
+    private static ObjectMapper createSmileMapper() {
+        ObjectMapper objectMapper = new ObjectMapper(new SmileFactory());
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS);
+        objectMapper.enable(DeserializationFeature.READ_ENUMS_USING_TO_STRING);
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.disable(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS);
+        objectMapper.enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING);
+        return objectMapper;
+    }
+
 }
@@ -16,6 +16,7 @@
 package org.craigmcc.bookcase.client;
 
 import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Story;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
 import org.craigmcc.library.shared.exception.NotFound;
@@ -43,7 +44,7 @@ public class AnthologyClient extends AbstractServiceClient<Anthology> {
 
         Response response = anthologyTarget
                 .path(anthologyId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .delete();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Anthology.class);
@@ -61,7 +62,7 @@ public class AnthologyClient extends AbstractServiceClient<Anthology> {
 
         Response response = anthologyTarget
                 .path(anthologyId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Anthology.class);
@@ -77,7 +78,28 @@ public class AnthologyClient extends AbstractServiceClient<Anthology> {
     public @NotNull List<Anthology> findAll() throws InternalServerError {
 
         Response response = anthologyTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
+                .get();
+        if (response.getStatus() == RESPONSE_OK) {
+            return response.readEntity(new GenericType<List<Anthology>>() {});
+        } else {
+            throw new InternalServerError(response.readEntity(String.class));
+        }
+
+    }
+
+    /**
+     * <p>Return a list of {@link Anthology} objects written by the specified
+     * author, ordered by title.</p>
+     *
+     * @param authorId ID of the author whose anthologies are to be returned
+     */
+    public @NotNull List<Anthology> findByAuthorId(@NotNull Long authorId) throws InternalServerError {
+
+        Response response = anthologyTarget
+                .path("author")
+                .path(authorId.toString())
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Anthology>>() {});
@@ -98,7 +120,7 @@ public class AnthologyClient extends AbstractServiceClient<Anthology> {
         Response response = anthologyTarget
                 .path("title")
                 .path(title)
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Anthology>>() {});
@@ -112,7 +134,7 @@ public class AnthologyClient extends AbstractServiceClient<Anthology> {
     public @NotNull Anthology insert(@NotNull Anthology anthology) throws BadRequest, InternalServerError, NotUnique {
 
         Response response = anthologyTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .post(Entity.entity(anthology, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_CREATED) {
             return response.readEntity(Anthology.class);
@@ -126,12 +148,37 @@ public class AnthologyClient extends AbstractServiceClient<Anthology> {
 
     }
 
+    /**
+     * <p>Put the stories of the specified anthology in the specified order,
+     * and return them in their new order.</p>
+     *
+     * @param anthologyId ID of the anthology to be reordered
+     * @param storyIds IDs of every story of the anthology, in the new order
+     */
+    public @NotNull List<Story> reorder(@NotNull Long anthologyId, @NotNull List<Long> storyIds)
+            throws BadRequest, InternalServerError {
+
+        Response response = anthologyTarget
+                .path(anthologyId.toString())
+                .path("order")
+                .request(getAcceptedMediaTypes())
+                .post(Entity.entity(storyIds, MediaType.APPLICATION_JSON));
+        if (response.getStatus() == RESPONSE_OK) {
+            return response.readEntity(new GenericType<List<Story>>() {});
+        } else if (response.getStatus() == RESPONSE_BAD_REQUEST) {
+            throw new BadRequest(response.readEntity(String.class));
+        } else {
+            throw new InternalServerError(response.readEntity(String.class));
+        }
+
+    }
+
     @Override
     public @NotNull Anthology update(@NotNull Long anthologyId, @NotNull Anthology anthology) throws BadRequest, InternalServerError, NotFound, NotUnique {
 
         Response response = anthologyTarget
                 .path(anthologyId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .put(Entity.entity(anthology, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Anthology.class);
@@ -43,7 +43,7 @@ public class AuthorClient extends AbstractServiceClient<Author> {
 
         Response response = authorTarget
                 .path(authorId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .delete();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Author.class);
@@ -60,7 +60,7 @@ public class AuthorClient extends AbstractServiceClient<Author> {
 
         Response response = authorTarget
                 .path(authorId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Author.class);
@@ -76,7 +76,7 @@ public class AuthorClient extends AbstractServiceClient<Author> {
     public @NotNull List<Author> findAll() throws InternalServerError {
 
         Response response = authorTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Author>>() {});
@@ -97,7 +97,7 @@ public class AuthorClient extends AbstractServiceClient<Author> {
         Response response = authorTarget
                 .path("name")
                 .path(name)
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Author>>() {});
@@ -111,7 +111,7 @@ public class AuthorClient extends AbstractServiceClient<Author> {
     public @NotNull Author insert(@NotNull Author author) throws BadRequest, InternalServerError, NotUnique {
 
         Response response = authorTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .post(Entity.entity(author, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_CREATED) {
             return response.readEntity(Author.class);
@@ -130,7 +130,7 @@ public class AuthorClient extends AbstractServiceClient<Author> {
 
         Response response = authorTarget
                 .path(authorId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .put(Entity.entity(author, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Author.class);
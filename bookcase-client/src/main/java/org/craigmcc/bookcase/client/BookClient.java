@@ -43,7 +43,7 @@ public class BookClient extends AbstractServiceClient<Book> {
 
         Response response = bookTarget
                 .path(bookId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .delete();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Book.class);
@@ -60,7 +60,7 @@ public class BookClient extends AbstractServiceClient<Book> {
 
         Response response = bookTarget
                 .path(bookId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Book.class);
@@ -76,7 +76,28 @@ public class BookClient extends AbstractServiceClient<Book> {
     public @NotNull List<Book> findAll() throws InternalServerError {
 
         Response response = bookTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
+                .get();
+        if (response.getStatus() == RESPONSE_OK) {
+            return response.readEntity(new GenericType<List<Book>>() {});
+        } else {
+            throw new InternalServerError(response.readEntity(String.class));
+        }
+
+    }
+
+    /**
+     * <p>Return a list of {@link Book} objects written by the specified
+     * author, ordered by title.</p>
+     *
+     * @param authorId ID of the author whose books are to be returned
+     */
+    public @NotNull List<Book> findByAuthorId(@NotNull Long authorId) throws InternalServerError {
+
+        Response response = bookTarget
+                .path("author")
+                .path(authorId.toString())
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Book>>() {});
@@ -97,7 +118,7 @@ public class BookClient extends AbstractServiceClient<Book> {
         Response response = bookTarget
                 .path("title")
                 .path(title)
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Book>>() {});
@@ -111,7 +132,7 @@ public class BookClient extends AbstractServiceClient<Book> {
     public @NotNull Book insert(@NotNull Book book) throws BadRequest, InternalServerError, NotUnique {
 
         Response response = bookTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .post(Entity.entity(book, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_CREATED) {
             return response.readEntity(Book.class);
@@ -130,7 +151,7 @@ public class BookClient extends AbstractServiceClient<Book> {
 
         Response response = bookTarget
                 .path(bookId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .put(Entity.entity(book, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Book.class);
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.client;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>Asks the server for compressed responses (with an
+ * <code>Accept-Encoding</code> header on every request), and transparently
+ * decompresses <code>gzip</code> and <code>deflate</code> response bodies
+ * before they are read.</p>
+ */
+public class ContentEncodingFilter implements ClientRequestFilter, ReaderInterceptor {
+
+    // Manifest Constants ----------------------------------------------------
+
+    /**
+     * <p>Encodings accepted for response bodies.</p>
+     */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void filter(ClientRequestContext context) {
+        if (!context.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            context.getHeaders().putSingle(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+        }
+    }
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        String encoding = context.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (encoding != null) {
+            encoding = encoding.trim().toLowerCase(Locale.ROOT);
+            if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+                context.setInputStream(new GZIPInputStream(context.getInputStream()));
+                context.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+            } else if ("deflate".equals(encoding)) {
+                context.setInputStream(new InflaterInputStream(context.getInputStream()));
+                context.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+            }
+        }
+        return context.proceed();
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.client;
+
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.InternalServerError;
+
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * <p>Client for the streaming bulk export of the catalog.  The response is
+ * copied to a file as it arrives, so exports of any size can be saved
+ * without holding them in memory.</p>
+ */
+public class ExportClient extends AbstractClient {
+
+    // Manifest Constants ----------------------------------------------------
+
+    /**
+     * <p>Value of the <code>compress</code> parameter requesting gzip compression.</p>
+     */
+    public static final String COMPRESS_GZIP = "gzip";
+
+    /**
+     * <p>WebTarget path element (relative to getBaseTarget()) for exports.</p>
+     */
+    public static final String EXPORT_PATH = "/export";
+
+    /**
+     * <p>Export format for comma separated values.</p>
+     */
+    public static final String FORMAT_CSV = "csv";
+
+    /**
+     * <p>Export format for newline delimited JSON.</p>
+     */
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    // Instance Variables ----------------------------------------------------
+
+    private final WebTarget exportTarget = getBaseTarget()
+            .path(EXPORT_PATH);
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Export the entire catalog to the specified file (which is replaced
+     * if it exists), and return the number of bytes written.  The file is
+     * gzip compressed exactly when <code>compress</code> is true.</p>
+     *
+     * @param format Export format ({@link #FORMAT_CSV} or {@link #FORMAT_NDJSON})
+     * @param compress Should the export be gzip compressed?
+     * @param file Path of the file to be written
+     *
+     * @throws BadRequest If the server rejects the format
+     * @throws InternalServerError If a server level or local I/O error has occurred
+     */
+    public long export(@NotNull String format, boolean compress, @NotNull Path file)
+            throws BadRequest, InternalServerError {
+
+        WebTarget target = exportTarget.queryParam("format", format);
+        if (compress) {
+            target = target.queryParam("compress", COMPRESS_GZIP);
+        }
+        Response response = target
+                .request(MediaType.WILDCARD)
+                .get();
+        try {
+            if (response.getStatus() == RESPONSE_OK) {
+                try (InputStream stream = response.readEntity(InputStream.class)) {
+                    return Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    throw new InternalServerError(e.getMessage(), e);
+                }
+            } else if (response.getStatus() == RESPONSE_BAD_REQUEST) {
+                throw new BadRequest(response.readEntity(String.class));
+            } else {
+                throw new InternalServerError(response.readEntity(String.class));
+            }
+        } finally {
+            response.close();
+        }
+
+    }
+
+}
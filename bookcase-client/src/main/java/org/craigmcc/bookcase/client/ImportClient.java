@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.client;
+
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotUnique;
+
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.craigmcc.bookcase.client.ExportClient.COMPRESS_GZIP;
+
+/**
+ * <p>Client for the bulk import of a catalog file.  The file is streamed to
+ * the server as it is read, so files of any size can be imported without
+ * holding them in memory.</p>
+ */
+public class ImportClient extends AbstractClient {
+
+    // Manifest Constants ----------------------------------------------------
+
+    /**
+     * <p>WebTarget path element (relative to getBaseTarget()) for imports.</p>
+     */
+    public static final String IMPORT_PATH = "/import";
+
+    // Instance Variables ----------------------------------------------------
+
+    private final WebTarget importTarget = getBaseTarget()
+            .path(IMPORT_PATH);
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Import the specified file (gzip compressed if its name ends with
+     * ".gz") under the specified name, and return the import report.</p>
+     *
+     * @param name Name identifying this import
+     * @param format Import format ({@link ExportClient#FORMAT_CSV} or {@link ExportClient#FORMAT_NDJSON})
+     * @param resume Resume after the rows committed by an earlier attempt with this name?
+     * @param file Path of the file to be imported
+     *
+     * @throws BadRequest If the server rejects the parameters
+     * @throws InternalServerError If the import failed (it may be resumed), or a local I/O error occurred
+     * @throws NotUnique If an import with this name is already running
+     */
+    public Map<String, Object> importFile(@NotNull String name, @NotNull String format,
+                                          boolean resume, @NotNull Path file)
+            throws BadRequest, InternalServerError, NotUnique {
+
+        WebTarget target = importTarget
+                .queryParam("name", name)
+                .queryParam("format", format)
+                .queryParam("resume", resume);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            target = target.queryParam("compress", COMPRESS_GZIP);
+        }
+        Response response;
+        try (InputStream stream = Files.newInputStream(file)) {
+            response = target
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(stream, MediaType.APPLICATION_OCTET_STREAM));
+        } catch (IOException e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+        try {
+            if (response.getStatus() == RESPONSE_OK) {
+                return response.readEntity(new GenericType<Map<String, Object>>() {});
+            } else if (response.getStatus() == RESPONSE_BAD_REQUEST) {
+                throw new BadRequest(response.readEntity(String.class));
+            } else if (response.getStatus() == RESPONSE_CONFLICT) {
+                throw new NotUnique(response.readEntity(String.class));
+            } else {
+                throw new InternalServerError(response.readEntity(String.class));
+            }
+        } finally {
+            response.close();
+        }
+
+    }
+
+}
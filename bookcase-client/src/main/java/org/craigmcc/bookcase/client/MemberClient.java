@@ -43,7 +43,7 @@ public class MemberClient extends AbstractServiceClient<Member> {
 
         Response response = memberTarget
                 .path(memberId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .delete();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Member.class);
@@ -60,7 +60,7 @@ public class MemberClient extends AbstractServiceClient<Member> {
 
         Response response = memberTarget
                 .path(memberId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Member.class);
@@ -76,7 +76,7 @@ public class MemberClient extends AbstractServiceClient<Member> {
     public @NotNull List<Member> findAll() throws InternalServerError {
 
         Response response = memberTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Member>>() {});
@@ -91,7 +91,7 @@ public class MemberClient extends AbstractServiceClient<Member> {
         Response response = memberTarget
                 .path("series")
                 .path(seriesId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Member>>() {});
@@ -105,7 +105,7 @@ public class MemberClient extends AbstractServiceClient<Member> {
     public @NotNull Member insert(@NotNull Member member) throws BadRequest, InternalServerError, NotUnique {
 
         Response response = memberTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .post(Entity.entity(member, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_CREATED) {
             return response.readEntity(Member.class);
@@ -124,7 +124,7 @@ public class MemberClient extends AbstractServiceClient<Member> {
 
         Response response = memberTarget
                 .path(memberId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .put(Entity.entity(member, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Member.class);
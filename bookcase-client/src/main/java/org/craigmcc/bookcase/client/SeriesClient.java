@@ -15,6 +15,7 @@
  */
 package org.craigmcc.bookcase.client;
 
+import org.craigmcc.bookcase.model.Member;
 import org.craigmcc.bookcase.model.Series;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
@@ -43,7 +44,7 @@ public class SeriesClient extends AbstractServiceClient<Series> {
 
         Response response = seriesTarget
                 .path(seriesId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .delete();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Series.class);
@@ -60,7 +61,7 @@ public class SeriesClient extends AbstractServiceClient<Series> {
 
         Response response = seriesTarget
                 .path(seriesId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Series.class);
@@ -76,7 +77,7 @@ public class SeriesClient extends AbstractServiceClient<Series> {
     public @NotNull List<Series> findAll() throws InternalServerError {
 
         Response response = seriesTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Series>>() {});
@@ -97,7 +98,7 @@ public class SeriesClient extends AbstractServiceClient<Series> {
         Response response = seriesTarget
                 .path("title")
                 .path(title)
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Series>>() {});
@@ -111,7 +112,7 @@ public class SeriesClient extends AbstractServiceClient<Series> {
     public @NotNull Series insert(@NotNull Series series) throws BadRequest, InternalServerError, NotUnique {
 
         Response response = seriesTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .post(Entity.entity(series, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_CREATED) {
             return response.readEntity(Series.class);
@@ -125,12 +126,37 @@ public class SeriesClient extends AbstractServiceClient<Series> {
 
     }
 
+    /**
+     * <p>Put the members of the specified series in the specified order,
+     * and return them in their new order.</p>
+     *
+     * @param seriesId ID of the series to be reordered
+     * @param memberIds IDs of every member of the series, in the new order
+     */
+    public @NotNull List<Member> reorder(@NotNull Long seriesId, @NotNull List<Long> memberIds)
+            throws BadRequest, InternalServerError {
+
+        Response response = seriesTarget
+                .path(seriesId.toString())
+                .path("order")
+                .request(getAcceptedMediaTypes())
+                .post(Entity.entity(memberIds, MediaType.APPLICATION_JSON));
+        if (response.getStatus() == RESPONSE_OK) {
+            return response.readEntity(new GenericType<List<Member>>() {});
+        } else if (response.getStatus() == RESPONSE_BAD_REQUEST) {
+            throw new BadRequest(response.readEntity(String.class));
+        } else {
+            throw new InternalServerError(response.readEntity(String.class));
+        }
+
+    }
+
     @Override
     public @NotNull Series update(@NotNull Long seriesId, @NotNull Series series) throws BadRequest, InternalServerError, NotFound, NotUnique {
 
         Response response = seriesTarget
                 .path(seriesId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .put(Entity.entity(series, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Series.class);
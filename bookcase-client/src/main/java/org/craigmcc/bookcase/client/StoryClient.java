@@ -43,7 +43,7 @@ public class StoryClient extends AbstractServiceClient<Story> {
 
         Response response = storyTarget
                 .path(storyId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .delete();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Story.class);
@@ -60,7 +60,7 @@ public class StoryClient extends AbstractServiceClient<Story> {
 
         Response response = storyTarget
                 .path(storyId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Story.class);
@@ -76,7 +76,7 @@ public class StoryClient extends AbstractServiceClient<Story> {
     public @NotNull List<Story> findAll() throws InternalServerError {
 
         Response response = storyTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Story>>() {});
@@ -91,7 +91,7 @@ public class StoryClient extends AbstractServiceClient<Story> {
         Response response = storyTarget
                 .path("anthology")
                 .path(anthologyId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .get();
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(new GenericType<List<Story>>() {});
@@ -105,7 +105,7 @@ public class StoryClient extends AbstractServiceClient<Story> {
     public @NotNull Story insert(@NotNull Story story) throws BadRequest, InternalServerError, NotUnique {
 
         Response response = storyTarget
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .post(Entity.entity(story, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_CREATED) {
             return response.readEntity(Story.class);
@@ -124,7 +124,7 @@ public class StoryClient extends AbstractServiceClient<Story> {
 
         Response response = storyTarget
                 .path(storyId.toString())
-                .request(MediaType.APPLICATION_JSON)
+                .request(getAcceptedMediaTypes())
                 .put(Entity.entity(story, MediaType.APPLICATION_JSON));
         if (response.getStatus() == RESPONSE_OK) {
             return response.readEntity(Story.class);
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.client;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.craigmcc.bookcase.client.AbstractClient.APPLICATION_SMILE;
+import static org.craigmcc.bookcase.client.AbstractClient.PROPERTY_BINARY;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+
+@Category(ClientTests.class)
+public class AbstractClientTest {
+
+    private final AbstractClient client = new AbstractClient() { };
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        System.clearProperty(PROPERTY_BINARY);
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void acceptBinaryByDefault() {
+
+        // Smile preferred, with JSON from servers that cannot produce it
+        assertThat(client.getAcceptedMediaTypes(),
+                arrayContaining(APPLICATION_SMILE, "application/json;q=0.5"));
+
+        System.setProperty(PROPERTY_BINARY, "true");
+        assertThat(client.getAcceptedMediaTypes(),
+                arrayContaining(APPLICATION_SMILE, "application/json;q=0.5"));
+
+    }
+
+    @Test
+    public void acceptJsonOnly() {
+
+        System.setProperty(PROPERTY_BINARY, "false");
+        assertThat(client.getAcceptedMediaTypes(), arrayContaining("application/json"));
+
+    }
+
+}
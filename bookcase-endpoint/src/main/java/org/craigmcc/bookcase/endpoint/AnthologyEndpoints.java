@@ -15,14 +15,21 @@
  */
 package org.craigmcc.bookcase.endpoint;
 
+import org.craigmcc.bookcase.browse.BrowseCriteria;
+import org.craigmcc.bookcase.browse.BrowsePage;
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
 import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Story;
 import org.craigmcc.bookcase.service.AnthologyService;
+import org.craigmcc.bookcase.service.StoryService;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
 import org.craigmcc.library.shared.exception.NotFound;
 import org.craigmcc.library.shared.exception.NotUnique;
 import org.eclipse.microprofile.metrics.annotation.Counted;
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
@@ -40,32 +47,101 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 import static java.util.logging.Level.SEVERE;
 
 @ApplicationScoped
 @Path("/anthologies")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
 @Tag(name = "Anthology Endpoints")
 public class AnthologyEndpoints {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
     @Inject
     private AnthologyService anthologyService;
 
+    @Inject
+    private StoryService storyService;
+
     // Static Variables ------------------------------------------------------
 
     private static final Logger LOG = Logger.getLogger(AnthologyEndpoints.class.getName());
 
     // Endpoint Methods ------------------------------------------------------
 
+    @GET
+    @Path("/browse")
+    @Operation(description = "Browse anthologies by author, location, read status, title prefix, and " +
+            "presence of a Google Books ID, one keyset page at a time, with facet counts.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = BrowsePage.class)),
+                    description = "The requested page of anthologies, and facet counts.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Invalid parameters message.",
+                    responseCode = "400"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Internal server error message.",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> browse(
+            @Parameter(description = "Cursor (from the 'next' of the previous page) to continue after.")
+            @QueryParam("after") String after,
+            @Parameter(description = "ID of the author of anthologies to include.")
+            @QueryParam("authorId") Long authorId,
+            @Parameter(description = "Include only anthologies with (true) or without (false) a Google Books ID.")
+            @QueryParam("googleId") Boolean googleId,
+            @Parameter(description = "Maximum number of anthologies per page (1 to " + BrowseCriteria.MAX_LIMIT + ").")
+            @QueryParam("limit") Integer limit,
+            @Parameter(description = "Location of anthologies to include.")
+            @QueryParam("location") String location,
+            @Parameter(description = "Include only anthologies that have (true) or have not (false) been read.")
+            @QueryParam("read") Boolean read,
+            @Parameter(description = "Sort order ('title', 'title_desc', or 'updated_desc').")
+            @QueryParam("sort") String sort,
+            @Parameter(description = "Prefix of the titles of anthologies to include, ignoring case, punctuation, and a leading article.")
+            @QueryParam("titlePrefix") String titlePrefix
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                BrowseCriteria criteria = BrowseCriteria.of
+                        (after, authorId, googleId, limit, location, read, sort, titlePrefix);
+                return Response.ok(anthologyService.browse(criteria)).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
     @DELETE
     @Path("/{anthologyId}")
     @Operation(description = "Delete anthology by ID.")
@@ -87,25 +163,27 @@ public class AnthologyEndpoints {
             )
     })
     @Counted
-    public Response delete(
+    public CompletionStage<Response> delete(
             @Parameter(description = "ID of anthology to delete.")
             @PathParam("anthologyId") Long anthologyId
     ) {
-        try {
-            Anthology anthology = anthologyService.delete(anthologyId);
-            return Response.ok(anthology).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Anthology anthology = anthologyService.delete(anthologyId);
+                return Response.ok(anthology).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -129,25 +207,27 @@ public class AnthologyEndpoints {
             )
     })
     @Counted
-    public Response find(
+    public CompletionStage<Response> find(
             @Parameter(description = "ID of anthology to find.")
             @PathParam("anthologyId") Long anthologyId
     ) {
-        try {
-            Anthology anthology = anthologyService.find(anthologyId);
-            return Response.ok(anthology).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Anthology anthology = anthologyService.find(anthologyId);
+                return Response.ok(anthology).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -165,16 +245,51 @@ public class AnthologyEndpoints {
             )
     })
     @Counted
-    public Response findAll() {
-        try {
-            return Response.ok(anthologyService.findAll()).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+    public CompletionStage<Response> findAll() {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(anthologyService.findAll()).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
+    @GET
+    @Path("/author/{authorId}")
+    @Operation(description = "Find anthologies by author, ordered by title.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = Anthology.class)),
+                    description = "The found anthologies.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Internal server error message.",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> findByAuthorId(
+            @Parameter(description = "ID of the author of anthologies to find.")
+            @PathParam("authorId") Long authorId
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(anthologyService.findByAuthorId(authorId)).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -193,19 +308,21 @@ public class AnthologyEndpoints {
             )
     })
     @Counted
-    public Response findByTitle(
+    public CompletionStage<Response> findByTitle(
             @Parameter(description = "Title matching segment of anthologies to find.")
             @PathParam("title") String title
     ) {
-        try {
-            return Response.ok(anthologyService.findByTitle(title)).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(anthologyService.findByTitle(title)).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @POST
@@ -233,7 +350,7 @@ public class AnthologyEndpoints {
             )
     })
     @Counted
-    public Response insert(
+    public CompletionStage<Response> insert(
             @Parameter(
                     description = "Anthology to be inserted.",
                     name = "anthology",
@@ -241,31 +358,82 @@ public class AnthologyEndpoints {
             )
                     Anthology anthology
     ) {
-        try {
-            anthology = anthologyService.insert(anthology);
-            URI uri = UriBuilder.fromResource(AnthologyEndpoints.class)
-                    .path(anthology.getId().toString())
-                    .build();
-            return Response.created(uri)
-                    .entity(anthology)
-                    .build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Anthology inserted = anthologyService.insert(anthology);
+                URI uri = UriBuilder.fromResource(AnthologyEndpoints.class)
+                        .path(inserted.getId().toString())
+                        .build();
+                return Response.created(uri)
+                        .entity(inserted)
+                        .build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
+    @POST
+    @Path("/{anthologyId}/order")
+    @Operation(description = "Reorder the stories of an existing anthology.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = Story.class, type = SchemaType.ARRAY)),
+                    description = "The stories of the anthology, in their new order.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Bad request message.",
+                    responseCode = "400"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Internal server error message.",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> reorder(
+            @Parameter(description = "ID of the Anthology to be reordered.")
+            @PathParam("anthologyId") Long anthologyId,
+            @Parameter(
+                    description = "IDs of every story of the anthology, in their new order.",
+                    name = "storyIds",
+                    schema = @Schema(implementation = Long.class, type = SchemaType.ARRAY)
+            )
+            List<Long> storyIds
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(storyService.reorder(anthologyId, storyIds)).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @PUT
@@ -299,7 +467,7 @@ public class AnthologyEndpoints {
             )
     })
     @Counted
-    public Response update(
+    public CompletionStage<Response> update(
             @Parameter(description = "ID of anthology to update.")
             @PathParam("anthologyId") Long anthologyId,
             @Parameter(
@@ -309,32 +477,33 @@ public class AnthologyEndpoints {
             )
             Anthology anthology
     ) {
-        try {
-            anthology = anthologyService.update(anthologyId, anthology);
-            return Response.ok(anthology).build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
-
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Anthology updated = anthologyService.update(anthologyId, anthology);
+                return Response.ok(updated).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
 }
@@ -15,6 +15,8 @@
  */
 package org.craigmcc.bookcase.endpoint;
 
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
 import org.craigmcc.bookcase.model.Author;
 import org.craigmcc.bookcase.service.AuthorService;
 import org.craigmcc.library.shared.exception.BadRequest;
@@ -44,19 +46,23 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.net.URI;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 import static java.util.logging.Level.SEVERE;
 
 @ApplicationScoped
 @Path("/authors")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
 @Tag(name = "Author Endpoints")
 public class AuthorEndpoints {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
     @Inject
     private AuthorService authorService;
 
@@ -87,25 +93,27 @@ public class AuthorEndpoints {
             )
     })
     @Counted
-    public Response delete(
+    public CompletionStage<Response> delete(
             @Parameter(description = "ID of author to delete.")
             @PathParam("authorId") Long authorId
     ) {
-        try {
-            Author author = authorService.delete(authorId);
-            return Response.ok(author).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Author author = authorService.delete(authorId);
+                return Response.ok(author).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -129,25 +137,27 @@ public class AuthorEndpoints {
             )
     })
     @Counted
-    public Response find(
+    public CompletionStage<Response> find(
             @Parameter(description = "ID of author to find.")
             @PathParam("authorId") Long authorId
     ) {
-        try {
-            Author author = authorService.find(authorId);
-            return Response.ok(author).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Author author = authorService.find(authorId);
+                return Response.ok(author).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -165,25 +175,28 @@ public class AuthorEndpoints {
             )
     })
     @Counted
-    public Response findAll() {
-        try {
-            return Response.ok(authorService.findAll()).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+    public CompletionStage<Response> findAll() {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(authorService.findAll()).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
     @Path("/name/{name}")
-    @Operation(description = "Find authors matching name segment.")
+    @Operation(description = "Find authors matching a name or name segment (in either order, " +
+            "tolerating typos and sound-alike spellings), best match first.")
     @APIResponses(value = {
             @APIResponse(
                     content = @Content(schema = @Schema(implementation = Author.class)),
-                    description = "The found authors.",
+                    description = "The found authors, best match first.",
                     responseCode = "200"
             ),
             @APIResponse(
@@ -193,19 +206,21 @@ public class AuthorEndpoints {
             )
     })
     @Counted
-    public Response findByName(
+    public CompletionStage<Response> findByName(
             @Parameter(description = "Name matching segment of authors to find.")
             @PathParam("name") String name
     ) {
-        try {
-            return Response.ok(authorService.findByName(name)).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(authorService.findByName(name)).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @POST
@@ -233,7 +248,7 @@ public class AuthorEndpoints {
             )
     })
     @Counted
-    public Response insert(
+    public CompletionStage<Response> insert(
             @Parameter(
                     description = "Author to be inserted.",
                     name = "author",
@@ -241,31 +256,33 @@ public class AuthorEndpoints {
             )
                     Author author
     ) {
-        try {
-            author = authorService.insert(author);
-            URI uri = UriBuilder.fromResource(AuthorEndpoints.class)
-                    .path(author.getId().toString())
-                    .build();
-            return Response.created(uri)
-                    .entity(author)
-                    .build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Author inserted = authorService.insert(author);
+                URI uri = UriBuilder.fromResource(AuthorEndpoints.class)
+                        .path(inserted.getId().toString())
+                        .build();
+                return Response.created(uri)
+                        .entity(inserted)
+                        .build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @PUT
@@ -299,7 +316,7 @@ public class AuthorEndpoints {
             )
     })
     @Counted
-    public Response update(
+    public CompletionStage<Response> update(
             @Parameter(description = "ID of the Author to be updated.")
             @PathParam("authorId") Long authorId,
             @Parameter(
@@ -309,32 +326,33 @@ public class AuthorEndpoints {
             )
             Author author
     ) {
-        try {
-            author = authorService.update(authorId, author);
-            return Response.ok(author).build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
-
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Author updated = authorService.update(authorId, author);
+                return Response.ok(updated).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
 }
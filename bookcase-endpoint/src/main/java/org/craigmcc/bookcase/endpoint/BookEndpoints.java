@@ -15,6 +15,10 @@
  */
 package org.craigmcc.bookcase.endpoint;
 
+import org.craigmcc.bookcase.browse.BrowseCriteria;
+import org.craigmcc.bookcase.browse.BrowsePage;
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
 import org.craigmcc.bookcase.model.Book;
 import org.craigmcc.bookcase.service.BookService;
 import org.craigmcc.library.shared.exception.BadRequest;
@@ -40,23 +44,28 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.net.URI;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 import static java.util.logging.Level.SEVERE;
 
 @ApplicationScoped
 @Path("/books")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
 @Tag(name = "Book Endpoints")
 public class BookEndpoints {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
     @Inject
     private BookService bookService;
 
@@ -66,6 +75,66 @@ public class BookEndpoints {
 
     // Endpoint Methods ------------------------------------------------------
 
+    @GET
+    @Path("/browse")
+    @Operation(description = "Browse books by author, location, read status, title prefix, and " +
+            "presence of a Google Books ID, one keyset page at a time, with facet counts.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = BrowsePage.class)),
+                    description = "The requested page of books, and facet counts.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Invalid parameters message.",
+                    responseCode = "400"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Internal server error message.",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> browse(
+            @Parameter(description = "Cursor (from the 'next' of the previous page) to continue after.")
+            @QueryParam("after") String after,
+            @Parameter(description = "ID of the author of books to include.")
+            @QueryParam("authorId") Long authorId,
+            @Parameter(description = "Include only books with (true) or without (false) a Google Books ID.")
+            @QueryParam("googleId") Boolean googleId,
+            @Parameter(description = "Maximum number of books per page (1 to " + BrowseCriteria.MAX_LIMIT + ").")
+            @QueryParam("limit") Integer limit,
+            @Parameter(description = "Location of books to include.")
+            @QueryParam("location") String location,
+            @Parameter(description = "Include only books that have (true) or have not (false) been read.")
+            @QueryParam("read") Boolean read,
+            @Parameter(description = "Sort order ('title', 'title_desc', or 'updated_desc').")
+            @QueryParam("sort") String sort,
+            @Parameter(description = "Prefix of the titles of books to include, ignoring case, punctuation, and a leading article.")
+            @QueryParam("titlePrefix") String titlePrefix
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                BrowseCriteria criteria = BrowseCriteria.of
+                        (after, authorId, googleId, limit, location, read, sort, titlePrefix);
+                return Response.ok(bookService.browse(criteria)).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
     @DELETE
     @Path("/{bookId}")
     @Operation(description = "Delete book by ID.")
@@ -87,25 +156,27 @@ public class BookEndpoints {
             )
     })
     @Counted
-    public Response delete(
+    public CompletionStage<Response> delete(
             @Parameter(description = "ID of book to delete.")
             @PathParam("bookId") Long bookId
     ) {
-        try {
-            Book book = bookService.delete(bookId);
-            return Response.ok(book).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Book book = bookService.delete(bookId);
+                return Response.ok(book).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -129,25 +200,27 @@ public class BookEndpoints {
             )
     })
     @Counted
-    public Response find(
+    public CompletionStage<Response> find(
             @Parameter(description = "ID of book to find.")
             @PathParam("bookId") Long bookId
     ) {
-        try {
-            Book book = bookService.find(bookId);
-            return Response.ok(book).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Book book = bookService.find(bookId);
+                return Response.ok(book).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -165,16 +238,51 @@ public class BookEndpoints {
             )
     })
     @Counted
-    public Response findAll() {
-        try {
-            return Response.ok(bookService.findAll()).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+    public CompletionStage<Response> findAll() {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(bookService.findAll()).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
+    @GET
+    @Path("/author/{authorId}")
+    @Operation(description = "Find books by author, ordered by title.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = Book.class)),
+                    description = "The found books.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Internal server error message.",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> findByAuthorId(
+            @Parameter(description = "ID of the author of books to find.")
+            @PathParam("authorId") Long authorId
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(bookService.findByAuthorId(authorId)).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -193,19 +301,21 @@ public class BookEndpoints {
             )
     })
     @Counted
-    public Response findByTitle(
+    public CompletionStage<Response> findByTitle(
             @Parameter(description = "Title matching segment of books to find.")
             @PathParam("title") String title
     ) {
-        try {
-            return Response.ok(bookService.findByTitle(title)).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(bookService.findByTitle(title)).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @POST
@@ -233,7 +343,7 @@ public class BookEndpoints {
             )
     })
     @Counted
-    public Response insert(
+    public CompletionStage<Response> insert(
             @Parameter(
                     description = "Book to be inserted.",
                     name = "book",
@@ -241,31 +351,33 @@ public class BookEndpoints {
             )
                     Book book
     ) {
-        try {
-            book = bookService.insert(book);
-            URI uri = UriBuilder.fromResource(BookEndpoints.class)
-                    .path(book.getId().toString())
-                    .build();
-            return Response.created(uri)
-                    .entity(book)
-                    .build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Book inserted = bookService.insert(book);
+                URI uri = UriBuilder.fromResource(BookEndpoints.class)
+                        .path(inserted.getId().toString())
+                        .build();
+                return Response.created(uri)
+                        .entity(inserted)
+                        .build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @PUT
@@ -299,7 +411,7 @@ public class BookEndpoints {
             )
     })
     @Counted
-    public Response update(
+    public CompletionStage<Response> update(
             @Parameter(description = "ID of the Book to be updated.")
             @PathParam("bookId") Long bookId,
             @Parameter(
@@ -309,32 +421,33 @@ public class BookEndpoints {
             )
             Book book
     ) {
-        try {
-            book = bookService.update(bookId, book);
-            return Response.ok(book).build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
-
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Book updated = bookService.update(bookId, book);
+                return Response.ok(updated).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint;
+
+import org.craigmcc.bookcase.catalog.CatalogVerification;
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
+import org.craigmcc.bookcase.endpoint.shedding.Workload;
+import org.craigmcc.bookcase.endpoint.shedding.WorkloadType;
+import org.craigmcc.bookcase.service.CatalogSnapshotService;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * <p>Administrative operations on the in-memory catalog snapshot.</p>
+ */
+@ApplicationScoped
+@Path("/admin/catalog")
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Tag(name = "Catalog Snapshot Endpoints")
+@WorkloadType(Workload.BULK)
+public class CatalogSnapshotEndpoints {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
+    @Inject
+    private CatalogSnapshotService catalogSnapshotService;
+
+    // Endpoint Methods ------------------------------------------------------
+
+    @POST
+    @Path("/reload")
+    @Operation(description = "Reload the catalog snapshot from the database.")
+    @APIResponses(value = {
+            @APIResponse(
+                    description = "The catalog snapshot was reloaded.",
+                    responseCode = "204"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Catalog snapshot is disabled message.",
+                    responseCode = "409"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> reload() {
+        return asyncDispatcher.dispatch(() -> {
+            if (!catalogSnapshotService.isEnabled()) {
+                return disabled();
+            }
+            catalogSnapshotService.reload();
+            return Response.noContent().build();
+        });
+    }
+
+    @GET
+    @Path("/verify")
+    @Operation(description = "Compare the catalog snapshot to the database.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = CatalogVerification.class)),
+                    description = "The verification results.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Catalog snapshot is disabled message.",
+                    responseCode = "409"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> verify() {
+        return asyncDispatcher.dispatch(() -> {
+            if (!catalogSnapshotService.isEnabled()) {
+                return disabled();
+            }
+            return Response.ok(catalogSnapshotService.verify()).build();
+        });
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Response disabled() {
+        return Response.status(Response.Status.CONFLICT)
+                .entity("catalog: snapshot is disabled")
+                .type(MediaType.TEXT_PLAIN)
+                .build();
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint;
+
+import org.craigmcc.bookcase.catalog.CatalogStatistics;
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
+import org.craigmcc.bookcase.endpoint.shedding.Workload;
+import org.craigmcc.bookcase.endpoint.shedding.WorkloadType;
+import org.craigmcc.bookcase.service.CatalogStatisticsService;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * <p>Catalog counts, served from incrementally maintained counters.</p>
+ */
+@ApplicationScoped
+@Path("/stats")
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Tag(name = "Catalog Statistics Endpoints")
+public class CatalogStatisticsEndpoints {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
+    @Inject
+    private CatalogStatisticsService catalogStatisticsService;
+
+    // Endpoint Methods ------------------------------------------------------
+
+    @GET
+    @Path("/anthologies")
+    @Operation(description = "Number of stories in each anthology, keyed by anthology ID.")
+    @APIResponses(value = {
+            @APIResponse(
+                    description = "The story counts.",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> anthologies() {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(catalogStatisticsService.getAnthologyStoryCounts()).build();
+        });
+    }
+
+    @GET
+    @Path("/anthologies/{anthologyId}")
+    @Operation(description = "Number of stories in an anthology.")
+    @APIResponses(value = {
+            @APIResponse(
+                    description = "The story count (zero for an unknown anthology).",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> anthology(
+            @Parameter(description = "ID of the anthology whose stories to count.")
+            @PathParam("anthologyId") Long anthologyId
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(catalogStatisticsService.getAnthologyStoryCount(anthologyId)).build();
+        });
+    }
+
+    @GET
+    @Path("/authors/{authorId}")
+    @Operation(description = "Number of books by an author.")
+    @APIResponses(value = {
+            @APIResponse(
+                    description = "The book count (zero for an unknown author).",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> author(
+            @Parameter(description = "ID of the author whose books to count.")
+            @PathParam("authorId") Long authorId
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(catalogStatisticsService.getAuthorBookCount(authorId)).build();
+        });
+    }
+
+    @GET
+    @Path("/authors")
+    @Operation(description = "Number of books by each author, keyed by author ID.")
+    @APIResponses(value = {
+            @APIResponse(
+                    description = "The book counts.",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> authors() {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(catalogStatisticsService.getAuthorBookCounts()).build();
+        });
+    }
+
+    @POST
+    @Path("/reconcile")
+    @Operation(description = "Recompute the counters from the database.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = CatalogStatistics.class)),
+                    description = "The reconciled statistics (drift is the number of corrected counters).",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    @WorkloadType(Workload.BULK)
+    public CompletionStage<Response> reconcile() {
+        return asyncDispatcher.dispatch(() -> {
+            catalogStatisticsService.reconcile();
+            return Response.ok(catalogStatisticsService.getStatistics()).build();
+        });
+    }
+
+    @GET
+    @Path("/series/{seriesId}")
+    @Operation(description = "Number of members of a series.")
+    @APIResponses(value = {
+            @APIResponse(
+                    description = "The member count (zero for an unknown series).",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> series(
+            @Parameter(description = "ID of the series whose members to count.")
+            @PathParam("seriesId") Long seriesId
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(catalogStatisticsService.getSeriesMemberCount(seriesId)).build();
+        });
+    }
+
+    @GET
+    @Path("/series")
+    @Operation(description = "Number of members of each series, keyed by series ID.")
+    @APIResponses(value = {
+            @APIResponse(
+                    description = "The member counts.",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> seriesAll() {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(catalogStatisticsService.getSeriesMemberCounts()).build();
+        });
+    }
+
+    @GET
+    @Operation(description = "Book counts by location and read status.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = CatalogStatistics.class)),
+                    description = "The book counts.",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> statistics() {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(catalogStatisticsService.getStatistics()).build();
+        });
+    }
+
+}
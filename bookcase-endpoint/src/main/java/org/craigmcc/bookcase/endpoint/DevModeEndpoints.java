@@ -15,8 +15,17 @@
  */
 package org.craigmcc.bookcase.endpoint;
 
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.shedding.Workload;
+import org.craigmcc.bookcase.endpoint.shedding.WorkloadType;
+import org.craigmcc.bookcase.service.AuthorMatchService;
+import org.craigmcc.bookcase.service.CatalogSnapshotService;
+import org.craigmcc.bookcase.service.CatalogStatisticsService;
+import org.craigmcc.bookcase.service.ClusterInvalidationService;
 import org.craigmcc.bookcase.service.DevModeDepopulateService;
 import org.craigmcc.bookcase.service.DevModePopulateService;
+import org.craigmcc.bookcase.service.ProjectionService;
+import org.craigmcc.bookcase.service.SuggestService;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -25,6 +34,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletionStage;
 
 /**
  * <p>Utilities to enable external clients to remotely trigger depopulation and
@@ -35,10 +45,26 @@ import javax.ws.rs.core.Response;
  */
 @ApplicationScoped()
 @Path("/devmode")
+@WorkloadType(Workload.BULK)
 public class DevModeEndpoints {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
+    @Inject
+    private AuthorMatchService authorMatchService;
+
+    @Inject
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Inject
+    private CatalogStatisticsService catalogStatisticsService;
+
+    @Inject
+    private ClusterInvalidationService clusterInvalidationService;
+
     @Inject
     @ConfigProperty(name = "dev.mode.depopulate", defaultValue = "false")
     private boolean devModeDepopulate;
@@ -53,34 +79,56 @@ public class DevModeEndpoints {
     @Inject
     private DevModePopulateService devModePopulateService;
 
+    @Inject
+    private ProjectionService projectionService;
+
+    @Inject
+    private SuggestService suggestService;
+
     // Endpoint Methods ------------------------------------------------------
 
     @POST
     @Path("/depopulate")
-    public Response depopulate() {
-        if (devModeDepopulate) {
-            devModeDepopulateService.depopulate();
-            return Response.noContent().build();
-        } else {
-            return Response.status(Response.Status.FORBIDDEN)
-                    .entity("devMode: depopulation is disabled")
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+    public CompletionStage<Response> depopulate() {
+        return asyncDispatcher.dispatch(() -> {
+            if (devModeDepopulate) {
+                devModeDepopulateService.depopulate();
+                authorMatchService.rebuild();
+                catalogSnapshotService.reload();
+                catalogStatisticsService.reconcile();
+                projectionService.rebuild();
+                suggestService.rebuild();
+                clusterInvalidationService.publishAll();
+                return Response.noContent().build();
+            } else {
+                return Response.status(Response.Status.FORBIDDEN)
+                        .entity("devMode: depopulation is disabled")
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @POST
     @Path("/populate")
-    public Response populate() {
-        if (devModePopulate) {
-            devModePopulateService.populate();
-            return Response.noContent().build();
-        } else {
-            return Response.status(Response.Status.FORBIDDEN)
-                    .entity("devMode: population is disabled")
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+    public CompletionStage<Response> populate() {
+        return asyncDispatcher.dispatch(() -> {
+            if (devModePopulate) {
+                devModePopulateService.populate();
+                authorMatchService.rebuild();
+                catalogSnapshotService.reload();
+                catalogStatisticsService.reconcile();
+                projectionService.rebuild();
+                suggestService.rebuild();
+                clusterInvalidationService.publishAll();
+                return Response.noContent().build();
+            } else {
+                return Response.status(Response.Status.FORBIDDEN)
+                        .entity("devMode: population is disabled")
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
 }
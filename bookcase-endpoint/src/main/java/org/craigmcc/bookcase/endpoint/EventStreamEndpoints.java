@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint;
+
+import org.craigmcc.bookcase.endpoint.stream.EventStream;
+import org.craigmcc.bookcase.endpoint.stream.StreamNotification;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.Set;
+
+/**
+ * <p>Live stream of committed model mutations, as server-sent events (see
+ * {@link EventStream}), so that user interfaces need not poll.</p>
+ */
+@ApplicationScoped
+@Path("/events")
+@Tag(name = "Event Stream Endpoints")
+public class EventStreamEndpoints {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private EventStream eventStream;
+
+    // Endpoint Methods ------------------------------------------------------
+
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @Operation(description = "Stream a notification of each committed model mutation (as a " +
+            "server-sent event named 'inserted', 'updated', or 'deleted', whose ID is the ID of " +
+            "the recorded mutated model event).  A client reconnecting with Last-Event-ID is " +
+            "first sent the events it missed, or a 'reset' event if they cannot be replayed.  " +
+            "A 'dropped' event reports the number of notifications dropped because the client " +
+            "fell behind.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(
+                            mediaType = MediaType.SERVER_SENT_EVENTS,
+                            schema = @Schema(implementation = StreamNotification.class)
+                    ),
+                    description = "The stream of mutation notifications.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Invalid parameters message.",
+                    responseCode = "400"
+            )
+    })
+    @Counted
+    public void stream(
+            @Context Sse sse,
+            @Context SseEventSink sink,
+            @Parameter(description = "ID of the last event received, to resume after.")
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId,
+            @Parameter(description = "Comma separated model types to be notified of ('author', " +
+                    "'book', 'series', 'member', 'anthology', and/or 'story'), default is all.")
+            @QueryParam("types") String types
+    ) {
+        Set<String> modelTypes;
+        Long lastId = null;
+        try {
+            modelTypes = EventStream.modelTypes(types);
+            if ((lastEventId != null) && !lastEventId.isBlank()) {
+                try {
+                    lastId = Long.valueOf(lastEventId.trim());
+                } catch (NumberFormatException e) {
+                    throw new BadRequest("Last-Event-ID: Not a valid event ID");
+                }
+            }
+        } catch (BadRequest e) {
+            throw new BadRequestException(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .type(MediaType.TEXT_PLAIN)
+                    .build());
+        }
+        eventStream.subscribe(sink, sse, modelTypes, lastId);
+    }
+
+}
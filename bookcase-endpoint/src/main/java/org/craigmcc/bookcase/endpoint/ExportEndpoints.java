@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint;
+
+import org.craigmcc.bookcase.endpoint.shedding.Workload;
+import org.craigmcc.bookcase.endpoint.shedding.WorkloadType;
+import org.craigmcc.bookcase.export.ExportFormat;
+import org.craigmcc.bookcase.service.ExportService;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.logging.Level.SEVERE;
+
+/**
+ * <p>Streaming bulk export of the entire catalog.</p>
+ */
+@ApplicationScoped
+@Path("/export")
+@Tag(name = "Export Endpoints")
+@WorkloadType(Workload.BULK)
+public class ExportEndpoints {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private ExportService exportService;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Size of the output buffer between the export writer and the response.</p>
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * <p>Value of the <code>compress</code> parameter requesting gzip compression.</p>
+     */
+    public static final String COMPRESS_GZIP = "gzip";
+
+    private static final DateTimeFormatter FILENAME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * <p>Media type of a gzip compressed export.</p>
+     */
+    public static final String GZIP_MEDIA_TYPE = "application/gzip";
+
+    private static final Logger LOG = Logger.getLogger(ExportEndpoints.class.getName());
+
+    // Endpoint Methods ------------------------------------------------------
+
+    @GET
+    @Operation(description = "Stream all authors, anthologies, books, series, members, and stories " +
+            "(in that order) as CSV or NDJSON, optionally gzip compressed.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = {
+                            @Content(mediaType = "application/x-ndjson"),
+                            @Content(mediaType = "text/csv"),
+                            @Content(mediaType = GZIP_MEDIA_TYPE)
+                    },
+                    description = "The exported catalog, as an attachment.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Invalid format or compression message.",
+                    responseCode = "400"
+            )
+    })
+    @Counted
+    public Response export(
+            @Parameter(description = "Export format ('ndjson' or 'csv').")
+            @QueryParam("format") @DefaultValue("ndjson") String format,
+            @Parameter(description = "Compression ('gzip'), or omit for none.")
+            @QueryParam("compress") String compress
+    ) {
+
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromName(format);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        boolean gzip = COMPRESS_GZIP.equalsIgnoreCase(compress);
+        if ((compress != null) && !compress.isBlank() && !gzip) {
+            return badRequest("compress: Must be 'gzip' or omitted, not '" + compress + "'");
+        }
+
+        StreamingOutput output = outputStream -> {
+            OutputStream stream = gzip
+                    ? new GZIPOutputStream(outputStream, BUFFER_SIZE)
+                    : new BufferedOutputStream(outputStream, BUFFER_SIZE);
+            try {
+                exportService.export(exportFormat, stream);
+            } catch (InternalServerError e) {
+                // Headers are already committed, so abort the response instead
+                LOG.log(SEVERE, e.getMessage(), e);
+                throw new WebApplicationException(e);
+            }
+            if (stream instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) stream).finish();
+            }
+            stream.flush();
+        };
+
+        String filename = "bookcase-" + LocalDateTime.now().format(FILENAME_FORMATTER) +
+                exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return Response.ok(output)
+                .type(gzip ? GZIP_MEDIA_TYPE : exportFormat.getMediaType())
+                .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
+                .build();
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Response badRequest(String message) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .entity(message)
+                .type(MediaType.TEXT_PLAIN)
+                .build();
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint;
+
+import org.craigmcc.bookcase.endpoint.shedding.Workload;
+import org.craigmcc.bookcase.endpoint.shedding.WorkloadType;
+import org.craigmcc.bookcase.export.ExportFormat;
+import org.craigmcc.bookcase.importer.ImportReport;
+import org.craigmcc.bookcase.service.ImportService;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import static java.util.logging.Level.SEVERE;
+import static org.craigmcc.bookcase.endpoint.ExportEndpoints.COMPRESS_GZIP;
+
+/**
+ * <p>Bulk import of a catalog file, in any of the export formats.</p>
+ */
+@ApplicationScoped
+@Path("/import")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Import Endpoints")
+@WorkloadType(Workload.BULK)
+public class ImportEndpoints {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private ImportService importService;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Size of the input buffer between the request and the import reader.</p>
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger LOG = Logger.getLogger(ImportEndpoints.class.getName());
+
+    // Endpoint Methods ------------------------------------------------------
+
+    @GET
+    @Path("/{name}")
+    @Operation(description = "Report on the progress or outcome of the named import.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = ImportReport.class)),
+                    description = "The import report.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Missing import message.",
+                    responseCode = "404"
+            )
+    })
+    @Counted
+    public Response find(
+            @Parameter(description = "Name of the import to report on.")
+            @PathParam("name") String name
+    ) {
+        try {
+            return Response.ok(importService.getReport(name)).build();
+        } catch (NotFound e) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(e.getMessage())
+                    .type(MediaType.TEXT_PLAIN)
+                    .build();
+        }
+    }
+
+    @POST
+    @Consumes(MediaType.WILDCARD)
+    @Operation(description = "Import authors, anthologies, books, series, members, and stories " +
+            "from a CSV or NDJSON file (in the layout produced by export), optionally gzip compressed.  " +
+            "References are resolved by file ID or by natural key (author name or title).")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = ImportReport.class)),
+                    description = "The report of the completed import, including rejected rows.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Invalid parameters message.",
+                    responseCode = "400"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Import already running message.",
+                    responseCode = "409"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Import failed message (the import may be resumed).",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    public Response insert(
+            @Parameter(description = "Name identifying this import.")
+            @QueryParam("name") String name,
+            @Parameter(description = "Import format ('ndjson' or 'csv').")
+            @QueryParam("format") @DefaultValue("ndjson") String format,
+            @Parameter(description = "Compression ('gzip'), or omit for none.")
+            @QueryParam("compress") String compress,
+            @Parameter(description = "Resume after the rows committed by an earlier attempt with this name?")
+            @QueryParam("resume") @DefaultValue("false") boolean resume,
+            InputStream inputStream
+    ) {
+
+        if ((name == null) || name.isBlank()) {
+            return badRequest("name: Required");
+        }
+        ExportFormat importFormat;
+        try {
+            importFormat = ExportFormat.fromName(format);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        boolean gzip = COMPRESS_GZIP.equalsIgnoreCase(compress);
+        if ((compress != null) && !compress.isBlank() && !gzip) {
+            return badRequest("compress: Must be 'gzip' or omitted, not '" + compress + "'");
+        }
+
+        try (InputStream stream = gzip
+                ? new GZIPInputStream(inputStream, BUFFER_SIZE)
+                : new BufferedInputStream(inputStream, BUFFER_SIZE)) {
+            return Response.ok(importService.importCatalog(name, importFormat, stream, resume)).build();
+        } catch (BadRequest e) {
+            return badRequest(e.getMessage());
+        } catch (InternalServerError e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(e.getMessage())
+                    .type(MediaType.TEXT_PLAIN)
+                    .build();
+        } catch (IOException e) {
+            LOG.log(SEVERE, e.getMessage(), e);
+            return badRequest("compress: Cannot read gzip input: " + e.getMessage());
+        } catch (NotUnique e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(e.getMessage())
+                    .type(MediaType.TEXT_PLAIN)
+                    .build();
+        }
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Response badRequest(String message) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .entity(message)
+                .type(MediaType.TEXT_PLAIN)
+                .build();
+    }
+
+}
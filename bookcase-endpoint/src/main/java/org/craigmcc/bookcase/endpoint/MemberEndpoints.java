@@ -15,6 +15,8 @@
  */
 package org.craigmcc.bookcase.endpoint;
 
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
 import org.craigmcc.bookcase.model.Member;
 import org.craigmcc.bookcase.service.MemberService;
 import org.craigmcc.library.shared.exception.BadRequest;
@@ -40,23 +42,28 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.net.URI;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 import static java.util.logging.Level.SEVERE;
 
 @ApplicationScoped
 @Path("/members")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
 @Tag(name = "Member Endpoints")
 public class MemberEndpoints {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
     @Inject
     private MemberService memberService;
 
@@ -87,25 +94,27 @@ public class MemberEndpoints {
             )
     })
     @Counted
-    public Response delete(
+    public CompletionStage<Response> delete(
             @Parameter(description = "ID of member to delete.")
             @PathParam("memberId") Long memberId
     ) {
-        try {
-            Member member = memberService.delete(memberId);
-            return Response.ok(member).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Member member = memberService.delete(memberId);
+                return Response.ok(member).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -129,25 +138,27 @@ public class MemberEndpoints {
             )
     })
     @Counted
-    public Response find(
+    public CompletionStage<Response> find(
             @Parameter(description = "ID of member to find.")
             @PathParam("memberId") Long memberId
     ) {
-        try {
-            Member member = memberService.find(memberId);
-            return Response.ok(member).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Member member = memberService.find(memberId);
+                return Response.ok(member).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -165,16 +176,18 @@ public class MemberEndpoints {
             )
     })
     @Counted
-    public Response findAll() {
-        try {
-            return Response.ok(memberService.findAll()).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+    public CompletionStage<Response> findAll() {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(memberService.findAll()).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -193,19 +206,21 @@ public class MemberEndpoints {
             )
     })
     @Counted
-    public Response findBySeriesId(
+    public CompletionStage<Response> findBySeriesId(
             @Parameter(description = "Series ID of members to find.")
             @PathParam("seriesId") Long seriesId
     ) {
-        try {
-            return Response.ok(memberService.findBySeriesId(seriesId)).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(memberService.findBySeriesId(seriesId)).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @POST
@@ -233,7 +248,11 @@ public class MemberEndpoints {
             )
     })
     @Counted
-    public Response insert(
+    public CompletionStage<Response> insert(
+            @Parameter(description = "Zero relative position among the members of its series at " +
+                    "which to insert the member (between its new neighbours), instead of using its ordinal.  " +
+                    "Only inserts with a position are guaranteed sparse ordinals that leave room for later inserts.")
+            @QueryParam("position") Integer position,
             @Parameter(
                     description = "Member to be inserted.",
                     name = "member",
@@ -241,31 +260,35 @@ public class MemberEndpoints {
             )
                     Member member
     ) {
-        try {
-            member = memberService.insert(member);
-            URI uri = UriBuilder.fromResource(MemberEndpoints.class)
-                    .path(member.getId().toString())
-                    .build();
-            return Response.created(uri)
-                    .entity(member)
-                    .build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Member inserted = (position != null)
+                        ? memberService.insertAt(member, position)
+                        : memberService.insert(member);
+                URI uri = UriBuilder.fromResource(MemberEndpoints.class)
+                        .path(inserted.getId().toString())
+                        .build();
+                return Response.created(uri)
+                        .entity(inserted)
+                        .build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @PUT
@@ -299,7 +322,7 @@ public class MemberEndpoints {
             )
     })
     @Counted
-    public Response update(
+    public CompletionStage<Response> update(
             @Parameter(description = "ID of the Member to be updated.")
             @PathParam("memberId") Long memberId,
             @Parameter(
@@ -309,32 +332,33 @@ public class MemberEndpoints {
             )
             Member member
     ) {
-        try {
-            member = memberService.update(memberId, member);
-            return Response.ok(member).build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
-
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Member updated = memberService.update(memberId, member);
+                return Response.ok(updated).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
 }
@@ -15,6 +15,8 @@
  */
 package org.craigmcc.bookcase.endpoint;
 
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
 import org.craigmcc.bookcase.event.MutatedModelEvent;
 import org.craigmcc.bookcase.service.MutatedModelEventService;
 import org.craigmcc.library.shared.exception.NotFound;
@@ -36,16 +38,20 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletionStage;
 
 @ApplicationScoped
 @Path("/mutatedModelEvents")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
 @Tag(name = "Mutated Model Event Endpoints")
 public class MutatedModelEventEndpoints {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
     @Inject
     private MutatedModelEventService mutatedModelEventService;
 
@@ -72,19 +78,21 @@ public class MutatedModelEventEndpoints {
             )
     })
     @Counted
-    public Response find(
+    public CompletionStage<Response> find(
             @Parameter(description = "ID of mutated model event to find.")
             @PathParam("mutatedModelEventId") Long mutatedModelEventId
     ) {
-        try {
-            MutatedModelEvent mutatedModelEvent = mutatedModelEventService.find(mutatedModelEventId);
-            return Response.ok(mutatedModelEvent).build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                MutatedModelEvent mutatedModelEvent = mutatedModelEventService.find(mutatedModelEventId);
+                return Response.ok(mutatedModelEvent).build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -102,8 +110,10 @@ public class MutatedModelEventEndpoints {
             )
     })
     @Counted
-    public Response findAll() {
-        return Response.ok(mutatedModelEventService.findAll()).build();
+    public CompletionStage<Response> findAll() {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(mutatedModelEventService.findAll()).build();
+        });
     }
 
 }
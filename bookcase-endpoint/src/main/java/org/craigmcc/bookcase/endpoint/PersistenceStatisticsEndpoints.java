@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint;
+
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
+import org.craigmcc.bookcase.service.PersistenceStatisticsService;
+import org.craigmcc.bookcase.statistics.PersistenceStatistics;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * <p>Read-only access to persistence statistics (query counts and timings,
+ * entity load and fetch counts, and recent slow queries).</p>
+ */
+@ApplicationScoped
+@Path("/admin/persistence-stats")
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Tag(name = "Persistence Statistics Endpoints")
+public class PersistenceStatisticsEndpoints {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
+    @Inject
+    private PersistenceStatisticsService persistenceStatisticsService;
+
+    // Endpoint Methods ------------------------------------------------------
+
+    @GET
+    @Operation(description = "Return a snapshot of current persistence statistics.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = PersistenceStatistics.class)),
+                    description = "The current persistence statistics.",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> find() {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(persistenceStatisticsService.getStatistics()).build();
+        });
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint;
+
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
+import org.craigmcc.bookcase.endpoint.shedding.Workload;
+import org.craigmcc.bookcase.endpoint.shedding.WorkloadType;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.projection.AuthorSummary;
+import org.craigmcc.bookcase.projection.AuthorSummaryProjection;
+import org.craigmcc.bookcase.projection.ProjectionStatus;
+import org.craigmcc.bookcase.service.AuthorService;
+import org.craigmcc.bookcase.service.ProjectionService;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Read models built by replaying the persisted model events, and the
+ * operations that maintain them.</p>
+ */
+@ApplicationScoped
+@Path("/projections")
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Tag(name = "Projection Endpoints")
+public class ProjectionEndpoints {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
+    @Inject
+    private AuthorService authorService;
+
+    @Inject
+    private AuthorSummaryProjection authorSummaryProjection;
+
+    @Inject
+    private ProjectionService projectionService;
+
+    // Endpoint Methods ------------------------------------------------------
+
+    @GET
+    @Path("/author-summaries/{authorId}")
+    @Operation(description = "Projected counts of the anthologies, books, and series by an author.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = AuthorSummary.class)),
+                    description = "The summary (with zero counts for an unknown author, or an author of another tenant).",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> authorSummary(
+            @Parameter(description = "ID of the author to summarize.")
+            @PathParam("authorId") Long authorId
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            // The projection is global, so another tenant's author looks unknown
+            AuthorSummary summary = authorService.isVisible(authorId)
+                    ? authorSummaryProjection.getSummary(authorId)
+                    : new AuthorSummary(authorId);
+            return Response.ok(summary).build();
+        });
+    }
+
+    @GET
+    @Path("/author-summaries")
+    @Operation(description = "Projected counts of the anthologies, books, and series by every author.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = AuthorSummary.class)),
+                    description = "The summaries of the current tenant's authors, ordered by author ID.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Author lookup failure.",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> authorSummaries() {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Set<Long> authorIds = authorService.findAll().stream()
+                        .map(Author::getId)
+                        .collect(Collectors.toSet());
+                List<AuthorSummary> summaries = authorSummaryProjection.getSummaries().stream()
+                        .filter(summary -> authorIds.contains(summary.getAuthorId()))
+                        .collect(Collectors.toList());
+                return Response.ok(summaries).build();
+            } catch (InternalServerError e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
+    @GET
+    @Path("/{name}")
+    @Operation(description = "Replay progress of a projection.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = ProjectionStatus.class)),
+                    description = "The projection status.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Missing projection name.",
+                    responseCode = "404"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> find(
+            @Parameter(description = "Name of the projection.")
+            @PathParam("name") String name
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(projectionService.getStatus(name)).build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
+    @GET
+    @Operation(description = "Replay progress of every projection.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = ProjectionStatus.class)),
+                    description = "The projection statuses, ordered by name.",
+                    responseCode = "200"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> findAll() {
+        return asyncDispatcher.dispatch(() -> {
+            return Response.ok(projectionService.getStatuses()).build();
+        });
+    }
+
+    @POST
+    @Path("/{name}/rebuild")
+    @Operation(description = "Rebuild a projection from its latest snapshot, or from the first event.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = ProjectionStatus.class)),
+                    description = "The rebuilt projection status.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Missing projection name.",
+                    responseCode = "404"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Snapshot or replay failure.",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    @WorkloadType(Workload.BULK)
+    public CompletionStage<Response> rebuild(
+            @Parameter(description = "Name of the projection.")
+            @PathParam("name") String name,
+            @Parameter(description = "Replay every event instead of starting from the latest snapshot?")
+            @QueryParam("full") @DefaultValue("false") boolean full
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(projectionService.rebuild(name, full)).build();
+            } catch (InternalServerError e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
+    @POST
+    @Path("/{name}/snapshot")
+    @Operation(description = "Catch up a projection and snapshot its state.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = ProjectionStatus.class)),
+                    description = "The snapshotted projection status.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Missing projection name.",
+                    responseCode = "404"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Replay or snapshot failure.",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    @WorkloadType(Workload.BULK)
+    public CompletionStage<Response> snapshot(
+            @Parameter(description = "Name of the projection.")
+            @PathParam("name") String name
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(projectionService.snapshot(name)).build();
+            } catch (InternalServerError e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
+}
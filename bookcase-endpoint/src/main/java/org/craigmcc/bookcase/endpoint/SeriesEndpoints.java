@@ -15,7 +15,11 @@
  */
 package org.craigmcc.bookcase.endpoint;
 
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
+import org.craigmcc.bookcase.model.Member;
 import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.service.MemberService;
 import org.craigmcc.bookcase.service.SeriesService;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
@@ -23,6 +27,7 @@ import org.craigmcc.library.shared.exception.NotFound;
 import org.craigmcc.library.shared.exception.NotUnique;
 import org.eclipse.microprofile.metrics.annotation.Counted;
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
@@ -44,19 +49,27 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 import static java.util.logging.Level.SEVERE;
 
 @ApplicationScoped
 @Path("/series")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
 @Tag(name = "Series Endpoints")
 public class SeriesEndpoints {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
+    @Inject
+    private MemberService memberService;
+
     @Inject
     private SeriesService seriesService;
 
@@ -87,25 +100,27 @@ public class SeriesEndpoints {
             )
     })
     @Counted
-    public Response delete(
+    public CompletionStage<Response> delete(
             @Parameter(description = "ID of series to delete.")
             @PathParam("seriesId") Long seriesId
     ) {
-        try {
-            Series series = seriesService.delete(seriesId);
-            return Response.ok(series).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Series series = seriesService.delete(seriesId);
+                return Response.ok(series).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -129,25 +144,27 @@ public class SeriesEndpoints {
             )
     })
     @Counted
-    public Response find(
+    public CompletionStage<Response> find(
             @Parameter(description = "ID of series to find.")
             @PathParam("seriesId") Long seriesId
     ) {
-        try {
-            Series Series = seriesService.find(seriesId);
-            return Response.ok(Series).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Series Series = seriesService.find(seriesId);
+                return Response.ok(Series).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -165,16 +182,18 @@ public class SeriesEndpoints {
             )
     })
     @Counted
-    public Response findAll() {
-        try {
-            return Response.ok(seriesService.findAll()).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+    public CompletionStage<Response> findAll() {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(seriesService.findAll()).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @GET
@@ -193,19 +212,21 @@ public class SeriesEndpoints {
             )
     })
     @Counted
-    public Response findByTitle(
+    public CompletionStage<Response> findByTitle(
             @Parameter(description = "Title matching segment of series to find.")
             @PathParam("title") String title
     ) {
-        try {
-            return Response.ok(seriesService.findByTitle(title)).build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(seriesService.findByTitle(title)).build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @POST
@@ -233,7 +254,7 @@ public class SeriesEndpoints {
             )
     })
     @Counted
-    public Response insert(
+    public CompletionStage<Response> insert(
             @Parameter(
                     description = "Series to be inserted.",
                     name = "Series",
@@ -241,31 +262,82 @@ public class SeriesEndpoints {
             )
                     Series Series
     ) {
-        try {
-            Series = seriesService.insert(Series);
-            URI uri = UriBuilder.fromResource(SeriesEndpoints.class)
-                    .path(Series.getId().toString())
-                    .build();
-            return Response.created(uri)
-                    .entity(Series)
-                    .build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Series inserted = seriesService.insert(Series);
+                URI uri = UriBuilder.fromResource(SeriesEndpoints.class)
+                        .path(inserted.getId().toString())
+                        .build();
+                return Response.created(uri)
+                        .entity(inserted)
+                        .build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
+    @POST
+    @Path("/{seriesId}/order")
+    @Operation(description = "Reorder the members of an existing series.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = Member.class, type = SchemaType.ARRAY)),
+                    description = "The members of the series, in their new order.",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Bad request message.",
+                    responseCode = "400"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Internal server error message.",
+                    responseCode = "500"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> reorder(
+            @Parameter(description = "ID of the Series to be reordered.")
+            @PathParam("seriesId") Long seriesId,
+            @Parameter(
+                    description = "IDs of every member of the series, in their new order.",
+                    name = "memberIds",
+                    schema = @Schema(implementation = Long.class, type = SchemaType.ARRAY)
+            )
+            List<Long> memberIds
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(memberService.reorder(seriesId, memberIds)).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
     @PUT
@@ -299,7 +371,7 @@ public class SeriesEndpoints {
             )
     })
     @Counted
-    public Response update(
+    public CompletionStage<Response> update(
             @Parameter(description = "ID of the Series to be updated.")
             @PathParam("seriesId") Long seriesId,
             @Parameter(
@@ -309,32 +381,33 @@ public class SeriesEndpoints {
             )
             Series series
     ) {
-        try {
-            series = seriesService.update(seriesId, series);
-            return Response.ok(series).build();
-        } catch (BadRequest e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (InternalServerError e) {
-            LOG.log(SEVERE, e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotFound e) {
-            return Response.status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        } catch (NotUnique e) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(e.getMessage())
-                    .type(MediaType.TEXT_PLAIN)
-                    .build();
-        }
-
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                Series updated = seriesService.update(seriesId, series);
+                return Response.ok(updated).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (InternalServerError e) {
+                LOG.log(SEVERE, e.getMessage(), e);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotFound e) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            } catch (NotUnique e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
     }
 
 }
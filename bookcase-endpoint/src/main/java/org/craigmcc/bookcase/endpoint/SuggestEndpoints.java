@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint;
+
+import org.craigmcc.bookcase.endpoint.application.AsyncDispatcher;
+import org.craigmcc.bookcase.endpoint.application.MediaTypes;
+import org.craigmcc.bookcase.model.text.Suggestion;
+import org.craigmcc.bookcase.service.SuggestService;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.eclipse.microprofile.metrics.annotation.Counted;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * <p>Type-ahead suggestions, served from in-memory prefix indexes.</p>
+ */
+@ApplicationScoped
+@Path("/suggest")
+@Produces({MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE, MediaTypes.APPLICATION_CBOR})
+@Tag(name = "Suggest Endpoints")
+public class SuggestEndpoints {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private AsyncDispatcher asyncDispatcher;
+
+    @Inject
+    private SuggestService suggestService;
+
+    // Endpoint Methods ------------------------------------------------------
+
+    @GET
+    @Operation(description = "Suggest authors, anthologies, books, and series whose names or " +
+            "titles (or any word of a title onwards) start with the query text, ignoring case, " +
+            "accents, and punctuation.")
+    @APIResponses(value = {
+            @APIResponse(
+                    content = @Content(schema = @Schema(implementation = Suggestion.class, type = SchemaType.ARRAY)),
+                    description = "The matching suggestions (none for an empty query).",
+                    responseCode = "200"
+            ),
+            @APIResponse(
+                    content = @Content(mediaType = MediaType.TEXT_PLAIN),
+                    description = "Invalid parameters message.",
+                    responseCode = "400"
+            )
+    })
+    @Counted
+    public CompletionStage<Response> suggest(
+            @Parameter(description = "Maximum number of suggestions (1 to " + SuggestService.MAX_LIMIT + ").")
+            @QueryParam("limit") Integer limit,
+            @Parameter(description = "Order of suggestions ('popularity' or 'alphabetical').")
+            @QueryParam("order") String order,
+            @Parameter(description = "Text the suggestions should start with.")
+            @QueryParam("q") String q,
+            @Parameter(description = "Comma separated types to suggest ('book', 'author', " +
+                    "'series', and/or 'anthology'), default is all.")
+            @QueryParam("types") String types
+    ) {
+        return asyncDispatcher.dispatch(() -> {
+            try {
+                return Response.ok(suggestService.suggest(q, types, limit, order)).build();
+            } catch (BadRequest e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .type(MediaType.TEXT_PLAIN)
+                        .build();
+            }
+        });
+    }
+
+}
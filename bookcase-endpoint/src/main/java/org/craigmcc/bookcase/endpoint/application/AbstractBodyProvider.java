@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.application;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Abstract base class for providers that read and write request and
+ * response bodies of application classes (and collections and maps of them)
+ * with a Jackson <code>ObjectMapper</code>, using an
+ * <code>ObjectReader</code> or <code>ObjectWriter</code> that is built once
+ * per entity type and <code>@JsonView</code> and then reused, rather than
+ * being configured again on every call.  Other types are left to the
+ * container's own providers.</p>
+ *
+ * <p>For text formats, responses are compact unless the call includes
+ * <code>?pretty=true</code>.</p>
+ */
+public abstract class AbstractBodyProvider
+        implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean printable;
+
+    private final Map<Key, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    @Context
+    private UriInfo uriInfo;
+
+    private final Map<Key, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Query parameter that requests pretty printed JSON.</p>
+     */
+    public static final String PRETTY_PARAMETER = "pretty";
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Construct a provider for the specified mapper.</p>
+     *
+     * @param objectMapper Configured mapper for the supported media type
+     * @param printable Whether the media type supports pretty printing
+     */
+    protected AbstractBodyProvider(ObjectMapper objectMapper, boolean printable) {
+        this.objectMapper = objectMapper;
+        this.printable = printable;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType,
+                              Annotation[] annotations, MediaType mediaType) {
+        return isHandled(type);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType,
+                               Annotation[] annotations, MediaType mediaType) {
+        return isHandled(type);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType,
+                           Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders,
+                           InputStream entityStream) throws IOException {
+        Key key = new Key(genericType, view(annotations), false);
+        ObjectReader reader = readers.computeIfAbsent(key, k -> {
+            ObjectReader result = objectMapper.readerFor(objectMapper.constructType(k.type));
+            return (k.view != null) ? result.withView(k.view) : result;
+        });
+        return reader.readValue(entityStream);
+    }
+
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType,
+                        Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        Key key = new Key(genericType, view(annotations), isPretty());
+        ObjectWriter writer = writers.computeIfAbsent(key, k -> {
+            ObjectWriter result = objectMapper.writerFor(objectMapper.constructType(k.type));
+            if (k.view != null) {
+                result = result.withView(k.view);
+            }
+            return k.pretty ? result.withDefaultPrettyPrinter() : result;
+        });
+        writer.writeValue(entityStream, value);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private boolean isHandled(Class<?> type) {
+        return type.getName().startsWith("org.craigmcc.")
+                || Collection.class.isAssignableFrom(type)
+                || Map.class.isAssignableFrom(type);
+    }
+
+    private boolean isPretty() {
+        return printable
+                && (uriInfo != null)
+                && "true".equalsIgnoreCase(uriInfo.getQueryParameters().getFirst(PRETTY_PARAMETER));
+    }
+
+    private Class<?> view(Annotation[] annotations) {
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                if ((annotation instanceof JsonView) && (((JsonView) annotation).value().length > 0)) {
+                    return ((JsonView) annotation).value()[0];
+                }
+            }
+        }
+        return null;
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Cache key for a reader or writer.</p>
+     */
+    private static final class Key {
+
+        private final boolean pretty;
+        private final Type type;
+        private final Class<?> view;
+
+        private Key(Type type, Class<?> view, boolean pretty) {
+            this.pretty = pretty;
+            this.type = type;
+            this.view = view;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return (pretty == that.pretty)
+                    && type.equals(that.type)
+                    && Objects.equals(view, that.view);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pretty, type, view);
+        }
+
+    }
+
+}
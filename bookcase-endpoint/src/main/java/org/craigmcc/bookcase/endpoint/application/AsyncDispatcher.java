@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.application;
+
+import org.craigmcc.bookcase.endpoint.shedding.LoadSheddingFilter;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.SEVERE;
+
+/**
+ * <p>Runs the work of asynchronous REST endpoint methods (which return a
+ * <code>CompletionStage&lt;Response&gt;</code>) on a managed executor, so
+ * that HTTP worker threads are not held while services wait on the
+ * database.  The executor is looked up by the JNDI name in
+ * <code>rest.async.executor</code>, so a runtime that offers one backed by
+ * virtual threads can be configured there.</p>
+ *
+ * <p>A read (<code>GET</code>, <code>HEAD</code>, or <code>OPTIONS</code>)
+ * call that has not completed within <code>rest.async.timeout</code>
+ * milliseconds is answered with 503 (Service Unavailable) and a
+ * <code>Retry-After</code> header, the same as an expired JAX-RS
+ * <code>AsyncResponse</code>.  Any other call is answered with 504 (Gateway
+ * Timeout) and no <code>Retry-After</code> instead, because its work still
+ * runs to completion, so retrying it might apply the change twice.  A call
+ * the executor cannot accept is answered with 503, since it never ran.</p>
+ *
+ * <p>The bulkhead permit acquired for the call by {@link LoadSheddingFilter}
+ * is taken over and released when the work itself finishes, rather than when
+ * the response is sent, so that timed out calls still count against the
+ * bulkhead for as long as they occupy the database.</p>
+ *
+ * <p>The work is performed on behalf of the tenant of the dispatching
+ * request.</p>
+ */
+@ApplicationScoped
+public class AsyncDispatcher {
+
+    // Instance Variables ----------------------------------------------------
+
+    private ManagedExecutorService executor;
+
+    /**
+     * <p>JNDI name of the managed executor that runs endpoint work.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.async.executor", defaultValue = "java:comp/DefaultManagedExecutorService")
+    private String executorName;
+
+    @Inject
+    private HttpServletRequest request;
+
+    /**
+     * <p>Seconds suggested to clients (in <code>Retry-After</code>) after a
+     * timed out or rejected call.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.retry.after", defaultValue = "1")
+    private long retryAfter;
+
+    /**
+     * <p>Milliseconds after which an endpoint call is answered with 503 or
+     * 504 (0 for no limit).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.async.timeout", defaultValue = "30000")
+    private long timeout;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG = Logger.getLogger(AsyncDispatcher.class.getSimpleName());
+
+    /**
+     * <p>HTTP methods whose calls may safely be retried after timing out.</p>
+     */
+    private static final Set<String> RETRYABLE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        try {
+            executor = (ManagedExecutorService) new InitialContext().lookup(executorName);
+        } catch (NamingException e) {
+            throw new IllegalStateException("Cannot look up managed executor " + executorName, e);
+        }
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return a stage that completes with the response produced by the
+     * specified work, which is run on the managed executor on behalf of
+     * the current tenant.</p>
+     *
+     * @param work Work producing the response
+     */
+    public @NotNull CompletionStage<Response> dispatch(@NotNull Supplier<Response> work) {
+        String tenantId = TenantContext.current();
+        Object permit = request.getAttribute(LoadSheddingFilter.PERMIT_PROPERTY);
+        CompletableFuture<Response> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> TenantContext.call(tenantId, work), executor);
+        } catch (RejectedExecutionException e) {
+            LOG.warning("Endpoint call rejected by executor " + executorName);
+            return CompletableFuture.completedFuture(unavailable("Server busy, retry later"));
+        }
+        if (permit != null) {
+            request.removeAttribute(LoadSheddingFilter.PERMIT_PROPERTY);
+            future.whenComplete((response, throwable) -> LoadSheddingFilter.release(permit));
+        }
+        if (timeout > 0) {
+            future = future.copy().completeOnTimeout(timedOut(), timeout, TimeUnit.MILLISECONDS);
+        }
+        return future.exceptionally(t -> {
+            Throwable cause = ((t instanceof CompletionException) && (t.getCause() != null))
+                    ? t.getCause() : t;
+            LOG.log(SEVERE, cause.getMessage(), cause);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(cause.getMessage())
+                    .type(MediaType.TEXT_PLAIN)
+                    .build();
+        });
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    /**
+     * <p>Set the executor that runs endpoint work, instead of looking it up
+     * in <code>startup()</code>.</p>
+     */
+    void setExecutor(ManagedExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * <p>Set the request whose calls are dispatched (normally injected).</p>
+     */
+    void setRequest(HttpServletRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * <p>Set the seconds suggested in <code>Retry-After</code> (normally
+     * configured by <code>rest.retry.after</code>).</p>
+     */
+    void setRetryAfter(long retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * <p>Set the milliseconds after which a call times out (normally
+     * configured by <code>rest.async.timeout</code>).</p>
+     */
+    void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Response timedOut() {
+        if (RETRYABLE_METHODS.contains(request.getMethod())) {
+            return unavailable("Request timed out, retry later");
+        }
+        return Response.status(Response.Status.GATEWAY_TIMEOUT)
+                .entity("Request timed out, it may still complete")
+                .type(MediaType.TEXT_PLAIN)
+                .build();
+    }
+
+    private Response unavailable(String message) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                .entity(message)
+                .type(MediaType.TEXT_PLAIN)
+                .build();
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.application;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * <p>Reads and writes CBOR bodies of application classes, for clients that
+ * prefer a smaller encoding that is cheaper to parse.</p>
+ */
+@Provider
+@Consumes(MediaTypes.APPLICATION_CBOR)
+@Produces(MediaTypes.APPLICATION_CBOR)
+public class CborBodyProvider extends AbstractBodyProvider {
+
+    // Constructors ----------------------------------------------------------
+
+    public CborBodyProvider() {
+        super(ObjectMapperProvider.getCborMapper(), false);
+    }
+
+}
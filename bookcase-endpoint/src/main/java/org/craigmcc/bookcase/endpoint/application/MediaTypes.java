@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.application;
+
+/**
+ * <p>Media types supported by the REST endpoints in addition to the standard
+ * ones defined by <code>javax.ws.rs.core.MediaType</code>.</p>
+ */
+public final class MediaTypes {
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Concise Binary Object Representation (RFC 8949).</p>
+     */
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    /**
+     * <p>Jackson Smile (binary JSON).</p>
+     */
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    // Constructors ----------------------------------------------------------
+
+    private MediaTypes() {
+    }
+
+}
@@ -18,7 +18,10 @@ package org.craigmcc.bookcase.endpoint.application;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
@@ -26,34 +29,50 @@ import javax.ws.rs.ext.ContextResolver;
 import javax.ws.rs.ext.Provider;
 
 /**
- * <p>Provide a Jackson ObjectMapper that pretty prints JSON and does not explode
- * LocalDateTime and friends.</p>
+ * <p>Provide a Jackson ObjectMapper that writes compact JSON, does not explode
+ * LocalDateTime and friends, and uses generated bytecode (rather than
+ * reflection) to access model properties.  Pretty printing is requested per
+ * call with <code>?pretty=true</code> (see {@link JsonBodyProvider}).</p>
+ *
+ * <p>Identically configured mappers for the binary Smile and CBOR formats are
+ * also available, for use by {@link SmileBodyProvider} and
+ * {@link CborBodyProvider}.</p>
  */
 @Provider
 @Produces(MediaType.APPLICATION_JSON)
 public class ObjectMapperProvider implements ContextResolver<ObjectMapper> {
 
-    private final ObjectMapper objectMapper;
+    private static final ObjectMapper CBOR_MAPPER = createObjectMapper(new ObjectMapper(new CBORFactory()));
 
-    public ObjectMapperProvider() {
-        this.objectMapper = createObjectMapper();
-    }
+    private static final ObjectMapper OBJECT_MAPPER = createObjectMapper(new ObjectMapper());
+
+    private static final ObjectMapper SMILE_MAPPER = createObjectMapper(new ObjectMapper(new SmileFactory()));
 
     @Override
     public ObjectMapper getContext(Class<?> type) {
-        return objectMapper;
+        return OBJECT_MAPPER;
+    }
+
+    static ObjectMapper getCborMapper() {
+        return CBOR_MAPPER;
     }
 
-    private ObjectMapper createObjectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+    static ObjectMapper getObjectMapper() {
+        return OBJECT_MAPPER;
+    }
+
+    static ObjectMapper getSmileMapper() {
+        return SMILE_MAPPER;
+    }
+
+    private static ObjectMapper createObjectMapper(ObjectMapper objectMapper) {
+        objectMapper.registerModule(new AfterburnerModule());
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.disable(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS);
         objectMapper.enable(DeserializationFeature.READ_ENUMS_USING_TO_STRING);
-        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         objectMapper.disable(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS);
         objectMapper.enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING);
-        objectMapper.registerModule(new JavaTimeModule());
         return objectMapper;
     }
 
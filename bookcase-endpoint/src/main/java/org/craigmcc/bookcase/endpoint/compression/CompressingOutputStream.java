@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Output stream that buffers what is written to it until more than a
+ * threshold number of bytes has been seen, and then compresses everything
+ * (the buffered bytes, and all further bytes as they are written) to the
+ * target stream.  If the stream is finished before the threshold is
+ * exceeded, the buffered bytes are written to the target uncompressed.
+ * Large responses are therefore compressed as they are streamed, without
+ * ever being held in memory as a whole.</p>
+ *
+ * <p>The supplied listener is called just before the first compressed byte
+ * is written (so that response headers can still be changed), and again
+ * when the stream is finished.</p>
+ */
+public class CompressingOutputStream extends OutputStream {
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Construct a new stream.</p>
+     *
+     * @param target Stream to which (possibly compressed) bytes are written
+     * @param encoding Content encoding to compress with
+     *                 (<code>gzip</code> or <code>deflate</code>)
+     * @param threshold Number of bytes above which output is compressed
+     * @param listener Listener notified of compression events
+     */
+    public CompressingOutputStream(OutputStream target, String encoding, int threshold,
+                                   Listener listener) {
+        this.buffer = new ByteArrayOutputStream(Math.max(threshold, 0) + 1);
+        this.encoding = encoding;
+        this.listener = listener;
+        this.counter = new CountingOutputStream(target);
+        this.target = target;
+        this.threshold = Math.max(threshold, 0);
+    }
+
+    // Instance Variables ----------------------------------------------------
+
+    private ByteArrayOutputStream buffer;
+
+    private OutputStream compressor = null;
+
+    private final CountingOutputStream counter;
+
+    private final String encoding;
+
+    private boolean finished = false;
+
+    private final Listener listener;
+
+    private long rawBytes = 0L;
+
+    private final OutputStream target;
+
+    private final int threshold;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Content encoding for the <code>deflate</code> (zlib) format.</p>
+     */
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * <p>Content encoding for the <code>gzip</code> format.</p>
+     */
+    public static final String GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Write any buffered bytes and the compression trailer (if compressing)
+     * to the target stream, without closing it.</p>
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (compressor != null) {
+            compressor.close(); // Writes the trailer and releases the deflater
+        } else {
+            buffer.writeTo(counter);
+            buffer = null;
+        }
+        target.flush();
+        listener.finished(compressor != null, rawBytes, counter.count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        target.close();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (compressor != null) {
+            compressor.flush();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (finished) {
+            throw new IOException("Stream has already been finished");
+        }
+        rawBytes += length;
+        if (compressor != null) {
+            compressor.write(bytes, offset, length);
+            return;
+        }
+        buffer.write(bytes, offset, length);
+        if (buffer.size() > threshold) {
+            listener.compressing(encoding);
+            compressor = compressor(encoding, counter);
+            buffer.writeTo(compressor);
+            buffer = null;
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static OutputStream compressor(String encoding, OutputStream target) throws IOException {
+        if (DEFLATE.equals(encoding)) {
+            return new DeflaterOutputStream(target, true);
+        } else {
+            return new GZIPOutputStream(target, BUFFER_SIZE, true);
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Listener for compression events.</p>
+     */
+    public interface Listener {
+
+        /**
+         * <p>Called just before the first compressed byte is written.</p>
+         *
+         * @param encoding Content encoding being used
+         */
+        void compressing(String encoding);
+
+        /**
+         * <p>Called when the stream is finished.</p>
+         *
+         * @param compressed Whether the output was compressed
+         * @param rawBytes Number of bytes written to this stream
+         * @param writtenBytes Number of bytes written to the target stream
+         */
+        void finished(boolean compressed, long rawBytes, long writtenBytes);
+
+    }
+
+    /**
+     * <p>Output stream that counts the bytes written through it, and does not
+     * close the underlying stream when it is closed.</p>
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count = 0L;
+
+        private final OutputStream delegate;
+
+        private CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            delegate.write(bytes, offset, length);
+            count += length;
+        }
+
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.compression;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.craigmcc.bookcase.endpoint.compression.CompressingOutputStream.DEFLATE;
+import static org.craigmcc.bookcase.endpoint.compression.CompressingOutputStream.GZIP;
+
+/**
+ * <p>Compresses REST response bodies with <code>gzip</code> (or, for clients
+ * that only accept it, <code>deflate</code>) as negotiated by the request's
+ * <code>Accept-Encoding</code> header.  Bodies of up to
+ * <code>rest.compression.threshold</code> bytes are sent as is, since
+ * compressing them costs more than it saves.  Larger bodies (such as long
+ * lists and exports) are compressed as they are streamed.</p>
+ *
+ * <p>Compressed responses are counted in <code>bookcase.rest.compressed</code>,
+ * and the bytes saved in <code>bookcase.rest.compression.saved</code>, both
+ * tagged by encoding.</p>
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionInterceptor implements WriterInterceptor {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Compress responses for clients that accept it.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.compression.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @Context
+    private HttpHeaders httpHeaders;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    /**
+     * <p>Size in bytes above which response bodies are compressed.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.compression.threshold", defaultValue = "1024")
+    private int threshold;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Supported content encodings, most preferred first.</p>
+     */
+    private static final List<String> CODINGS = List.of(GZIP, DEFLATE);
+
+    // Interceptor Methods ---------------------------------------------------
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if (!enabled
+                || headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                || MediaType.SERVER_SENT_EVENTS_TYPE.isCompatible(context.getMediaType())) {
+            context.proceed();
+            return;
+        }
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String encoding = negotiate(httpHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            context.proceed();
+            return;
+        }
+        OutputStream original = context.getOutputStream();
+        CompressingOutputStream stream = new CompressingOutputStream(original, encoding, threshold,
+                new CompressingOutputStream.Listener() {
+                    @Override
+                    public void compressing(String encoding) {
+                        headers.remove(HttpHeaders.CONTENT_LENGTH);
+                        headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+                    }
+                    @Override
+                    public void finished(boolean compressed, long rawBytes, long writtenBytes) {
+                        if (compressed) {
+                            count(encoding, rawBytes - writtenBytes);
+                        }
+                    }
+                });
+        context.setOutputStream(stream);
+        try {
+            context.proceed();
+            stream.finish();
+        } finally {
+            context.setOutputStream(original);
+        }
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the content encoding to compress with for the specified
+     * <code>Accept-Encoding</code> header value, or <code>null</code> if the
+     * client does not accept a supported compressed encoding.  Encodings
+     * with a quality of zero are not acceptable, encodings that are not
+     * listed are acceptable if the <code>*</code> wildcard is, and
+     * <code>gzip</code> (alias <code>x-gzip</code>) is preferred over
+     * <code>deflate</code> when both are acceptable.</p>
+     *
+     * @param acceptEncoding Header value (may be <code>null</code>)
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        Map<String, Boolean> acceptable = new HashMap<>();
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.trim().split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if ("x-gzip".equals(coding)) {
+                coding = GZIP;
+            }
+            acceptable.merge(coding, !isRejected(parts), Boolean::logicalOr);
+        }
+        boolean wildcard = acceptable.getOrDefault("*", false);
+        for (String coding : CODINGS) {
+            if (acceptable.getOrDefault(coding, wildcard)) {
+                return coding;
+            }
+        }
+        return null;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void count(String encoding, long saved) {
+        Tag tag = new Tag("encoding", encoding);
+        metricRegistry.counter(Metadata.builder()
+                .withName("bookcase.rest.compressed")
+                .withDescription("REST responses sent compressed")
+                .withType(MetricType.COUNTER)
+                .withUnit(MetricUnits.NONE)
+                .build(), tag).inc();
+        metricRegistry.counter(Metadata.builder()
+                .withName("bookcase.rest.compression.saved")
+                .withDescription("Bytes saved by compressing REST responses")
+                .withType(MetricType.COUNTER)
+                .withUnit(MetricUnits.BYTES)
+                .build(), tag).inc(Math.max(saved, 0L));
+    }
+
+    private static boolean isRejected(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim()) <= 0.0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
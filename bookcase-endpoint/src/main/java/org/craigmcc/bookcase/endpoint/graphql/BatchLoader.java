@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.graphql;
+
+import org.craigmcc.library.shared.exception.InternalServerError;
+
+import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Per-request cache of values keyed by ID, in the manner of a DataLoader.
+ * IDs registered before the first lookup of a missing value are loaded along
+ * with it, so resolving a relationship for every parent in a result list
+ * costs one query instead of one query per parent.</p>
+ *
+ * @param <V> Type of the loaded values
+ */
+class BatchLoader<V> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Batch<V> batch;
+
+    private final Map<Long, V> loaded = new HashMap<>();
+
+    private final V missing;
+
+    private final Set<Long> pending = new LinkedHashSet<>();
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Maximum number of IDs included in the IN clause of a single query.</p>
+     */
+    static final int MAX_BATCH_SIZE = 500;
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Construct a loader.</p>
+     *
+     * @param batch Function that loads the values for a set of IDs
+     * @param missing Value returned for IDs that the batch did not load
+     */
+    BatchLoader(@NotNull Batch<V> batch, V missing) {
+        this.batch = batch;
+        this.missing = missing;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the value for the specified ID, loading it (together with
+     * any pending IDs) if it has not been loaded yet.</p>
+     *
+     * @param id ID of the requested value
+     */
+    synchronized V load(Long id) throws InternalServerError {
+        if ((id == null) || loaded.containsKey(id)) {
+            return (id == null) ? missing : loaded.get(id);
+        }
+        Set<Long> ids = new LinkedHashSet<>();
+        ids.add(id);
+        pending.remove(id);
+        Iterator<Long> iterator = pending.iterator();
+        while (iterator.hasNext() && (ids.size() < MAX_BATCH_SIZE)) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+        Map<Long, V> results = batch.load(ids);
+        for (Long key : ids) {
+            loaded.put(key, results.getOrDefault(key, missing));
+        }
+        return loaded.get(id);
+    }
+
+    /**
+     * <p>Register an ID whose value is likely to be requested later in
+     * this request, so that it is included in the next batch.</p>
+     *
+     * @param id ID to be registered (ignored if <code>null</code>)
+     */
+    synchronized void register(Long id) {
+        if ((id != null) && !loaded.containsKey(id)) {
+            pending.add(id);
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Load the values for a set of IDs, keyed by ID.</p>
+     */
+    @FunctionalInterface
+    interface Batch<V> {
+
+        @NotNull Map<Long, V> load(@NotNull Set<Long> ids) throws InternalServerError;
+
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.graphql;
+
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.service.AnthologyService;
+import org.craigmcc.bookcase.service.AuthorService;
+import org.craigmcc.bookcase.service.BookService;
+import org.craigmcc.bookcase.service.MemberService;
+import org.craigmcc.bookcase.service.SeriesService;
+import org.craigmcc.bookcase.service.StoryService;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.eclipse.microprofile.graphql.Description;
+import org.eclipse.microprofile.graphql.GraphQLApi;
+import org.eclipse.microprofile.graphql.Id;
+import org.eclipse.microprofile.graphql.Name;
+import org.eclipse.microprofile.graphql.Query;
+import org.eclipse.microprofile.graphql.Source;
+import org.eclipse.microprofile.metrics.annotation.Timed;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * <p>Read only GraphQL API over the catalog.  Relationships between models
+ * are resolved through the request scoped {@link CatalogLoader}, so nested
+ * selections cost one query per relationship rather than one per parent.
+ * Every query and relationship is individually timed.</p>
+ */
+@ApplicationScoped
+@GraphQLApi
+public class CatalogGraphQLApi {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private AnthologyService anthologyService;
+
+    @Inject
+    private AuthorService authorService;
+
+    @Inject
+    private BookService bookService;
+
+    @Inject
+    private CatalogLoader catalogLoader;
+
+    @Inject
+    private MemberService memberService;
+
+    @Inject
+    private SeriesService seriesService;
+
+    @Inject
+    private StoryService storyService;
+
+    // Query Methods ---------------------------------------------------------
+
+    @Query("anthologies")
+    @Description("Find anthologies, optionally matching a title segment, ordered by title.")
+    @Timed
+    public List<Anthology> anthologies(
+            @Name("title") @Description("Title segment to match.") String title
+    ) throws InternalServerError {
+        return catalogLoader.register((title == null)
+                ? anthologyService.findAll()
+                : anthologyService.findByTitle(title));
+    }
+
+    @Query("anthologyById")
+    @Description("Find anthology by ID.")
+    @Timed
+    public Anthology anthologyById(@Name("id") @Id Long id)
+            throws InternalServerError, NotFound {
+        return catalogLoader.register(anthologyService.find(id));
+    }
+
+    @Query("authorById")
+    @Description("Find author by ID.")
+    @Timed
+    public Author authorById(@Name("id") @Id Long id)
+            throws InternalServerError, NotFound {
+        return catalogLoader.register(authorService.find(id));
+    }
+
+    @Query("authors")
+    @Description("Find authors, optionally matching a name segment, ordered by last and first name.")
+    @Timed
+    public List<Author> authors(
+            @Name("name") @Description("Name segment (or 'first last' names) to match.") String name
+    ) throws InternalServerError {
+        return catalogLoader.register((name == null)
+                ? authorService.findAll()
+                : authorService.findByName(name));
+    }
+
+    @Query("bookById")
+    @Description("Find book by ID.")
+    @Timed
+    public Book bookById(@Name("id") @Id Long id)
+            throws InternalServerError, NotFound {
+        return catalogLoader.register(bookService.find(id));
+    }
+
+    @Query("books")
+    @Description("Find books, optionally matching a title segment, ordered by title.")
+    @Timed
+    public List<Book> books(
+            @Name("title") @Description("Title segment to match.") String title
+    ) throws InternalServerError {
+        return catalogLoader.register((title == null)
+                ? bookService.findAll()
+                : bookService.findByTitle(title));
+    }
+
+    @Query("memberById")
+    @Description("Find series member by ID.")
+    @Timed
+    public Member memberById(@Name("id") @Id Long id)
+            throws InternalServerError, NotFound {
+        return catalogLoader.register(memberService.find(id));
+    }
+
+    @Query("series")
+    @Description("Find series, optionally matching a title segment, ordered by title.")
+    @Timed
+    public List<Series> series(
+            @Name("title") @Description("Title segment to match.") String title
+    ) throws InternalServerError {
+        return catalogLoader.register((title == null)
+                ? seriesService.findAll()
+                : seriesService.findByTitle(title));
+    }
+
+    @Query("seriesById")
+    @Description("Find series by ID.")
+    @Timed
+    public Series seriesById(@Name("id") @Id Long id)
+            throws InternalServerError, NotFound {
+        return catalogLoader.register(seriesService.find(id));
+    }
+
+    @Query("storyById")
+    @Description("Find anthology story by ID.")
+    @Timed
+    public Story storyById(@Name("id") @Id Long id)
+            throws InternalServerError, NotFound {
+        return catalogLoader.register(storyService.find(id));
+    }
+
+    // Relationship Methods --------------------------------------------------
+
+    @Name("stories")
+    @Description("Stories included in this anthology, ordered by ordinal.")
+    @Timed
+    public List<Story> anthologyStories(@Source Anthology anthology)
+            throws InternalServerError {
+        return catalogLoader.findStories(anthology);
+    }
+
+    @Name("anthologies")
+    @Description("Anthologies by this author, ordered by title.")
+    @Timed
+    public List<Anthology> authorAnthologies(@Source Author author)
+            throws InternalServerError {
+        return catalogLoader.findAnthologies(author);
+    }
+
+    @Name("books")
+    @Description("Books by this author, ordered by title.")
+    @Timed
+    public List<Book> authorBooks(@Source Author author)
+            throws InternalServerError {
+        return catalogLoader.findBooks(author);
+    }
+
+    @Name("series")
+    @Description("Series by this author, ordered by title.")
+    @Timed
+    public List<Series> authorSeries(@Source Author author)
+            throws InternalServerError {
+        return catalogLoader.findSeries(author);
+    }
+
+    @Name("series")
+    @Description("Series this member belongs to.")
+    @Timed
+    public Series memberSeries(@Source Member member)
+            throws InternalServerError {
+        return catalogLoader.findSeries(member);
+    }
+
+    @Name("members")
+    @Description("Members of this series, ordered by ordinal.")
+    @Timed
+    public List<Member> seriesMembers(@Source Series series)
+            throws InternalServerError {
+        return catalogLoader.findMembers(series);
+    }
+
+    @Name("anthology")
+    @Description("Anthology this story is included in.")
+    @Timed
+    public Anthology storyAnthology(@Source Story story)
+            throws InternalServerError {
+        return catalogLoader.findAnthology(story);
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.graphql;
+
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.service.AnthologyService;
+import org.craigmcc.bookcase.service.BookService;
+import org.craigmcc.bookcase.service.MemberService;
+import org.craigmcc.bookcase.service.SeriesService;
+import org.craigmcc.bookcase.service.StoryService;
+import org.craigmcc.library.model.Model;
+import org.craigmcc.library.shared.exception.InternalServerError;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <p>Request scoped loader for the relationships exposed by the GraphQL API.
+ * Every model returned to the client is registered here, along with the
+ * models nested inside it, so that the first request for a relationship
+ * loads it for all registered parents with a single query.</p>
+ */
+@RequestScoped
+public class CatalogLoader {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private AnthologyService anthologyService;
+
+    @Inject
+    private BookService bookService;
+
+    @Inject
+    private MemberService memberService;
+
+    @Inject
+    private SeriesService seriesService;
+
+    @Inject
+    private StoryService storyService;
+
+    private BatchLoader<List<Anthology>> anthologiesByAuthorId;
+
+    private BatchLoader<Anthology> anthologyById;
+
+    private BatchLoader<List<Book>> booksByAuthorId;
+
+    private BatchLoader<List<Member>> membersBySeriesId;
+
+    private BatchLoader<List<Series>> seriesByAuthorId;
+
+    private BatchLoader<Series> seriesById;
+
+    private BatchLoader<List<Story>> storiesByAnthologyId;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void init() {
+        anthologiesByAuthorId = new BatchLoader<>(ids -> groupBy
+                (anthologyService.findByAuthorIds(ids), Anthology::getAuthorId),
+                Collections.emptyList());
+        anthologyById = new BatchLoader<>(ids -> groupById
+                (anthologyService.findByIds(ids)), null);
+        booksByAuthorId = new BatchLoader<>(ids -> groupBy
+                (bookService.findByAuthorIds(ids), Book::getAuthorId),
+                Collections.emptyList());
+        membersBySeriesId = new BatchLoader<>(ids -> groupBy
+                (memberService.findBySeriesIds(ids), Member::getSeriesId),
+                Collections.emptyList());
+        seriesByAuthorId = new BatchLoader<>(ids -> groupBy
+                (seriesService.findByAuthorIds(ids), Series::getAuthorId),
+                Collections.emptyList());
+        seriesById = new BatchLoader<>(ids -> groupById
+                (seriesService.findByIds(ids)), null);
+        storiesByAnthologyId = new BatchLoader<>(ids -> groupBy
+                (storyService.findByAnthologyIds(ids), Story::getAnthologyId),
+                Collections.emptyList());
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public @NotNull List<Anthology> findAnthologies(@NotNull Author author)
+            throws InternalServerError {
+        return anthologiesByAuthorId.load(author.getId());
+    }
+
+    public Anthology findAnthology(@NotNull Story story)
+            throws InternalServerError {
+        return anthologyById.load(story.getAnthologyId());
+    }
+
+    public @NotNull List<Book> findBooks(@NotNull Author author)
+            throws InternalServerError {
+        return booksByAuthorId.load(author.getId());
+    }
+
+    public @NotNull List<Member> findMembers(@NotNull Series series)
+            throws InternalServerError {
+        return membersBySeriesId.load(series.getId());
+    }
+
+    public Series findSeries(@NotNull Member member)
+            throws InternalServerError {
+        return seriesById.load(member.getSeriesId());
+    }
+
+    public @NotNull List<Series> findSeries(@NotNull Author author)
+            throws InternalServerError {
+        return seriesByAuthorId.load(author.getId());
+    }
+
+    public @NotNull List<Story> findStories(@NotNull Anthology anthology)
+            throws InternalServerError {
+        return storiesByAnthologyId.load(anthology.getId());
+    }
+
+    /**
+     * <p>Register the specified model (and the models nested inside it) as
+     * a parent whose relationships may be requested later, and return it.</p>
+     *
+     * @param model Model to be registered (ignored if <code>null</code>)
+     */
+    public <M extends Model<M>> M register(M model) {
+        if (model instanceof Anthology) {
+            Anthology anthology = (Anthology) model;
+            storiesByAnthologyId.register(anthology.getId());
+            register(anthology.getAuthor());
+        } else if (model instanceof Author) {
+            Author author = (Author) model;
+            anthologiesByAuthorId.register(author.getId());
+            booksByAuthorId.register(author.getId());
+            seriesByAuthorId.register(author.getId());
+        } else if (model instanceof Book) {
+            register(((Book) model).getAuthor());
+        } else if (model instanceof Member) {
+            Member member = (Member) model;
+            seriesById.register(member.getSeriesId());
+            register(member.getBook());
+        } else if (model instanceof Series) {
+            Series series = (Series) model;
+            membersBySeriesId.register(series.getId());
+            register(series.getAuthor());
+        } else if (model instanceof Story) {
+            Story story = (Story) model;
+            anthologyById.register(story.getAnthologyId());
+            register(story.getBook());
+        }
+        return model;
+    }
+
+    /**
+     * <p>Register each of the specified models, and return them.</p>
+     *
+     * @param models Models to be registered
+     */
+    public <M extends Model<M>> @NotNull List<M> register(@NotNull List<M> models) {
+        for (M model : models) {
+            register(model);
+        }
+        return models;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private <M extends Model<M>> Map<Long, List<M>> groupBy
+            (List<M> models, Function<M, Long> key) {
+        Map<Long, List<M>> results = new HashMap<>();
+        for (M model : register(models)) {
+            results.computeIfAbsent(key.apply(model), k -> new ArrayList<>()).add(model);
+        }
+        return results;
+    }
+
+    private <M extends Model<M>> Map<Long, M> groupById(List<M> models) {
+        Map<Long, M> results = new HashMap<>();
+        for (M model : register(models)) {
+            results.put(model.getId(), model);
+        }
+        return results;
+    }
+
+}
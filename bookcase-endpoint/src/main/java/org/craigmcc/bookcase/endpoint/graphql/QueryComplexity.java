@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.graphql;
+
+import graphql.language.Definition;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.parser.Parser;
+
+import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Measure the selection depth and total number of selected fields of a
+ * GraphQL document, expanding fragment spreads, and reject documents that
+ * exceed the configured limits.  Introspection selections are not counted.</p>
+ */
+public class QueryComplexity {
+
+    // Instance Variables ----------------------------------------------------
+
+    private int depth = 0;
+
+    private int fields = 0;
+
+    private Map<String, FragmentDefinition> fragments = new HashMap<>();
+
+    private final int maxDepth;
+
+    private final int maxFields;
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Construct an analyzer with the specified limits.</p>
+     *
+     * @param maxDepth Maximum depth of nested selections
+     * @param maxFields Maximum number of selected fields
+     */
+    public QueryComplexity(int maxDepth, int maxFields) {
+        this.maxDepth = maxDepth;
+        this.maxFields = maxFields;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Analyze the specified GraphQL document, and return a message
+     * describing the first limit it exceeds, or <code>null</code> if it is
+     * within the limits.  Documents that cannot be parsed are accepted, so
+     * that the GraphQL implementation may report the syntax error.</p>
+     *
+     * @param query GraphQL document to be analyzed
+     */
+    public String check(@NotNull String query) {
+        Document document;
+        try {
+            document = new Parser().parseDocument(query);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        depth = 0;
+        fields = 0;
+        fragments = new HashMap<>();
+        for (Definition<?> definition : document.getDefinitions()) {
+            if (definition instanceof FragmentDefinition) {
+                FragmentDefinition fragment = (FragmentDefinition) definition;
+                fragments.put(fragment.getName(), fragment);
+            }
+        }
+        try {
+            for (Definition<?> definition : document.getDefinitions()) {
+                if (definition instanceof OperationDefinition) {
+                    measure(((OperationDefinition) definition).getSelectionSet(), 1, new HashSet<>());
+                }
+            }
+        } catch (LimitExceeded e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void measure(SelectionSet selectionSet, int level, Set<String> expanding) {
+        if (selectionSet == null) {
+            return;
+        }
+        for (Selection<?> selection : selectionSet.getSelections()) {
+            if (selection instanceof Field) {
+                Field field = (Field) selection;
+                if (field.getName().startsWith("__")) {
+                    continue;
+                }
+                if (++fields > maxFields) {
+                    throw new LimitExceeded("Query selects more than " + maxFields + " fields");
+                }
+                if (level > depth) {
+                    depth = level;
+                    if (depth > maxDepth) {
+                        throw new LimitExceeded("Query is nested more than " + maxDepth + " levels deep");
+                    }
+                }
+                measure(field.getSelectionSet(), level + 1, expanding);
+            } else if (selection instanceof InlineFragment) {
+                measure(((InlineFragment) selection).getSelectionSet(), level, expanding);
+            } else if (selection instanceof FragmentSpread) {
+                String name = ((FragmentSpread) selection).getName();
+                FragmentDefinition fragment = fragments.get(name);
+                if ((fragment != null) && expanding.add(name)) {
+                    measure(fragment.getSelectionSet(), level, expanding);
+                    expanding.remove(name);
+                }
+            }
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    private static class LimitExceeded extends RuntimeException {
+
+        LimitExceeded(String message) {
+            super(message, null, false, false);
+        }
+
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.graphql;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.logging.Logger;
+
+/**
+ * <p>Reject GraphQL requests whose query exceeds the configured depth or
+ * field count limits, before they reach the GraphQL implementation.</p>
+ */
+@WebFilter(urlPatterns = "/graphql/*")
+public class QueryComplexityFilter implements Filter {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Maximum depth of nested selections in a GraphQL query.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "graphql.query.max.depth", defaultValue = "10")
+    private int maxDepth;
+
+    /**
+     * <p>Maximum number of fields (after fragment expansion) selected by
+     * a GraphQL query.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "graphql.query.max.fields", defaultValue = "500")
+    private int maxFields;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(QueryComplexityFilter.class.getSimpleName());
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+        String query;
+        if ("POST".equals(request.getMethod())) {
+            byte[] body = request.getInputStream().readAllBytes();
+            query = extractQuery(request.getContentType(), body);
+            request = new CachedBodyRequest(request, body);
+        } else {
+            query = request.getParameter("query");
+        }
+
+        if (query != null) {
+            String message = new QueryComplexity(maxDepth, maxFields).check(query);
+            if (message != null) {
+                LOG.fine(() -> "Rejected GraphQL query: " + message);
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.setContentType("application/json");
+                response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+                MAPPER.writeValue(response.getOutputStream(), Collections.singletonMap("errors",
+                        Collections.singletonList(Collections.singletonMap("message", message))));
+                return;
+            }
+        }
+
+        chain.doFilter(request, response);
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private String extractQuery(String contentType, byte[] body) {
+        if ((contentType != null) && contentType.startsWith("application/graphql")) {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+        try {
+            JsonNode node = MAPPER.readTree(body);
+            JsonNode query = (node != null) ? node.get("query") : null;
+            return ((query != null) && query.isTextual()) ? query.asText() : null;
+        } catch (IOException e) {
+            return null; // Let the GraphQL implementation report the malformed request
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Request wrapper that replays a request body that has already been read.</p>
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream stream = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+
+                @Override
+                public boolean isFinished() {
+                    return stream.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public int read() {
+                    return stream.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return stream.read(buffer, offset, length);
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    (encoding != null) ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.shedding;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Limits the number of concurrent calls to a group of endpoints.  Calls
+ * beyond the limit wait (up to a maximum time) for a permit, but if too many
+ * calls are already waiting, they are rejected immediately instead, so that
+ * an overloaded server sheds load quickly rather than piling up threads.</p>
+ */
+public class Bulkhead {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final int maxConcurrent;
+    private final Semaphore semaphore;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Construct a bulkhead.</p>
+     *
+     * @param maxConcurrent Maximum number of concurrent calls
+     */
+    public Bulkhead(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent: Must be at least 1");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.semaphore = new Semaphore(maxConcurrent, true);
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the number of calls currently holding a permit.</p>
+     */
+    public int getActive() {
+        return maxConcurrent - semaphore.availablePermits();
+    }
+
+    /**
+     * <p>Return the number of calls currently waiting for a permit.</p>
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * <p>Return a permit (which must be released when the call completes), or
+     * <code>null</code> if the call should be rejected.</p>
+     *
+     * @param maxWaiting Maximum number of calls allowed to wait for a permit
+     * @param maxWait Maximum milliseconds to wait for a permit
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public Permit tryAcquire(int maxWaiting, long maxWait) throws InterruptedException {
+        if (semaphore.tryAcquire()) {
+            return new Permit();
+        }
+        if ((maxWait <= 0) || (waiting.incrementAndGet() > maxWaiting)) {
+            if (maxWait > 0) {
+                waiting.decrementAndGet();
+            }
+            return null;
+        }
+        try {
+            return semaphore.tryAcquire(maxWait, TimeUnit.MILLISECONDS) ? new Permit() : null;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Permission for one call to proceed.  Releasing a permit more than
+     * once has no further effect.</p>
+     */
+    public final class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+
+    }
+
+}
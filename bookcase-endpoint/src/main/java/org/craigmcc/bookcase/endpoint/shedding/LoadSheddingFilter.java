@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.shedding;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
+import javax.ws.rs.OPTIONS;
+import javax.ws.rs.Path;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Applies the per client rate limit and the bulkheads of {@link RequestLimiter}
+ * to every REST endpoint call.  Calls over the rate limit are rejected with
+ * 429 (Too Many Requests), and calls that cannot get a bulkhead permit with
+ * 503 (Service Unavailable), both with a <code>Retry-After</code> header.</p>
+ *
+ * <p>Unless declared with {@link WorkloadType}, the workload of an endpoint
+ * method is inferred: <code>GET</code> methods whose path ends with an ID
+ * template (such as <code>/{bookId}</code>) are lookups, other reads are
+ * searches, and everything else is a write.</p>
+ *
+ * <p>The permit of a call is released when its response is sent, unless the
+ * call was handed to the <code>AsyncDispatcher</code>, which releases it
+ * when the work of the call finishes.</p>
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION - 100)
+public class LoadSheddingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Context
+    private HttpServletRequest httpServletRequest;
+
+    @Inject
+    private RequestLimiter requestLimiter;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    /**
+     * <p>Identify clients by the first address in <code>X-Forwarded-For</code>
+     * (only safe behind a proxy that sets it) rather than the remote address.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.rate.limit.forwarded", defaultValue = "false")
+    private boolean useForwarded;
+
+    private final Map<Method, Workload> workloads = new ConcurrentHashMap<>();
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Pattern ID_TEMPLATE = Pattern.compile(".*\\{[A-Za-z]*Id}/?$");
+
+    /**
+     * <p>Name of the request property holding the bulkhead permit of a call.</p>
+     */
+    public static final String PERMIT_PROPERTY = LoadSheddingFilter.class.getName() + ".permit";
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+
+        Class<?> resource = resourceInfo.getResourceClass();
+        Method method = resourceInfo.getResourceMethod();
+        if ((resource == null) || (method == null)) {
+            return;
+        }
+        Workload workload = workloads.computeIfAbsent(method, m -> workload(resource, m));
+
+        long wait = requestLimiter.checkRate(client(requestContext), resource, workload);
+        if (wait > 0L) {
+            requestContext.abortWith(rejection(Response.Status.TOO_MANY_REQUESTS, wait,
+                    "Rate limit exceeded, retry later"));
+            return;
+        }
+
+        try {
+            Bulkhead.Permit permit = requestLimiter.acquire(resource, workload);
+            if (permit != null) {
+                requestContext.setProperty(PERMIT_PROPERTY, permit);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        requestContext.abortWith(rejection(Response.Status.SERVICE_UNAVAILABLE,
+                requestLimiter.getRetryAfter(), "Server busy, retry later"));
+
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        release(requestContext.getProperty(PERMIT_PROPERTY));
+        requestContext.removeProperty(PERMIT_PROPERTY);
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Release the specified bulkhead permit, if there is one.</p>
+     *
+     * @param permit Permit (from the request property) or <code>null</code>
+     */
+    public static void release(Object permit) {
+        if (permit instanceof Bulkhead.Permit) {
+            ((Bulkhead.Permit) permit).release();
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private String client(ContainerRequestContext requestContext) {
+        if (useForwarded) {
+            String forwarded = requestContext.getHeaderString("X-Forwarded-For");
+            if ((forwarded != null) && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return ((comma < 0) ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return httpServletRequest.getRemoteAddr();
+    }
+
+    private Response rejection(Response.Status status, long retryAfter, String message) {
+        return Response.status(status)
+                .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                .entity(message)
+                .type(MediaType.TEXT_PLAIN)
+                .build();
+    }
+
+    private Workload workload(Class<?> resource, Method method) {
+        WorkloadType declared = method.getAnnotation(WorkloadType.class);
+        if (declared == null) {
+            declared = resource.getAnnotation(WorkloadType.class);
+        }
+        if (declared != null) {
+            return declared.value();
+        }
+        if (method.isAnnotationPresent(GET.class) ||
+                method.isAnnotationPresent(HEAD.class) ||
+                method.isAnnotationPresent(OPTIONS.class)) {
+            Path path = method.getAnnotation(Path.class);
+            return ((path != null) && ID_TEMPLATE.matcher(path.value()).matches())
+                    ? Workload.LOOKUP : Workload.SEARCH;
+        }
+        return Workload.WRITE;
+    }
+
+}
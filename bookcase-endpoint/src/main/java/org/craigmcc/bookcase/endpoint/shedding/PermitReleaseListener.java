@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.shedding;
+
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * <p>Releases any bulkhead permit still held when a request ends (including
+ * an asynchronous request), in case {@link LoadSheddingFilter} never saw a
+ * response for it, for example because an endpoint threw an unmapped
+ * exception.  JAX-RS request properties are servlet request attributes.</p>
+ */
+@WebListener
+public class PermitReleaseListener implements ServletRequestListener {
+
+    @Override
+    public void requestDestroyed(ServletRequestEvent event) {
+        LoadSheddingFilter.release
+                (event.getServletRequest().getAttribute(LoadSheddingFilter.PERMIT_PROPERTY));
+    }
+
+    @Override
+    public void requestInitialized(ServletRequestEvent event) {
+    }
+
+}
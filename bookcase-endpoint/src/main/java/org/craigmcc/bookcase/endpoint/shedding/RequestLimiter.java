@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.shedding;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Bulkheads (one per endpoint class and {@link Workload}) and per client
+ * token bucket rate limits for the REST endpoints, applied by
+ * {@link LoadSheddingFilter}.  Rejections are counted in the
+ * <code>bookcase.rest.rejected</code> metric, tagged by reason, endpoint
+ * class, and workload.</p>
+ */
+@ApplicationScoped
+public class RequestLimiter {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Maximum concurrent bulk operations per endpoint class.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.bulkhead.bulk.max.concurrent", defaultValue = "2")
+    private int bulkMaxConcurrent;
+
+    /**
+     * <p>Maximum concurrent lookups by ID per endpoint class.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.bulkhead.lookup.max.concurrent", defaultValue = "32")
+    private int lookupMaxConcurrent;
+
+    /**
+     * <p>Maximum milliseconds a call waits for a bulkhead permit (0 to reject
+     * immediately when the bulkhead is full).  Waiting holds a request
+     * thread, so it is off unless configured.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.bulkhead.max.wait", defaultValue = "0")
+    private long maxWait;
+
+    /**
+     * <p>Maximum calls waiting for each bulkhead, beyond which further calls
+     * are rejected immediately.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.bulkhead.max.waiting", defaultValue = "16")
+    private int maxWaiting;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    /**
+     * <p>Burst size (token bucket capacity) of the per client rate limit.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.rate.limit.burst", defaultValue = "100")
+    private int rateLimitBurst;
+
+    /**
+     * <p>Sustained requests per second allowed per client (0 disables rate
+     * limiting).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.rate.limit.per.second", defaultValue = "50")
+    private double rateLimitPerSecond;
+
+    /**
+     * <p>Seconds suggested to clients (in <code>Retry-After</code>) after a
+     * bulkhead rejection.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.retry.after", defaultValue = "1")
+    private long retryAfter;
+
+    /**
+     * <p>Maximum concurrent searches and collection reads per endpoint class.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.bulkhead.search.max.concurrent", defaultValue = "8")
+    private int searchMaxConcurrent;
+
+    /**
+     * <p>Maximum concurrent writes per endpoint class.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "rest.bulkhead.write.max.concurrent", defaultValue = "8")
+    private int writeMaxConcurrent;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Number of tracked clients above which idle rate limit buckets are
+     * discarded whenever a new client arrives.</p>
+     */
+    static final int SWEEP_THRESHOLD = 10_000;
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return a bulkhead permit for a call to the specified endpoint class
+     * and workload, which must be released when the call completes, or
+     * <code>null</code> if the call is rejected.</p>
+     *
+     * @param resource Endpoint class being called
+     * @param workload Workload of the endpoint method being called
+     *
+     * @throws InterruptedException If interrupted while waiting for a permit
+     */
+    public Bulkhead.Permit acquire(@NotNull Class<?> resource, @NotNull Workload workload)
+            throws InterruptedException {
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(resource.getSimpleName() + "." + workload,
+                k -> new Bulkhead(maxConcurrent(workload)));
+        Bulkhead.Permit permit = bulkhead.tryAcquire(maxWaiting, maxWait);
+        if (permit == null) {
+            rejected("bulkhead", resource, workload);
+        }
+        return permit;
+    }
+
+    /**
+     * <p>Return zero if the specified client may make another call now, or
+     * else the number of seconds until it may.</p>
+     *
+     * @param client Client identifier (typically its address)
+     * @param resource Endpoint class being called
+     * @param workload Workload of the endpoint method being called
+     */
+    public long checkRate(@NotNull String client, @NotNull Class<?> resource, @NotNull Workload workload) {
+        if (rateLimitPerSecond <= 0.0) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(client);
+        if (bucket == null) {
+            if (buckets.size() > SWEEP_THRESHOLD) {
+                buckets.values().removeIf(b -> b.isIdle(now));
+            }
+            bucket = buckets.computeIfAbsent(client,
+                    k -> new TokenBucket(rateLimitPerSecond, rateLimitBurst, now));
+        }
+        long wait = bucket.tryConsume(now);
+        if (wait == 0L) {
+            return 0L;
+        }
+        rejected("rate", resource, workload);
+        return Math.max(1L, (wait + 999_999_999L) / 1_000_000_000L);
+    }
+
+    /**
+     * <p>Return the seconds suggested to clients after a bulkhead rejection.</p>
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private int maxConcurrent(Workload workload) {
+        switch (workload) {
+            case BULK:
+                return bulkMaxConcurrent;
+            case LOOKUP:
+                return lookupMaxConcurrent;
+            case SEARCH:
+                return searchMaxConcurrent;
+            default:
+                return writeMaxConcurrent;
+        }
+    }
+
+    private void rejected(String reason, Class<?> resource, Workload workload) {
+        Metadata metadata = Metadata.builder()
+                .withName("bookcase.rest.rejected")
+                .withDescription("REST calls rejected by a bulkhead or rate limit")
+                .withType(MetricType.COUNTER)
+                .withUnit(MetricUnits.NONE)
+                .build();
+        metricRegistry.counter(metadata,
+                new Tag("reason", reason),
+                new Tag("resource", resource.getSimpleName()),
+                new Tag("workload", workload.name())
+        ).inc();
+    }
+
+}
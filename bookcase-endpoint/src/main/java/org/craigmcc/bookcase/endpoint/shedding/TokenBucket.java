@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.shedding;
+
+/**
+ * <p>Token bucket rate limiter for a single client.  The bucket holds up to
+ * <code>capacity</code> tokens (the allowed burst), refills continuously at
+ * <code>rate</code> tokens per second, and each call consumes one token.</p>
+ */
+public class TokenBucket {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final double capacity;
+    private volatile long lastUsed;
+    private final double perNano;
+    private long refilled;
+    private double tokens;
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Construct a full bucket.</p>
+     *
+     * @param rate Tokens added per second
+     * @param capacity Maximum number of tokens
+     * @param now Current time (from <code>System.nanoTime()</code>)
+     */
+    public TokenBucket(double rate, int capacity, long now) {
+        if ((rate <= 0.0) || (capacity < 1)) {
+            throw new IllegalArgumentException("rate and capacity: Must be positive");
+        }
+        this.capacity = capacity;
+        this.lastUsed = now;
+        this.perNano = rate / 1_000_000_000.0;
+        this.refilled = now;
+        this.tokens = capacity;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return true if this bucket has been unused long enough to have
+     * refilled completely, and so can be discarded (a new bucket would
+     * behave the same).</p>
+     *
+     * @param now Current time (from <code>System.nanoTime()</code>)
+     */
+    public boolean isIdle(long now) {
+        return (now - lastUsed) * perNano >= capacity;
+    }
+
+    /**
+     * <p>Consume a token if one is available, and return zero; otherwise,
+     * return the nanoseconds until one will be.</p>
+     *
+     * @param now Current time (from <code>System.nanoTime()</code>)
+     */
+    public synchronized long tryConsume(long now) {
+        lastUsed = now;
+        if (now > refilled) {
+            tokens = Math.min(capacity, tokens + ((now - refilled) * perNano));
+            refilled = now;
+        }
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0L;
+        }
+        return (long) Math.ceil((1.0 - tokens) / perNano);
+    }
+
+}
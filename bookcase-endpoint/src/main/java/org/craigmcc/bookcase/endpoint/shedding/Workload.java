@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.shedding;
+
+/**
+ * <p>Kinds of work done by REST endpoint methods.  Each endpoint class has a
+ * separate bulkhead for each kind, so that (for example) a burst of
+ * collection reads cannot starve cheap lookups by ID, or writes.</p>
+ */
+public enum Workload {
+
+    /**
+     * <p>Bulk operations (such as imports and exports) that may run for a
+     * long time.</p>
+     */
+    BULK,
+
+    /**
+     * <p>Reads of a single item, or the items related to one, by ID.</p>
+     */
+    LOOKUP,
+
+    /**
+     * <p>Reads of whole collections, searches, and other potentially
+     * expensive reads.</p>
+     */
+    SEARCH,
+
+    /**
+     * <p>Inserts, updates, deletes, and other state changes.</p>
+     */
+    WRITE
+
+}
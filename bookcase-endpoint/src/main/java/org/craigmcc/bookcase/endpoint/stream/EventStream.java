@@ -0,0 +1,335 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.stream;
+
+import org.craigmcc.bookcase.event.DeletedModelEvent;
+import org.craigmcc.bookcase.event.InsertedModelEvent;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.service.MutatedModelEventService;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
+import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
+
+/**
+ * <p>Pushes a {@link StreamNotification} of every committed model mutation
+ * to the subscribed server-sent event clients (see {@link StreamSubscriber}),
+ * fed from the model mutation events after their transactions have committed
+ * successfully.  Every <code>stream.heartbeat.interval</code> seconds, idle
+ * clients are sent a comment, and clients that have gone away are
+ * dropped.</p>
+ *
+ * <p>A client that reconnects with a <code>Last-Event-ID</code> is first sent
+ * the events it missed, read from the recorded mutated model events in
+ * replay (<code>updated</code> then <code>id</code>) order.  If that event
+ * is no longer recorded, or more than <code>stream.replay.limit</code>
+ * events were missed, the client is sent a <code>reset</code> event instead,
+ * and should reload whatever it displays.</p>
+ *
+ * <p>Each client is only notified of mutations to model objects of the
+ * tenant that was current when it subscribed.</p>
+ *
+ * <p>Notifications only reach the clients connected to this server, so in a
+ * cluster every member must be subscribed to (or clients must resume from
+ * the recorded events after failing over).</p>
+ */
+@ApplicationScoped
+public class EventStream {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Maximum number of notifications buffered for each client.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "stream.buffer.size", defaultValue = "256")
+    private int bufferSize;
+
+    private Counter dropped;
+
+    @Resource
+    private ManagedScheduledExecutorService executor;
+
+    private ScheduledFuture<?> heartbeat;
+
+    /**
+     * <p>Seconds between heartbeats to idle clients (0 disables).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "stream.heartbeat.interval", defaultValue = "15")
+    private long heartbeatInterval;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    MutatedModelEventService mutatedModelEventService;
+
+    /**
+     * <p>Maximum number of missed events replayed to a reconnecting client.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "stream.replay.limit", defaultValue = "10000")
+    private int replayLimit;
+
+    private final Set<StreamSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(EventStream.class.getSimpleName());
+
+    /**
+     * <p>Prefix for the names of all metrics registered by this bean.</p>
+     */
+    public static final String METRIC_PREFIX = "bookcase.stream.";
+
+    /**
+     * <p>Model types clients may be notified of.</p>
+     */
+    public static final List<String> MODEL_TYPES = Collections.unmodifiableList(Arrays.asList(
+            ANTHOLOGY_NAME, AUTHOR_NAME, BOOK_NAME, MEMBER_NAME, SERIES_NAME, STORY_NAME));
+
+    /**
+     * <p>Number of recorded events read per replay query.</p>
+     */
+    private static final int REPLAY_PAGE_SIZE = 500;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        dropped = metricRegistry.counter(Metadata.builder()
+                .withName(METRIC_PREFIX + "dropped")
+                .withDescription("Notifications dropped because a client's buffer was full")
+                .withType(MetricType.COUNTER)
+                .build());
+        Gauge<Long> subscribersGauge = () -> (long) subscribers.size();
+        metricRegistry.register(Metadata.builder()
+                .withName(METRIC_PREFIX + "subscribers")
+                .withDescription("Clients currently subscribed to the event stream")
+                .withType(MetricType.GAUGE)
+                .build(), subscribersGauge);
+        if (heartbeatInterval > 0) {
+            heartbeat = executor.scheduleAtFixedRate
+                    (this::heartbeat, heartbeatInterval, heartbeatInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+        }
+        for (StreamSubscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        subscribers.clear();
+        metricRegistry.removeMatching((metricID, metric) ->
+                metricID.getName().startsWith(METRIC_PREFIX));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the number of currently subscribed clients.</p>
+     */
+    public int getSubscribers() {
+        return subscribers.size();
+    }
+
+    /**
+     * <p>Subscribe the client of the specified sink to notifications of
+     * mutations of the specified model types, of model objects belonging
+     * to the current tenant.  Missed events are replayed on another thread,
+     * so this returns immediately.</p>
+     *
+     * @param sink Sink for events to the client
+     * @param sse Factory for events
+     * @param modelTypes Model types to be notified of (empty for all)
+     * @param lastEventId ID of the last event the client received before
+     *                    reconnecting, or <code>null</code> for none
+     */
+    public void subscribe(
+            @NotNull SseEventSink sink,
+            @NotNull Sse sse,
+            @NotNull Set<String> modelTypes,
+            Long lastEventId
+    ) {
+        StreamSubscriber subscriber = new StreamSubscriber(sink, sse, modelTypes, bufferSize, dropped::inc, TenantContext.current());
+        subscribers.add(subscriber);
+        executor.execute(() -> replay(subscriber, lastEventId));
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    /**
+     * <p>Replay the events recorded after the specified one to the specified
+     * subscriber, then switch it to live notifications.</p>
+     */
+    void replay(@NotNull StreamSubscriber subscriber, Long lastEventId) {
+        Set<String> replayed = new HashSet<>();
+        try {
+            if (lastEventId == null) {
+                return;
+            }
+            MutatedModelEvent last;
+            try {
+                last = mutatedModelEventService.find(lastEventId);
+            } catch (NotFound e) {
+                subscriber.reset("Event " + lastEventId + " is no longer recorded");
+                return;
+            }
+            LocalDateTime before = LocalDateTime.now();
+            LocalDateTime updated = last.getUpdated();
+            Long id = last.getId();
+            List<MutatedModelEvent> events;
+            do {
+                events = mutatedModelEventService.findAfter(updated, id, before, REPLAY_PAGE_SIZE);
+                for (MutatedModelEvent event : events) {
+                    if (replayed.size() >= replayLimit) {
+                        subscriber.reset("More than " + replayLimit + " events were missed");
+                        return;
+                    }
+                    subscriber.replay(new StreamNotification(event));
+                    replayed.add(event.getId().toString());
+                    updated = event.getUpdated();
+                    id = event.getId();
+                }
+            } while (events.size() >= REPLAY_PAGE_SIZE);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Cannot replay events after " + lastEventId + ", closing stream", e);
+            subscriber.close();
+            subscribers.remove(subscriber);
+        } finally {
+            subscriber.live(replayed);
+        }
+    }
+
+    /**
+     * <p>Set the maximum number of events replayed to a reconnecting client
+     * (normally configured by <code>stream.replay.limit</code>).</p>
+     */
+    void setReplayLimit(int replayLimit) {
+        this.replayLimit = replayLimit;
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the model types named (ignoring case) in the specified comma
+     * separated list, or an empty set (meaning all of them) if there is
+     * no list.</p>
+     *
+     * @param types Comma separated model types, or <code>null</code>
+     *
+     * @throws BadRequest If a listed model type is unknown
+     */
+    public static @NotNull Set<String> modelTypes(String types) throws BadRequest {
+        Set<String> modelTypes = new HashSet<>();
+        if ((types == null) || types.isBlank()) {
+            return modelTypes;
+        }
+        for (String type : types.split(",")) {
+            String modelType = MODEL_TYPES.stream()
+                    .filter(t -> t.equalsIgnoreCase(type.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new BadRequest("types: Unknown model type '" + type.trim() + "'"));
+            modelTypes.add(modelType);
+        }
+        return modelTypes;
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    public void handleDeletedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) DeletedModelEvent event) {
+        publish(event);
+    }
+
+    public void handleInsertedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) InsertedModelEvent event) {
+        publish(event);
+    }
+
+    public void handleUpdatedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) UpdatedModelEvent event) {
+        publish(event);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void heartbeat() {
+        for (StreamSubscriber subscriber : subscribers) {
+            if (subscriber.isClosed()) {
+                subscribers.remove(subscriber);
+            } else {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    private void publish(MutatedModelEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        StreamNotification notification = new StreamNotification(event);
+        for (StreamSubscriber subscriber : subscribers) {
+            if (subscriber.isClosed()) {
+                subscribers.remove(subscriber);
+            } else {
+                subscriber.offer(notification);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.stream;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
+
+/**
+ * <p>Compact notification of one committed model mutation, sent as the data
+ * of a server-sent event (whose ID is the <code>id</code> of the recorded
+ * {@link MutatedModelEvent}, and whose name is the lower case mutation
+ * type).</p>
+ *
+ * <p>The tenant of the mutated model object is kept (but not sent) so that
+ * notifications only reach clients of the same tenant.  It is taken from
+ * the model object itself for live events, and from the recorded payload
+ * for replayed ones (events recorded before tenants were introduced belong
+ * to the default tenant).</p>
+ */
+@Schema(
+        description = "Compact notification of one committed model mutation.",
+        name = "StreamNotification"
+)
+public class StreamNotification {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Long id;
+    private final Long modelId;
+    private final String modelType;
+    private final String tenantId;
+    private final String type;
+    private final LocalDateTime updated;
+
+    // Constructors ----------------------------------------------------------
+
+    public StreamNotification(@NotNull MutatedModelEvent event) {
+        this.id = event.getId();
+        this.modelId = event.getModelId();
+        this.modelType = event.getModelType();
+        if (event.getSource() != null) {
+            this.tenantId = TenantContext.tenantOf(event.getSource());
+        } else {
+            Object recorded = event.getFields().get(TENANT_ID_COLUMN);
+            this.tenantId = (recorded != null) ? recorded.toString() : DEFAULT_TENANT_ID;
+        }
+        this.type = (event.getType() != null) ? event.getType().name() : null;
+        this.updated = event.getUpdated();
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "ID of the recorded mutated model event (also the server-sent event ID).")
+    public Long getId() {
+        return id;
+    }
+
+    @Schema(description = "ID of the mutated model object.")
+    public Long getModelId() {
+        return modelId;
+    }
+
+    @Schema(description = "Type (entity name) of the mutated model object.")
+    public String getModelType() {
+        return modelType;
+    }
+
+    /**
+     * <p>Return the ID of the tenant the mutated model object belongs to, or
+     * <code>null</code> if it does not belong to one.</p>
+     */
+    @JsonIgnore
+    String getTenantId() {
+        return tenantId;
+    }
+
+    @Schema(description = "Type of mutation (DELETED, INSERTED, or UPDATED).")
+    public String getType() {
+        return type;
+    }
+
+    @Schema(description = "Timestamp at which the mutation was recorded.")
+    public LocalDateTime getUpdated() {
+        return updated;
+    }
+
+}
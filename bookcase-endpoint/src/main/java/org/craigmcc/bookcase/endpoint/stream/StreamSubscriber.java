@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.stream;
+
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * <p>One client of an {@link EventStream}.  Notifications are queued in a
+ * bounded buffer and sent one at a time, so a slow client never holds up
+ * the publisher (or other clients).  When the buffer is full the oldest
+ * notification is dropped, and the client is told how many were dropped
+ * (with a <code>dropped</code> event) before the next one is sent.</p>
+ *
+ * <p>A new subscriber starts out replaying: notifications published while
+ * the missed events are being replayed are held (in the same buffer) until
+ * <code>live()</code> is called, and any of them that were also replayed
+ * are then discarded.</p>
+ *
+ * <p>A client is only sent notifications about model objects of the tenant
+ * it subscribed as (and about those that do not belong to a tenant).</p>
+ */
+class StreamSubscriber {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final int capacity;
+
+    private final Runnable droppedListener;
+
+    private long lost = 0L;
+
+    private final Set<String> modelTypes;
+
+    private final Deque<OutboundSseEvent> queue = new ArrayDeque<>();
+
+    private boolean replaying = true;
+
+    private boolean sending = false;
+
+    private final Sse sse;
+
+    private final SseEventSink sink;
+
+    private final String tenantId;
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * @param sink Sink for events to this client
+     * @param sse Factory for events
+     * @param modelTypes Model types this client is interested in (empty
+     *                   for all of them)
+     * @param capacity Maximum number of buffered notifications
+     * @param droppedListener Called once for each dropped notification
+     * @param tenantId ID of the tenant this client subscribed as
+     */
+    StreamSubscriber(
+            @NotNull SseEventSink sink,
+            @NotNull Sse sse,
+            @NotNull Set<String> modelTypes,
+            int capacity,
+            @NotNull Runnable droppedListener,
+            @NotNull String tenantId
+    ) {
+        this.sink = sink;
+        this.sse = sse;
+        this.modelTypes = modelTypes;
+        this.capacity = capacity;
+        this.droppedListener = droppedListener;
+        this.tenantId = tenantId;
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    void close() {
+        try {
+            sink.close();
+        } catch (RuntimeException e) {
+            /* Already gone */
+        }
+    }
+
+    /**
+     * <p>Send a comment, to keep idle connections (and any proxies between)
+     * open, unless something else is about to be sent anyway.</p>
+     */
+    void heartbeat() {
+        synchronized (this) {
+            if (replaying || sending || !queue.isEmpty()) {
+                return;
+            }
+            queue.addLast(sse.newEventBuilder().comment("heartbeat").build());
+        }
+        drain();
+    }
+
+    boolean isClosed() {
+        return sink.isClosed();
+    }
+
+    /**
+     * <p>End the replay, and start sending the held notifications that were
+     * not replayed.</p>
+     *
+     * @param replayed IDs of the replayed notifications
+     */
+    void live(@NotNull Set<String> replayed) {
+        synchronized (this) {
+            queue.removeIf(event -> (event.getId() != null) && replayed.contains(event.getId()));
+            replaying = false;
+        }
+        drain();
+    }
+
+    /**
+     * <p>Queue the specified notification, if this client is interested in
+     * its model type and tenant.</p>
+     */
+    void offer(@NotNull StreamNotification notification) {
+        if (!accepts(notification)) {
+            return;
+        }
+        OutboundSseEvent event = event(notification);
+        synchronized (this) {
+            if (queue.size() >= capacity) {
+                queue.pollFirst();
+                lost++;
+                droppedListener.run();
+            }
+            queue.addLast(event);
+        }
+        drain();
+    }
+
+    /**
+     * <p>Send the specified replayed notification (if this client is
+     * interested in it) immediately, waiting until it has been written.</p>
+     */
+    void replay(@NotNull StreamNotification notification) {
+        if (accepts(notification)) {
+            sink.send(event(notification)).toCompletableFuture().join();
+        }
+    }
+
+    /**
+     * <p>Tell this client (during the replay) that the events it missed can
+     * not all be replayed, so it should reload whatever it displays.</p>
+     *
+     * @param reason Explanation sent as the event data
+     */
+    void reset(@NotNull String reason) {
+        sink.send(sse.newEventBuilder()
+                .name("reset")
+                .data(String.class, reason)
+                .build()).toCompletableFuture().join();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private boolean accepts(StreamNotification notification) {
+        if ((notification.getTenantId() != null) && !tenantId.equals(notification.getTenantId())) {
+            return false;
+        }
+        return modelTypes.isEmpty() || modelTypes.contains(notification.getModelType());
+    }
+
+    private void drain() {
+        OutboundSseEvent next;
+        synchronized (this) {
+            if (replaying || sending || sink.isClosed()) {
+                return;
+            }
+            if (lost > 0L) {
+                next = sse.newEventBuilder().name("dropped").data(String.class, Long.toString(lost)).build();
+                lost = 0L;
+            } else {
+                next = queue.pollFirst();
+                if (next == null) {
+                    return;
+                }
+            }
+            sending = true;
+        }
+        sink.send(next).whenComplete((result, throwable) -> {
+            synchronized (this) {
+                sending = false;
+            }
+            if (throwable != null) {
+                close();
+            } else {
+                drain();
+            }
+        });
+    }
+
+    private OutboundSseEvent event(StreamNotification notification) {
+        OutboundSseEvent.Builder builder = sse.newEventBuilder()
+                .data(StreamNotification.class, notification)
+                .mediaType(MediaType.APPLICATION_JSON_TYPE);
+        if (notification.getId() != null) {
+            builder.id(notification.getId().toString());
+        }
+        if (notification.getType() != null) {
+            builder.name(notification.getType().toLowerCase());
+        }
+        return builder.build();
+    }
+
+}
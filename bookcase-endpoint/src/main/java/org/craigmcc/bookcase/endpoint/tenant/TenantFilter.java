@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.tenant;
+
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.tenant.TenantRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Inject;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+
+/**
+ * <p>Establish the tenant of every request (REST and GraphQL alike) for the
+ * duration of the request.  If <code>tenant.principal</code> is set, the
+ * tenant is the name of the authenticated user (and unauthenticated requests
+ * are rejected with 401 (Unauthorized)); otherwise it is named by the
+ * <code>tenant.header</code> request header, or is the default tenant (which
+ * background work also runs as) if there is none.  Requests naming an
+ * invalid tenant are rejected with 400 (Bad Request), and those for a tenant
+ * not in the {@link TenantRegistry} (or, for authenticated users, for a
+ * tenant other than their own) with 403 (Forbidden).</p>
+ */
+@WebFilter(urlPatterns = "/*")
+public class TenantFilter implements Filter {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Name of the request header naming the tenant of a request.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "tenant.header", defaultValue = "X-Tenant-ID")
+    private String header;
+
+    /**
+     * <p>Take the tenant of each request from the name of its authenticated
+     * user instead of the request header.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "tenant.principal", defaultValue = "false")
+    private boolean principal;
+
+    @Inject
+    private TenantRegistry tenantRegistry;
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+        String requested = request.getHeader(header);
+        if ((requested != null) && requested.trim().isEmpty()) {
+            requested = null;
+        }
+        if ((requested != null) && !TenantContext.isValid(requested.trim())) {
+            reject(response, HttpServletResponse.SC_BAD_REQUEST,
+                    header + ": Invalid tenant ID, must match " + TenantContext.TENANT_ID_PATTERN.pattern());
+            return;
+        }
+
+        String tenantId;
+        if (principal) {
+            Principal user = request.getUserPrincipal();
+            if (user == null) {
+                reject(response, HttpServletResponse.SC_UNAUTHORIZED, "Authentication required");
+                return;
+            }
+            tenantId = user.getName();
+            if ((requested != null) && !requested.trim().equals(tenantId)) {
+                reject(response, HttpServletResponse.SC_FORBIDDEN, header + ": Not your tenant");
+                return;
+            }
+        } else {
+            tenantId = (requested != null) ? requested.trim() : DEFAULT_TENANT_ID;
+        }
+        if (!tenantRegistry.isKnown(tenantId)) {
+            reject(response, HttpServletResponse.SC_FORBIDDEN, header + ": Unknown tenant");
+            return;
+        }
+
+        TenantContext.set(tenantId);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TenantContext.clear();
+        }
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(message);
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.application;
+
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.craigmcc.bookcase.endpoint.shedding.Bulkhead;
+import org.craigmcc.bookcase.endpoint.shedding.LoadSheddingFilter;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+@Category(EndpointTests.class)
+public class AsyncDispatcherTest {
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private Bulkhead bulkhead;
+
+    private AsyncDispatcher dispatcher;
+
+    private ExecutorService executor;
+
+    private String method;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final long TIMEOUT = 10_000L;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+        TenantContext.clear();
+    }
+
+    @Before
+    public void before() throws Exception {
+        attributes.clear();
+        bulkhead = new Bulkhead(1);
+        executor = Executors.newCachedThreadPool();
+        method = "GET";
+        dispatcher = new AsyncDispatcher();
+        dispatcher.setExecutor(managed(executor));
+        dispatcher.setRequest(request());
+        dispatcher.setRetryAfter(7L);
+        dispatcher.setTimeout(0L);
+        attributes.put(LoadSheddingFilter.PERMIT_PROPERTY, bulkhead.tryAcquire(0, 0L));
+        assertThat(bulkhead.getActive(), is(1));
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void failureAnswered500() throws Exception {
+
+        Response response = dispatch(() -> {
+            throw new IllegalStateException("Broken");
+        });
+        assertThat(response.getStatus(), is(500));
+        assertThat(response.getEntity(), is("Broken"));
+        awaitReleased();
+
+    }
+
+    @Test
+    public void permitReleasedWhenWorkFinishes() throws Exception {
+
+        CountDownLatch finish = new CountDownLatch(1);
+        Response response = dispatcher.dispatch(() -> {
+            await(finish);
+            return Response.ok("Done").build();
+        }).toCompletableFuture().getNow(null);
+
+        // The permit now belongs to the work, which still holds it
+        assertThat(response, is(nullValue()));
+        assertThat(attributes.get(LoadSheddingFilter.PERMIT_PROPERTY), is(nullValue()));
+        assertThat(bulkhead.getActive(), is(1));
+
+        finish.countDown();
+        awaitReleased();
+
+    }
+
+    @Test
+    public void rejectedAnswered503() throws Exception {
+
+        dispatcher.setExecutor(managed(null));
+        Response response = dispatch(() -> Response.ok("Never").build());
+        assertThat(response.getStatus(), is(503));
+        assertThat(response.getMetadata().getFirst(HttpHeaders.RETRY_AFTER), is(7L));
+
+        // The work never ran, so the permit is left for the filter to release
+        assertThat(attributes.get(LoadSheddingFilter.PERMIT_PROPERTY), is(notNullValue()));
+        assertThat(bulkhead.getActive(), is(1));
+
+    }
+
+    @Test
+    public void tenantPropagated() throws Exception {
+
+        TenantContext.set("other");
+        Response response = dispatch(() -> Response.ok(TenantContext.current()).build());
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.getEntity(), is("other"));
+        awaitReleased();
+
+        // Without leaking into the executor's thread afterwards
+        TenantContext.clear();
+        response = dispatch(() -> Response.ok(TenantContext.current()).build());
+        assertThat(response.getEntity(), is(DEFAULT_TENANT_ID));
+
+    }
+
+    @Test
+    public void timedOutReadAnswered503() throws Exception {
+
+        CountDownLatch finish = new CountDownLatch(1);
+        dispatcher.setTimeout(50L);
+        Response response = dispatch(() -> {
+            await(finish);
+            return Response.ok("Late").build();
+        });
+        assertThat(response.getStatus(), is(503));
+        assertThat(response.getMetadata().getFirst(HttpHeaders.RETRY_AFTER), is(7L));
+
+        // The work still holds its permit until it finishes
+        assertThat(bulkhead.getActive(), is(1));
+        finish.countDown();
+        awaitReleased();
+
+    }
+
+    @Test
+    public void timedOutWriteAnswered504() throws Exception {
+
+        CountDownLatch finish = new CountDownLatch(1);
+        method = "POST";
+        dispatcher.setTimeout(50L);
+        Response response = dispatch(() -> {
+            await(finish);
+            return Response.ok("Late").build();
+        });
+        assertThat(response.getStatus(), is(504));
+        assertThat(response.getMetadata().getFirst(HttpHeaders.RETRY_AFTER), is(nullValue()));
+
+        assertThat(bulkhead.getActive(), is(1));
+        finish.countDown();
+        awaitReleased();
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitReleased() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while ((bulkhead.getActive() > 0) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10L);
+        }
+        assertThat(bulkhead.getActive(), is(0));
+    }
+
+    private Response dispatch(Supplier<Response> work) throws Exception {
+        return dispatcher.dispatch(work).toCompletableFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>Return a managed executor that delegates to the specified executor,
+     * or that rejects everything if there is none.</p>
+     */
+    private static ManagedExecutorService managed(ExecutorService delegate) {
+        return (ManagedExecutorService) Proxy.newProxyInstance(
+                AsyncDispatcherTest.class.getClassLoader(),
+                new Class<?>[] { ManagedExecutorService.class },
+                (proxy, method, args) -> {
+                    if (delegate == null) {
+                        throw new RejectedExecutionException("Executor is full");
+                    }
+                    try {
+                        return method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private HttpServletRequest request() {
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                AsyncDispatcherTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "getMethod":
+                            return this.method;
+                        case "removeAttribute":
+                            attributes.remove(args[0]);
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.application;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.craigmcc.bookcase.model.Author;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.craigmcc.bookcase.endpoint.application.MediaTypes.APPLICATION_CBOR;
+import static org.craigmcc.bookcase.endpoint.application.MediaTypes.APPLICATION_SMILE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * <p>Writes and reads back application classes through the binary (Smile
+ * and CBOR) body providers.</p>
+ */
+@Category(EndpointTests.class)
+public class BinaryBodyProviderTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Annotation[] ANNOTATIONS = new Annotation[0];
+
+    private static final Type AUTHORS = new TypeReference<List<Author>>() { }.getType();
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void cborMediaType() {
+
+        assertThat(CborBodyProvider.class.getAnnotation(Consumes.class).value(),
+                arrayContaining(APPLICATION_CBOR));
+        assertThat(CborBodyProvider.class.getAnnotation(Produces.class).value(),
+                arrayContaining(APPLICATION_CBOR));
+
+    }
+
+    @Test
+    public void cborRoundTrip() throws Exception {
+
+        CborBodyProvider provider = new CborBodyProvider();
+        Author author = author(1L, "Cbor", "Writer");
+        byte[] bytes = write(provider, author, Author.class);
+
+        // Major type 5 (a map) rather than a JSON object
+        assertThat(bytes[0] & 0xE0, is(0xA0));
+        assertAuthor((Author) read(provider, bytes, Author.class), author);
+
+        List<Author> authors = List.of(author, author(2L, "Second", "Writer"));
+        bytes = write(provider, authors, AUTHORS);
+        assertAuthors(read(provider, bytes, AUTHORS), authors);
+
+    }
+
+    @Test
+    public void smileMediaType() {
+
+        assertThat(SmileBodyProvider.class.getAnnotation(Consumes.class).value(),
+                arrayContaining(APPLICATION_SMILE));
+        assertThat(SmileBodyProvider.class.getAnnotation(Produces.class).value(),
+                arrayContaining(APPLICATION_SMILE));
+
+    }
+
+    @Test
+    public void smileRoundTrip() throws Exception {
+
+        SmileBodyProvider provider = new SmileBodyProvider();
+        Author author = author(1L, "Smile", "Writer");
+        byte[] bytes = write(provider, author, Author.class);
+
+        // Smile documents start with the ":)\n" header
+        assertThat(new String(bytes, 0, 3, "US-ASCII"), is(":)\n"));
+        assertAuthor((Author) read(provider, bytes, Author.class), author);
+
+        List<Author> authors = List.of(author, author(2L, "Second", "Writer"));
+        bytes = write(provider, authors, AUTHORS);
+        assertAuthors(read(provider, bytes, AUTHORS), authors);
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static void assertAuthor(Author actual, Author expected) {
+        assertThat(actual.getId(), is(expected.getId()));
+        assertThat(actual.getFirstName(), is(expected.getFirstName()));
+        assertThat(actual.getLastName(), is(expected.getLastName()));
+        assertThat(actual.getNotes(), is(expected.getNotes()));
+        assertThat(actual.getPublished(), is(expected.getPublished()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void assertAuthors(Object actual, List<Author> expected) {
+        List<Author> authors = (List<Author>) actual;
+        assertThat(authors.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertAuthor(authors.get(i), expected.get(i));
+        }
+    }
+
+    private static Author author(Long id, String firstName, String lastName) {
+        Author author = new Author(firstName, lastName, "Notes about " + firstName);
+        author.setId(id);
+        author.setPublished(LocalDateTime.of(2020, 5, 1, 12, 30, 15));
+        return author;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object read(AbstractBodyProvider provider, byte[] bytes, Type type)
+            throws IOException {
+        Class<Object> clazz = (Class<Object>) ((type instanceof Class) ? type : List.class);
+        assertThat(provider.isReadable(clazz, type, ANNOTATIONS, null), is(true));
+        return provider.readFrom(clazz, type, ANNOTATIONS, null, null,
+                new ByteArrayInputStream(bytes));
+    }
+
+    private static byte[] write(AbstractBodyProvider provider, Object value, Type type)
+            throws IOException {
+        assertThat(provider.isWriteable(value.getClass(), type, ANNOTATIONS, null), is(true));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        provider.writeTo(value, value.getClass(), type, ANNOTATIONS, null, null, stream);
+        return stream.toByteArray();
+    }
+
+}
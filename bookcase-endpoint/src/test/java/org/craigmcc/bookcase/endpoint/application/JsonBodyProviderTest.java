@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.application;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.craigmcc.bookcase.model.Author;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.craigmcc.bookcase.endpoint.application.AbstractBodyProvider.PRETTY_PARAMETER;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * <p>Writes compact JSON unless <code>?pretty=true</code> is requested, and
+ * builds each reader and writer only once per type, view and (for writers)
+ * pretty printing.</p>
+ */
+@Category(EndpointTests.class)
+public class JsonBodyProviderTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Annotation[] NONE = new Annotation[0];
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void compactUnlessPretty() throws Exception {
+
+        JsonBodyProvider provider = new JsonBodyProvider();
+        Author author = new Author("Pretty", "Printer", null);
+
+        // No request context (or no parameter) is compact
+        String compact = write(provider, author, NONE);
+        assertThat(compact, not(containsString("\n")));
+        assertThat(compact, not(containsString(": ")));
+        inject(provider, null);
+        assertThat(write(provider, author, NONE), is(compact));
+        inject(provider, "false");
+        assertThat(write(provider, author, NONE), is(compact));
+
+        // Pretty printing differs only in layout
+        inject(provider, "TRUE");
+        String pretty = write(provider, author, NONE);
+        assertThat(pretty, containsString("\n"));
+        assertThat(pretty, is(not(compact)));
+        ObjectMapper mapper = ObjectMapperProvider.getObjectMapper();
+        assertThat(mapper.readTree(pretty), is(mapper.readTree(compact)));
+
+        // And the compact writer is still used once pretty is no longer asked for
+        inject(provider, "false");
+        assertThat(write(provider, author, NONE), is(compact));
+
+    }
+
+    @Test
+    public void prettyIgnoredForBinary() throws Exception {
+
+        CountingProvider provider = new CountingProvider(false);
+        Author author = new Author("Binary", "Writer", null);
+        String compact = write(provider, author, NONE);
+        inject(provider, "true");
+        assertThat(write(provider, author, NONE), is(compact));
+        assertThat(provider.mapper.writers, is(1));
+
+    }
+
+    @Test
+    public void readersCached() throws Exception {
+
+        CountingProvider provider = new CountingProvider(true);
+        byte[] bytes = "{\"firstName\":\"Cached\",\"lastName\":\"Reader\"}".getBytes("UTF-8");
+        for (int i = 0; i < 3; i++) {
+            Author author = (Author) read(provider, bytes, NONE);
+            assertThat(author.getFirstName(), is("Cached"));
+        }
+        assertThat(provider.mapper.readers, is(1));
+
+        // Another view needs its own reader
+        read(provider, bytes, view());
+        read(provider, bytes, view());
+        assertThat(provider.mapper.readers, is(2));
+
+    }
+
+    @Test
+    public void writersCached() throws Exception {
+
+        CountingProvider provider = new CountingProvider(true);
+        Author author = new Author("Cached", "Writer", null);
+        for (int i = 0; i < 3; i++) {
+            write(provider, author, NONE);
+        }
+        assertThat(provider.mapper.writers, is(1));
+
+        // One more for each combination of view and pretty printing ...
+        write(provider, author, view());
+        inject(provider, "true");
+        write(provider, author, NONE);
+        write(provider, author, view());
+        assertThat(provider.mapper.writers, is(4));
+
+        // ... each of which is reused thereafter
+        write(provider, author, NONE);
+        write(provider, author, view());
+        inject(provider, null);
+        write(provider, author, NONE);
+        write(provider, author, view());
+        assertThat(provider.mapper.writers, is(4));
+
+        // As are the writers for other types
+        write(provider, List.of(author), NONE);
+        write(provider, List.of(author), NONE);
+        assertThat(provider.mapper.writers, is(5));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Inject (as the container would) request information whose
+     * <code>pretty</code> query parameter has the specified value, or
+     * none at all if <code>null</code>.</p>
+     */
+    private static void inject(AbstractBodyProvider provider, String pretty) throws Exception {
+        MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+        if (pretty != null) {
+            parameters.putSingle(PRETTY_PARAMETER, pretty);
+        }
+        UriInfo uriInfo = (UriInfo) Proxy.newProxyInstance(
+                JsonBodyProviderTest.class.getClassLoader(),
+                new Class<?>[] { UriInfo.class },
+                (proxy, method, args) -> {
+                    if ("getQueryParameters".equals(method.getName())) {
+                        return parameters;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        Field field = AbstractBodyProvider.class.getDeclaredField("uriInfo");
+        field.setAccessible(true);
+        field.set(provider, uriInfo);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object read(AbstractBodyProvider provider, byte[] bytes, Annotation[] annotations)
+            throws IOException {
+        Class<Object> type = (Class<Object>) (Class<?>) Author.class;
+        return provider.readFrom(type, type, annotations, null, null, new ByteArrayInputStream(bytes));
+    }
+
+    private static Annotation[] view() throws Exception {
+        return JsonBodyProviderTest.class.getDeclaredMethod("viewed").getAnnotations();
+    }
+
+    @JsonView(Author.class)
+    private static void viewed() {
+    }
+
+    private static String write(AbstractBodyProvider provider, Object value, Annotation[] annotations)
+            throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        provider.writeTo(value, value.getClass(), value.getClass(), annotations, null, null, stream);
+        return stream.toString("UTF-8");
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>JSON mapper that counts the readers and writers built from it.</p>
+     */
+    private static class CountingMapper extends ObjectMapper {
+
+        private int readers = 0;
+        private int writers = 0;
+
+        private CountingMapper() {
+            super(ObjectMapperProvider.getObjectMapper());
+        }
+
+        @Override
+        public ObjectReader readerFor(JavaType type) {
+            readers++;
+            return super.readerFor(type);
+        }
+
+        @Override
+        public ObjectWriter writerFor(JavaType type) {
+            writers++;
+            return super.writerFor(type);
+        }
+
+    }
+
+    /**
+     * <p>Body provider backed by a {@link CountingMapper}.</p>
+     */
+    private static class CountingProvider extends AbstractBodyProvider {
+
+        private final CountingMapper mapper;
+
+        private CountingProvider(boolean printable) {
+            this(new CountingMapper(), printable);
+        }
+
+        private CountingProvider(CountingMapper mapper, boolean printable) {
+            super(mapper, printable);
+            this.mapper = mapper;
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.compression;
+
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.craigmcc.bookcase.endpoint.compression.CompressingOutputStream.DEFLATE;
+import static org.craigmcc.bookcase.endpoint.compression.CompressingOutputStream.GZIP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThrows;
+
+@Category(EndpointTests.class)
+public class CompressingOutputStreamTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private final ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+    // Static Variables ------------------------------------------------------
+
+    private static final int THRESHOLD = 100;
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void aboveThresholdCompressedWithDeflate() throws Exception {
+
+        byte[] bytes = bytes(THRESHOLD + 1);
+        CompressingOutputStream stream = stream(DEFLATE);
+        stream.write(bytes);
+        stream.finish();
+
+        assertThat(events, contains("compressing:deflate", "finished:true:" + bytes.length + ":" + target.size()));
+        assertThat(read(new InflaterInputStream(new ByteArrayInputStream(target.toByteArray()))), is(bytes));
+
+    }
+
+    @Test
+    public void aboveThresholdCompressedWithGzip() throws Exception {
+
+        // Written in pieces, the first of which is buffered
+        byte[] bytes = bytes(10 * THRESHOLD);
+        CompressingOutputStream stream = stream(GZIP);
+        stream.write(bytes, 0, THRESHOLD);
+        assertThat(target.size(), is(0));
+        assertThat(events, is(empty()));
+        stream.write(bytes[THRESHOLD]);
+        assertThat(events, contains("compressing:gzip"));
+        stream.write(bytes, THRESHOLD + 1, bytes.length - THRESHOLD - 1);
+        stream.finish();
+
+        assertThat(events, contains("compressing:gzip", "finished:true:" + bytes.length + ":" + target.size()));
+        assertThat(target.size(), is(lessThan(bytes.length)));
+        assertThat(read(new GZIPInputStream(new ByteArrayInputStream(target.toByteArray()))), is(bytes));
+
+    }
+
+    @Test
+    public void atThresholdWrittenAsIs() throws Exception {
+
+        byte[] bytes = bytes(THRESHOLD);
+        CompressingOutputStream stream = stream(GZIP);
+        stream.write(bytes);
+        assertThat(target.size(), is(0));
+        stream.finish();
+
+        assertThat(events, contains("finished:false:" + THRESHOLD + ":" + THRESHOLD));
+        assertThat(target.toByteArray(), is(bytes));
+
+    }
+
+    @Test
+    public void belowThresholdWrittenAsIs() throws Exception {
+
+        byte[] bytes = bytes(THRESHOLD / 2);
+        CompressingOutputStream stream = stream(DEFLATE);
+        stream.write(bytes);
+        stream.finish();
+        stream.finish();
+
+        assertThat(events, contains("finished:false:" + bytes.length + ":" + bytes.length));
+        assertThat(target.toByteArray(), is(bytes));
+
+    }
+
+    @Test
+    public void writeAfterFinishRejected() throws Exception {
+
+        CompressingOutputStream stream = stream(GZIP);
+        stream.finish();
+        assertThrows(IOException.class, () -> stream.write(1));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Return the specified number of compressible bytes.</p>
+     */
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ('a' + (i % 7));
+        }
+        return bytes;
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        try (InputStream input = stream) {
+            return input.readAllBytes();
+        }
+    }
+
+    private CompressingOutputStream stream(String encoding) {
+        return new CompressingOutputStream(target, encoding, THRESHOLD,
+                new CompressingOutputStream.Listener() {
+                    @Override
+                    public void compressing(String encoding) {
+                        events.add("compressing:" + encoding);
+                    }
+                    @Override
+                    public void finished(boolean compressed, long rawBytes, long writtenBytes) {
+                        events.add("finished:" + compressed + ":" + rawBytes + ":" + writtenBytes);
+                    }
+                });
+    }
+
+}
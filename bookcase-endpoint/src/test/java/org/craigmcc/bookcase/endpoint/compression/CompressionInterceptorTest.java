@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.compression;
+
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.craigmcc.bookcase.endpoint.compression.CompressingOutputStream.DEFLATE;
+import static org.craigmcc.bookcase.endpoint.compression.CompressingOutputStream.GZIP;
+import static org.craigmcc.bookcase.endpoint.compression.CompressionInterceptor.negotiate;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@Category(EndpointTests.class)
+public class CompressionInterceptorTest {
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void negotiateGzipOrDeflate() {
+
+        assertThat(negotiate("gzip"), is(GZIP));
+        assertThat(negotiate("x-gzip"), is(GZIP));
+        assertThat(negotiate("deflate"), is(DEFLATE));
+        assertThat(negotiate("deflate, gzip"), is(GZIP));
+        assertThat(negotiate("DEFLATE;q=0.5 , GZip;q=0.1"), is(GZIP));
+        assertThat(negotiate("br, deflate"), is(DEFLATE));
+
+    }
+
+    @Test
+    public void negotiateMissingOrUnsupported() {
+
+        assertThat(negotiate(null), is(nullValue()));
+        assertThat(negotiate(""), is(nullValue()));
+        assertThat(negotiate("identity"), is(nullValue()));
+        assertThat(negotiate("br, compress"), is(nullValue()));
+
+    }
+
+    @Test
+    public void negotiateRejected() {
+
+        assertThat(negotiate("gzip;q=0"), is(nullValue()));
+        assertThat(negotiate("gzip;q=0.0, deflate"), is(DEFLATE));
+        assertThat(negotiate("gzip; q=0, deflate; q=0"), is(nullValue()));
+        assertThat(negotiate("x-gzip;q=0, deflate"), is(DEFLATE));
+        assertThat(negotiate("gzip;q=invalid"), is(nullValue()));
+
+    }
+
+    @Test
+    public void negotiateWildcard() {
+
+        assertThat(negotiate("*"), is(GZIP));
+        assertThat(negotiate("*;q=0"), is(nullValue()));
+
+        // A listed coding overrides the wildcard, either way
+        assertThat(negotiate("*, gzip;q=0"), is(DEFLATE));
+        assertThat(negotiate("*, x-gzip;q=0"), is(DEFLATE));
+        assertThat(negotiate("*, gzip;q=0, deflate;q=0"), is(nullValue()));
+        assertThat(negotiate("*;q=0, deflate"), is(DEFLATE));
+
+    }
+
+}
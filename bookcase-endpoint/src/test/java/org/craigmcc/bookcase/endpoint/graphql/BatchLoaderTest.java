@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.graphql;
+
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.craigmcc.bookcase.endpoint.graphql.BatchLoader.MAX_BATCH_SIZE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+@Category(EndpointTests.class)
+public class BatchLoaderTest {
+
+    private final List<Set<Long>> batches = new ArrayList<>();
+
+    private BatchLoader<String> loader;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        batches.clear();
+        loader = new BatchLoader<>(ids -> {
+            batches.add(ids);
+            Map<Long, String> results = new HashMap<>();
+            for (Long id : ids) {
+                if (id > 0L) {
+                    results.put(id, "Value " + id);
+                }
+            }
+            return results;
+        }, "Missing");
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void batchCappedAtMaximumSize() throws Exception {
+
+        int registered = (2 * MAX_BATCH_SIZE) + 100;
+        for (long id = 1L; id <= registered; id++) {
+            loader.register(id);
+        }
+
+        // The first lookup takes the first MAX_BATCH_SIZE IDs (itself included)
+        assertThat(loader.load(1L), is("Value 1"));
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).size(), is(MAX_BATCH_SIZE));
+        assertThat(loader.load((long) MAX_BATCH_SIZE), is("Value " + MAX_BATCH_SIZE));
+        assertThat(batches.size(), is(1));
+
+        // The rest follow in batches no bigger, with the requested ID first
+        long last = registered;
+        assertThat(loader.load(last), is("Value " + last));
+        assertThat(batches.size(), is(2));
+        assertThat(batches.get(1).size(), is(MAX_BATCH_SIZE));
+        assertThat(batches.get(1).iterator().next(), is(last));
+        assertThat(loader.load(last - 1L), is("Value " + (last - 1L)));
+        assertThat(batches.size(), is(3));
+        assertThat(batches.get(2).size(), is(registered - (2 * MAX_BATCH_SIZE)));
+
+        // Everything registered has now been loaded
+        for (long id = 1L; id <= registered; id++) {
+            assertThat(loader.load(id), is("Value " + id));
+        }
+        assertThat(batches.size(), is(3));
+
+    }
+
+    @Test
+    public void loadRegisteredTogether() throws Exception {
+
+        loader.register(1L);
+        loader.register(2L);
+        loader.register(3L);
+        assertThat(batches, is(empty()));
+
+        assertThat(loader.load(2L), is("Value 2"));
+        assertThat(loader.load(1L), is("Value 1"));
+        assertThat(loader.load(3L), is("Value 3"));
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0), contains(2L, 1L, 3L));
+
+    }
+
+    @Test
+    public void loadedValuesAreCached() throws Exception {
+
+        assertThat(loader.load(1L), is("Value 1"));
+        loader.register(1L);
+        assertThat(loader.load(1L), is("Value 1"));
+        assertThat(batches.size(), is(1));
+
+        // Registering a loaded ID does not add it to the next batch
+        loader.register(2L);
+        assertThat(loader.load(2L), is("Value 2"));
+        assertThat(batches.get(1), contains(2L));
+
+    }
+
+    @Test
+    public void missingValues() throws Exception {
+
+        // IDs the batch did not load are cached as missing
+        loader.register(-1L);
+        assertThat(loader.load(1L), is("Value 1"));
+        assertThat(loader.load(-1L), is("Missing"));
+        assertThat(batches.size(), is(1));
+
+        // And a null ID is missing without a load
+        loader.register(null);
+        assertThat(loader.load(null), is("Missing"));
+        assertThat(batches.size(), is(1));
+
+    }
+
+}
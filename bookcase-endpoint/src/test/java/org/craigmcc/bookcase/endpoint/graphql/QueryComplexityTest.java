@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.graphql;
+
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@Category(EndpointTests.class)
+public class QueryComplexityTest {
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void depthLimit() {
+
+        QueryComplexity complexity = new QueryComplexity(3, 100);
+        assertThat(complexity.check("{ a { b { c } } }"), is(nullValue()));
+        assertThat(complexity.check("{ a { b { c { d } } } }"),
+                is("Query is nested more than 3 levels deep"));
+
+        // Inline fragments and fragment spreads add no depth of their own
+        assertThat(complexity.check("{ a { ... on B { b { c } } } }"), is(nullValue()));
+        assertThat(complexity.check("{ a { ...F } } fragment F on A { b { c } }"), is(nullValue()));
+        assertThat(complexity.check("{ a { ...F } } fragment F on A { b { c { d } } }"),
+                is("Query is nested more than 3 levels deep"));
+
+    }
+
+    @Test
+    public void fieldLimit() {
+
+        QueryComplexity complexity = new QueryComplexity(10, 4);
+        assertThat(complexity.check("{ a { b c d } }"), is(nullValue()));
+        assertThat(complexity.check("{ a { b c d e } }"),
+                is("Query selects more than 4 fields"));
+
+        // Every operation in the document counts
+        assertThat(complexity.check("query X { a b } query Y { c d e }"),
+                is("Query selects more than 4 fields"));
+
+        // And so does every expansion of a fragment
+        assertThat(complexity.check("{ a { ...F } } fragment F on A { b c d }"), is(nullValue()));
+        assertThat(complexity.check("{ a { ...F } x { ...F } } fragment F on A { b c }"),
+                is("Query selects more than 4 fields"));
+
+    }
+
+    @Test
+    public void introspectionNotCounted() {
+
+        QueryComplexity complexity = new QueryComplexity(2, 2);
+        assertThat(complexity.check("{ __schema { types { name fields { name type { name } } } } }"),
+                is(nullValue()));
+        assertThat(complexity.check("{ a { __typename b } }"), is(nullValue()));
+
+    }
+
+    @Test
+    public void recursiveFragmentsTerminate() {
+
+        QueryComplexity complexity = new QueryComplexity(10, 100);
+        assertThat(complexity.check("{ a { ...F } } fragment F on A { b ...G } fragment G on A { c ...F }"),
+                is(nullValue()));
+
+    }
+
+    @Test
+    public void reusableAfterRejection() {
+
+        QueryComplexity complexity = new QueryComplexity(2, 3);
+        assertThat(complexity.check("{ a { b { c } } }"), is("Query is nested more than 2 levels deep"));
+        assertThat(complexity.check("{ a { b } }"), is(nullValue()));
+        assertThat(complexity.check("{ a b c d }"), is("Query selects more than 3 fields"));
+        assertThat(complexity.check("{ a b c }"), is(nullValue()));
+
+    }
+
+    @Test
+    public void unparseableAccepted() {
+
+        QueryComplexity complexity = new QueryComplexity(1, 1);
+        assertThat(complexity.check("{ a { b "), is(nullValue()));
+
+    }
+
+}
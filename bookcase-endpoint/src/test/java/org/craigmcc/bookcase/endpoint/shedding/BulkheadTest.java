@@ -0,0 +1,272 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.shedding;
+
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import javax.ws.rs.container.ContainerRequestContext;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.fail;
+
+@Category(EndpointTests.class)
+public class BulkheadTest {
+
+    private Bulkhead bulkhead;
+
+    private ExecutorService executor;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final long TIMEOUT = 10_000L;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Before
+    public void before() {
+        bulkhead = new Bulkhead(2);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void acquireTimesOut() throws Exception {
+
+        fill();
+        long started = System.nanoTime();
+        assertThat(bulkhead.tryAcquire(1, 50L), is(nullValue()));
+        assertThat((System.nanoTime() - started) / 1_000_000L, is(greaterThanOrEqualTo(50L)));
+        assertThat(bulkhead.getWaiting(), is(0));
+        assertThat(bulkhead.getActive(), is(2));
+
+    }
+
+    @Test
+    public void acquireUpToLimit() throws Exception {
+
+        assertThat(bulkhead.tryAcquire(0, 0L), is(notNullValue()));
+        assertThat(bulkhead.getActive(), is(1));
+        assertThat(bulkhead.tryAcquire(0, 0L), is(notNullValue()));
+        assertThat(bulkhead.getActive(), is(2));
+        assertThat(bulkhead.tryAcquire(0, 0L), is(nullValue()));
+        assertThat(bulkhead.getActive(), is(2));
+        assertThat(bulkhead.getWaiting(), is(0));
+
+    }
+
+    @Test
+    public void constructorRejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead(0));
+    }
+
+    @Test
+    public void interruptedWaitLeavesNoWaiter() throws Exception {
+
+        fill();
+        Future<Bulkhead.Permit> waiter = executor.submit(() -> bulkhead.tryAcquire(1, TIMEOUT));
+        awaitWaiting(1);
+        waiter.cancel(true);
+        awaitWaiting(0);
+        assertThat(bulkhead.getActive(), is(2));
+
+    }
+
+    @Test
+    public void releaseIsIdempotent() throws Exception {
+
+        Bulkhead.Permit[] permits = fill();
+        permits[0].release();
+        permits[0].release();
+        assertThat(bulkhead.getActive(), is(1));
+        assertThat(bulkhead.tryAcquire(0, 0L), is(notNullValue()));
+        assertThat(bulkhead.tryAcquire(0, 0L), is(nullValue()));
+
+    }
+
+    @Test
+    public void releaseByFilterAndListener() throws Exception {
+
+        // The response filter releases the permit and forgets it
+        Bulkhead.Permit[] permits = fill();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(LoadSheddingFilter.PERMIT_PROPERTY, permits[0]);
+        new LoadSheddingFilter().filter(requestContext(properties), null);
+        assertThat(bulkhead.getActive(), is(1));
+        assertThat(properties.containsKey(LoadSheddingFilter.PERMIT_PROPERTY), is(false));
+
+        // A request that ends without a response still releases its permit
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(LoadSheddingFilter.PERMIT_PROPERTY, permits[1]);
+        new PermitReleaseListener().requestDestroyed
+                (new ServletRequestEvent(servletContext(), servletRequest(attributes)));
+        assertThat(bulkhead.getActive(), is(0));
+
+        // And releasing both ways (or when there is no permit) does no harm
+        permits = fill();
+        properties.put(LoadSheddingFilter.PERMIT_PROPERTY, permits[0]);
+        attributes.put(LoadSheddingFilter.PERMIT_PROPERTY, permits[0]);
+        new LoadSheddingFilter().filter(requestContext(properties), null);
+        new PermitReleaseListener().requestDestroyed
+                (new ServletRequestEvent(servletContext(), servletRequest(attributes)));
+        new LoadSheddingFilter().filter(requestContext(new HashMap<>()), null);
+        assertThat(bulkhead.getActive(), is(1));
+
+    }
+
+    @Test
+    public void rejectWhenTooManyWaiting() throws Exception {
+
+        fill();
+        Future<Bulkhead.Permit> waiter = executor.submit(() -> bulkhead.tryAcquire(1, TIMEOUT));
+        awaitWaiting(1);
+
+        // One waiter is allowed, so the next call is rejected without waiting
+        long started = System.nanoTime();
+        assertThat(bulkhead.tryAcquire(1, TIMEOUT), is(nullValue()));
+        assertThat((System.nanoTime() - started) / 1_000_000L < TIMEOUT, is(true));
+        assertThat(bulkhead.getWaiting(), is(1));
+
+        waiter.cancel(true);
+        awaitWaiting(0);
+
+    }
+
+    @Test
+    public void rejectWithoutWaitingByDefault() throws Exception {
+
+        fill();
+        assertThat(bulkhead.tryAcquire(16, 0L), is(nullValue()));
+        assertThat(bulkhead.getWaiting(), is(0));
+
+    }
+
+    @Test
+    public void waiterGetsReleasedPermit() throws Exception {
+
+        Bulkhead.Permit[] permits = fill();
+        Future<Bulkhead.Permit> waiter = executor.submit(() -> bulkhead.tryAcquire(1, TIMEOUT));
+        awaitWaiting(1);
+
+        permits[0].release();
+        assertThat(waiter.get(TIMEOUT, TimeUnit.MILLISECONDS), is(instanceOf(Bulkhead.Permit.class)));
+        assertThat(bulkhead.getWaiting(), is(0));
+        assertThat(bulkhead.getActive(), is(2));
+
+    }
+
+    @Test
+    public void waiterInterruptedBeforeWaiting() throws Exception {
+
+        fill();
+        Future<Bulkhead.Permit> waiter = executor.submit(() -> {
+            Thread.currentThread().interrupt();
+            return bulkhead.tryAcquire(1, TIMEOUT);
+        });
+        try {
+            waiter.get(TIMEOUT, TimeUnit.MILLISECONDS);
+            fail("Should have thrown InterruptedException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(InterruptedException.class)));
+        }
+        assertThat(bulkhead.getWaiting(), is(0));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void awaitWaiting(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (bulkhead.getWaiting() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for " + expected + " waiting calls");
+            }
+            Thread.sleep(10L);
+        }
+    }
+
+    private Bulkhead.Permit[] fill() throws InterruptedException {
+        return new Bulkhead.Permit[] {
+                bulkhead.tryAcquire(0, 0L),
+                bulkhead.tryAcquire(0, 0L)
+        };
+    }
+
+    private static ContainerRequestContext requestContext(Map<String, Object> properties) {
+        return (ContainerRequestContext) Proxy.newProxyInstance(
+                BulkheadTest.class.getClassLoader(),
+                new Class<?>[] { ContainerRequestContext.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getProperty":
+                            return properties.get(args[0]);
+                        case "removeProperty":
+                            properties.remove(args[0]);
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static ServletContext servletContext() {
+        return (ServletContext) Proxy.newProxyInstance(
+                BulkheadTest.class.getClassLoader(),
+                new Class<?>[] { ServletContext.class },
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static ServletRequest servletRequest(Map<String, Object> attributes) {
+        return (ServletRequest) Proxy.newProxyInstance(
+                BulkheadTest.class.getClassLoader(),
+                new Class<?>[] { ServletRequest.class },
+                (proxy, method, args) -> {
+                    if ("getAttribute".equals(method.getName())) {
+                        return attributes.get(args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+}
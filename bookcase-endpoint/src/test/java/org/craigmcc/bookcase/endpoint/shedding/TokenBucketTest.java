@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.shedding;
+
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.hamcrest.Matcher;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThrows;
+
+@Category(EndpointTests.class)
+public class TokenBucketTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final long MILLIS = 1_000_000L;
+
+    private static final long SECONDS = 1_000_000_000L;
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void burstLimit() {
+
+        // However long the bucket has been unused, it holds only its capacity
+        TokenBucket bucket = new TokenBucket(10.0, 5, 0L);
+        long now = 3600L * SECONDS;
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryConsume(now), is(0L));
+        }
+        assertThat(bucket.tryConsume(now), is(greaterThan(0L)));
+
+    }
+
+    @Test
+    public void constructorRejectsInvalidArguments() {
+
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0.0, 5, 0L));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(-1.0, 5, 0L));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10.0, 0, 0L));
+
+    }
+
+    @Test
+    public void idle() {
+
+        // A bucket at rate 10 and capacity 5 refills completely in 500 ms
+        TokenBucket bucket = new TokenBucket(10.0, 5, 0L);
+        bucket.tryConsume(0L);
+        assertThat(bucket.isIdle(499L * MILLIS), is(false));
+        assertThat(bucket.isIdle(501L * MILLIS), is(true));
+        bucket.tryConsume(501L * MILLIS);
+        assertThat(bucket.isIdle(501L * MILLIS), is(false));
+
+    }
+
+    @Test
+    public void refill() {
+
+        TokenBucket bucket = new TokenBucket(10.0, 5, 0L);
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryConsume(0L), is(0L));
+        }
+
+        // Empty, so the next token arrives after 1 / rate seconds
+        assertThat(bucket.tryConsume(0L), is(about(100L * MILLIS)));
+
+        // Half way there, half the wait remains
+        assertThat(bucket.tryConsume(50L * MILLIS), is(about(50L * MILLIS)));
+
+        // Once the wait is over, one token (and only one) is available
+        long wait = bucket.tryConsume(50L * MILLIS);
+        assertThat(bucket.tryConsume((50L * MILLIS) + wait), is(0L));
+        assertThat(bucket.tryConsume((50L * MILLIS) + wait), is(about(100L * MILLIS)));
+
+        // Partial refills accumulate
+        long now = (50L * MILLIS) + wait;
+        assertThat(bucket.tryConsume(now + (250L * MILLIS)), is(0L));
+        assertThat(bucket.tryConsume(now + (250L * MILLIS)), is(0L));
+        assertThat(bucket.tryConsume(now + (250L * MILLIS)), is(about(50L * MILLIS)));
+
+    }
+
+    @Test
+    public void timeGoingBackwardsIsIgnored() {
+
+        TokenBucket bucket = new TokenBucket(10.0, 1, 100L * MILLIS);
+        assertThat(bucket.tryConsume(100L * MILLIS), is(0L));
+        assertThat(bucket.tryConsume(0L), is(about(100L * MILLIS)));
+        assertThat(bucket.tryConsume(250L * MILLIS), is(0L));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Match a wait within a nanosecond of the specified one, allowing for
+     * rounding up of fractional nanoseconds.</p>
+     */
+    private static Matcher<Long> about(long nanos) {
+        return allOf(greaterThanOrEqualTo(nanos - 1L), lessThanOrEqualTo(nanos + 1L));
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.stream;
+
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.craigmcc.bookcase.endpoint.stream.StreamHarness.Events;
+import org.craigmcc.bookcase.endpoint.stream.StreamHarness.Sink;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.craigmcc.bookcase.service.MutatedModelEventService;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.craigmcc.bookcase.endpoint.stream.StreamHarness.event;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * <p>Replays of missed events to reconnecting clients, from recorded events
+ * held in memory instead of the database.</p>
+ */
+@Category(EndpointTests.class)
+public class EventStreamTest {
+
+    private final List<MutatedModelEvent> events = new ArrayList<>();
+
+    private Runnable onFirstRead;
+
+    private Sink sink;
+
+    private EventStream stream;
+
+    private StreamSubscriber subscriber;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        for (long id = 1L; id <= 5L; id++) {
+            events.add(event(id, BOOK_NAME, DEFAULT_TENANT_ID));
+        }
+        stream = new EventStream();
+        stream.mutatedModelEventService = new RecordedEvents();
+        stream.setReplayLimit(10);
+        sink = new Sink(true);
+        subscriber = new StreamSubscriber(sink, new Events(), Collections.emptySet(), 10,
+                () -> {}, DEFAULT_TENANT_ID);
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void replayThenLiveWithoutGapsOrDuplicates() {
+
+        // Events 4 and 5 are published (and 6 recorded) during the replay
+        onFirstRead = () -> {
+            subscriber.offer(new StreamNotification(events.get(3)));
+            subscriber.offer(new StreamNotification(events.get(4)));
+            MutatedModelEvent later = event(6L, BOOK_NAME, DEFAULT_TENANT_ID);
+            events.add(later);
+            subscriber.offer(new StreamNotification(later));
+        };
+        stream.replay(subscriber, 2L);
+
+        assertThat(sink.getSent(), contains("3", "4", "5", "6"));
+
+    }
+
+    @Test
+    public void replayNothingWithoutLastEventId() {
+
+        stream.replay(subscriber, null);
+        subscriber.offer(new StreamNotification(events.get(0)));
+
+        assertThat(sink.getSent(), contains("1"));
+
+    }
+
+    @Test
+    public void resetWhenLastEventMissing() {
+
+        stream.replay(subscriber, 99L);
+        subscriber.offer(new StreamNotification(events.get(4)));
+
+        assertThat(sink.getSent(), contains("reset:Event 99 is no longer recorded", "5"));
+
+    }
+
+    @Test
+    public void resetWhenTooManyMissed() {
+
+        stream.setReplayLimit(2);
+        stream.replay(subscriber, 1L);
+
+        assertThat(sink.getSent(), contains("2", "3", "reset:More than 2 events were missed"));
+
+    }
+
+    @Test
+    public void replayUpToLimit() {
+
+        stream.setReplayLimit(3);
+        stream.replay(subscriber, 2L);
+
+        assertThat(sink.getSent(), contains("3", "4", "5"));
+
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Mutated model event service that reads the recorded events of this
+     * test, which are in replay order.  Events recorded after a replay
+     * started are never returned to it.</p>
+     */
+    private class RecordedEvents extends MutatedModelEventService {
+
+        @Override
+        public MutatedModelEvent find(Long id) throws NotFound {
+            return events.stream()
+                    .filter(event -> event.getId().equals(id))
+                    .findFirst()
+                    .orElseThrow(() -> new NotFound("id: Missing mutated model event " + id));
+        }
+
+        @Override
+        public List<MutatedModelEvent> findAfter(LocalDateTime updated, Long id, LocalDateTime before, int limit) {
+            List<MutatedModelEvent> recorded = new ArrayList<>(events);
+            if (onFirstRead != null) {
+                Runnable action = onFirstRead;
+                onFirstRead = null;
+                action.run();
+            }
+            return recorded.stream()
+                    .filter(event -> event.getId() > id)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+    }
+
+}
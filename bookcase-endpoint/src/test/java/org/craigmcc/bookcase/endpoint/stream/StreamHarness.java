@@ -0,0 +1,280 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.stream;
+
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseBroadcaster;
+import javax.ws.rs.sse.SseEventSink;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
+
+/**
+ * <p>In-memory stand-ins for the JAX-RS server-sent event classes used by
+ * {@link EventStream} and {@link StreamSubscriber}: an {@link Sse} whose
+ * events simply hold what they were built with, and an {@link SseEventSink}
+ * that records what it is sent (completing each send immediately, or only
+ * when told to, like a slow client).</p>
+ */
+class StreamHarness {
+
+    // Constructors ----------------------------------------------------------
+
+    private StreamHarness() {
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return a recorded event of the specified model type, belonging to
+     * the specified tenant.</p>
+     */
+    static MutatedModelEvent event(Long id, String modelType, String tenantId) {
+        MutatedModelEvent event = new MutatedModelEvent(modelType + " " + id, MutatedModelEvent.Type.UPDATED);
+        event.setId(id);
+        event.setModelId(id);
+        event.setModelType(modelType);
+        event.setPayload("{\"" + TENANT_ID_COLUMN + "\":\"" + tenantId + "\"}");
+        return event;
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Server-sent event factory.</p>
+     */
+    static class Events implements Sse {
+
+        @Override
+        public OutboundSseEvent.Builder newEventBuilder() {
+            return new Builder();
+        }
+
+        @Override
+        public SseBroadcaster newBroadcaster() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    /**
+     * <p>Sink that records the events sent to it.</p>
+     */
+    static class Sink implements SseEventSink {
+
+        private boolean closed = false;
+        private final boolean completing;
+        private final Deque<CompletableFuture<Object>> pending = new ArrayDeque<>();
+        private final List<OutboundSseEvent> sent = new ArrayList<>();
+
+        /**
+         * @param completing Complete each send immediately?
+         */
+        Sink(boolean completing) {
+            this.completing = completing;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+        }
+
+        /**
+         * <p>Complete the oldest send still in progress.</p>
+         */
+        void completeNext() {
+            CompletableFuture<Object> next;
+            synchronized (this) {
+                next = pending.pollFirst();
+            }
+            next.complete(null);
+        }
+
+        /**
+         * <p>Return a description of each event sent: its ID if it has one,
+         * otherwise its name and data, otherwise its comment.</p>
+         */
+        synchronized List<String> getSent() {
+            return sent.stream().map(event -> {
+                if (event.getId() != null) {
+                    return event.getId();
+                } else if (event.getName() != null) {
+                    return event.getName() + ":" + event.getData();
+                } else {
+                    return "#" + event.getComment();
+                }
+            }).collect(Collectors.toList());
+        }
+
+        @Override
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public CompletionStage<?> send(OutboundSseEvent event) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            synchronized (this) {
+                sent.add(event);
+                if (!completing) {
+                    pending.addLast(future);
+                    return future;
+                }
+            }
+            future.complete(null);
+            return future;
+        }
+
+    }
+
+    private static class Builder implements OutboundSseEvent.Builder {
+
+        private String comment;
+        private Object data;
+        private String id;
+        private String name;
+        private Class<?> type;
+
+        @Override
+        public OutboundSseEvent build() {
+            return new Event(comment, data, id, name, type);
+        }
+
+        @Override
+        public OutboundSseEvent.Builder comment(String comment) {
+            this.comment = comment;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder data(Class type, Object data) {
+            this.type = type;
+            this.data = data;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder data(GenericType type, Object data) {
+            this.type = type.getRawType();
+            this.data = data;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder data(Object data) {
+            return data(data.getClass(), data);
+        }
+
+        @Override
+        public OutboundSseEvent.Builder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder mediaType(MediaType mediaType) {
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder reconnectDelay(long milliseconds) {
+            return this;
+        }
+
+    }
+
+    private static class Event implements OutboundSseEvent {
+
+        private final String comment;
+        private final Object data;
+        private final String id;
+        private final String name;
+        private final Class<?> type;
+
+        private Event(String comment, Object data, String id, String name, Class<?> type) {
+            this.comment = comment;
+            this.data = data;
+            this.id = id;
+            this.name = name;
+            this.type = type;
+        }
+
+        @Override
+        public String getComment() {
+            return comment;
+        }
+
+        @Override
+        public Object getData() {
+            return data;
+        }
+
+        @Override
+        public Type getGenericType() {
+            return type;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public MediaType getMediaType() {
+            return MediaType.APPLICATION_JSON_TYPE;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getReconnectDelay() {
+            return RECONNECT_NOT_SET;
+        }
+
+        @Override
+        public Class<?> getType() {
+            return type;
+        }
+
+        @Override
+        public boolean isReconnectDelaySet() {
+            return false;
+        }
+
+    }
+
+}
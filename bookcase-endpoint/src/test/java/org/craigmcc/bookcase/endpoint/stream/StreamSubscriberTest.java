@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.endpoint.stream;
+
+import org.craigmcc.bookcase.endpoint.EndpointTests;
+import org.craigmcc.bookcase.endpoint.stream.StreamHarness.Events;
+import org.craigmcc.bookcase.endpoint.stream.StreamHarness.Sink;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.craigmcc.bookcase.endpoint.stream.StreamHarness.event;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+@Category(EndpointTests.class)
+public class StreamSubscriberTest {
+
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void acceptsOnlyItsTenantAndModelTypes() {
+
+        Sink sink = new Sink(true);
+        StreamSubscriber subscriber = subscriber(sink, Set.of(BOOK_NAME), 10);
+        subscriber.live(Collections.emptySet());
+
+        subscriber.offer(notification(1L, BOOK_NAME, DEFAULT_TENANT_ID));
+        subscriber.offer(notification(2L, AUTHOR_NAME, DEFAULT_TENANT_ID));
+        subscriber.offer(notification(3L, BOOK_NAME, "other"));
+        subscriber.replay(notification(4L, BOOK_NAME, "other"));
+        subscriber.offer(notification(5L, BOOK_NAME, DEFAULT_TENANT_ID));
+
+        assertThat(sink.getSent(), contains("1", "5"));
+
+    }
+
+    @Test
+    public void heartbeatOnlyWhenIdle() {
+
+        Sink sink = new Sink(false);
+        StreamSubscriber subscriber = subscriber(sink, Collections.emptySet(), 10);
+
+        // Not while replaying
+        subscriber.heartbeat();
+        assertThat(sink.getSent(), is(empty()));
+
+        // Not while sending
+        subscriber.live(Collections.emptySet());
+        subscriber.offer(notification(1L, BOOK_NAME, DEFAULT_TENANT_ID));
+        subscriber.heartbeat();
+        assertThat(sink.getSent(), contains("1"));
+
+        // But once idle
+        sink.completeNext();
+        subscriber.heartbeat();
+        assertThat(sink.getSent(), contains("1", "#heartbeat"));
+
+    }
+
+    @Test
+    public void liveDiscardsReplayedNotifications() {
+
+        Sink sink = new Sink(true);
+        StreamSubscriber subscriber = subscriber(sink, Collections.emptySet(), 10);
+
+        // Published during the replay, so held
+        subscriber.offer(notification(3L, BOOK_NAME, DEFAULT_TENANT_ID));
+        subscriber.replay(notification(2L, BOOK_NAME, DEFAULT_TENANT_ID));
+        subscriber.replay(notification(3L, BOOK_NAME, DEFAULT_TENANT_ID));
+        subscriber.offer(notification(4L, BOOK_NAME, DEFAULT_TENANT_ID));
+        assertThat(sink.getSent(), contains("2", "3"));
+
+        subscriber.live(Set.of("2", "3"));
+        assertThat(sink.getSent(), contains("2", "3", "4"));
+
+    }
+
+    @Test
+    public void overflowDropsOldestAndTellsClient() {
+
+        Sink sink = new Sink(false);
+        StreamSubscriber subscriber = subscriber(sink, Collections.emptySet(), 2);
+        subscriber.live(Collections.emptySet());
+
+        // The first is being sent (slowly), so the rest are buffered
+        for (long id = 1L; id <= 5L; id++) {
+            subscriber.offer(notification(id, BOOK_NAME, DEFAULT_TENANT_ID));
+        }
+        assertThat(sink.getSent(), contains("1"));
+        assertThat(dropped.get(), is(2));
+
+        // The client learns how many were dropped before getting the rest
+        sink.completeNext();
+        assertThat(sink.getSent(), contains("1", "dropped:2"));
+        sink.completeNext();
+        sink.completeNext();
+        sink.completeNext();
+        assertThat(sink.getSent(), contains("1", "dropped:2", "4", "5"));
+
+        // Dropped counts start again afterwards
+        for (long id = 6L; id <= 9L; id++) {
+            subscriber.offer(notification(id, BOOK_NAME, DEFAULT_TENANT_ID));
+        }
+        sink.completeNext();
+        sink.completeNext();
+        sink.completeNext();
+        assertThat(sink.getSent(), contains("1", "dropped:2", "4", "5", "6", "dropped:1", "8", "9"));
+        assertThat(dropped.get(), is(3));
+
+    }
+
+    @Test
+    public void sendFailureClosesSink() {
+
+        Sink sink = new Sink(false) {
+            @Override
+            public CompletionStage<?> send(OutboundSseEvent event) {
+                super.send(event);
+                return CompletableFuture.failedFuture(new IllegalStateException("Gone"));
+            }
+        };
+        StreamSubscriber subscriber = subscriber(sink, Collections.emptySet(), 10);
+        subscriber.live(Collections.emptySet());
+        subscriber.offer(notification(1L, BOOK_NAME, DEFAULT_TENANT_ID));
+        subscriber.offer(notification(2L, BOOK_NAME, DEFAULT_TENANT_ID));
+
+        assertThat(sink.isClosed(), is(true));
+        assertThat(sink.getSent(), contains("1"));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static StreamNotification notification(Long id, String modelType, String tenantId) {
+        return new StreamNotification(event(id, modelType, tenantId));
+    }
+
+    private StreamSubscriber subscriber(Sink sink, Set<String> modelTypes, int capacity) {
+        return new StreamSubscriber(sink, new Events(), modelTypes, capacity,
+                dropped::incrementAndGet, DEFAULT_TENANT_ID);
+    }
+
+}
@@ -22,7 +22,7 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.craigmcc.bookcase.model.Book.Location;
 import org.craigmcc.bookcase.model.validator.ValidBookLocation;
-import org.craigmcc.library.model.Model;
+import org.craigmcc.bookcase.model.text.SortKeys;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
 import javax.persistence.Access;
@@ -40,6 +40,8 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OrderBy;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -49,16 +51,31 @@ import java.util.List;
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
 import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
 import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_TABLE;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_FIELD;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.IDS_PARAMETER;
+import static org.craigmcc.bookcase.model.Constants.LOCATION_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.READ_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.TITLE_KEY_COLUMN;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
 @Entity(name = ANTHOLOGY_NAME)
 @Table(
         indexes = {
                 @Index(
-                        columnList = TITLE_COLUMN + " ASC",
-                        name = "IX_" + ANTHOLOGY_TABLE + "_" + TITLE_COLUMN
+                        columnList = TENANT_ID_COLUMN + " ASC, " + AUTHOR_ID_COLUMN + " ASC, " + TITLE_KEY_COLUMN + " ASC",
+                        name = "IX_" + ANTHOLOGY_TABLE + "_" + TENANT_ID_COLUMN + "_" + AUTHOR_ID_COLUMN + "_" + TITLE_KEY_COLUMN
+                ),
+                @Index(
+                        columnList = TENANT_ID_COLUMN + " ASC, " + LOCATION_COLUMN + " ASC, " + READ_COLUMN + " ASC, " + TITLE_KEY_COLUMN + " ASC",
+                        name = "IX_" + ANTHOLOGY_TABLE + "_" + TENANT_ID_COLUMN + "_" + LOCATION_COLUMN + "_" + READ_COLUMN + "_" + TITLE_KEY_COLUMN
+                ),
+                @Index(
+                        columnList = TENANT_ID_COLUMN + " ASC, " + TITLE_KEY_COLUMN + " ASC",
+                        name = "IX_" + ANTHOLOGY_TABLE + "_" + TENANT_ID_COLUMN + "_" + TITLE_KEY_COLUMN
                 )
         },
         name = ANTHOLOGY_TABLE
@@ -68,31 +85,48 @@ import static org.craigmcc.library.model.Constants.ID_COLUMN;
         @NamedQuery(
                 name = ANTHOLOGY_NAME + ".findAll",
                 query = "SELECT a FROM " + ANTHOLOGY_NAME + " a " +
-                        "ORDER BY a." + TITLE_COLUMN + " ASC"
+                        "JOIN FETCH a." + AUTHOR_FIELD + " " +
+                        "ORDER BY a." + TITLE_KEY_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = ANTHOLOGY_NAME + ".findByAuthorId",
                 query = "SELECT a FROM " + ANTHOLOGY_NAME + " a " +
+                        "JOIN FETCH a." + AUTHOR_FIELD + " " +
                         "WHERE a." + AUTHOR_ID_COLUMN + " = :" + AUTHOR_ID_COLUMN + " " +
-                        "ORDER BY a." + TITLE_COLUMN + " ASC"
+                        "ORDER BY a." + TITLE_KEY_COLUMN + " ASC"
+        ),
+        @NamedQuery(
+                name = ANTHOLOGY_NAME + ".findByAuthorIds",
+                query = "SELECT a FROM " + ANTHOLOGY_NAME + " a " +
+                        "JOIN FETCH a." + AUTHOR_FIELD + " " +
+                        "WHERE a." + AUTHOR_ID_COLUMN + " IN :" + AUTHOR_IDS_PARAMETER + " " +
+                        "ORDER BY a." + TITLE_KEY_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = ANTHOLOGY_NAME + ".findById",
                 query = "SELECT a FROM " + ANTHOLOGY_NAME + " a " +
+                        "JOIN FETCH a." + AUTHOR_FIELD + " " +
                         "WHERE a." + ID_COLUMN + " = :" + ID_COLUMN
         ),
+        @NamedQuery(
+                name = ANTHOLOGY_NAME + ".findByIds",
+                query = "SELECT a FROM " + ANTHOLOGY_NAME + " a " +
+                        "JOIN FETCH a." + AUTHOR_FIELD + " " +
+                        "WHERE a." + ID_COLUMN + " IN :" + IDS_PARAMETER
+        ),
         @NamedQuery(
                 name = ANTHOLOGY_NAME + ".findByTitle",
                 query = "SELECT a FROM " + ANTHOLOGY_NAME + " a " +
+                        "JOIN FETCH a." + AUTHOR_FIELD + " " +
                         "WHERE LOWER(a." + TITLE_COLUMN + ") LIKE LOWER(CONCAT('%',:" + TITLE_COLUMN + ",'%')) " +
-                        "ORDER BY a." + TITLE_COLUMN + " ASC"
+                        "ORDER BY a." + TITLE_KEY_COLUMN + " ASC"
         )
 })
 @Schema(
         description = "An anthology, which is a collection of books bundled together.",
         name = ANTHOLOGY_NAME
 )
-public class Anthology extends Model<Anthology> implements Constants {
+public class Anthology extends TenantModel<Anthology> implements Constants {
 
     // Instance Variables ----------------------------------------------------
 
@@ -172,10 +206,22 @@ public class Anthology extends Model<Anthology> implements Constants {
     @Schema(description = "Title of this anthology.")
     private String title;
 
+    @Column(
+            name = TITLE_KEY_COLUMN,
+            nullable = true
+    )
+    private String titleKey;
+
     // Static Variables ------------------------------------------------------
 
-    public static final Comparator<Anthology> TitleComparator = (o1, o2) ->
-            o1.getTitle().compareTo(o2.getTitle());
+    public static final Comparator<Anthology> TitleComparator = (o1, o2) -> {
+        int keyComparison = o1.titleKey.compareTo(o2.titleKey);
+        if (keyComparison != 0) {
+            return keyComparison;
+        } else {
+            return o1.title.compareTo(o2.title);
+        }
+    };
 
     // Constructors ----------------------------------------------------------
 
@@ -195,6 +241,7 @@ public class Anthology extends Model<Anthology> implements Constants {
             this.read = read;
         }
         this.title = title;
+        this.titleKey = SortKeys.titleKey(title);
     }
 
     // Property Methods ------------------------------------------------------
@@ -263,6 +310,19 @@ public class Anthology extends Model<Anthology> implements Constants {
 
     public void setTitle(String title) {
         this.title = title;
+        this.titleKey = SortKeys.titleKey(title);
+    }
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    /**
+     * <p>Keep the sort key current even if the title was changed without
+     * going through <code>setTitle()</code>.</p>
+     */
+    @PrePersist
+    @PreUpdate
+    protected void updateTitleKey() {
+        this.titleKey = SortKeys.titleKey(title);
     }
 
     // Public Methods --------------------------------------------------------
@@ -275,6 +335,7 @@ public class Anthology extends Model<Anthology> implements Constants {
         this.notes = that.notes;
         this.read = that.read;
         this.title = that.title;
+        this.titleKey = SortKeys.titleKey(that.title);
     }
 
     @Override
@@ -307,11 +368,18 @@ public class Anthology extends Model<Anthology> implements Constants {
                 .toHashCode();
     }
 
+    /**
+     * <p>Return true if the title contains the specified segment, ignoring
+     * case, accents, punctuation, and a leading article.</p>
+     *
+     * @param title Title segment to be matched
+     */
     public boolean matchTitle(String title) {
-        if ((title == null) || title.isBlank()) {
+        if ((title == null) || (titleKey == null)) {
             return false;
         }
-        return this.getTitle().toLowerCase().contains(title.toLowerCase());
+        String segment = SortKeys.titleSegment(title);
+        return !segment.isEmpty() && titleKey.contains(segment);
     }
 
     @Override
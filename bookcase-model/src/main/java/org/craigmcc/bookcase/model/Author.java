@@ -20,7 +20,7 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.craigmcc.library.model.Model;
+import org.craigmcc.bookcase.model.text.SortKeys;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
 import javax.persistence.Access;
@@ -34,6 +34,8 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OrderBy;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotBlank;
@@ -45,24 +47,32 @@ import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_TABLE;
 import static org.craigmcc.bookcase.model.Constants.FIRST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.LAST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.NAME_KEY_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.TITLE_KEY_COLUMN;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
 @Entity(name = AUTHOR_NAME)
 @Table(
         indexes = {
                 @Index(
-                        columnList = LAST_NAME_COLUMN + " ASC, " + FIRST_NAME_COLUMN + " ASC",
-                        name = "IX_" + AUTHOR_TABLE + "_" + LAST_NAME_COLUMN + "_" + FIRST_NAME_COLUMN,
+                        columnList = TENANT_ID_COLUMN + " ASC, " + LAST_NAME_COLUMN + " ASC, " + FIRST_NAME_COLUMN + " ASC",
+                        name = "IX_" + AUTHOR_TABLE + "_" + TENANT_ID_COLUMN + "_" + LAST_NAME_COLUMN + "_" + FIRST_NAME_COLUMN,
                         unique = true
+                ),
+                @Index(
+                        columnList = TENANT_ID_COLUMN + " ASC, " + NAME_KEY_COLUMN + " ASC",
+                        name = "IX_" + AUTHOR_TABLE + "_" + TENANT_ID_COLUMN + "_" + NAME_KEY_COLUMN
                 )
         },
         name = AUTHOR_TABLE,
         uniqueConstraints = {
                 @UniqueConstraint(
                         // TODO - Not creating anything to enforce this in Postgres?
-                        columnNames = { LAST_NAME_COLUMN, FIRST_NAME_COLUMN },
-                        name = "UK_" + AUTHOR_TABLE + "_" + LAST_NAME_COLUMN + "_" + FIRST_NAME_COLUMN
+                        columnNames = { TENANT_ID_COLUMN, LAST_NAME_COLUMN, FIRST_NAME_COLUMN },
+                        name = "UK_" + AUTHOR_TABLE + "_" + TENANT_ID_COLUMN + "_" + LAST_NAME_COLUMN + "_" + FIRST_NAME_COLUMN
                 )
         }
 )
@@ -71,33 +81,38 @@ import static org.craigmcc.library.model.Constants.ID_COLUMN;
         @NamedQuery(
                 name = AUTHOR_NAME + ".findAll",
                 query = "SELECT a FROM " + AUTHOR_NAME + " a " +
-                        "ORDER BY a." + LAST_NAME_COLUMN + " ASC, a." + FIRST_NAME_COLUMN + " ASC"
+                        "ORDER BY a." + NAME_KEY_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = AUTHOR_NAME + ".findById",
                 query = "SELECT a FROM " + AUTHOR_NAME + " a " +
                         "WHERE a." + ID_COLUMN + " = :" + ID_COLUMN
         ),
+        @NamedQuery(
+                name = AUTHOR_NAME + ".findByIds",
+                query = "SELECT a FROM " + AUTHOR_NAME + " a " +
+                        "WHERE a." + ID_COLUMN + " IN :" + IDS_PARAMETER
+        ),
         @NamedQuery(
                 name = AUTHOR_NAME + ".findByName",
                 query = "SELECT a FROM " + AUTHOR_NAME + " a " +
                         "WHERE LOWER(a." + FIRST_NAME_COLUMN + ") LIKE LOWER(CONCAT('%',:" + FIRST_NAME_COLUMN + ",'%')) " +
                         "OR LOWER(a." + LAST_NAME_COLUMN + ")  LIKE LOWER(CONCAT('%',:" + LAST_NAME_COLUMN + ",'%')) " +
-                        "ORDER BY a." + LAST_NAME_COLUMN + " ASC, a." + FIRST_NAME_COLUMN
+                        "ORDER BY a." + NAME_KEY_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = AUTHOR_NAME + ".findByNameExact",
                 query = "SELECT a FROM " + AUTHOR_NAME + " a " +
                         "WHERE a." + FIRST_NAME_COLUMN + " = :" + FIRST_NAME_COLUMN + " " +
                         "AND a." + LAST_NAME_COLUMN + " = :" + LAST_NAME_COLUMN + " " +
-                        "ORDER BY a." + LAST_NAME_COLUMN + " ASC, a." + FIRST_NAME_COLUMN
+                        "ORDER BY a." + NAME_KEY_COLUMN + " ASC"
         )
 })
 @Schema(
         description = "An author of one or more anthologies, books, or series.",
         name = AUTHOR_NAME
 )
-public class Author extends Model<Author> implements Constants {
+public class Author extends TenantModel<Author> implements Constants {
 
     // Instance Variables ----------------------------------------------------
 
@@ -107,7 +122,7 @@ public class Author extends Model<Author> implements Constants {
             mappedBy = AUTHOR_ID_COLUMN,
             orphanRemoval = true
     )
-    @OrderBy(TITLE_COLUMN)
+    @OrderBy(TITLE_KEY_COLUMN)
     @Schema(hidden = true)
     private List<Anthology> anthologies;
 
@@ -117,7 +132,7 @@ public class Author extends Model<Author> implements Constants {
             mappedBy = AUTHOR_ID_COLUMN,
             orphanRemoval = true
     )
-    @OrderBy(TITLE_COLUMN)
+    @OrderBy(TITLE_KEY_COLUMN)
     @Schema(hidden = true)
     private List<Book> books;
 
@@ -137,6 +152,12 @@ public class Author extends Model<Author> implements Constants {
     @Schema(description = "Last name of this author.")
     private String lastName;
 
+    @Column(
+            name = NAME_KEY_COLUMN,
+            nullable = true
+    )
+    private String nameKey;
+
     @Column(
             name = NOTES_COLUMN,
             nullable = true
@@ -151,18 +172,22 @@ public class Author extends Model<Author> implements Constants {
             mappedBy = AUTHOR_ID_COLUMN,
             orphanRemoval = true
     )
-    @OrderBy(TITLE_COLUMN)
+    @OrderBy(TITLE_KEY_COLUMN)
     @Schema(hidden = true)
     private List<Series> series;
 
     // Static Variables ------------------------------------------------------
 
     public static final Comparator<Author> NameComparator = (o1, o2) -> {
-        int lastNameComparison = o1.getLastName().compareTo(o2.getLastName());
+        int keyComparison = o1.nameKey.compareTo(o2.nameKey);
+        if (keyComparison != 0) {
+            return keyComparison;
+        }
+        int lastNameComparison = o1.lastName.compareTo(o2.lastName);
         if (lastNameComparison != 0) {
             return lastNameComparison;
         } else {
-            return o1.getFirstName().compareTo(o2.getFirstName());
+            return o1.firstName.compareTo(o2.firstName);
         }
     };
 
@@ -177,6 +202,7 @@ public class Author extends Model<Author> implements Constants {
     ) {
         this.firstName = firstName;
         this.lastName = lastName;
+        this.nameKey = SortKeys.nameKey(firstName, lastName);
         this.notes = notes;
     }
 
@@ -208,6 +234,7 @@ public class Author extends Model<Author> implements Constants {
 
     public void setFirstName(String firstName) {
         this.firstName = firstName;
+        this.nameKey = SortKeys.nameKey(firstName, lastName);
     }
 
     public String getLastName() {
@@ -216,6 +243,7 @@ public class Author extends Model<Author> implements Constants {
 
     public void setLastName(String lastName) {
         this.lastName = lastName;
+        this.nameKey = SortKeys.nameKey(firstName, lastName);
     }
 
     public String getNotes() {
@@ -236,12 +264,25 @@ public class Author extends Model<Author> implements Constants {
     }
 */
 
+    // Lifecycle Methods -----------------------------------------------------
+
+    /**
+     * <p>Keep the sort key current even if the name was changed without
+     * going through the property setters.</p>
+     */
+    @PrePersist
+    @PreUpdate
+    protected void updateNameKey() {
+        this.nameKey = SortKeys.nameKey(firstName, lastName);
+    }
+
     // Public Methods --------------------------------------------------------
 
     @Override
     public void copy(Author that) {
         this.firstName = that.firstName;
         this.lastName = that.lastName;
+        this.nameKey = SortKeys.nameKey(that.firstName, that.lastName);
         this.notes = that.notes;
     }
 
@@ -22,7 +22,7 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.craigmcc.bookcase.model.converter.BookLocationConverter;
 import org.craigmcc.bookcase.model.validator.ValidBookLocation;
-import org.craigmcc.library.model.Model;
+import org.craigmcc.bookcase.model.text.SortKeys;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
 import javax.persistence.Access;
@@ -40,6 +40,8 @@ import javax.persistence.ManyToOne;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -47,18 +49,32 @@ import java.util.Comparator;
 import java.util.List;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_FIELD;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
 import static org.craigmcc.bookcase.model.Constants.BOOK_TABLE;
+import static org.craigmcc.bookcase.model.Constants.LOCATION_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.READ_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.TITLE_KEY_COLUMN;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
 @Entity(name = BOOK_NAME)
 @Table(
         indexes = {
                 @Index(
-                        columnList = TITLE_COLUMN + " ASC",
-                        name = "IX_" + BOOK_TABLE + "_" + TITLE_COLUMN
+                        columnList = TENANT_ID_COLUMN + " ASC, " + AUTHOR_ID_COLUMN + " ASC, " + TITLE_KEY_COLUMN + " ASC",
+                        name = "IX_" + BOOK_TABLE + "_" + TENANT_ID_COLUMN + "_" + AUTHOR_ID_COLUMN + "_" + TITLE_KEY_COLUMN
+                ),
+                @Index(
+                        columnList = TENANT_ID_COLUMN + " ASC, " + LOCATION_COLUMN + " ASC, " + READ_COLUMN + " ASC, " + TITLE_KEY_COLUMN + " ASC",
+                        name = "IX_" + BOOK_TABLE + "_" + TENANT_ID_COLUMN + "_" + LOCATION_COLUMN + "_" + READ_COLUMN + "_" + TITLE_KEY_COLUMN
+                ),
+                @Index(
+                        columnList = TENANT_ID_COLUMN + " ASC, " + TITLE_KEY_COLUMN + " ASC",
+                        name = "IX_" + BOOK_TABLE + "_" + TENANT_ID_COLUMN + "_" + TITLE_KEY_COLUMN
                 )
         },
         name = BOOK_TABLE
@@ -68,24 +84,35 @@ import static org.craigmcc.library.model.Constants.ID_COLUMN;
         @NamedQuery(
                 name = BOOK_NAME + ".findAll",
                 query = "SELECT b FROM " + BOOK_NAME + " b " +
-                        "ORDER BY b." + TITLE_COLUMN + " ASC"
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
+                        "ORDER BY b." + TITLE_KEY_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = BOOK_NAME + ".findByAuthorId",
                 query = "SELECT b FROM " + BOOK_NAME + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "WHERE b." + AUTHOR_ID_COLUMN + " = :" + AUTHOR_ID_COLUMN + " " +
-                        "ORDER BY b." + TITLE_COLUMN + " ASC"
+                        "ORDER BY b." + TITLE_KEY_COLUMN + " ASC"
+        ),
+        @NamedQuery(
+                name = BOOK_NAME + ".findByAuthorIds",
+                query = "SELECT b FROM " + BOOK_NAME + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
+                        "WHERE b." + AUTHOR_ID_COLUMN + " IN :" + AUTHOR_IDS_PARAMETER + " " +
+                        "ORDER BY b." + TITLE_KEY_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = BOOK_NAME + ".findById",
                 query = "SELECT b FROM " + BOOK_NAME + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "WHERE b." + ID_COLUMN + "= :" + ID_COLUMN
         ),
         @NamedQuery(
                 name = BOOK_NAME + ".findByTitle",
                 query = "SELECT b FROM " + BOOK_NAME + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "WHERE LOWER(b." + TITLE_COLUMN + ") LIKE LOWER(CONCAT('%',:" + TITLE_COLUMN + ",'%')) " +
-                        "ORDER BY b." + TITLE_COLUMN + " ASC"
+                        "ORDER BY b." + TITLE_KEY_COLUMN + " ASC"
         )
 })
 @Schema(
@@ -93,7 +120,7 @@ import static org.craigmcc.library.model.Constants.ID_COLUMN;
                       "Referenced author will be nested inside.",
         name = BOOK_NAME
 )
-public class Book extends Model<Book> implements Constants {
+public class Book extends TenantModel<Book> implements Constants {
 
     // Instance Variables ----------------------------------------------------
 
@@ -181,10 +208,22 @@ public class Book extends Model<Book> implements Constants {
     @Schema(description = "Title of this book.")
     private String title;
 
+    @Column(
+            name = TITLE_KEY_COLUMN,
+            nullable = true
+    )
+    private String titleKey;
+
     // Static Variables ------------------------------------------------------
 
-    public static final Comparator<Book> TitleComparator = (o1, o2) ->
-            o1.getTitle().compareTo(o2.getTitle());
+    public static final Comparator<Book> TitleComparator = (o1, o2) -> {
+        int keyComparison = o1.titleKey.compareTo(o2.titleKey);
+        if (keyComparison != 0) {
+            return keyComparison;
+        } else {
+            return o1.title.compareTo(o2.title);
+        }
+    };
 
     // Constructors ----------------------------------------------------------
 
@@ -204,6 +243,7 @@ public class Book extends Model<Book> implements Constants {
             this.read = read;
         }
         this.title = title;
+        this.titleKey = SortKeys.titleKey(title);
     }
 
     // Property Methods ------------------------------------------------------
@@ -282,6 +322,19 @@ public class Book extends Model<Book> implements Constants {
 
     public void setTitle(String title) {
         this.title = title;
+        this.titleKey = SortKeys.titleKey(title);
+    }
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    /**
+     * <p>Keep the sort key current even if the title was changed without
+     * going through <code>setTitle()</code>.</p>
+     */
+    @PrePersist
+    @PreUpdate
+    protected void updateTitleKey() {
+        this.titleKey = SortKeys.titleKey(title);
     }
 
     // Public Methods --------------------------------------------------------
@@ -294,6 +347,7 @@ public class Book extends Model<Book> implements Constants {
         this.notes = that.notes;
         this.read = that.read;
         this.title = that.title;
+        this.titleKey = SortKeys.titleKey(that.title);
     }
 
     @Override
@@ -326,14 +380,18 @@ public class Book extends Model<Book> implements Constants {
                 .toHashCode();
     }
 
+    /**
+     * <p>Return true if the title contains the specified segment, ignoring
+     * case, accents, punctuation, and a leading article.</p>
+     *
+     * @param title Title segment to be matched
+     */
     public boolean matchTitle(String title) {
-        if ((title == null) || title.isBlank()) {
-            return false;
-        }
-        if (!this.getTitle().toLowerCase().contains(title.trim().toLowerCase())) {
+        if ((title == null) || (titleKey == null)) {
             return false;
         }
-        return true;
+        String segment = SortKeys.titleSegment(title);
+        return !segment.isEmpty() && titleKey.contains(segment);
     }
 
     @Override
@@ -47,6 +47,7 @@ public interface Constants {
     String LOCATION_COLUMN = "location";
 
     String NAME_COLUMN = "name"; // Pseudo-column for name search criteria
+    String NAME_KEY_COLUMN = "nameKey";
     String NAME_UNIQUE_VALIDATION_MESSAGE =
             "firstName/lastName: Author firstName plus lastName must be unique";
 
@@ -60,12 +61,26 @@ public interface Constants {
     String SERIES_ID_VALIDATION_MESSAGE =
             "seriesId: Required and must be a valid reference to a Series";
 
+    String TENANT_ID_COLUMN = "tenantId";
+
     String TITLE_COLUMN = "title";
+    String TITLE_KEY_COLUMN = "titleKey";
     String TITLE_VALIDATION_MESSAGE =
             "title: Required and must not be blank";
 
+    // Per-Parameter Constants (collection valued query parameters)
+
+    String ANTHOLOGY_IDS_PARAMETER = "anthologyIds";
+
+    String AUTHOR_IDS_PARAMETER = "authorIds";
+
+    String IDS_PARAMETER = "ids";
+
+    String SERIES_IDS_PARAMETER = "seriesIds";
+
     // Per-Table Constants
 
+    String ANTHOLOGY_FIELD = "anthology";
     String ANTHOLOGY_NAME = "Anthology";
     String ANTHOLOGY_TABLE = "anthologies";
 
@@ -73,18 +88,34 @@ public interface Constants {
     String AUTHOR_NAME = "Author";
     String AUTHOR_TABLE = "authors";
 
+    String BOOK_FIELD = "book";
     String BOOK_NAME = "Book";
     String BOOK_TABLE = "books";
 
+    String IMPORT_CHECKPOINT_TABLE = "importCheckpoints";
+
+    String IMPORT_MAPPING_TABLE = "importMappings";
+
     String MEMBER_NAME = "Member";
     String MEMBER_TABLE = "members";
 
     String MUTATED_MODEL_EVENT_TABLE = "mutatedModelEvents";
 
+    String OUTBOX_MESSAGE_TABLE = "outboxMessages";
+
+    String PROJECTION_SNAPSHOT_TABLE = "projectionSnapshots";
+
+    String SERIES_FIELD = "series";
     String SERIES_NAME = "Series";
     String SERIES_TABLE = "series";  // Singular and plural :-)
 
     String STORY_NAME = "Story";
     String STORY_TABLE = "stories";
 
+    // Per-Tenant Constants
+
+    String DEFAULT_TENANT_ID = "default";
+
+    String TENANT_FILTER = "tenant";
+
 }
@@ -20,7 +20,6 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.craigmcc.library.model.Model;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
 import javax.persistence.Access;
@@ -40,25 +39,29 @@ import javax.validation.constraints.NotNull;
 import java.util.Comparator;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_FIELD;
+import static org.craigmcc.bookcase.model.Constants.BOOK_FIELD;
 import static org.craigmcc.bookcase.model.Constants.BOOK_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.BOOK_TABLE;
 import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
 import static org.craigmcc.bookcase.model.Constants.MEMBER_TABLE;
 import static org.craigmcc.bookcase.model.Constants.ORDINAL_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.SERIES_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.SERIES_TABLE;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
 @Entity
 @Table(
         indexes = {
                 @Index(
-                        columnList = BOOK_ID_COLUMN + " ASC",
-                        name = "IX_" + MEMBER_TABLE + "_" + BOOK_TABLE
+                        columnList = TENANT_ID_COLUMN + " ASC, " + BOOK_ID_COLUMN + " ASC",
+                        name = "IX_" + MEMBER_TABLE + "_" + TENANT_ID_COLUMN + "_" + BOOK_TABLE
                 ),
                 @Index(
-                        columnList = SERIES_ID_COLUMN + " ASC, " + ORDINAL_COLUMN + " ASC",
-                        name = "IX_" + MEMBER_TABLE + "_" + SERIES_TABLE + "_" + ORDINAL_COLUMN
+                        columnList = TENANT_ID_COLUMN + " ASC, " + SERIES_ID_COLUMN + " ASC, " + ORDINAL_COLUMN + " ASC",
+                        name = "IX_" + MEMBER_TABLE + "_" + TENANT_ID_COLUMN + "_" + SERIES_TABLE + "_" + ORDINAL_COLUMN
                 )
         },
         name = MEMBER_TABLE
@@ -73,28 +76,44 @@ import static org.craigmcc.library.model.Constants.ID_COLUMN;
         @NamedQuery(
                 name = MEMBER_NAME + ".findAll",
                 query = "SELECT m FROM " + MEMBER_NAME + " m " +
+                        "JOIN FETCH m." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "ORDER BY m." +  SERIES_ID_COLUMN + " ASC, "
                         + "m." + ORDINAL_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = MEMBER_NAME + ".findByBookId",
                 query = "SELECT m FROM " + MEMBER_NAME + " m " +
+                        "JOIN FETCH m." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "WHERE m." + BOOK_ID_COLUMN + " = :" + BOOK_ID_COLUMN + " " +
                         "ORDER BY m." + ORDINAL_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = MEMBER_NAME + ".findById",
                 query = "SELECT m FROM " + MEMBER_NAME + " m " +
+                        "JOIN FETCH m." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "WHERE m." + ID_COLUMN + " = :" + ID_COLUMN
         ),
         @NamedQuery(
                 name = MEMBER_NAME + ".findBySeriesId",
                 query = "SELECT m FROM " + MEMBER_NAME + " m " +
+                        "JOIN FETCH m." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "WHERE m." + SERIES_ID_COLUMN + " = :" + SERIES_ID_COLUMN + " " +
                         "ORDER BY m." + ORDINAL_COLUMN + " ASC"
+        ),
+        @NamedQuery(
+                name = MEMBER_NAME + ".findBySeriesIds",
+                query = "SELECT m FROM " + MEMBER_NAME + " m " +
+                        "JOIN FETCH m." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
+                        "WHERE m." + SERIES_ID_COLUMN + " IN :" + SERIES_IDS_PARAMETER + " " +
+                        "ORDER BY m." + SERIES_ID_COLUMN + " ASC, m." + ORDINAL_COLUMN + " ASC"
         )
 })
-public class Member extends Model<Member> implements Constants {
+public class Member extends TenantModel<Member> implements Constants {
 
     // Instance Variables ----------------------------------------------------
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * <p>Arithmetic for the sparse <code>ordinal</code> values of series members
+ * and anthology stories.  Ordinals are assigned {@link #GAP} apart, so that
+ * a new member or story can be placed between two existing ones by giving it
+ * an ordinal between theirs, without changing any other row.  When there is
+ * no longer room between two neighbours, their parent's children must be
+ * renumbered (which preserves their order).</p>
+ */
+public final class Ordinals {
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Distance between consecutive ordinals after renumbering.</p>
+     */
+    public static final int GAP = 1024;
+
+    // Constructors ----------------------------------------------------------
+
+    private Ordinals() {
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return an ordinal that sorts strictly between the two specified
+     * ordinals, or <code>null</code> if there is no room between them (in
+     * which case the children must be renumbered first).</p>
+     *
+     * @param before Ordinal of the preceding child, or <code>null</code>
+     *               to place the new child first
+     * @param after Ordinal of the following child, or <code>null</code>
+     *              to place the new child last
+     */
+    public static Integer between(Integer before, Integer after) {
+        long low = (before != null) ? before : 0L;
+        long high = (after != null) ? after : low + (2L * GAP);
+        if (high - low < 2L) {
+            return null;
+        }
+        long result = low + ((high - low) / 2L);
+        if ((after == null) && (before != null)) {
+            result = low + GAP;
+        }
+        return (result <= Integer.MAX_VALUE) ? (int) result : null;
+    }
+
+    /**
+     * <p>Return true if the specified ordinals (in ascending order) leave no
+     * room between some pair of neighbours (or after the last one), so that
+     * they should be renumbered.  Missing and duplicate ordinals count as
+     * crowded.</p>
+     *
+     * @param ordinals Ordinals of the children of one parent, in ascending order
+     */
+    public static boolean isCrowded(@NotNull List<Integer> ordinals) {
+        Integer previous = null;
+        for (Integer ordinal : ordinals) {
+            if ((ordinal == null) || (between(previous, ordinal) == null)) {
+                return true;
+            }
+            previous = ordinal;
+        }
+        return (previous != null) && (between(previous, null) == null);
+    }
+
+    /**
+     * <p>Return the ordinal to be assigned, when renumbering, to the child
+     * at the specified (zero relative) position.</p>
+     *
+     * @param index Zero relative position of the child
+     */
+    public static int position(int index) {
+        return (index + 1) * GAP;
+    }
+
+}
@@ -20,7 +20,7 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.craigmcc.library.model.Model;
+import org.craigmcc.bookcase.model.text.SortKeys;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
 import javax.persistence.Access;
@@ -38,6 +38,8 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OrderBy;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -45,18 +47,23 @@ import java.util.Comparator;
 import java.util.List;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_FIELD;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
 import static org.craigmcc.bookcase.model.Constants.SERIES_TABLE;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.TITLE_KEY_COLUMN;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
 @Entity(name = SERIES_NAME)
 @Table(
         indexes = {
                 @Index(
-                        columnList = TITLE_COLUMN + " ASC",
-                        name = "IX_" + SERIES_TABLE + "_" + TITLE_COLUMN
+                        columnList = TENANT_ID_COLUMN + " ASC, " + TITLE_KEY_COLUMN + " ASC",
+                        name = "IX_" + SERIES_TABLE + "_" + TENANT_ID_COLUMN + "_" + TITLE_KEY_COLUMN
                 )
         },
         name = SERIES_TABLE
@@ -66,24 +73,41 @@ import static org.craigmcc.library.model.Constants.ID_COLUMN;
         @NamedQuery(
                 name = SERIES_NAME + ".findAll",
                 query = "SELECT s FROM " + SERIES_NAME + " s " +
-                        "ORDER BY s." + TITLE_COLUMN + " ASC"
+                        "JOIN FETCH s." + AUTHOR_FIELD + " " +
+                        "ORDER BY s." + TITLE_KEY_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = SERIES_NAME + ".findByAuthorId",
                 query = "SELECT s FROM " + SERIES_NAME + " s " +
+                        "JOIN FETCH s." + AUTHOR_FIELD + " " +
                         "WHERE s." + AUTHOR_ID_COLUMN + " = :" + AUTHOR_ID_COLUMN + " " +
-                        "ORDER BY s." + TITLE_COLUMN + " ASC"
+                        "ORDER BY s." + TITLE_KEY_COLUMN + " ASC"
+        ),
+        @NamedQuery(
+                name = SERIES_NAME + ".findByAuthorIds",
+                query = "SELECT s FROM " + SERIES_NAME + " s " +
+                        "JOIN FETCH s." + AUTHOR_FIELD + " " +
+                        "WHERE s." + AUTHOR_ID_COLUMN + " IN :" + AUTHOR_IDS_PARAMETER + " " +
+                        "ORDER BY s." + TITLE_KEY_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = SERIES_NAME + ".findById",
                 query = "SELECT s FROM " + SERIES_NAME + " s " +
+                        "JOIN FETCH s." + AUTHOR_FIELD + " " +
                         "WHERE s." + ID_COLUMN + " = :" + ID_COLUMN
         ),
+        @NamedQuery(
+                name = SERIES_NAME + ".findByIds",
+                query = "SELECT s FROM " + SERIES_NAME + " s " +
+                        "JOIN FETCH s." + AUTHOR_FIELD + " " +
+                        "WHERE s." + ID_COLUMN + " IN :" + IDS_PARAMETER
+        ),
         @NamedQuery(
                 name = SERIES_NAME + ".findByTitle",
                 query = "SELECT s FROM " + SERIES_NAME + " s " +
+                        "JOIN FETCH s." + AUTHOR_FIELD + " " +
                         "WHERE LOWER(s." + TITLE_COLUMN + ") LIKE LOWER(CONCAT('%',:" + TITLE_COLUMN + ",'%')) " +
-                        "ORDER BY s." + TITLE_COLUMN + " ASC"
+                        "ORDER BY s." + TITLE_KEY_COLUMN + " ASC"
         )
 })
 @Schema(
@@ -91,7 +115,7 @@ import static org.craigmcc.library.model.Constants.ID_COLUMN;
                       "Referenced author will be nested inside.",
         name = SERIES_NAME
 )
-public class Series extends Model<Series> implements Constants {
+public class Series extends TenantModel<Series> implements Constants {
 
     // Instance Variables ----------------------------------------------------
 
@@ -146,10 +170,22 @@ public class Series extends Model<Series> implements Constants {
     @Schema(description = "Title of this series.")
     private String title;
 
+    @Column(
+            name = TITLE_KEY_COLUMN,
+            nullable = true
+    )
+    private String titleKey;
+
     // Static Variables ------------------------------------------------------
 
-    public static final Comparator<Series> TitleComparator = (o1, o2) ->
-            o1.getTitle().compareTo(o2.getTitle());
+    public static final Comparator<Series> TitleComparator = (o1, o2) -> {
+        int keyComparison = o1.titleKey.compareTo(o2.titleKey);
+        if (keyComparison != 0) {
+            return keyComparison;
+        } else {
+            return o1.title.compareTo(o2.title);
+        }
+    };
 
     // Constructors ----------------------------------------------------------
 
@@ -163,6 +199,7 @@ public class Series extends Model<Series> implements Constants {
         this.authorId = authorId;
         this.notes = notes;
         this.title = title;
+        this.titleKey = SortKeys.titleKey(title);
     }
 
     // Property Methods ------------------------------------------------------
@@ -207,6 +244,19 @@ public class Series extends Model<Series> implements Constants {
 
     public void setTitle(String title) {
         this.title = title;
+        this.titleKey = SortKeys.titleKey(title);
+    }
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    /**
+     * <p>Keep the sort key current even if the title was changed without
+     * going through <code>setTitle()</code>.</p>
+     */
+    @PrePersist
+    @PreUpdate
+    protected void updateTitleKey() {
+        this.titleKey = SortKeys.titleKey(title);
     }
 
     // Public Methods --------------------------------------------------------
@@ -216,6 +266,7 @@ public class Series extends Model<Series> implements Constants {
         this.authorId = that.authorId;
         this.notes = that.notes;
         this.title = that.title;
+        this.titleKey = SortKeys.titleKey(that.title);
     }
 
     @Override
@@ -242,14 +293,18 @@ public class Series extends Model<Series> implements Constants {
                 .toHashCode();
     }
 
+    /**
+     * <p>Return true if the title contains the specified segment, ignoring
+     * case, accents, punctuation, and a leading article.</p>
+     *
+     * @param title Title segment to be matched
+     */
     public boolean matchTitle(String title) {
-        if ((title == null) || title.isBlank()) {
-            return false;
-        }
-        if (!this.getTitle().toLowerCase().contains(title.toLowerCase())) {
+        if ((title == null) || (titleKey == null)) {
             return false;
         }
-        return true;
+        String segment = SortKeys.titleSegment(title);
+        return !segment.isEmpty() && titleKey.contains(segment);
     }
 
     @Override
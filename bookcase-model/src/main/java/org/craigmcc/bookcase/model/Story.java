@@ -20,7 +20,6 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.craigmcc.library.model.Model;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
 import javax.persistence.Access;
@@ -40,24 +39,28 @@ import javax.validation.constraints.NotNull;
 import java.util.Comparator;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_FIELD;
+import static org.craigmcc.bookcase.model.Constants.BOOK_FIELD;
 import static org.craigmcc.bookcase.model.Constants.BOOK_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.BOOK_TABLE;
 import static org.craigmcc.bookcase.model.Constants.ORDINAL_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
 import static org.craigmcc.bookcase.model.Constants.STORY_TABLE;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
 @Entity
 @Table(
         indexes = {
                 @Index(
-                        columnList = BOOK_ID_COLUMN + " ASC",
-                        name = "IX_" + STORY_TABLE + "_" + BOOK_TABLE
+                        columnList = TENANT_ID_COLUMN + " ASC, " + BOOK_ID_COLUMN + " ASC",
+                        name = "IX_" + STORY_TABLE + "_" + TENANT_ID_COLUMN + "_" + BOOK_TABLE
                 ),
                 @Index(
-                        columnList = ANTHOLOGY_ID_COLUMN + " ASC, " + ORDINAL_COLUMN + " ASC",
-                        name = "IX_" + STORY_TABLE + "_" + ANTHOLOGY_ID_COLUMN + "_" + ORDINAL_COLUMN
+                        columnList = TENANT_ID_COLUMN + " ASC, " + ANTHOLOGY_ID_COLUMN + " ASC, " + ORDINAL_COLUMN + " ASC",
+                        name = "IX_" + STORY_TABLE + "_" + TENANT_ID_COLUMN + "_" + ANTHOLOGY_ID_COLUMN + "_" + ORDINAL_COLUMN
                 )
         },
         name = STORY_TABLE
@@ -72,28 +75,44 @@ import static org.craigmcc.library.model.Constants.ID_COLUMN;
         @NamedQuery(
                 name = STORY_NAME + ".findAll",
                 query = "SELECT s FROM " + STORY_NAME + " s " +
+                        "JOIN FETCH s." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "ORDER BY s." +  ANTHOLOGY_ID_COLUMN + " ASC, "
                         + "s." + ORDINAL_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = STORY_NAME + ".findByAnthologyId",
                 query = "SELECT s FROM " + STORY_NAME + " s " +
+                        "JOIN FETCH s." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "WHERE s." + ANTHOLOGY_ID_COLUMN + " = :" + ANTHOLOGY_ID_COLUMN + " " +
                         "ORDER BY s." + ORDINAL_COLUMN + " ASC"
         ),
+        @NamedQuery(
+                name = STORY_NAME + ".findByAnthologyIds",
+                query = "SELECT s FROM " + STORY_NAME + " s " +
+                        "JOIN FETCH s." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
+                        "WHERE s." + ANTHOLOGY_ID_COLUMN + " IN :" + ANTHOLOGY_IDS_PARAMETER + " " +
+                        "ORDER BY s." + ANTHOLOGY_ID_COLUMN + " ASC, s." + ORDINAL_COLUMN + " ASC"
+        ),
         @NamedQuery(
                 name = STORY_NAME + ".findByBookId",
                 query = "SELECT s FROM " + STORY_NAME + " s " +
+                        "JOIN FETCH s." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "WHERE s." + BOOK_ID_COLUMN + " = :" + BOOK_ID_COLUMN + " " +
                         "ORDER BY s." + ORDINAL_COLUMN + " ASC"
         ),
         @NamedQuery(
                 name = STORY_NAME + ".findById",
                 query = "SELECT s FROM " + STORY_NAME + " s " +
+                        "JOIN FETCH s." + BOOK_FIELD + " b " +
+                        "JOIN FETCH b." + AUTHOR_FIELD + " " +
                         "WHERE s." + ID_COLUMN + " = :" + ID_COLUMN
         )
 })
-public class Story extends Model<Story> implements Constants {
+public class Story extends TenantModel<Story> implements Constants {
 
     // Instance Variables ----------------------------------------------------
 
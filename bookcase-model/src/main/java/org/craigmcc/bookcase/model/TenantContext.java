@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model;
+
+import org.craigmcc.library.model.Model;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+
+/**
+ * <p>The tenant (one household's bookcase) on whose behalf the current
+ * thread is working.  The REST endpoints establish it for each request, and
+ * it must be carried explicitly to any other thread that does work for the
+ * request.  Threads that never establish one (such as startup and timer
+ * work) act for <code>DEFAULT_TENANT_ID</code>.</p>
+ */
+public final class TenantContext {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    /**
+     * <p>Pattern that valid tenant IDs must match.</p>
+     */
+    public static final Pattern TENANT_ID_PATTERN = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,63}");
+
+    // Constructors ----------------------------------------------------------
+
+    private TenantContext() { }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the result of the specified work, performed on behalf of the
+     * specified tenant, and then restore the tenant of the current thread.</p>
+     *
+     * @param tenantId ID of the tenant
+     * @param work Work to be performed
+     *
+     * @throws IllegalArgumentException If the tenant ID is not valid
+     */
+    public static <R> R call(String tenantId, Supplier<R> work) {
+        String previous = CURRENT.get();
+        set(tenantId);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * <p>Forget the tenant of the current thread.</p>
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * <p>Return the ID of the tenant of the current thread.</p>
+     */
+    public static String current() {
+        String tenantId = CURRENT.get();
+        return (tenantId != null) ? tenantId : DEFAULT_TENANT_ID;
+    }
+
+    /**
+     * <p>Return true if the specified model belongs to the tenant of the
+     * current thread.  Models that do not belong to tenants belong to all
+     * of them.</p>
+     *
+     * @param model Model to be checked
+     */
+    public static boolean isCurrent(Model<?> model) {
+        String tenantId = tenantOf(model);
+        return (tenantId == null) || tenantId.equals(current());
+    }
+
+    /**
+     * <p>Return true if the specified tenant ID is valid.</p>
+     *
+     * @param tenantId Tenant ID to be checked
+     */
+    public static boolean isValid(String tenantId) {
+        return (tenantId != null) && TENANT_ID_PATTERN.matcher(tenantId).matches();
+    }
+
+    /**
+     * <p>Perform the specified work on behalf of the specified tenant, and
+     * then restore the tenant of the current thread.</p>
+     *
+     * @param tenantId ID of the tenant
+     * @param work Work to be performed
+     *
+     * @throws IllegalArgumentException If the tenant ID is not valid
+     */
+    public static void run(String tenantId, Runnable work) {
+        call(tenantId, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * <p>Make the specified tenant the tenant of the current thread.</p>
+     *
+     * @param tenantId ID of the tenant
+     *
+     * @throws IllegalArgumentException If the tenant ID is not valid
+     */
+    public static void set(String tenantId) {
+        if (!isValid(tenantId)) {
+            throw new IllegalArgumentException("tenantId: Invalid tenant ID '" + tenantId + "'");
+        }
+        CURRENT.set(tenantId);
+    }
+
+    /**
+     * <p>Return the ID of the tenant the specified model belongs to, or
+     * <code>null</code> if it is not known (including for models that do
+     * not belong to tenants).</p>
+     *
+     * @param model Model to be checked
+     */
+    public static String tenantOf(Model<?> model) {
+        return (model instanceof TenantModel) ? ((TenantModel<?>) model).getTenantId() : null;
+    }
+
+}
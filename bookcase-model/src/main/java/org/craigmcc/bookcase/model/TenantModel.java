@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.craigmcc.library.model.Model;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
+
+import javax.persistence.Column;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.PrePersist;
+
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.craigmcc.bookcase.model.Constants.TENANT_FILTER;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
+
+/**
+ * <p>Base class for models that belong to a tenant (one household's
+ * bookcase).  The tenant ID of a row is assigned from {@link TenantContext}
+ * when it is first persisted (whatever the client sent), and never changes
+ * afterwards.</p>
+ *
+ * <p>Queries see only the rows of the current tenant once the
+ * <code>TENANT_FILTER</code> Hibernate filter is enabled on the session,
+ * and the indexes of each table lead with the tenant ID, so that the cost
+ * of a query depends on the size of one tenant's catalog rather than on all
+ * of them.  Filters do not apply to lookups by primary key, so callers that
+ * use <code>EntityManager.find()</code> must check the tenant themselves
+ * (see <code>TenantContext.isCurrent()</code>).</p>
+ */
+@FilterDef(
+        name = TENANT_FILTER,
+        parameters = @ParamDef(name = TENANT_ID_COLUMN, type = "string")
+)
+@Filter(
+        name = TENANT_FILTER,
+        condition = TENANT_ID_COLUMN + " = :" + TENANT_ID_COLUMN
+)
+@MappedSuperclass
+public abstract class TenantModel<M extends TenantModel<M>> extends Model<M> {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Column(
+            length = 64,
+            name = TENANT_ID_COLUMN,
+            nullable = false,
+            updatable = false
+    )
+    @ColumnDefault("'" + DEFAULT_TENANT_ID + "'")
+    @Schema(description = "ID of the tenant (bookcase) this model belongs to.", readOnly = true)
+    private String tenantId;
+
+    // Property Methods ------------------------------------------------------
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    /**
+     * <p>Assign new rows to the tenant of the current thread.</p>
+     */
+    @PrePersist
+    protected void assignTenantId() {
+        this.tenantId = TenantContext.current();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof TenantModel)) {
+            return false;
+        }
+        TenantModel<?> that = (TenantModel<?>) object;
+        return new EqualsBuilder()
+                .appendSuper(super.equals(that))
+                .append(this.tenantId, that.tenantId)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .appendSuper(super.hashCode())
+                .append(this.tenantId)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .appendSuper(super.toString())
+                .append(TENANT_ID_COLUMN, this.tenantId)
+                .toString();
+    }
+
+}
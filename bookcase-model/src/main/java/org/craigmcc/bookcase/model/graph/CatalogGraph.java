@@ -0,0 +1,516 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.graph;
+
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+
+import javax.validation.constraints.NotNull;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * <p>Compact, immutable index of the relationships between catalog entities,
+ * stored entirely in primitive arrays.  Each entity type is assigned dense
+ * indexes (in ascending identifier order) through a {@link LongIntHashMap}, and
+ * each one-to-many relationship is stored in compressed sparse row (CSR) form:
+ * an <code>offsets</code> array with one entry per parent (plus one), and a
+ * <code>targets</code> array holding the child indexes of each parent in a
+ * contiguous range.  Traversals therefore never box identifiers, and the memory
+ * footprint is reported by <code>estimatedBytes()</code>.</p>
+ *
+ * <p>Children are ordered by identifier, except for series members and
+ * anthology stories, which are ordered by <code>ordinal</code>.  References to
+ * entities that are not present in the graph are ignored (and counted by
+ * <code>getDanglingCount()</code>).</p>
+ */
+public final class CatalogGraph {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Nodes anthologies;
+    private final Edges anthologyStories;
+    private final Edges authorAnthologies;
+    private final Edges authorBooks;
+    private final Edges authorSeries;
+    private final Nodes authors;
+    private final Nodes books;
+    private final int danglingCount;
+    private final int[] memberBooks;
+    private final Nodes members;
+    private final Nodes series;
+    private final Edges seriesMembers;
+    private final int[] storyBooks;
+    private final Nodes stories;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final long[] NONE = new long[0];
+
+    // Constructors ----------------------------------------------------------
+
+    private CatalogGraph(Builder builder) {
+
+        authors = new Nodes(builder.authorIds);
+        books = new Nodes(builder.bookIds);
+        anthologies = new Nodes(builder.anthologyIds);
+        series = new Nodes(builder.seriesIds);
+        members = new Nodes(builder.memberIds);
+        stories = new Nodes(builder.storyIds);
+
+        int[] dangling = new int[1];
+        authorBooks = new Edges(authors.size(), parents
+                (books, builder.bookIds, authors, builder.bookAuthorIds, dangling), null);
+        authorAnthologies = new Edges(authors.size(), parents
+                (anthologies, builder.anthologyIds, authors, builder.anthologyAuthorIds, dangling), null);
+        authorSeries = new Edges(authors.size(), parents
+                (series, builder.seriesIds, authors, builder.seriesAuthorIds, dangling), null);
+        seriesMembers = new Edges(series.size(), parents
+                (members, builder.memberIds, series, builder.memberSeriesIds, dangling),
+                ordinals(members, builder.memberIds, builder.memberOrdinals));
+        anthologyStories = new Edges(anthologies.size(), parents
+                (stories, builder.storyIds, anthologies, builder.storyAnthologyIds, dangling),
+                ordinals(stories, builder.storyIds, builder.storyOrdinals));
+        memberBooks = parents(members, builder.memberIds, books, builder.memberBookIds, dangling);
+        storyBooks = parents(stories, builder.storyIds, books, builder.storyBookIds, dangling);
+        danglingCount = dangling[0];
+
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return a graph built from the specified model collections.</p>
+     */
+    public static @NotNull CatalogGraph of(
+            @NotNull Collection<Author> authors,
+            @NotNull Collection<Book> books,
+            @NotNull Collection<Anthology> anthologies,
+            @NotNull Collection<Series> series,
+            @NotNull Collection<Member> members,
+            @NotNull Collection<Story> stories
+    ) {
+        Builder builder = new Builder();
+        for (Author author : authors) {
+            builder.addAuthor(author.getId());
+        }
+        for (Book book : books) {
+            builder.addBook(book.getId(), id(book.getAuthorId()));
+        }
+        for (Anthology anthology : anthologies) {
+            builder.addAnthology(anthology.getId(), id(anthology.getAuthorId()));
+        }
+        for (Series item : series) {
+            builder.addSeries(item.getId(), id(item.getAuthorId()));
+        }
+        for (Member member : members) {
+            builder.addMember(member.getId(), id(member.getSeriesId()),
+                    id(member.getBookId()), ordinal(member.getOrdinal()));
+        }
+        for (Story story : stories) {
+            builder.addStory(story.getId(), id(story.getAnthologyId()),
+                    id(story.getBookId()), ordinal(story.getOrdinal()));
+        }
+        return builder.build();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return an estimate of the heap memory (in bytes) used by this graph.</p>
+     */
+    public long estimatedBytes() {
+        return 16L + 14 * 4L +
+                anthologies.estimatedBytes() + authors.estimatedBytes() +
+                books.estimatedBytes() + members.estimatedBytes() +
+                series.estimatedBytes() + stories.estimatedBytes() +
+                anthologyStories.estimatedBytes() + authorAnthologies.estimatedBytes() +
+                authorBooks.estimatedBytes() + authorSeries.estimatedBytes() +
+                seriesMembers.estimatedBytes() +
+                (16L + 4L * memberBooks.length) + (16L + 4L * storyBooks.length);
+    }
+
+    /**
+     * <p>Return the ids of the anthologies by the specified author.</p>
+     */
+    public @NotNull long[] findAnthologyIdsByAuthorId(long authorId) {
+        return authorAnthologies.targetIds(authors.index(authorId), anthologies);
+    }
+
+    /**
+     * <p>Return the ids of the books by the specified author.</p>
+     */
+    public @NotNull long[] findBookIdsByAuthorId(long authorId) {
+        return authorBooks.targetIds(authors.index(authorId), books);
+    }
+
+    /**
+     * <p>Return the ids of the books by the specified author, plus the ids of the
+     * books included (as stories) in the anthologies by that author, in ascending
+     * order without duplicates.</p>
+     */
+    public @NotNull long[] findBookIdsByAuthorIdIncludingAnthologies(long authorId) {
+
+        int author = authors.index(authorId);
+        if (author < 0) {
+            return NONE;
+        }
+
+        int count = authorBooks.count(author);
+        for (int a = authorAnthologies.offsets[author]; a < authorAnthologies.offsets[author + 1]; a++) {
+            count += anthologyStories.count(authorAnthologies.targets[a]);
+        }
+
+        int[] indexes = new int[count];
+        int n = 0;
+        for (int b = authorBooks.offsets[author]; b < authorBooks.offsets[author + 1]; b++) {
+            indexes[n++] = authorBooks.targets[b];
+        }
+        for (int a = authorAnthologies.offsets[author]; a < authorAnthologies.offsets[author + 1]; a++) {
+            int anthology = authorAnthologies.targets[a];
+            for (int s = anthologyStories.offsets[anthology]; s < anthologyStories.offsets[anthology + 1]; s++) {
+                int book = storyBooks[anthologyStories.targets[s]];
+                if (book >= 0) {
+                    indexes[n++] = book;
+                }
+            }
+        }
+
+        // Dense indexes are assigned in id order, so sorting them sorts the ids
+        Arrays.sort(indexes, 0, n);
+        long[] results = new long[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if ((i == 0) || (indexes[i] != indexes[i - 1])) {
+                results[m++] = books.ids[indexes[i]];
+            }
+        }
+        return (m == n) ? results : Arrays.copyOf(results, m);
+
+    }
+
+    /**
+     * <p>Return the ids of the books that are members of the specified series,
+     * in ordinal order.</p>
+     */
+    public @NotNull long[] findBookIdsBySeriesId(long seriesId) {
+        return seriesMembers.mappedIds(series.index(seriesId), memberBooks, books);
+    }
+
+    /**
+     * <p>Return the ids of the books that are stories in the specified anthology,
+     * in ordinal order.</p>
+     */
+    public @NotNull long[] findBookIdsByAnthologyId(long anthologyId) {
+        return anthologyStories.mappedIds(anthologies.index(anthologyId), storyBooks, books);
+    }
+
+    /**
+     * <p>Return the ids of the members of the specified series, in ordinal order.</p>
+     */
+    public @NotNull long[] findMemberIdsBySeriesId(long seriesId) {
+        return seriesMembers.targetIds(series.index(seriesId), members);
+    }
+
+    /**
+     * <p>Return the ids of the series by the specified author.</p>
+     */
+    public @NotNull long[] findSeriesIdsByAuthorId(long authorId) {
+        return authorSeries.targetIds(authors.index(authorId), series);
+    }
+
+    /**
+     * <p>Return the ids of the stories in the specified anthology, in ordinal order.</p>
+     */
+    public @NotNull long[] findStoryIdsByAnthologyId(long anthologyId) {
+        return anthologyStories.targetIds(anthologies.index(anthologyId), stories);
+    }
+
+    /**
+     * <p>Return the number of references to entities that were not present
+     * when this graph was built.</p>
+     */
+    public int getDanglingCount() {
+        return danglingCount;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static long id(Long id) {
+        return (id != null) ? id : Long.MIN_VALUE;
+    }
+
+    private static long ordinal(Integer ordinal) {
+        return (ordinal != null) ? ordinal : 0;
+    }
+
+    /**
+     * <p>Return the ordinal of each child, indexed by child index.</p>
+     */
+    private static long[] ordinals(Nodes children, LongColumn childIds, LongColumn childOrdinals) {
+        long[] results = new long[children.size()];
+        for (int row = 0; row < childIds.size; row++) {
+            results[children.index(childIds.values[row])] = childOrdinals.values[row];
+        }
+        return results;
+    }
+
+    /**
+     * <p>Return the parent index of each child (or <code>-1</code> for a missing
+     * parent), indexed by child index.</p>
+     */
+    private static int[] parents(
+            Nodes children,
+            LongColumn childIds,
+            Nodes parents,
+            LongColumn parentIds,
+            int[] dangling
+    ) {
+        int[] results = new int[children.size()];
+        for (int row = 0; row < childIds.size; row++) {
+            int parent = parents.index(parentIds.values[row]);
+            if (parent < 0) {
+                dangling[0]++;
+            }
+            results[children.index(childIds.values[row])] = parent;
+        }
+        return results;
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Accumulator for the entities and relationships of a graph.  Entities
+     * may be added in any order, but each id may only be added once per type.</p>
+     */
+    public static final class Builder {
+
+        private final LongColumn anthologyAuthorIds = new LongColumn();
+        private final LongColumn anthologyIds = new LongColumn();
+        private final LongColumn authorIds = new LongColumn();
+        private final LongColumn bookAuthorIds = new LongColumn();
+        private final LongColumn bookIds = new LongColumn();
+        private final LongColumn memberBookIds = new LongColumn();
+        private final LongColumn memberIds = new LongColumn();
+        private final LongColumn memberOrdinals = new LongColumn();
+        private final LongColumn memberSeriesIds = new LongColumn();
+        private final LongColumn seriesAuthorIds = new LongColumn();
+        private final LongColumn seriesIds = new LongColumn();
+        private final LongColumn storyAnthologyIds = new LongColumn();
+        private final LongColumn storyBookIds = new LongColumn();
+        private final LongColumn storyIds = new LongColumn();
+        private final LongColumn storyOrdinals = new LongColumn();
+
+        public @NotNull Builder addAnthology(long id, long authorId) {
+            anthologyIds.add(id);
+            anthologyAuthorIds.add(authorId);
+            return this;
+        }
+
+        public @NotNull Builder addAuthor(long id) {
+            authorIds.add(id);
+            return this;
+        }
+
+        public @NotNull Builder addBook(long id, long authorId) {
+            bookIds.add(id);
+            bookAuthorIds.add(authorId);
+            return this;
+        }
+
+        public @NotNull Builder addMember(long id, long seriesId, long bookId, long ordinal) {
+            memberIds.add(id);
+            memberSeriesIds.add(seriesId);
+            memberBookIds.add(bookId);
+            memberOrdinals.add(ordinal);
+            return this;
+        }
+
+        public @NotNull Builder addSeries(long id, long authorId) {
+            seriesIds.add(id);
+            seriesAuthorIds.add(authorId);
+            return this;
+        }
+
+        public @NotNull Builder addStory(long id, long anthologyId, long bookId, long ordinal) {
+            storyIds.add(id);
+            storyAnthologyIds.add(anthologyId);
+            storyBookIds.add(bookId);
+            storyOrdinals.add(ordinal);
+            return this;
+        }
+
+        /**
+         * <p>Return a graph containing the accumulated entities and relationships.</p>
+         *
+         * @throws IllegalArgumentException if an id was added twice for the same type
+         */
+        public @NotNull CatalogGraph build() {
+            return new CatalogGraph(this);
+        }
+
+    }
+
+    /**
+     * <p>One-to-many relationship in compressed sparse row form.</p>
+     */
+    private static final class Edges {
+
+        private final int[] offsets;
+        private final int[] targets;
+
+        /**
+         * @param parentCount Number of parent nodes
+         * @param childParents Parent index of each child (negative to omit the child)
+         * @param childOrder Sort key of each child, or <code>null</code> to order by child index
+         */
+        private Edges(int parentCount, int[] childParents, long[] childOrder) {
+
+            offsets = new int[parentCount + 1];
+            for (int parent : childParents) {
+                if (parent >= 0) {
+                    offsets[parent + 1]++;
+                }
+            }
+            for (int p = 0; p < parentCount; p++) {
+                offsets[p + 1] += offsets[p];
+            }
+
+            targets = new int[offsets[parentCount]];
+            int[] cursors = Arrays.copyOf(offsets, parentCount);
+            for (int child = 0; child < childParents.length; child++) {
+                if (childParents[child] >= 0) {
+                    targets[cursors[childParents[child]]++] = child;
+                }
+            }
+
+            if (childOrder != null) {
+                for (int p = 0; p < parentCount; p++) {
+                    sort(offsets[p], offsets[p + 1], childOrder);
+                }
+            }
+
+        }
+
+        private int count(int parent) {
+            return offsets[parent + 1] - offsets[parent];
+        }
+
+        private long estimatedBytes() {
+            return 24L + (16L + 4L * offsets.length) + (16L + 4L * targets.length);
+        }
+
+        private long[] mappedIds(int parent, int[] mapping, Nodes nodes) {
+            if (parent < 0) {
+                return NONE;
+            }
+            long[] results = new long[count(parent)];
+            int n = 0;
+            for (int t = offsets[parent]; t < offsets[parent + 1]; t++) {
+                int mapped = mapping[targets[t]];
+                if (mapped >= 0) {
+                    results[n++] = nodes.ids[mapped];
+                }
+            }
+            return (n == results.length) ? results : Arrays.copyOf(results, n);
+        }
+
+        /**
+         * <p>Insertion sort of one (typically short) target range, by sort key
+         * and then by child index.  Ranges are already in child index order, so
+         * the sort is stable.</p>
+         */
+        private void sort(int from, int to, long[] keys) {
+            for (int i = from + 1; i < to; i++) {
+                int target = targets[i];
+                int j = i - 1;
+                while ((j >= from) && (keys[targets[j]] > keys[target])) {
+                    targets[j + 1] = targets[j];
+                    j--;
+                }
+                targets[j + 1] = target;
+            }
+        }
+
+        private long[] targetIds(int parent, Nodes nodes) {
+            if (parent < 0) {
+                return NONE;
+            }
+            long[] results = new long[count(parent)];
+            for (int t = offsets[parent]; t < offsets[parent + 1]; t++) {
+                results[t - offsets[parent]] = nodes.ids[targets[t]];
+            }
+            return results;
+        }
+
+    }
+
+    /**
+     * <p>Growable column of primitive <code>long</code> values.</p>
+     */
+    private static final class LongColumn {
+
+        private int size;
+        private long[] values = new long[16];
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+    }
+
+    /**
+     * <p>Entity ids of one type, sorted ascending, with the inverse mapping
+     * from id to dense index.</p>
+     */
+    private static final class Nodes {
+
+        private final long[] ids;
+        private final LongIntHashMap indexes;
+
+        private Nodes(LongColumn column) {
+            ids = Arrays.copyOf(column.values, column.size);
+            Arrays.sort(ids);
+            indexes = new LongIntHashMap(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                if (indexes.put(ids[i], i) != LongIntHashMap.MISSING) {
+                    throw new IllegalArgumentException("id: Duplicate value " + ids[i]);
+                }
+            }
+        }
+
+        private long estimatedBytes() {
+            return 24L + (16L + 8L * ids.length) + indexes.estimatedBytes();
+        }
+
+        private int index(long id) {
+            return indexes.get(id);
+        }
+
+        private int size() {
+            return ids.length;
+        }
+
+    }
+
+}
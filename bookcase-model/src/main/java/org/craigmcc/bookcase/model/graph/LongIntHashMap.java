@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>Open addressing hash map from primitive <code>long</code> keys to non-negative
+ * primitive <code>int</code> values, with no boxing on either insertion or lookup.
+ * It is intended for mapping entity identifiers to dense array indexes.</p>
+ *
+ * <p>A value of <code>-1</code> marks an empty slot, so negative values cannot be
+ * stored, and <code>get()</code> returns <code>-1</code> for missing keys.  Removal
+ * is not supported.  This class is not thread safe, but instances that are no
+ * longer modified may be safely shared once published.</p>
+ */
+public final class LongIntHashMap {
+
+    // Instance Variables ----------------------------------------------------
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private int[] values;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Value returned by <code>get()</code> for keys that are not present.</p>
+     */
+    public static final int MISSING = -1;
+
+    // Constructors ----------------------------------------------------------
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * <p>Construct a map that can hold the specified number of entries without
+     * resizing.</p>
+     *
+     * @param expected Expected number of entries
+     */
+    public LongIntHashMap(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * <p>Return an estimate of the heap memory (in bytes) used by this map.</p>
+     */
+    public long estimatedBytes() {
+        return 16L + 24L + (16L + 8L * keys.length) + (16L + 4L * values.length);
+    }
+
+    /**
+     * <p>Return the value for the specified key, or <code>MISSING</code>.</p>
+     *
+     * @param key Key to look up
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * <p>Store the specified value for the specified key, returning the
+     * previous value (or <code>MISSING</code> if there was none).</p>
+     *
+     * @param key Key to store
+     * @param value Non-negative value to store
+     *
+     * @throws IllegalArgumentException if <code>value</code> is negative
+     */
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value: Cannot be negative");
+        }
+        int slot = slot(key);
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > (keys.length >> 1)) {
+            resize(keys.length << 1);
+        }
+        return MISSING;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    /**
+     * <p>Return a power of two capacity that keeps the load factor at or
+     * below one half for the specified number of entries.</p>
+     */
+    private static int capacityFor(int expected) {
+        int capacity = 4;
+        while (capacity < (Math.max(expected, 1) * 2)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != MISSING) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+}
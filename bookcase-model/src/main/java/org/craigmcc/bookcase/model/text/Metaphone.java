@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+/**
+ * <p>Phonetic codes for matching names that sound alike, following the
+ * original Metaphone rules (the primary code of Double Metaphone, without
+ * its alternate codes for non-English spellings).  For example,
+ * <code>"smith"</code> and <code>"smyth"</code> both encode to
+ * <code>"SM0"</code>, and <code>"knight"</code> and <code>"night"</code> to
+ * <code>"NT"</code>.  Words are expected to be normalized (see
+ * {@link TextNormalizer}); characters other than <code>a</code> through
+ * <code>z</code> are ignored.</p>
+ */
+public final class Metaphone {
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Maximum length of a phonetic code.</p>
+     */
+    public static final int MAX_LENGTH = 6;
+
+    private static final String VOWELS = "aeiou";
+
+    // Constructors ----------------------------------------------------------
+
+    private Metaphone() { }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the phonetic code of the specified normalized word, which is
+     * empty if the word has no letters from <code>a</code> through <code>z</code>.</p>
+     *
+     * @param word Normalized word to be encoded
+     */
+    public static String encode(String word) {
+
+        StringBuilder letters = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if ((c >= 'a') && (c <= 'z')) {
+                letters.append(c);
+            }
+        }
+        String w = letters.toString();
+        if (w.isEmpty()) {
+            return "";
+        }
+
+        // Initial letter exceptions
+        int start = 0;
+        if (w.startsWith("ae") || w.startsWith("gn") || w.startsWith("kn") ||
+                w.startsWith("pn") || w.startsWith("wr")) {
+            start = 1;
+        } else if (w.charAt(0) == 'x') {
+            w = "s" + w.substring(1);
+        } else if (w.startsWith("wh")) {
+            w = "w" + w.substring(2);
+        }
+
+        StringBuilder code = new StringBuilder(MAX_LENGTH);
+        int length = w.length();
+        for (int i = start; (i < length) && (code.length() < MAX_LENGTH); i++) {
+
+            char c = w.charAt(i);
+            if ((c != 'c') && (i > start) && (c == w.charAt(i - 1))) {
+                continue;
+            }
+            char next = (i + 1 < length) ? w.charAt(i + 1) : 0;
+            char after = (i + 2 < length) ? w.charAt(i + 2) : 0;
+            char previous = (i > 0) ? w.charAt(i - 1) : 0;
+
+            switch (c) {
+                case 'a':
+                case 'e':
+                case 'i':
+                case 'o':
+                case 'u':
+                    if (i == start) {
+                        code.append('A');
+                    }
+                    break;
+                case 'b':
+                    if (!((previous == 'm') && (i == length - 1))) {
+                        code.append('B');
+                    }
+                    break;
+                case 'c':
+                    if ((next == 'i') && (after == 'a')) {
+                        code.append('X');
+                    } else if (next == 'h') {
+                        code.append(previous == 's' ? 'K' : 'X');
+                        i++;
+                    } else if ((next == 'i') || (next == 'e') || (next == 'y')) {
+                        if (previous != 's') {
+                            code.append('S');
+                        }
+                    } else {
+                        code.append('K');
+                    }
+                    break;
+                case 'd':
+                    if ((next == 'g') && ((after == 'e') || (after == 'i') || (after == 'y'))) {
+                        code.append('J');
+                        i++;
+                    } else {
+                        code.append('T');
+                    }
+                    break;
+                case 'g':
+                    if ((next == 'h') && (i + 2 < length) && !isVowel(after)) {
+                        // Silent, as in "night"
+                    } else if ((next == 'n') && ((i + 2 == length) ||
+                            w.startsWith("ed", i + 2) && (i + 4 == length))) {
+                        // Silent, as in "sign" or "signed"
+                    } else if (((next == 'i') || (next == 'e') || (next == 'y')) && (previous != 'g')) {
+                        code.append('J');
+                    } else {
+                        code.append('K');
+                    }
+                    break;
+                case 'h':
+                    if (isVowel(next) && ("cgpst".indexOf(previous) < 0 || (i == start))) {
+                        code.append('H');
+                    }
+                    break;
+                case 'k':
+                    if (previous != 'c') {
+                        code.append('K');
+                    }
+                    break;
+                case 'p':
+                    code.append(next == 'h' ? 'F' : 'P');
+                    break;
+                case 'q':
+                    code.append('K');
+                    break;
+                case 's':
+                    if ((next == 'h') || ((next == 'i') && ((after == 'o') || (after == 'a')))) {
+                        code.append('X');
+                    } else {
+                        code.append('S');
+                    }
+                    break;
+                case 't':
+                    if ((next == 'i') && ((after == 'o') || (after == 'a'))) {
+                        code.append('X');
+                    } else if (next == 'h') {
+                        code.append('0');
+                        i++;
+                    } else if (!((next == 'c') && (after == 'h'))) {
+                        code.append('T');
+                    }
+                    break;
+                case 'v':
+                    code.append('F');
+                    break;
+                case 'w':
+                case 'y':
+                    if (isVowel(next)) {
+                        code.append(Character.toUpperCase(c));
+                    }
+                    break;
+                case 'x':
+                    code.append('K');
+                    if (code.length() < MAX_LENGTH) {
+                        code.append('S');
+                    }
+                    break;
+                case 'z':
+                    code.append('S');
+                    break;
+                default:
+                    // f, j, l, m, n, r
+                    code.append(Character.toUpperCase(c));
+                    break;
+            }
+
+        }
+        return code.toString();
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static boolean isVowel(char c) {
+        return (c != 0) && (VOWELS.indexOf(c) >= 0);
+    }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>In-memory index of personal names for ranked, typo and sound-alike
+ * tolerant matching.  Each name is kept as its normalized words (see
+ * {@link TextNormalizer}), with their trigrams and {@link Metaphone} codes
+ * in inverted indexes, so that a query only scores names sharing a trigram
+ * or a phonetic code with it.</p>
+ *
+ * <p>Each query word scores against the best matching word of a name: 1.0
+ * if equal, 0.9 if a prefix of it, 0.8 if it sounds the same, 0.75 if
+ * contained in it, or else the trigram similarity of the two words; a name
+ * scores the average over the distinct query words, or 1.0 if the whole query equals
+ * the name in either "first last" or "last first" order.  Queries share a
+ * read lock, and updates take the write lock.</p>
+ */
+public class NameIndex {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * <p>IDs of names by their normalized "first last" form.</p>
+     */
+    private final Map<String, Set<Long>> keys = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * <p>IDs of names by the phonetic codes of their words.</p>
+     */
+    private final Map<String, Set<Long>> phonetics = new HashMap<>();
+
+    /**
+     * <p>IDs of names by the trigrams of their words.</p>
+     */
+    private final Map<String, Set<Long>> trigrams = new HashMap<>();
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Maximum number of candidate names (those sharing the most trigrams
+     * and phonetic codes with the query) scored by one query.</p>
+     */
+    public static final int MAX_CANDIDATES = 500;
+
+    private static final double CONTAINED_SCORE = 0.75;
+
+    private static final double PHONETIC_SCORE = 0.8;
+
+    private static final double PREFIX_SCORE = 0.9;
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the IDs of the names whose normalized "first last" forms
+     * equal that of the specified name (so that names differing only in case,
+     * accents, punctuation, or spacing are duplicates).</p>
+     *
+     * @param firstName First name
+     * @param lastName Last name
+     */
+    public Set<Long> findDuplicates(String firstName, String lastName) {
+        String key = key(firstName, lastName);
+        lock.readLock().lock();
+        try {
+            Set<Long> ids = keys.get(key);
+            return (ids != null) ? new HashSet<>(ids) : Collections.emptySet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Return the names best matching the specified query, best first (ties
+     * in "last first" order), scoring at least <code>minScore</code>.</p>
+     *
+     * @param query Name (or part of a name) to match
+     * @param limit Maximum number of matches to return
+     * @param minScore Minimum score (0.0 through 1.0) of returned matches
+     */
+    public List<NameMatch> match(String query, int limit, double minScore) {
+
+        String normalized = TextNormalizer.normalize(query);
+        if (normalized.isEmpty() || (limit <= 0)) {
+            return new ArrayList<>();
+        }
+        String[] words = new LinkedHashSet<>(Arrays.asList(normalized.split(" "))).toArray(new String[0]);
+        List<Set<String>> wordTrigrams = new ArrayList<>(words.length);
+        List<String> wordCodes = new ArrayList<>(words.length);
+        for (String word : words) {
+            wordTrigrams.add(TextNormalizer.trigrams(word));
+            wordCodes.add(Metaphone.encode(word));
+        }
+
+        lock.readLock().lock();
+        try {
+
+            // Gather candidates, counting shared trigrams and codes
+            Map<Long, Integer> hits = new HashMap<>();
+            for (int i = 0; i < words.length; i++) {
+                for (String trigram : wordTrigrams.get(i)) {
+                    count(hits, trigrams.get(trigram), 1);
+                }
+                if (!wordCodes.get(i).isEmpty()) {
+                    count(hits, phonetics.get(wordCodes.get(i)), 3);
+                }
+            }
+            List<Long> candidates = new ArrayList<>(hits.keySet());
+            if (candidates.size() > MAX_CANDIDATES) {
+                candidates.sort(Comparator.comparing((Long id) -> hits.get(id)).reversed());
+                candidates = candidates.subList(0, MAX_CANDIDATES);
+            }
+
+            // Score and rank them
+            List<Scored> scored = new ArrayList<>();
+            for (Long id : candidates) {
+                Entry entry = entries.get(id);
+                double score = score(entry, normalized, words, wordTrigrams, wordCodes);
+                if (score >= minScore) {
+                    scored.add(new Scored(entry, score));
+                }
+            }
+            scored.sort(Comparator.comparingDouble((Scored s) -> s.score).reversed()
+                    .thenComparing(s -> s.entry.reversed)
+                    .thenComparingLong(s -> s.entry.id));
+            List<NameMatch> results = new ArrayList<>(Math.min(limit, scored.size()));
+            for (int i = 0; (i < scored.size()) && (i < limit); i++) {
+                results.add(new NameMatch(scored.get(i).entry.id, scored.get(i).score));
+            }
+            return results;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * <p>Index (or re-index) the specified name.</p>
+     *
+     * @param id ID of the named model
+     * @param firstName First name
+     * @param lastName Last name
+     */
+    public void put(long id, String firstName, String lastName) {
+        Entry entry = new Entry(id, TextNormalizer.normalize(firstName), TextNormalizer.normalize(lastName));
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+            entries.put(id, entry);
+            add(keys, entry.key, id);
+            for (int i = 0; i < entry.words.length; i++) {
+                for (String trigram : entry.trigrams.get(i)) {
+                    add(trigrams, trigram, id);
+                }
+                add(phonetics, entry.codes[i], id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Remove the specified name, if it is indexed.</p>
+     *
+     * @param id ID of the named model
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void add(Map<String, Set<Long>> index, String key, long id) {
+        if (!key.isEmpty()) {
+            index.computeIfAbsent(key, k -> new HashSet<>(2)).add(id);
+        }
+    }
+
+    private void count(Map<Long, Integer> hits, Set<Long> ids, int weight) {
+        if (ids != null) {
+            for (Long id : ids) {
+                hits.merge(id, weight, Integer::sum);
+            }
+        }
+    }
+
+    private static String key(String firstName, String lastName) {
+        return TextNormalizer.normalize(firstName + " " + lastName);
+    }
+
+    private void remove(Map<String, Set<Long>> index, String key, long id) {
+        Set<Long> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private void removeEntry(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        remove(keys, entry.key, id);
+        for (int i = 0; i < entry.words.length; i++) {
+            for (String trigram : entry.trigrams.get(i)) {
+                remove(trigrams, trigram, id);
+            }
+            remove(phonetics, entry.codes[i], id);
+        }
+    }
+
+    private double score(Entry entry, String normalized, String[] words,
+                         List<Set<String>> wordTrigrams, List<String> wordCodes) {
+        if (normalized.equals(entry.key) || normalized.equals(entry.reversed)) {
+            return 1.0;
+        }
+        double total = 0.0;
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i];
+            double best = 0.0;
+            for (int j = 0; (j < entry.words.length) && (best < 1.0); j++) {
+                String candidate = entry.words[j];
+                double score;
+                if (word.equals(candidate)) {
+                    score = 1.0;
+                } else if ((word.length() >= 2) && candidate.startsWith(word)) {
+                    score = PREFIX_SCORE;
+                } else if (!wordCodes.get(i).isEmpty() && wordCodes.get(i).equals(entry.codes[j])) {
+                    score = PHONETIC_SCORE;
+                } else if ((word.length() >= 3) && candidate.contains(word)) {
+                    score = CONTAINED_SCORE;
+                } else {
+                    score = TextNormalizer.similarity(wordTrigrams.get(i), entry.trigrams.get(j));
+                }
+                best = Math.max(best, score);
+            }
+            total += best;
+        }
+        // Exact word matches must not round to the score of an exact name match
+        return Math.min(total / words.length, Math.nextDown(1.0));
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>An indexed name.</p>
+     */
+    private static final class Entry {
+
+        private final String[] codes;
+        private final long id;
+        private final String key;
+        private final String reversed;
+        private final List<Set<String>> trigrams;
+        private final String[] words;
+
+        private Entry(long id, String firstName, String lastName) {
+            this.id = id;
+            this.key = (firstName + " " + lastName).trim();
+            this.reversed = (lastName + " " + firstName).trim();
+            this.words = key.isEmpty() ? new String[0] : key.split(" ");
+            this.codes = new String[words.length];
+            this.trigrams = new ArrayList<>(words.length);
+            for (int i = 0; i < words.length; i++) {
+                codes[i] = Metaphone.encode(words[i]);
+                trigrams.add(TextNormalizer.trigrams(words[i]));
+            }
+        }
+
+    }
+
+    /**
+     * <p>A candidate name and its score.</p>
+     */
+    private static final class Scored {
+
+        private final Entry entry;
+        private final double score;
+
+        private Scored(Entry entry, double score) {
+            this.entry = entry;
+            this.score = score;
+        }
+
+    }
+
+}
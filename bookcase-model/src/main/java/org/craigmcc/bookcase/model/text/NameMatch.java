@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+/**
+ * <p>One ranked result of a {@link NameIndex} query.</p>
+ */
+public class NameMatch {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final long id;
+    private final double score;
+
+    // Constructors ----------------------------------------------------------
+
+    public NameMatch(long id, double score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * <p>Return how well the name matched, from 0.0 (not at all) to 1.0 (exactly).</p>
+     */
+    public double getScore() {
+        return score;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public String toString() {
+        return id + "=" + score;
+    }
+
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>In-memory type-ahead index of the models of one type, as a compressed
+ * (radix) trie over normalized keys.  Each model may be indexed under
+ * several keys (for example, every word suffix of a title), and is returned
+ * at most once per query.</p>
+ *
+ * <p>Every node caches the <code>MAX_RESULTS</code> heaviest models in its
+ * subtree, so a popularity ordered query costs only the descent to the
+ * prefix; an alphabetical query walks the subtree in key order and stops
+ * as soon as it has enough models.  Updates recompute the caches along the
+ * affected paths only.  Queries share a read lock, and updates take the
+ * write lock.</p>
+ */
+public class PrefixIndex {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Node root = new Node("");
+
+    private final String type;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    /**
+     * <p>Maximum number of results of a single query.</p>
+     */
+    public static final int MAX_RESULTS = 20;
+
+    private static final Comparator<Entry> POPULARITY = Comparator
+            .comparingLong((Entry entry) -> entry.weight).reversed()
+            .thenComparing(entry -> entry.label)
+            .thenComparingLong(entry -> entry.id);
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Construct an empty index.</p>
+     *
+     * @param type Entity name of the indexed models, reported in suggestions
+     */
+    public PrefixIndex(String type) {
+        this.type = type;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the indexed IDs.</p>
+     */
+    public Set<Long> getIds() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(entries.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * <p>Return the weight of the specified model, or <code>-1</code> if it is not indexed.</p>
+     *
+     * @param id ID of the model
+     */
+    public long getWeight(long id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            return (entry != null) ? entry.weight : -1L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Index (or re-index) the specified model.</p>
+     *
+     * @param id ID of the model
+     * @param label Display label of the model
+     * @param keys Normalized keys under which the model is found (empty keys are ignored)
+     * @param weight Popularity of the model
+     */
+    public void put(long id, String label, Collection<String> keys, long weight) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String key : keys) {
+            if ((key != null) && !key.isEmpty()) {
+                unique.add(key);
+            }
+        }
+        Entry entry = new Entry(id, label, unique.toArray(new String[0]), weight);
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+            for (String key : entry.keys) {
+                insert(key, entry);
+            }
+            entries.put(id, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Remove the specified model, if it is indexed.</p>
+     *
+     * @param id ID of the model
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Change the weight of the specified model, if it is indexed and the
+     * weight differs, and return true if it was changed.</p>
+     *
+     * @param id ID of the model
+     * @param weight New popularity of the model
+     */
+    public boolean setWeight(long id, long weight) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            if ((entry == null) || (entry.weight == weight)) {
+                return false;
+            }
+            Entry replacement = new Entry(id, entry.label, entry.keys, weight);
+            removeEntry(id);
+            for (String key : replacement.keys) {
+                insert(key, replacement);
+            }
+            entries.put(id, replacement);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>Return up to <code>limit</code> models with a key starting with the
+     * specified normalized prefix, heaviest first or in key order.</p>
+     *
+     * @param prefix Normalized prefix (empty matches everything)
+     * @param limit Maximum number of results (at most <code>MAX_RESULTS</code>)
+     * @param alphabetical Return results in key order instead of by weight?
+     */
+    public List<Suggestion> suggest(String prefix, int limit, boolean alphabetical) {
+        limit = Math.min(limit, MAX_RESULTS);
+        List<Suggestion> results = new ArrayList<>(limit);
+        if (limit <= 0) {
+            return results;
+        }
+        lock.readLock().lock();
+        try {
+            StringBuilder key = new StringBuilder();
+            Node node = find(prefix, key);
+            if (node == null) {
+                return results;
+            }
+            if (alphabetical) {
+                collect(node, key.toString(), limit, new HashSet<>(), results);
+            } else {
+                for (int i = 0; (i < node.top.length) && (i < limit); i++) {
+                    results.add(suggestion(node.top[i], prefix, null));
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Append models of the subtree at <code>node</code> (whose path spells
+     * <code>key</code>) in key order, until <code>limit</code> are found.</p>
+     */
+    private boolean collect(Node node, String key, int limit, Set<Long> seen, List<Suggestion> results) {
+        if (node.entries != null) {
+            for (Entry entry : node.entries) {
+                if (seen.add(entry.id)) {
+                    results.add(suggestion(entry, key, key));
+                    if (results.size() >= limit) {
+                        return true;
+                    }
+                }
+            }
+        }
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                if (collect(child, key + child.label, limit, seen, results)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int commonPrefix(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while ((i < length) && (label.charAt(i) == key.charAt(offset + i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * <p>Return the node whose subtree holds exactly the keys starting with
+     * <code>prefix</code>, or <code>null</code> if there are none, appending
+     * the full key of that node to <code>key</code>.</p>
+     */
+    private Node find(String prefix, StringBuilder key) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = (node.children != null) ? node.children.get(prefix.charAt(i)) : null;
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefix(child.label, prefix, i);
+            if ((i + common < prefix.length()) && (common < child.label.length())) {
+                return null;
+            }
+            key.append(child.label);
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private void insert(String key, Entry entry) {
+
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            if (node.children == null) {
+                node.children = new TreeMap<>();
+            }
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.children.put(key.charAt(i), child);
+                node = child;
+                path.add(node);
+                break;
+            }
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge where the key diverges from it
+                Node split = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.children = new TreeMap<>();
+                split.children.put(child.label.charAt(0), child);
+                node.children.put(split.label.charAt(0), split);
+                child = split;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+
+        if (node.entries == null) {
+            node.entries = new ArrayList<>(1);
+        }
+        node.entries.add(entry);
+        node.entries.sort(Comparator.comparing((Entry e) -> e.label).thenComparingLong(e -> e.id));
+        for (int p = path.size() - 1; p >= 0; p--) {
+            recompute(path.get(p));
+        }
+
+    }
+
+    private void recompute(Node node) {
+        List<Entry> candidates = new ArrayList<>();
+        if (node.entries != null) {
+            candidates.addAll(node.entries);
+        }
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                for (Entry entry : child.top) {
+                    candidates.add(entry);
+                }
+            }
+        }
+        candidates.sort(POPULARITY);
+        List<Entry> top = new ArrayList<>(MAX_RESULTS);
+        Set<Long> seen = new HashSet<>();
+        for (Entry candidate : candidates) {
+            if (seen.add(candidate.id)) {
+                top.add(candidate);
+                if (top.size() >= MAX_RESULTS) {
+                    break;
+                }
+            }
+        }
+        node.top = top.toArray(EMPTY);
+    }
+
+    private void remove(String key, Entry entry) {
+
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            Node child = (node.children != null) ? node.children.get(key.charAt(i)) : null;
+            if ((child == null) || (commonPrefix(child.label, key, i) < child.label.length())) {
+                return;
+            }
+            node = child;
+            path.add(node);
+            i += child.label.length();
+        }
+        if ((node.entries == null) || !node.entries.remove(entry)) {
+            return;
+        }
+        if (node.entries.isEmpty()) {
+            node.entries = null;
+        }
+
+        // Prune empty nodes, and merge nodes left with a single child into it
+        for (int p = path.size() - 1; p >= 1; p--) {
+            Node current = path.get(p);
+            Node parent = path.get(p - 1);
+            if (current.entries != null) {
+                continue;
+            }
+            if (current.children == null) {
+                parent.children.remove(current.label.charAt(0));
+                if (parent.children.isEmpty()) {
+                    parent.children = null;
+                }
+                path.set(p, null);
+            } else if (current.children.size() == 1) {
+                Node only = current.children.values().iterator().next();
+                only.label = current.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+                path.set(p, null);
+            }
+        }
+        for (int p = path.size() - 1; p >= 0; p--) {
+            if (path.get(p) != null) {
+                recompute(path.get(p));
+            }
+        }
+
+    }
+
+    private void removeEntry(long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            for (String key : entry.keys) {
+                remove(key, entry);
+            }
+        }
+    }
+
+    private Suggestion suggestion(Entry entry, String prefix, String match) {
+        if (match == null) {
+            for (String key : entry.keys) {
+                if (key.startsWith(prefix)) {
+                    match = key;
+                    break;
+                }
+            }
+        }
+        return new Suggestion(type, entry.id, entry.label, match, entry.weight);
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>An indexed model.</p>
+     */
+    private static final class Entry {
+
+        private final long id;
+        private final String[] keys;
+        private final String label;
+        private final long weight;
+
+        private Entry(long id, String label, String[] keys, long weight) {
+            this.id = id;
+            this.keys = keys;
+            this.label = label;
+            this.weight = weight;
+        }
+
+    }
+
+    /**
+     * <p>A trie node, reached by an edge labelled with one or more characters.</p>
+     */
+    private static final class Node {
+
+        private TreeMap<Character, Node> children;
+        private List<Entry> entries;
+        private String label;
+        private Entry[] top = EMPTY;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+    }
+
+}
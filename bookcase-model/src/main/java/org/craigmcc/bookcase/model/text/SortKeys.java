@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+/**
+ * <p>Sort keys for titles and names, persisted alongside them so that both
+ * <code>ORDER BY</code> clauses and comparators order by a precomputed,
+ * indexed value.  Keys are normalized (see {@link TextNormalizer}), so case,
+ * accents, and punctuation are ignored (the primary strength of a
+ * collation), and a leading English article is dropped from titles, so
+ * that <code>"The Hobbit"</code> sorts as <code>"hobbit"</code>.  Keys
+ * contain only lower case letters, digits, and single spaces, so they
+ * compare the same with <code>String.compareTo()</code> as in the database
+ * (with a binary or "C" collation).</p>
+ */
+public final class SortKeys {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final String[] ARTICLES = { "a ", "an ", "the " };
+
+    /**
+     * <p>Maximum length of a sort key (the default length of a string column).</p>
+     */
+    public static final int MAX_LENGTH = 255;
+
+    // Constructors ----------------------------------------------------------
+
+    private SortKeys() { }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the sort key for an author, ordering by last name and then
+     * first name, or <code>null</code> if both names are <code>null</code>.</p>
+     *
+     * @param firstName First name
+     * @param lastName Last name
+     */
+    public static String nameKey(String firstName, String lastName) {
+        if ((firstName == null) && (lastName == null)) {
+            return null;
+        }
+        return truncate((TextNormalizer.normalize(lastName) + " " + TextNormalizer.normalize(firstName)).trim());
+    }
+
+    /**
+     * <p>Return the specified normalized text without a leading article
+     * (unless the article is all there is).</p>
+     *
+     * @param normalized Normalized text
+     */
+    public static String stripArticle(String normalized) {
+        for (String article : ARTICLES) {
+            if (normalized.startsWith(article)) {
+                return normalized.substring(article.length());
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * <p>Return the sort key for a title, or <code>null</code> if the title is <code>null</code>.</p>
+     *
+     * @param title Title
+     */
+    public static String titleKey(String title) {
+        if (title == null) {
+            return null;
+        }
+        return truncate(titleSegment(title));
+    }
+
+    /**
+     * <p>Return the form of a title segment (for example, a search term)
+     * that may be found in title sort keys with <code>String.contains()</code>
+     * or SQL <code>LIKE</code>, which is empty if the segment has no letters
+     * or digits.</p>
+     *
+     * @param segment Title segment
+     */
+    public static String titleSegment(String segment) {
+        return stripArticle(TextNormalizer.normalize(segment));
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static String truncate(String key) {
+        return (key.length() > MAX_LENGTH) ? key.substring(0, MAX_LENGTH) : key;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+/**
+ * <p>One type-ahead suggestion from a {@link PrefixIndex}.</p>
+ */
+@Schema(
+        description = "A type-ahead suggestion.",
+        name = "Suggestion"
+)
+public class Suggestion {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final long id;
+    private final String label;
+    private final String match;
+    private final String type;
+    private final long weight;
+
+    // Constructors ----------------------------------------------------------
+
+    public Suggestion(String type, long id, String label, String match, long weight) {
+        this.id = id;
+        this.label = label;
+        this.match = match;
+        this.type = type;
+        this.weight = weight;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "ID of the suggested model.")
+    public long getId() {
+        return id;
+    }
+
+    @Schema(description = "Display label (title, or \"first last\" author name).")
+    public String getLabel() {
+        return label;
+    }
+
+    @Schema(description = "Normalized text that matched the query prefix.")
+    public String getMatch() {
+        return match;
+    }
+
+    @Schema(description = "Entity name of the suggested model (Author, Anthology, Book, or Series).")
+    public String getType() {
+        return type;
+    }
+
+    @Schema(description = "Popularity of the suggested model (number of books, members, or stories).")
+    public long getWeight() {
+        return weight;
+    }
+
+}
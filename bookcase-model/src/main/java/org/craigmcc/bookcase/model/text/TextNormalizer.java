@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Normalization of titles and names for matching: accents are removed,
+ * letters are lower cased, apostrophes are dropped, and every other run of
+ * characters that are not letters or digits becomes a single space.  For
+ * example, <code>"Ender's Game: Böok 1"</code> normalizes to
+ * <code>"enders game book 1"</code>.</p>
+ */
+public final class TextNormalizer {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Pattern APOSTROPHES = Pattern.compile("['’]");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Constructors ----------------------------------------------------------
+
+    private TextNormalizer() { }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the normalized form of the specified text, which is empty
+     * if the text is <code>null</code> or has no letters or digits.</p>
+     *
+     * @param text Text to be normalized
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String result = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        result = MARKS.matcher(result).replaceAll("");
+        result = APOSTROPHES.matcher(result).replaceAll("");
+        result = result.toLowerCase(Locale.ROOT);
+        return SEPARATORS.matcher(result).replaceAll(" ").trim();
+    }
+
+    /**
+     * <p>Return the similarity (from 0.0 for nothing in common to 1.0 for
+     * identical sets) of two sets of trigrams, as the number of trigrams they
+     * share divided by the number of distinct trigrams in either.</p>
+     *
+     * @param a First set of trigrams
+     * @param b Second set of trigrams
+     */
+    public static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> smaller = (a.size() <= b.size()) ? a : b;
+        Set<String> larger = (smaller == a) ? b : a;
+        int shared = 0;
+        for (String trigram : smaller) {
+            if (larger.contains(trigram)) {
+                shared++;
+            }
+        }
+        return ((double) shared) / (a.size() + b.size() - shared);
+    }
+
+    /**
+     * <p>Return the trigrams (three character substrings) of the specified
+     * normalized word, padded with two leading spaces and one trailing space
+     * so that the start of the word weighs the most.  For example,
+     * <code>"fred"</code> yields <code>"  f"</code>, <code>" fr"</code>,
+     * <code>"fre"</code>, <code>"red"</code>, and <code>"ed "</code>.</p>
+     *
+     * @param word Normalized word
+     */
+    public static Set<String> trigrams(String word) {
+        Set<String> results = new HashSet<>();
+        if (word.isEmpty()) {
+            return results;
+        }
+        String padded = "  " + word + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            results.add(padded.substring(i, i + 3));
+        }
+        return results;
+    }
+
+    /**
+     * <p>Return the suffixes of the specified normalized text that start at
+     * each of its first <code>maxWords</code> words (the text itself first).
+     * For example, <code>"the dark tower"</code> yields <code>"the dark tower"</code>,
+     * <code>"dark tower"</code>, and <code>"tower"</code>.</p>
+     *
+     * @param normalized Normalized text
+     * @param maxWords Maximum number of suffixes to return
+     */
+    public static List<String> wordSuffixes(String normalized, int maxWords) {
+        List<String> results = new ArrayList<>();
+        int start = 0;
+        while ((start < normalized.length()) && (results.size() < maxWords)) {
+            results.add(normalized.substring(start));
+            int space = normalized.indexOf(' ', start);
+            if (space < 0) {
+                break;
+            }
+            start = space + 1;
+        }
+        return results;
+    }
+
+}
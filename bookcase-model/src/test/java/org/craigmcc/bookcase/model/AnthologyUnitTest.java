@@ -40,7 +40,7 @@ public class AnthologyUnitTest {
 
         EqualsVerifier.forClass(Anthology.class)
                 .usingGetClass()
-                .withIgnoredFields("author", "stories",
+                .withIgnoredFields("author", "stories", "titleKey",
                         PUBLISHED_COLUMN, UPDATED_COLUMN, VERSION_COLUMN)
                 .withPrefabValues(Author.class,
                         new Author("Fred", "Flintstone", "Fred notes"),
@@ -42,7 +42,7 @@ public class AuthorUnitTest {
 
         EqualsVerifier.forClass(Author.class)
                 .usingGetClass()
-                .withIgnoredFields("anthologies", "books", "series",
+                .withIgnoredFields("anthologies", "books", "nameKey", "series",
                         PUBLISHED_COLUMN, UPDATED_COLUMN, VERSION_COLUMN)
                 .withPrefabValues(Anthology.class,
                         new Anthology(1L, Book.Location.KINDLE, null, FALSE, "First Anthology"),
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.craigmcc.bookcase.model.Ordinals.GAP;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@Category(UnitTests.class)
+public class OrdinalsUnitTest {
+
+    @Test
+    public void between() {
+
+        assertThat(Ordinals.between(null, null), is(GAP));
+        assertThat(Ordinals.between(null, GAP), is(GAP / 2));
+        assertThat(Ordinals.between(GAP, null), is(2 * GAP));
+        assertThat(Ordinals.between(GAP, 2 * GAP), is(GAP + (GAP / 2)));
+        assertThat(Ordinals.between(1, 3), is(2));
+
+    }
+
+    @Test
+    public void betweenNoRoom() {
+
+        assertThat(Ordinals.between(1, 2), is(nullValue()));
+        assertThat(Ordinals.between(2, 2), is(nullValue()));
+        assertThat(Ordinals.between(null, 1), is(nullValue()));
+        assertThat(Ordinals.between(Integer.MAX_VALUE - 1, null), is(nullValue()));
+
+    }
+
+    @Test
+    public void isCrowded() {
+
+        assertThat(Ordinals.isCrowded(Collections.emptyList()), is(false));
+        assertThat(Ordinals.isCrowded(Arrays.asList(GAP, 2 * GAP, 3 * GAP)), is(false));
+        assertThat(Ordinals.isCrowded(Arrays.asList(1, 2, 3)), is(true));
+        assertThat(Ordinals.isCrowded(Arrays.asList(GAP, GAP)), is(true));
+        assertThat(Ordinals.isCrowded(Arrays.asList(GAP, null)), is(true));
+        assertThat(Ordinals.isCrowded(Arrays.asList(0, GAP)), is(true));
+        assertThat(Ordinals.isCrowded(Collections.singletonList(Integer.MAX_VALUE)), is(true));
+
+    }
+
+    @Test
+    public void position() {
+
+        assertThat(Ordinals.position(0), is(GAP));
+        assertThat(Ordinals.position(1), is(2 * GAP));
+
+    }
+
+}
@@ -40,7 +40,7 @@ public class SeriesUnitTest {
 
         EqualsVerifier.forClass(Series.class)
                 .usingGetClass()
-                .withIgnoredFields("author", "members",
+                .withIgnoredFields("author", "members", "titleKey",
                         PUBLISHED_COLUMN, UPDATED_COLUMN, VERSION_COLUMN)
                 .withPrefabValues(Author.class,
                         new Author("Fred", "Flintstone", "Fred notes"),
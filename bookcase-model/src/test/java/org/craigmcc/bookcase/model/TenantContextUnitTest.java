@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+@Category(UnitTests.class)
+public class TenantContextUnitTest {
+
+    @After
+    public void after() {
+        TenantContext.clear();
+    }
+
+    @Test
+    public void callRestoresPrevious() {
+
+        TenantContext.set("smith");
+        String result = TenantContext.call("jones", TenantContext::current);
+        assertThat(result, is("jones"));
+        assertThat(TenantContext.current(), is("smith"));
+
+        TenantContext.clear();
+        TenantContext.run("jones", () -> assertThat(TenantContext.current(), is("jones")));
+        assertThat(TenantContext.current(), is(DEFAULT_TENANT_ID));
+
+    }
+
+    @Test
+    public void currentDefault() {
+        assertThat(TenantContext.current(), is(DEFAULT_TENANT_ID));
+        TenantContext.set("smith");
+        assertThat(TenantContext.current(), is("smith"));
+        TenantContext.clear();
+        assertThat(TenantContext.current(), is(DEFAULT_TENANT_ID));
+    }
+
+    @Test
+    public void isCurrentModels() {
+
+        Author author = new Author("Fred", "Flintstone", null);
+        assertThat(TenantContext.isCurrent(author), is(true)); // Not yet assigned
+        author.setTenantId("smith");
+        assertThat(TenantContext.isCurrent(author), is(false));
+        TenantContext.set("smith");
+        assertThat(TenantContext.isCurrent(author), is(true));
+        assertThat(TenantContext.tenantOf(author), is("smith"));
+
+    }
+
+    @Test
+    public void isValidNegative() {
+        assertThat(TenantContext.isValid(null), is(false));
+        assertThat(TenantContext.isValid(""), is(false));
+        assertThat(TenantContext.isValid("-smith"), is(false));
+        assertThat(TenantContext.isValid("smith jones"), is(false));
+        assertThat(TenantContext.isValid("smith'; --"), is(false));
+        assertThat(TenantContext.isValid(new String(new char[65]).replace('\0', 'a')), is(false));
+    }
+
+    @Test
+    public void isValidPositive() {
+        assertThat(TenantContext.isValid(DEFAULT_TENANT_ID), is(true));
+        assertThat(TenantContext.isValid("smith-jones.2020_a"), is(true));
+        assertThat(TenantContext.isValid(new String(new char[64]).replace('\0', 'a')), is(true));
+    }
+
+    @Test
+    public void setInvalid() {
+        try {
+            TenantContext.set("smith jones");
+            fail("Should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(TenantContext.current(), is(DEFAULT_TENANT_ID));
+        }
+    }
+
+}
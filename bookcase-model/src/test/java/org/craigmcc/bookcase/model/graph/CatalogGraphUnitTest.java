@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.graph;
+
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.model.UnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+@Category(UnitTests.class)
+public class CatalogGraphUnitTest {
+
+    // Author 1 wrote books 10 and 12, anthology 30 (containing books 11 and 12),
+    // and series 40 (books 12, 10 in that order).  Author 2 wrote book 11.
+    private final CatalogGraph graph = new CatalogGraph.Builder()
+            .addAuthor(2L)
+            .addAuthor(1L)
+            .addBook(12L, 1L)
+            .addBook(11L, 2L)
+            .addBook(10L, 1L)
+            .addAnthology(30L, 1L)
+            .addStory(51L, 30L, 12L, 2)
+            .addStory(50L, 30L, 11L, 1)
+            .addSeries(40L, 1L)
+            .addMember(60L, 40L, 10L, 2)
+            .addMember(61L, 40L, 12L, 1)
+            .build();
+
+    @Test
+    public void buildDuplicate() {
+
+        try {
+            new CatalogGraph.Builder()
+                    .addAuthor(1L)
+                    .addAuthor(1L)
+                    .build();
+            fail("Should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            /* Expected result */
+        }
+
+    }
+
+    @Test
+    public void buildDangling() {
+
+        CatalogGraph dangling = new CatalogGraph.Builder()
+                .addAuthor(1L)
+                .addBook(10L, 1L)
+                .addBook(11L, 99L)
+                .build();
+
+        assertThat(dangling.getDanglingCount(), is(1));
+        assertArrayEquals(new long[] { 10L }, dangling.findBookIdsByAuthorId(1L));
+
+    }
+
+    @Test
+    public void estimatedBytes() {
+
+        assertThat(graph.estimatedBytes(), is(greaterThan(0L)));
+
+    }
+
+    @Test
+    public void findByAnthologyId() {
+
+        assertArrayEquals(new long[] { 50L, 51L }, graph.findStoryIdsByAnthologyId(30L));
+        assertArrayEquals(new long[] { 11L, 12L }, graph.findBookIdsByAnthologyId(30L));
+        assertArrayEquals(new long[0], graph.findBookIdsByAnthologyId(99L));
+
+    }
+
+    @Test
+    public void findByAuthorId() {
+
+        assertArrayEquals(new long[] { 10L, 12L }, graph.findBookIdsByAuthorId(1L));
+        assertArrayEquals(new long[] { 11L }, graph.findBookIdsByAuthorId(2L));
+        assertArrayEquals(new long[] { 30L }, graph.findAnthologyIdsByAuthorId(1L));
+        assertArrayEquals(new long[] { 40L }, graph.findSeriesIdsByAuthorId(1L));
+        assertArrayEquals(new long[0], graph.findSeriesIdsByAuthorId(2L));
+        assertArrayEquals(new long[0], graph.findBookIdsByAuthorId(99L));
+
+    }
+
+    @Test
+    public void findByAuthorIdIncludingAnthologies() {
+
+        assertArrayEquals(new long[] { 10L, 11L, 12L },
+                graph.findBookIdsByAuthorIdIncludingAnthologies(1L));
+        assertArrayEquals(new long[] { 11L },
+                graph.findBookIdsByAuthorIdIncludingAnthologies(2L));
+        assertArrayEquals(new long[0],
+                graph.findBookIdsByAuthorIdIncludingAnthologies(99L));
+
+    }
+
+    @Test
+    public void findBySeriesId() {
+
+        assertArrayEquals(new long[] { 61L, 60L }, graph.findMemberIdsBySeriesId(40L));
+        assertArrayEquals(new long[] { 12L, 10L }, graph.findBookIdsBySeriesId(40L));
+
+    }
+
+    @Test
+    public void ofModels() {
+
+        Author author = new Author("Fred", "Flintstone", null);
+        author.setId(1L);
+        Book book = new Book(1L, Book.Location.BOX, null, false, "Book");
+        book.setId(10L);
+        Anthology anthology = new Anthology(1L, Book.Location.BOX, null, false, "Anthology");
+        anthology.setId(30L);
+        Story story = new Story(30L, 10L, 1);
+        story.setId(50L);
+        Series series = new Series(1L, null, "Series");
+        series.setId(40L);
+        Member member = new Member(10L, 1, 40L);
+        member.setId(60L);
+
+        CatalogGraph result = CatalogGraph.of(List.of(author), List.of(book), List.of(anthology),
+                List.of(series), List.of(member), List.of(story));
+
+        assertThat(result.getDanglingCount(), is(0));
+        assertArrayEquals(new long[] { 10L }, result.findBookIdsByAuthorIdIncludingAnthologies(1L));
+        assertArrayEquals(new long[] { 10L }, result.findBookIdsBySeriesId(40L));
+        assertArrayEquals(new long[] { 10L }, result.findBookIdsByAnthologyId(30L));
+
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.graph;
+
+import org.craigmcc.bookcase.model.UnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.craigmcc.bookcase.model.graph.LongIntHashMap.MISSING;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+@Category(UnitTests.class)
+public class LongIntHashMapUnitTest {
+
+    @Test
+    public void getMissing() {
+
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(1L, 10);
+
+        assertThat(map.get(2L), is(MISSING));
+        assertThat(map.containsKey(2L), is(false));
+        assertThat(map.get(0L), is(MISSING));
+
+    }
+
+    @Test
+    public void putGrowing() {
+
+        LongIntHashMap map = new LongIntHashMap(2);
+        long initialBytes = map.estimatedBytes();
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(map.put(i * 31L, i), is(MISSING));
+        }
+
+        assertThat(map.size(), is(10_000));
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(map.get(i * 31L), is(i));
+        }
+        assertThat(map.estimatedBytes(), is(greaterThan(initialBytes)));
+
+    }
+
+    @Test
+    public void putNegativeValue() {
+
+        LongIntHashMap map = new LongIntHashMap();
+        try {
+            map.put(1L, -1);
+            fail("Should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            /* Expected result */
+        }
+
+    }
+
+    @Test
+    public void putReplace() {
+
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(Long.MAX_VALUE, 1);
+        map.put(Long.MIN_VALUE, 2);
+
+        assertThat(map.put(Long.MAX_VALUE, 3), is(1));
+        assertThat(map.get(Long.MAX_VALUE), is(3));
+        assertThat(map.get(Long.MIN_VALUE), is(2));
+        assertThat(map.size(), is(2));
+
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+import org.craigmcc.bookcase.model.UnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+@Category(UnitTests.class)
+public class MetaphoneUnitTest {
+
+    @Test
+    public void encodeEmpty() {
+
+        assertThat(Metaphone.encode(""), is(""));
+        assertThat(Metaphone.encode("42"), is(""));
+
+    }
+
+    @Test
+    public void encodeMaxLength() {
+
+        assertThat(Metaphone.encode("supercalifragilistic").length(), is(Metaphone.MAX_LENGTH));
+
+    }
+
+    @Test
+    public void encodeSoundAlike() {
+
+        assertThat(Metaphone.encode("smith"), is("SM0"));
+        assertThat(Metaphone.encode("smyth"), is("SM0"));
+        assertThat(Metaphone.encode("knight"), is("NT"));
+        assertThat(Metaphone.encode("night"), is("NT"));
+        assertThat(Metaphone.encode("philip"), is(Metaphone.encode("filip")));
+        assertThat(Metaphone.encode("catherine"), is(Metaphone.encode("kathryn")));
+        assertThat(Metaphone.encode("flintstone"), is(Metaphone.encode("flintston")));
+        assertThat(Metaphone.encode("rubble"), is(not(Metaphone.encode("barney"))));
+
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+import org.craigmcc.bookcase.model.UnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+@Category(UnitTests.class)
+public class NameIndexUnitTest {
+
+    @Test
+    public void findDuplicates() {
+
+        NameIndex index = populated();
+
+        assertThat(index.findDuplicates("FRED", " Flintstone ").isEmpty(), is(false));
+        assertThat(index.findDuplicates("Fred", "Flintstone"), contains(2L));
+        assertThat(index.findDuplicates("Gabriel", "Garcia Marquez"), contains(5L));
+        assertThat(index.findDuplicates("Flintstone", "Fred").isEmpty(), is(true));
+        assertThat(index.findDuplicates("Pebbles", "Flintstone").isEmpty(), is(true));
+
+    }
+
+    @Test
+    public void matchExact() {
+
+        NameIndex index = populated();
+        List<NameMatch> matches = index.match("Fred Flintstone", 10, 0.5);
+
+        assertThat(ids(matches).get(0), is(2L));
+        assertThat(matches.get(0).getScore(), is(1.0));
+        assertThat(ids(index.match("flintstone, fred", 10, 0.5)).get(0), is(2L));
+        assertThat(ids(index.match("Bam Bam Rubble", 10, 0.5)), containsInAnyOrder(3L, 4L));
+
+    }
+
+    @Test
+    public void matchPartial() {
+
+        NameIndex index = populated();
+
+        // A last name matches every author with it, in "last first" order
+        assertThat(ids(index.match("Flintstone", 10, 0.5)), contains(2L, 1L));
+        assertThat(ids(index.match("flint", 10, 0.5)), contains(2L, 1L));
+        assertThat(ids(index.match("stone", 10, 0.5)), contains(2L, 1L));
+        assertThat(ids(index.match("Rubble", 1, 0.5)), contains(3L));
+
+    }
+
+    @Test
+    public void matchTypos() {
+
+        NameIndex index = populated();
+
+        assertThat(ids(index.match("Flinstone", 10, 0.5)), containsInAnyOrder(1L, 2L));
+        assertThat(ids(index.match("Garcia Marques", 10, 0.5)), contains(5L));
+        assertThat(ids(index.match("Smyth", 10, 0.5)), contains(6L));
+        assertThat(ids(index.match("Rubbel", 10, 0.5)), contains(3L, 4L));
+        List<NameMatch> matches = index.match("Wilma Flinstone", 10, 0.5);
+        assertThat(ids(matches).get(0), is(1L));
+        assertThat(matches.get(0).getScore(), is(lessThan(1.0)));
+
+    }
+
+    @Test
+    public void matchNone() {
+
+        NameIndex index = populated();
+
+        assertThat(index.match("Zaphod Beeblebrox", 10, 0.5).isEmpty(), is(true));
+        assertThat(index.match(" , ", 10, 0.5).isEmpty(), is(true));
+
+    }
+
+    @Test
+    public void putReplace() {
+
+        NameIndex index = populated();
+        index.put(3L, "Barnabas", "Collins");
+        index.remove(1L);
+        index.remove(99L);
+
+        assertThat(index.size(), is(5));
+        assertThat(ids(index.match("Rubble", 10, 0.5)), contains(4L));
+        assertThat(ids(index.match("Flintstone", 10, 0.5)), contains(2L));
+        assertThat(index.findDuplicates("Barney", "Rubble").isEmpty(), is(true));
+        assertThat(index.findDuplicates("Barnabas", "Collins"), contains(3L));
+
+    }
+
+    private List<Long> ids(List<NameMatch> matches) {
+        List<Long> results = new ArrayList<>();
+        for (NameMatch match : matches) {
+            results.add(match.getId());
+        }
+        return results;
+    }
+
+    private NameIndex populated() {
+        NameIndex index = new NameIndex();
+        index.put(1L, "Wilma", "Flintstone");
+        index.put(2L, "Fred", "Flintstone");
+        index.put(3L, "Barney", "Rubble");
+        index.put(4L, "Betty", "Rubble");
+        index.put(5L, "Gabriel", "García Márquez");
+        index.put(6L, "John", "Smith");
+        return index;
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+import org.craigmcc.bookcase.model.UnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+@Category(UnitTests.class)
+public class PrefixIndexUnitTest {
+
+    @Test
+    public void putReplace() {
+
+        PrefixIndex index = populated();
+        index.put(2L, "The Dark Forest", keys("The Dark Forest"), 1L);
+
+        assertThat(ids(index.suggest("tower", 10, false)).isEmpty(), is(true));
+        assertThat(ids(index.suggest("forest", 10, false)), contains(2L));
+        assertThat(index.getWeight(2L), is(1L));
+        assertThat(index.size(), is(4));
+
+    }
+
+    @Test
+    public void remove() {
+
+        PrefixIndex index = populated();
+        index.remove(1L);
+        index.remove(99L);
+
+        assertThat(ids(index.suggest("the", 10, false)), contains(4L, 2L));
+        assertThat(ids(index.suggest("dar", 10, true)), contains(2L));
+        assertThat(index.getWeight(1L), is(-1L));
+        for (long id : new long[] { 2L, 3L, 4L }) {
+            index.remove(id);
+        }
+        assertThat(index.suggest("", 10, false).isEmpty(), is(true));
+        assertThat(index.getIds().isEmpty(), is(true));
+
+    }
+
+    @Test
+    public void setWeight() {
+
+        PrefixIndex index = populated();
+
+        assertThat(index.setWeight(2L, 20L), is(true));
+        assertThat(index.setWeight(2L, 20L), is(false));
+        assertThat(index.setWeight(99L, 1L), is(false));
+        assertThat(ids(index.suggest("the", 10, false)), contains(2L, 4L, 1L));
+        assertThat(ids(index.suggest("tower", 10, false)), contains(2L));
+
+    }
+
+    @Test
+    public void suggestAlphabetical() {
+
+        PrefixIndex index = populated();
+        List<Suggestion> results = index.suggest("the d", 10, true);
+
+        assertThat(ids(results), contains(2L, 1L));
+        assertThat(results.get(0).getMatch(), is("the dark tower"));
+        assertThat(results.get(1).getMatch(), is("the drawing of the three"));
+        assertThat(ids(index.suggest("g", 10, true)), contains(3L, 4L));
+
+    }
+
+    @Test
+    public void suggestMissing() {
+
+        PrefixIndex index = populated();
+
+        assertThat(index.suggest("zzz", 10, false).isEmpty(), is(true));
+        assertThat(index.suggest("the dx", 10, true).isEmpty(), is(true));
+        assertThat(index.suggest("the", 0, false).isEmpty(), is(true));
+
+    }
+
+    @Test
+    public void suggestPopularity() {
+
+        PrefixIndex index = populated();
+        List<Suggestion> results = index.suggest("th", 10, false);
+
+        // Each model appears only once, although several of its keys match
+        assertThat(ids(results), contains(4L, 1L, 2L));
+        assertThat(results.get(0).getType(), is("Book"));
+        assertThat(results.get(0).getLabel(), is("The Gunslinger"));
+        assertThat(ids(index.suggest("th", 2, false)), contains(4L, 1L));
+        assertThat(ids(index.suggest("tower", 10, false)), contains(2L));
+
+    }
+
+    @Test
+    public void suggestSplitEdges() {
+
+        PrefixIndex index = new PrefixIndex("Author");
+        index.put(1L, "Harry", keys("harry"), 1L);
+        index.put(2L, "Harold", keys("harold"), 2L);
+        index.put(3L, "Har", keys("har"), 3L);
+        index.put(4L, "Hat", keys("hat"), 4L);
+
+        assertThat(ids(index.suggest("har", 10, false)), contains(3L, 2L, 1L));
+        assertThat(ids(index.suggest("har", 10, true)), contains(3L, 2L, 1L));
+        assertThat(ids(index.suggest("ha", 10, false)), contains(4L, 3L, 2L, 1L));
+        assertThat(ids(index.suggest("harr", 10, false)), contains(1L));
+        index.remove(3L);
+        assertThat(ids(index.suggest("ha", 10, true)), contains(2L, 1L, 4L));
+
+    }
+
+    private List<Long> ids(List<Suggestion> suggestions) {
+        List<Long> results = new ArrayList<>();
+        for (Suggestion suggestion : suggestions) {
+            results.add(suggestion.getId());
+        }
+        return results;
+    }
+
+    private List<String> keys(String... labels) {
+        List<String> results = new ArrayList<>();
+        for (String label : labels) {
+            results.addAll(TextNormalizer.wordSuffixes(TextNormalizer.normalize(label), 8));
+        }
+        return results;
+    }
+
+    private PrefixIndex populated() {
+        PrefixIndex index = new PrefixIndex("Book");
+        index.put(1L, "The Drawing of the Three", keys("The Drawing of the Three"), 5L);
+        index.put(2L, "The Dark Tower", keys("The Dark Tower"), 0L);
+        index.put(3L, "Wizard and Glass", keys("Wizard and Glass"), 0L);
+        index.put(4L, "The Gunslinger", keys("The Gunslinger"), 9L);
+        return index;
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.UnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+@Category(UnitTests.class)
+public class SortKeysUnitTest {
+
+    @Test
+    public void nameKeyHappy() {
+
+        assertThat(SortKeys.nameKey("Fred", "Flintstone"), is("flintstone fred"));
+        assertThat(SortKeys.nameKey("Gabriel", "García Márquez"), is("garcia marquez gabriel"));
+        assertThat(SortKeys.nameKey(null, "Plato"), is("plato"));
+        assertThat(SortKeys.nameKey(null, null), is(nullValue()));
+
+    }
+
+    @Test
+    public void nameKeyOrdering() {
+
+        List<Author> authors = new ArrayList<>();
+        authors.add(new Author("Zed", "de la Cruz", null));
+        authors.add(new Author("Anne", "De La Cruz", null));
+        authors.add(new Author("Fred", "Flintstone", null));
+        authors.sort(Author.NameComparator);
+
+        assertThat(authors.get(0).getFirstName(), is("Anne"));
+        assertThat(authors.get(1).getFirstName(), is("Zed"));
+        assertThat(authors.get(2).getFirstName(), is("Fred"));
+
+    }
+
+    @Test
+    public void titleKeyHappy() {
+
+        assertThat(SortKeys.titleKey("The Hobbit"), is("hobbit"));
+        assertThat(SortKeys.titleKey("the hobbit"), is("hobbit"));
+        assertThat(SortKeys.titleKey("A Tale of Two Cities"), is("tale of two cities"));
+        assertThat(SortKeys.titleKey("An Ocean's Éclat!"), is("oceans eclat"));
+        assertThat(SortKeys.titleKey("Anathem"), is("anathem"));
+        assertThat(SortKeys.titleKey("The"), is("the"));
+        assertThat(SortKeys.titleKey(null), is(nullValue()));
+
+    }
+
+    @Test
+    public void titleKeyLength() {
+
+        StringBuilder title = new StringBuilder();
+        while (title.length() < 2 * SortKeys.MAX_LENGTH) {
+            title.append("Word ");
+        }
+        assertThat(SortKeys.titleKey(title.toString()).length(), is(SortKeys.MAX_LENGTH));
+
+    }
+
+    @Test
+    public void titleKeyOrdering() {
+
+        Book hobbit1 = new Book(1L, Book.Location.KINDLE, null, false, "The Hobbit");
+        Book hobbit2 = new Book(1L, Book.Location.KINDLE, null, false, "the Hobbit");
+        Book silmarillion = new Book(1L, Book.Location.KINDLE, null, false, "Silmarillion");
+
+        assertThat(Book.TitleComparator.compare(hobbit1, silmarillion), is(lessThan(0)));
+        assertThat(Book.TitleComparator.compare(hobbit2, silmarillion), is(lessThan(0)));
+        // Equal keys fall back to the titles themselves
+        assertThat(Book.TitleComparator.compare(hobbit1, hobbit2), is(lessThan(0)));
+        assertThat(Book.TitleComparator.compare(hobbit1, hobbit1), is(0));
+
+    }
+
+    @Test
+    public void titleSegmentHappy() {
+
+        assertThat(SortKeys.titleSegment("the ho"), is("ho"));
+        assertThat(SortKeys.titleSegment("Lord of the"), is("lord of the"));
+        assertThat(SortKeys.titleSegment(" !! "), is(""));
+        assertThat(SortKeys.titleSegment(null), is(""));
+
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.model.text;
+
+import org.craigmcc.bookcase.model.UnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+@Category(UnitTests.class)
+public class TextNormalizerUnitTest {
+
+    @Test
+    public void normalizeHappy() {
+
+        assertThat(TextNormalizer.normalize("Ender's Game: Böok 1"), is("enders game book 1"));
+        assertThat(TextNormalizer.normalize("  Gabriel García  Márquez "), is("gabriel garcia marquez"));
+        assertThat(TextNormalizer.normalize("O’Brien, Patrick"), is("obrien patrick"));
+
+    }
+
+    @Test
+    public void normalizeEmpty() {
+
+        assertThat(TextNormalizer.normalize(null), is(""));
+        assertThat(TextNormalizer.normalize(" -- "), is(""));
+
+    }
+
+    @Test
+    public void similarityHappy() {
+
+        assertThat(TextNormalizer.similarity(TextNormalizer.trigrams("fred"), TextNormalizer.trigrams("fred")), is(1.0));
+        assertThat(TextNormalizer.similarity(TextNormalizer.trigrams("fred"), TextNormalizer.trigrams("xyz")), is(0.0));
+        assertThat(TextNormalizer.similarity(TextNormalizer.trigrams("fred"), TextNormalizer.trigrams("")), is(0.0));
+        // 3 shared of 6 distinct
+        assertThat(TextNormalizer.similarity(TextNormalizer.trigrams("fred"), TextNormalizer.trigrams("fre")),
+                is(3.0 / 6.0));
+
+    }
+
+    @Test
+    public void trigramsHappy() {
+
+        assertThat(TextNormalizer.trigrams("fred"), containsInAnyOrder("  f", " fr", "fre", "red", "ed "));
+        assertThat(TextNormalizer.trigrams("").isEmpty(), is(true));
+
+    }
+
+    @Test
+    public void wordSuffixesHappy() {
+
+        assertThat(TextNormalizer.wordSuffixes("the dark tower", 8),
+                contains("the dark tower", "dark tower", "tower"));
+        assertThat(TextNormalizer.wordSuffixes("the dark tower", 2),
+                contains("the dark tower", "dark tower"));
+        assertThat(TextNormalizer.wordSuffixes("", 8).isEmpty(), is(true));
+
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.browse;
+
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import javax.validation.constraints.NotNull;
+import java.util.Arrays;
+
+import static org.craigmcc.bookcase.model.Constants.TITLE_KEY_COLUMN;
+import static org.craigmcc.library.model.Constants.UPDATED_COLUMN;
+
+/**
+ * <p>Filters, sort order, and page position for browsing books or anthologies.
+ * Unset (<code>null</code>) filters match everything.</p>
+ */
+public class BrowseCriteria {
+
+    // Instance Variables ----------------------------------------------------
+
+    private String after;
+    private Long authorId;
+    private Boolean googleId;
+    private int limit = DEFAULT_LIMIT;
+    private Book.Location location;
+    private Boolean read;
+    private Sort sort = Sort.TITLE;
+    private String titlePrefix;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Number of items per page if not specified.</p>
+     */
+    public static final int DEFAULT_LIMIT = 25;
+
+    /**
+     * <p>Maximum number of items per page.</p>
+     */
+    public static final int MAX_LIMIT = 200;
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return criteria built from (optional) request parameters.</p>
+     *
+     * @throws BadRequest If the location or sort is not recognized
+     */
+    public static @NotNull BrowseCriteria of(
+            String after,
+            Long authorId,
+            Boolean googleId,
+            Integer limit,
+            String location,
+            Boolean read,
+            String sort,
+            String titlePrefix
+    ) throws BadRequest {
+        BrowseCriteria criteria = new BrowseCriteria();
+        criteria.setAfter(after);
+        criteria.setAuthorId(authorId);
+        criteria.setGoogleId(googleId);
+        if (limit != null) {
+            criteria.setLimit(limit);
+        }
+        if ((location != null) && !location.isBlank()) {
+            try {
+                criteria.setLocation(Book.Location.valueOf(location.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequest("location: Unknown location '" + location + "'");
+            }
+        }
+        criteria.setRead(read);
+        if ((sort != null) && !sort.isBlank()) {
+            try {
+                criteria.setSort(Sort.valueOf(sort.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequest("sort: Must be one of " + Arrays.toString(Sort.values()));
+            }
+        }
+        criteria.setTitlePrefix(titlePrefix);
+        return criteria;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    public Boolean getGoogleId() {
+        return googleId;
+    }
+
+    public void setGoogleId(Boolean googleId) {
+        this.googleId = googleId;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public Book.Location getLocation() {
+        return location;
+    }
+
+    public void setLocation(Book.Location location) {
+        this.location = location;
+    }
+
+    public Boolean getRead() {
+        return read;
+    }
+
+    public void setRead(Boolean read) {
+        this.read = read;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public void setSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public String getTitlePrefix() {
+        return titlePrefix;
+    }
+
+    public void setTitlePrefix(String titlePrefix) {
+        this.titlePrefix = titlePrefix;
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Supported sort orders.  Ties are broken by ascending (or descending) ID.</p>
+     */
+    @Schema(description = "Sort order for browsing.")
+    public enum Sort {
+
+        @Schema(description = "Ascending by title, ignoring case, punctuation, and a leading article.")
+        TITLE(TITLE_KEY_COLUMN, true),
+
+        @Schema(description = "Descending by title, ignoring case, punctuation, and a leading article.")
+        TITLE_DESC(TITLE_KEY_COLUMN, false),
+
+        @Schema(description = "Most recently updated first.")
+        UPDATED_DESC(UPDATED_COLUMN, false);
+
+        private final boolean ascending;
+        private final String column;
+
+        Sort(String column, boolean ascending) {
+            this.ascending = ascending;
+            this.column = column;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public boolean isAscending() {
+            return ascending;
+        }
+
+    }
+
+}
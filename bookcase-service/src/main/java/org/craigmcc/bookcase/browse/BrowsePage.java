@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.browse;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>One page of browse results, with the facet counts of the whole result set.</p>
+ *
+ * @param <M> Type of the browsed models
+ */
+@Schema(
+        description = "One page of browse results, with facet counts for the whole result set.",
+        name = "BrowsePage"
+)
+public class BrowsePage<M> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Map<String, Map<String, Long>> facets;
+    private final List<M> items;
+    private final String next;
+    private final long total;
+
+    // Constructors ----------------------------------------------------------
+
+    public BrowsePage(
+            Map<String, Map<String, Long>> facets,
+            List<M> items,
+            String next,
+            long total
+    ) {
+        this.facets = facets;
+        this.items = items;
+        this.next = next;
+        this.total = total;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "Counts for each value of each facet (authorId, googleId, location, read), " +
+            "applying every filter except the facet's own.")
+    public Map<String, Map<String, Long>> getFacets() {
+        return facets;
+    }
+
+    @Schema(description = "Items on this page.")
+    public List<M> getItems() {
+        return items;
+    }
+
+    @Schema(description = "Cursor to pass as 'after' for the next page, or null on the last page.")
+    public String getNext() {
+        return next;
+    }
+
+    @Schema(description = "Total number of items matching all filters.")
+    public long getTotal() {
+        return total;
+    }
+
+}
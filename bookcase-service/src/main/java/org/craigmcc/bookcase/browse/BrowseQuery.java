@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.browse;
+
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.text.SortKeys;
+import org.craigmcc.library.model.Model;
+import org.craigmcc.library.shared.exception.BadRequest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_FIELD;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.GOOGLE_ID;
+import static org.craigmcc.bookcase.model.Constants.LOCATION_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.READ_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.TITLE_KEY_COLUMN;
+import static org.craigmcc.bookcase.service.ReadQueryService.readOnly;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+import static org.craigmcc.library.model.Constants.UPDATED_COLUMN;
+
+/**
+ * <p>Dynamic query for one page of books or anthologies (which share the
+ * browsable attributes) matching a {@link BrowseCriteria}.  Pages are
+ * positioned with a keyset cursor (the sort value and ID of the last item)
+ * rather than an offset, so every page costs the same, and every query
+ * uses the composite <code>(authorId, titleKey)</code> or
+ * <code>(location, read, titleKey)</code> indexes when filtering on those
+ * columns.  Titles are sorted, and title prefixes matched, by their
+ * normalized sort keys (see <code>SortKeys</code>), so that prefixes are
+ * case insensitive and can still use the same indexes.</p>
+ *
+ * <p>Each facet is counted with every filter except its own, so that the
+ * counts show how many items each alternative value would match.</p>
+ */
+public class BrowseQuery<M extends Model<M>> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private Object afterValue;
+    private Long afterId;
+    private final Class<M> clazz;
+    private final BrowseCriteria criteria;
+    private final String name;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Facet key for a missing (<code>null</code>) value.</p>
+     */
+    public static final String NONE = "NONE";
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Construct a query for the specified entity.</p>
+     *
+     * @param name Entity name (<code>Book</code> or <code>Anthology</code>)
+     * @param clazz Entity class
+     * @param criteria Browse criteria
+     *
+     * @throws BadRequest If the limit or cursor is invalid
+     */
+    public BrowseQuery(@NotNull String name, @NotNull Class<M> clazz, @NotNull BrowseCriteria criteria)
+            throws BadRequest {
+        this.clazz = clazz;
+        this.criteria = criteria;
+        this.name = name;
+        if ((criteria.getLimit() < 1) || (criteria.getLimit() > BrowseCriteria.MAX_LIMIT)) {
+            throw new BadRequest("limit: Must be between 1 and " + BrowseCriteria.MAX_LIMIT);
+        }
+        if ((criteria.getAfter() != null) && !criteria.getAfter().isBlank()) {
+            decode(criteria.getAfter());
+        }
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the requested page, with facet counts.</p>
+     *
+     * @param entityManager Entity manager on which to run the queries
+     */
+    public @NotNull BrowsePage<M> execute(@NotNull EntityManager entityManager) {
+
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        facets.put(AUTHOR_ID_COLUMN, facet(entityManager, AUTHOR_ID_COLUMN));
+        facets.put(GOOGLE_ID, googleIdFacet(entityManager));
+        facets.put(LOCATION_COLUMN, facet(entityManager, LOCATION_COLUMN));
+        Map<String, Long> readFacet = facet(entityManager, READ_COLUMN);
+        facets.put(READ_COLUMN, readFacet);
+
+        // The read facet applies every other filter, so the total is its selected count(s)
+        long total = 0L;
+        for (Map.Entry<String, Long> entry : readFacet.entrySet()) {
+            if ((criteria.getRead() == null) || entry.getKey().equals(criteria.getRead().toString())) {
+                total += entry.getValue();
+            }
+        }
+
+        BrowseCriteria.Sort sort = criteria.getSort();
+        String direction = sort.isAscending() ? " ASC" : " DESC";
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder where = where(null, parameters);
+        if (afterId != null) {
+            String comparison = sort.isAscending() ? " > " : " < ";
+            where.append((where.length() == 0) ? " WHERE " : " AND ")
+                    .append("(x.").append(sort.getColumn()).append(comparison).append(":afterValue")
+                    .append(" OR (x.").append(sort.getColumn()).append(" = :afterValue")
+                    .append(" AND x.").append(ID_COLUMN).append(comparison).append(":afterId))");
+            parameters.put("afterValue", afterValue);
+            parameters.put("afterId", afterId);
+        }
+        TypedQuery<M> query = entityManager.createQuery(
+                "SELECT x FROM " + name + " x JOIN FETCH x." + AUTHOR_FIELD + where +
+                        " ORDER BY x." + sort.getColumn() + direction + ", x." + ID_COLUMN + direction,
+                clazz);
+        parameters.forEach(query::setParameter);
+        List<M> items = new ArrayList<>(readOnly(query)
+                .setMaxResults(criteria.getLimit() + 1)
+                .getResultList());
+
+        String next = null;
+        if (items.size() > criteria.getLimit()) {
+            items = items.subList(0, criteria.getLimit());
+            next = encode(items.get(items.size() - 1));
+        }
+        return new BrowsePage<>(Collections.unmodifiableMap(facets), items, next, total);
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void decode(String cursor) throws BadRequest {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = decoded.lastIndexOf('\n');
+            String value = decoded.substring(0, split);
+            afterId = Long.valueOf(decoded.substring(split + 1));
+            afterValue = UPDATED_COLUMN.equals(criteria.getSort().getColumn())
+                    ? LocalDateTime.parse(value) : value;
+        } catch (RuntimeException e) {
+            throw new BadRequest("after: Invalid cursor for sort " + criteria.getSort());
+        }
+    }
+
+    private String encode(M last) {
+        Object value = UPDATED_COLUMN.equals(criteria.getSort().getColumn())
+                ? last.getUpdated() : titleKey(last);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((value + "\n" + last.getId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Map<String, Long> facet(EntityManager entityManager, String column) {
+        Map<String, Object> parameters = new HashMap<>();
+        TypedQuery<Object[]> query = entityManager.createQuery(
+                "SELECT x." + column + ", COUNT(x) FROM " + name + " x" + where(column, parameters) +
+                        " GROUP BY x." + column,
+                Object[].class);
+        parameters.forEach(query::setParameter);
+        Map<String, Long> counts = new TreeMap<>();
+        for (Object[] row : readOnly(query).getResultList()) {
+            counts.put((row[0] != null) ? row[0].toString() : NONE, (Long) row[1]);
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private Map<String, Long> googleIdFacet(EntityManager entityManager) {
+        Map<String, Object> parameters = new HashMap<>();
+        TypedQuery<Object[]> query = entityManager.createQuery(
+                "SELECT COUNT(x), COUNT(x." + GOOGLE_ID + ") FROM " + name + " x" + where(GOOGLE_ID, parameters),
+                Object[].class);
+        parameters.forEach(query::setParameter);
+        Object[] row = readOnly(query).getSingleResult();
+        Map<String, Long> counts = new TreeMap<>();
+        counts.put(Boolean.FALSE.toString(), (Long) row[0] - (Long) row[1]);
+        counts.put(Boolean.TRUE.toString(), (Long) row[1]);
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private String titleKey(M model) {
+        return SortKeys.titleKey((model instanceof Book) ? ((Book) model).getTitle()
+                : ((Anthology) model).getTitle());
+    }
+
+    /**
+     * <p>Return the <code>WHERE</code> clause for all filters except the
+     * specified one, adding its parameters to <code>parameters</code>.</p>
+     */
+    private StringBuilder where(String except, Map<String, Object> parameters) {
+        List<String> conditions = new ArrayList<>();
+        if ((criteria.getAuthorId() != null) && !AUTHOR_ID_COLUMN.equals(except)) {
+            conditions.add("x." + AUTHOR_ID_COLUMN + " = :" + AUTHOR_ID_COLUMN);
+            parameters.put(AUTHOR_ID_COLUMN, criteria.getAuthorId());
+        }
+        if ((criteria.getGoogleId() != null) && !GOOGLE_ID.equals(except)) {
+            conditions.add("x." + GOOGLE_ID + (criteria.getGoogleId() ? " IS NOT NULL" : " IS NULL"));
+        }
+        if ((criteria.getLocation() != null) && !LOCATION_COLUMN.equals(except)) {
+            conditions.add("x." + LOCATION_COLUMN + " = :" + LOCATION_COLUMN);
+            parameters.put(LOCATION_COLUMN, criteria.getLocation());
+        }
+        if ((criteria.getRead() != null) && !READ_COLUMN.equals(except)) {
+            conditions.add("x." + READ_COLUMN + " = :" + READ_COLUMN);
+            parameters.put(READ_COLUMN, criteria.getRead());
+        }
+        String titlePrefix = SortKeys.titleSegment(criteria.getTitlePrefix());
+        if (!titlePrefix.isEmpty()) {
+            // Sort keys contain only letters, digits, and spaces, so there is nothing to escape
+            conditions.add("x." + TITLE_KEY_COLUMN + " LIKE :" + TITLE_KEY_COLUMN);
+            parameters.put(TITLE_KEY_COLUMN, titlePrefix + "%");
+        }
+        StringBuilder where = new StringBuilder();
+        if (!conditions.isEmpty()) {
+            where.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        return where;
+    }
+
+}
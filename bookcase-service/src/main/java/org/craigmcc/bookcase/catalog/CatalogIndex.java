@@ -0,0 +1,240 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.catalog;
+
+import org.craigmcc.library.model.Model;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * <p>Immutable indexes of the models of one type in a {@link CatalogSnapshot}:
+ * by ID, in a total order, and grouped by the IDs of the models they belong
+ * to (each group in its own order).</p>
+ *
+ * <p>A few changes are applied by <code>with()</code> without rebuilding:
+ * the ID map is copied, the ordered list and the affected groups are patched
+ * (removing the changed models, and inserting their replacements at their
+ * sorted positions), and everything else is shared with this index.  Many
+ * changes (relative to the size of the index) are applied by rebuilding the
+ * indexes instead.</p>
+ *
+ * @param <M> Type of the indexed models
+ */
+final class CatalogIndex<M extends Model<M>> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Map<Long, M> byId;
+    private final Comparator<M> groupOrder;
+    private final List<Map<Long, List<M>>> groups;
+    private final List<Function<M, Long>> keys;
+    private final Comparator<M> order;
+    private final List<M> ordered;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Changes beyond one in this many models of an index are applied by
+     * rebuilding it rather than patching it.</p>
+     */
+    static final int REBUILD_RATIO = 8;
+
+    // Constructors ----------------------------------------------------------
+
+    private CatalogIndex(
+            Map<Long, M> byId,
+            List<M> ordered,
+            List<Map<Long, List<M>>> groups,
+            Comparator<M> order,
+            Comparator<M> groupOrder,
+            List<Function<M, Long>> keys
+    ) {
+        this.byId = byId;
+        this.ordered = ordered;
+        this.groups = groups;
+        this.order = order;
+        this.groupOrder = groupOrder;
+        this.keys = keys;
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    M get(Long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * <p>Return the models whose key (with the specified index in the keys
+     * of this index) is the specified ID, in group order.</p>
+     */
+    @NotNull List<M> group(int key, Long id) {
+        return groups.get(key).getOrDefault(id, Collections.emptyList());
+    }
+
+    @NotNull Function<M, Long> key(int key) {
+        return keys.get(key);
+    }
+
+    @NotNull List<M> ordered() {
+        return ordered;
+    }
+
+    /**
+     * <p>Return an index with the specified changes applied, which is this
+     * index if there are none.</p>
+     *
+     * @param changes Changed models by ID (<code>null</code> for removed ones)
+     */
+    @NotNull CatalogIndex<M> with(@NotNull Map<Long, M> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        Map<Long, M> results = new HashMap<>(byId);
+        for (Map.Entry<Long, M> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                results.remove(change.getKey());
+            } else {
+                results.put(change.getKey(), change.getValue());
+            }
+        }
+        if (changes.size() > (byId.size() / REBUILD_RATIO)) {
+            return of(results.values(), order, groupOrder, keys);
+        }
+        List<Map<Long, List<M>>> patchedGroups = new ArrayList<>(groups.size());
+        for (int key = 0; key < keys.size(); key++) {
+            patchedGroups.add(patched(key, changes));
+        }
+        return new CatalogIndex<>(
+                Collections.unmodifiableMap(results),
+                patched(ordered, changes, order, null, null),
+                Collections.unmodifiableList(patchedGroups),
+                order, groupOrder, keys);
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Build the indexes of the specified models.</p>
+     *
+     * @param models Models to be indexed
+     * @param order Order of the ordered list
+     * @param groupOrder Order within each group
+     * @param keys Functions returning the ID each model is grouped by
+     *             (one for each grouping)
+     * @param <M> Type of the indexed models
+     */
+    static <M extends Model<M>> CatalogIndex<M> of(
+            @NotNull Collection<M> models,
+            @NotNull Comparator<M> order,
+            @NotNull Comparator<M> groupOrder,
+            @NotNull List<Function<M, Long>> keys
+    ) {
+        Map<Long, M> byId = new HashMap<>();
+        for (M model : models) {
+            byId.put(model.getId(), model);
+        }
+        List<M> ordered = sorted(byId.values(), order);
+        List<M> byGroupOrder = (groupOrder == order) ? ordered : sorted(byId.values(), groupOrder);
+        List<Map<Long, List<M>>> groups = new ArrayList<>(keys.size());
+        for (Function<M, Long> key : keys) {
+            Map<Long, List<M>> grouped = new HashMap<>();
+            for (M model : byGroupOrder) {
+                grouped.computeIfAbsent(key.apply(model), k -> new ArrayList<>()).add(model);
+            }
+            grouped.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            groups.add(Collections.unmodifiableMap(grouped));
+        }
+        return new CatalogIndex<>(Collections.unmodifiableMap(byId), ordered,
+                Collections.unmodifiableList(groups), order, groupOrder, keys);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Return the groups of the specified key with the specified changes
+     * applied, patching only the groups that changed models left or
+     * joined.</p>
+     */
+    private Map<Long, List<M>> patched(int key, Map<Long, M> changes) {
+        Function<M, Long> function = keys.get(key);
+        Set<Long> affected = new HashSet<>();
+        for (Map.Entry<Long, M> change : changes.entrySet()) {
+            M previous = byId.get(change.getKey());
+            if (previous != null) {
+                affected.add(function.apply(previous));
+            }
+            if (change.getValue() != null) {
+                affected.add(function.apply(change.getValue()));
+            }
+        }
+        Map<Long, List<M>> results = new HashMap<>(groups.get(key));
+        for (Long id : affected) {
+            List<M> group = patched(results.getOrDefault(id, Collections.emptyList()),
+                    changes, groupOrder, function, id);
+            if (group.isEmpty()) {
+                results.remove(id);
+            } else {
+                results.put(id, group);
+            }
+        }
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * <p>Return a copy of the specified sorted list, without the changed
+     * models, and with those of their replacements that belong in it (all of
+     * them if there is no key) inserted in order.</p>
+     */
+    private static <M extends Model<M>> List<M> patched(
+            List<M> models,
+            Map<Long, M> changes,
+            Comparator<M> comparator,
+            Function<M, Long> key,
+            Long id
+    ) {
+        List<M> results = new ArrayList<>(models.size() + changes.size());
+        for (M model : models) {
+            if (!changes.containsKey(model.getId())) {
+                results.add(model);
+            }
+        }
+        for (M model : changes.values()) {
+            if ((model != null) && ((key == null) || Objects.equals(id, key.apply(model)))) {
+                int index = Collections.binarySearch(results, model, comparator);
+                results.add((index < 0) ? -(index + 1) : index, model);
+            }
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    private static <M> List<M> sorted(Collection<M> models, Comparator<M> comparator) {
+        List<M> results = new ArrayList<>(models);
+        results.sort(comparator);
+        return Collections.unmodifiableList(results);
+    }
+
+}
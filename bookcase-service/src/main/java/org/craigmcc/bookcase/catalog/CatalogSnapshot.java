@@ -0,0 +1,473 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.catalog;
+
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.model.graph.CatalogGraph;
+import org.craigmcc.library.model.Model;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Immutable, fully indexed snapshot of the entire catalog (all authors, books,
+ * anthologies, series, members, and stories).  A snapshot is never modified after
+ * construction, so any number of threads may read it without locking.  Changes are
+ * applied copy-on-write:  call <code>toBuilder()</code>, apply the changes, and
+ * <code>build()</code> a replacement snapshot.</p>
+ *
+ * <p>A replacement snapshot shares the indexes of every model type that was not
+ * changed with the snapshot it was built from, and the indexes of the changed
+ * types are patched rather than rebuilt (see {@link CatalogIndex}), so applying
+ * a single change costs time proportional to the number of models of the changed
+ * types, without sorting.</p>
+ *
+ * <p>The model objects in a snapshot are private copies, with their nested
+ * <code>author</code> and <code>book</code> references linked to the other objects
+ * in the same snapshot.  They are shared by all readers, so callers must treat
+ * them as read only.</p>
+ *
+ * <p>Ordering of all returned lists matches the corresponding named queries.</p>
+ */
+public final class CatalogSnapshot {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final CatalogIndex<Anthology> anthologies;
+    private final CatalogIndex<Author> authors;
+    private final CatalogIndex<Book> books;
+
+    private final LocalDateTime created;
+
+    /**
+     * <p>Primitive relationship graph, built on first use.  Concurrent first
+     * calls may each build one, which is harmless because they are equivalent.</p>
+     */
+    private volatile CatalogGraph graph;
+
+    private final CatalogIndex<Member> members;
+    private final CatalogIndex<Series> series;
+    private final CatalogIndex<Story> stories;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Comparator<Member> MemberComparator =
+            Comparator.comparing(Member::getSeriesId).thenComparing(Member::getOrdinal);
+
+    private static final Comparator<Story> StoryComparator =
+            Comparator.comparing(Story::getAnthologyId).thenComparing(Story::getOrdinal);
+
+    // Keys of the groupings of each index
+    private static final int BY_AUTHOR_ID = 0;
+    private static final int MEMBERS_BY_BOOK_ID = 0;
+    private static final int MEMBERS_BY_SERIES_ID = 1;
+    private static final int STORIES_BY_ANTHOLOGY_ID = 0;
+    private static final int STORIES_BY_BOOK_ID = 1;
+
+    /**
+     * <p>Empty snapshot, suitable as the starting point for a builder.</p>
+     */
+    public static final CatalogSnapshot EMPTY = new CatalogSnapshot(
+            CatalogIndex.of(List.of(), Anthology.TitleComparator, Anthology.TitleComparator,
+                    List.of(Anthology::getAuthorId)),
+            CatalogIndex.of(List.of(), Author.NameComparator, Author.NameComparator,
+                    List.of()),
+            CatalogIndex.of(List.of(), Book.TitleComparator, Book.TitleComparator,
+                    List.of(Book::getAuthorId)),
+            CatalogIndex.of(List.of(), MemberComparator, Member.OrdinalComparator,
+                    List.of(Member::getBookId, Member::getSeriesId)),
+            CatalogIndex.of(List.of(), Series.TitleComparator, Series.TitleComparator,
+                    List.of(Series::getAuthorId)),
+            CatalogIndex.of(List.of(), StoryComparator, Story.OrdinalComparator,
+                    List.of(Story::getAnthologyId, Story::getBookId)));
+
+    // Constructors ----------------------------------------------------------
+
+    private CatalogSnapshot(
+            CatalogIndex<Anthology> anthologies,
+            CatalogIndex<Author> authors,
+            CatalogIndex<Book> books,
+            CatalogIndex<Member> members,
+            CatalogIndex<Series> series,
+            CatalogIndex<Story> stories
+    ) {
+        this.anthologies = anthologies;
+        this.authors = authors;
+        this.books = books;
+        this.members = members;
+        this.series = series;
+        this.stories = stories;
+        this.created = LocalDateTime.now();
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public LocalDateTime getCreated() {
+        return created;
+    }
+
+    /**
+     * <p>Return the primitive relationship graph for this snapshot, suitable for
+     * traversals (such as all books by an author, including those in anthologies)
+     * that should not box identifiers.</p>
+     */
+    public @NotNull CatalogGraph getGraph() {
+        CatalogGraph result = graph;
+        if (result == null) {
+            result = CatalogGraph.of(authors.ordered(), books.ordered(), anthologies.ordered(),
+                    series.ordered(), members.ordered(), stories.ordered());
+            graph = result;
+        }
+        return result;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public @NotNull List<Anthology> findAllAnthologies() {
+        return anthologies.ordered();
+    }
+
+    public @NotNull List<Author> findAllAuthors() {
+        return authors.ordered();
+    }
+
+    public @NotNull List<Book> findAllBooks() {
+        return books.ordered();
+    }
+
+    public @NotNull List<Member> findAllMembers() {
+        return members.ordered();
+    }
+
+    public @NotNull List<Series> findAllSeries() {
+        return series.ordered();
+    }
+
+    public @NotNull List<Story> findAllStories() {
+        return stories.ordered();
+    }
+
+    public Anthology findAnthology(Long id) {
+        return anthologies.get(id);
+    }
+
+    public @NotNull List<Anthology> findAnthologiesByAuthorId(Long authorId) {
+        return anthologies.group(BY_AUTHOR_ID, authorId);
+    }
+
+    public @NotNull List<Anthology> findAnthologiesByTitle(String title) {
+        return filtered(anthologies.ordered(), a -> contains(a.getTitle(), title));
+    }
+
+    public Author findAuthor(Long id) {
+        return authors.get(id);
+    }
+
+    public Book findBook(Long id) {
+        return books.get(id);
+    }
+
+    public @NotNull List<Book> findBooksByAuthorId(Long authorId) {
+        return books.group(BY_AUTHOR_ID, authorId);
+    }
+
+    public @NotNull List<Book> findBooksByTitle(String title) {
+        return filtered(books.ordered(), b -> contains(b.getTitle(), title));
+    }
+
+    public Member findMember(Long id) {
+        return members.get(id);
+    }
+
+    public @NotNull List<Member> findMembersByBookId(Long bookId) {
+        return members.group(MEMBERS_BY_BOOK_ID, bookId);
+    }
+
+    public @NotNull List<Member> findMembersBySeriesId(Long seriesId) {
+        return members.group(MEMBERS_BY_SERIES_ID, seriesId);
+    }
+
+    public Series findSeries(Long id) {
+        return series.get(id);
+    }
+
+    public @NotNull List<Series> findSeriesByAuthorId(Long authorId) {
+        return series.group(BY_AUTHOR_ID, authorId);
+    }
+
+    public @NotNull List<Series> findSeriesByTitle(String title) {
+        return filtered(series.ordered(), s -> contains(s.getTitle(), title));
+    }
+
+    public Story findStory(Long id) {
+        return stories.get(id);
+    }
+
+    public @NotNull List<Story> findStoriesByAnthologyId(Long anthologyId) {
+        return stories.group(STORIES_BY_ANTHOLOGY_ID, anthologyId);
+    }
+
+    public @NotNull List<Story> findStoriesByBookId(Long bookId) {
+        return stories.group(STORIES_BY_BOOK_ID, bookId);
+    }
+
+    /**
+     * <p>Return a builder of changes to this snapshot.</p>
+     */
+    public @NotNull Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Case insensitive "contains" match, with the same semantics as the
+     * <code>LIKE LOWER(CONCAT('%',:value,'%'))</code> clauses of our named queries.</p>
+     */
+    private static boolean contains(String value, String match) {
+        return (value != null) && (match != null) &&
+                value.toLowerCase().contains(match.toLowerCase());
+    }
+
+    private static <M> List<M> filtered(List<M> values, Predicate<M> predicate) {
+        return values.stream()
+                .filter(predicate)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Mutable accumulator of changes to be applied to a snapshot.  Inserted or
+     * updated models are copied (so that callers are free to keep using the
+     * originals), and nested references to authors and books are re-linked
+     * wherever they appear.  Removals cascade in the same way that the
+     * <code>CascadeType.REMOVE</code> relationships of the entities do.</p>
+     *
+     * <p>Only the changes are recorded (by model type), and the snapshot the
+     * builder started from is left untouched.  Adding models in dependency order
+     * (authors, books, anthologies, series, members, and then stories) keeps the
+     * re-linking of dependents cheap.</p>
+     *
+     * <p>A builder is not thread safe.</p>
+     */
+    public static final class Builder {
+
+        private final CatalogSnapshot base;
+
+        // Changed models by ID (null for removed ones), by model type
+        private final Map<Long, Anthology> anthologies = new LinkedHashMap<>();
+        private final Map<Long, Author> authors = new LinkedHashMap<>();
+        private final Map<Long, Book> books = new LinkedHashMap<>();
+        private final Map<Long, Member> members = new LinkedHashMap<>();
+        private final Map<Long, Series> series = new LinkedHashMap<>();
+        private final Map<Long, Story> stories = new LinkedHashMap<>();
+
+        public Builder() {
+            this(EMPTY);
+        }
+
+        private Builder(CatalogSnapshot base) {
+            this.base = base;
+        }
+
+        public @NotNull CatalogSnapshot build() {
+            return new CatalogSnapshot(
+                    base.anthologies.with(anthologies),
+                    base.authors.with(authors),
+                    base.books.with(books),
+                    base.members.with(members),
+                    base.series.with(series),
+                    base.stories.with(stories));
+        }
+
+        /**
+         * <p>Add or replace the specified model.  Models of classes that are not
+         * part of the catalog are ignored.</p>
+         *
+         * @param model Model to be added or replaced
+         */
+        public @NotNull Builder put(@NotNull Model<?> model) {
+            if (model instanceof Anthology) {
+                putAnthology((Anthology) model);
+            } else if (model instanceof Author) {
+                putAuthor((Author) model);
+            } else if (model instanceof Book) {
+                putBook((Book) model);
+            } else if (model instanceof Member) {
+                putMember((Member) model);
+            } else if (model instanceof Series) {
+                putSeries((Series) model);
+            } else if (model instanceof Story) {
+                putStory((Story) model);
+            }
+            return this;
+        }
+
+        /**
+         * <p>Remove the specified model, along with all dependent models.  Models
+         * of classes that are not part of the catalog are ignored.</p>
+         *
+         * @param model Model to be removed
+         */
+        public @NotNull Builder remove(@NotNull Model<?> model) {
+            if (model instanceof Anthology) {
+                removeAnthology(model.getId());
+            } else if (model instanceof Author) {
+                removeAuthor(model.getId());
+            } else if (model instanceof Book) {
+                removeBook(model.getId());
+            } else if (model instanceof Member) {
+                members.put(model.getId(), null);
+            } else if (model instanceof Series) {
+                removeSeries(model.getId());
+            } else if (model instanceof Story) {
+                stories.put(model.getId(), null);
+            }
+            return this;
+        }
+
+        private void putAnthology(Anthology anthology) {
+            Anthology copy = anthology.clone();
+            copy.setAuthor(current(base.authors, authors, copy.getAuthorId()));
+            anthologies.put(copy.getId(), copy);
+        }
+
+        private void putAuthor(Author author) {
+            Author copy = author.clone();
+            authors.put(copy.getId(), copy);
+            for (Anthology anthology : dependents(base.anthologies, anthologies, BY_AUTHOR_ID, copy.getId())) {
+                putAnthology(anthology);
+            }
+            for (Book book : dependents(base.books, books, BY_AUTHOR_ID, copy.getId())) {
+                putBook(book);
+            }
+            for (Series item : dependents(base.series, series, BY_AUTHOR_ID, copy.getId())) {
+                putSeries(item);
+            }
+        }
+
+        private void putBook(Book book) {
+            Book copy = book.clone();
+            copy.setAuthor(current(base.authors, authors, copy.getAuthorId()));
+            books.put(copy.getId(), copy);
+            for (Member member : dependents(base.members, members, MEMBERS_BY_BOOK_ID, copy.getId())) {
+                putMember(member);
+            }
+            for (Story story : dependents(base.stories, stories, STORIES_BY_BOOK_ID, copy.getId())) {
+                putStory(story);
+            }
+        }
+
+        private void putMember(Member member) {
+            Member copy = member.clone();
+            copy.setBook(current(base.books, books, copy.getBookId()));
+            members.put(copy.getId(), copy);
+        }
+
+        private void putSeries(Series item) {
+            Series copy = item.clone();
+            copy.setAuthor(current(base.authors, authors, copy.getAuthorId()));
+            series.put(copy.getId(), copy);
+        }
+
+        private void putStory(Story story) {
+            Story copy = story.clone();
+            copy.setBook(current(base.books, books, copy.getBookId()));
+            stories.put(copy.getId(), copy);
+        }
+
+        private void removeAnthology(Long id) {
+            anthologies.put(id, null);
+            for (Story story : dependents(base.stories, stories, STORIES_BY_ANTHOLOGY_ID, id)) {
+                stories.put(story.getId(), null);
+            }
+        }
+
+        private void removeAuthor(Long id) {
+            authors.put(id, null);
+            for (Anthology anthology : dependents(base.anthologies, anthologies, BY_AUTHOR_ID, id)) {
+                removeAnthology(anthology.getId());
+            }
+            for (Book book : dependents(base.books, books, BY_AUTHOR_ID, id)) {
+                removeBook(book.getId());
+            }
+            for (Series item : dependents(base.series, series, BY_AUTHOR_ID, id)) {
+                removeSeries(item.getId());
+            }
+        }
+
+        private void removeBook(Long id) {
+            books.put(id, null);
+            for (Member member : dependents(base.members, members, MEMBERS_BY_BOOK_ID, id)) {
+                members.put(member.getId(), null);
+            }
+            for (Story story : dependents(base.stories, stories, STORIES_BY_BOOK_ID, id)) {
+                stories.put(story.getId(), null);
+            }
+        }
+
+        private void removeSeries(Long id) {
+            series.put(id, null);
+            for (Member member : dependents(base.members, members, MEMBERS_BY_SERIES_ID, id)) {
+                members.put(member.getId(), null);
+            }
+        }
+
+        /**
+         * <p>Return the current version of the model with the specified ID, taking
+         * the changes so far into account.</p>
+         */
+        private static <M extends Model<M>> M current
+                (CatalogIndex<M> index, Map<Long, M> changes, Long id) {
+            return changes.containsKey(id) ? changes.get(id) : index.get(id);
+        }
+
+        /**
+         * <p>Return the current models whose specified key is the specified ID,
+         * taking the changes so far into account.</p>
+         */
+        private static <M extends Model<M>> List<M> dependents
+                (CatalogIndex<M> index, Map<Long, M> changes, int key, Long id) {
+            List<M> results = new ArrayList<>();
+            for (M model : index.group(key, id)) {
+                if (!changes.containsKey(model.getId())) {
+                    results.add(model);
+                }
+            }
+            for (M model : changes.values()) {
+                if ((model != null) && id.equals(index.key(key).apply(model))) {
+                    results.add(model);
+                }
+            }
+            return results;
+        }
+
+    }
+
+}
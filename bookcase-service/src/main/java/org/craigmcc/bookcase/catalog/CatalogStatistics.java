@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.catalog;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * <p>Summary of the incrementally maintained catalog counters.</p>
+ */
+@Schema(
+        description = "Summary counts of books in the catalog.",
+        name = "CatalogStatistics"
+)
+public class CatalogStatistics {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final long books;
+    private final Map<String, Long> booksByLocation;
+    private final long drift;
+    private final long readBooks;
+    private final LocalDateTime reconciled;
+    private final Map<String, Long> unreadBooksByLocation;
+
+    // Constructors ----------------------------------------------------------
+
+    public CatalogStatistics(
+            long books,
+            Map<String, Long> booksByLocation,
+            long drift,
+            long readBooks,
+            LocalDateTime reconciled,
+            Map<String, Long> unreadBooksByLocation
+    ) {
+        this.books = books;
+        this.booksByLocation = booksByLocation;
+        this.drift = drift;
+        this.readBooks = readBooks;
+        this.reconciled = reconciled;
+        this.unreadBooksByLocation = unreadBooksByLocation;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "Total number of books.")
+    public long getBooks() {
+        return books;
+    }
+
+    @Schema(description = "Number of books in each location, keyed by location name " +
+            "(NONE for books without a location).")
+    public Map<String, Long> getBooksByLocation() {
+        return booksByLocation;
+    }
+
+    @Schema(description = "Number of counters that differed from the database at the last reconciliation.")
+    public long getDrift() {
+        return drift;
+    }
+
+    @Schema(description = "Number of books that have been read.")
+    public long getReadBooks() {
+        return readBooks;
+    }
+
+    @Schema(description = "Timestamp when the counters were last reconciled with the database.")
+    public LocalDateTime getReconciled() {
+        return reconciled;
+    }
+
+    @Schema(description = "Number of books that have not been read.")
+    public long getUnreadBooks() {
+        return books - readBooks;
+    }
+
+    @Schema(description = "Number of unread books in each location, keyed by location name " +
+            "(NONE for books without a location).")
+    public Map<String, Long> getUnreadBooksByLocation() {
+        return unreadBooksByLocation;
+    }
+
+}
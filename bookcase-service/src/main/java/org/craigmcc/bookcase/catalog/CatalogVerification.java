@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.catalog;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Result of comparing the current {@link CatalogSnapshot} to the database.</p>
+ */
+@Schema(
+        description = "Result of comparing the in-memory catalog snapshot to the database.",
+        name = "CatalogVerification"
+)
+public class CatalogVerification {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Map<String, Integer> counts;
+    private final List<String> differences;
+    private final LocalDateTime snapshotCreated;
+    private final LocalDateTime verified;
+
+    // Constructors ----------------------------------------------------------
+
+    public CatalogVerification(
+            Map<String, Integer> counts,
+            List<String> differences,
+            LocalDateTime snapshotCreated,
+            LocalDateTime verified
+    ) {
+        this.counts = counts;
+        this.differences = differences;
+        this.snapshotCreated = snapshotCreated;
+        this.verified = verified;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "Is the snapshot consistent with the database?")
+    public boolean isConsistent() {
+        return differences.isEmpty();
+    }
+
+    @Schema(description = "Number of snapshot models of each type, keyed by entity name.")
+    public Map<String, Integer> getCounts() {
+        return counts;
+    }
+
+    @Schema(description = "Descriptions of models that are missing, extra, or stale in the snapshot.")
+    public List<String> getDifferences() {
+        return differences;
+    }
+
+    @Schema(description = "Timestamp when the verified snapshot was created.")
+    public LocalDateTime getSnapshotCreated() {
+        return snapshotCreated;
+    }
+
+    @Schema(description = "Timestamp when this verification was performed.")
+    public LocalDateTime getVerified() {
+        return verified;
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.cluster;
+
+import javax.validation.constraints.NotNull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * <p>Notice that the model object of the specified type and ID has changed,
+ * so any cached copy of it is stale.  A <code>null</code> model ID
+ * invalidates every model object of the specified type, and {@link #ALL}
+ * invalidates everything.</p>
+ *
+ * <p>Invalidations are broadcast in batches, which are encoded compactly:
+ * the IDs of each model type are sorted and written as variable length
+ * deltas, so a batch of a few hundred invalidations fits in one datagram.</p>
+ */
+public final class Invalidation {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Long modelId;
+    private final String modelType;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Invalidation of every model object of every type.</p>
+     */
+    public static final Invalidation ALL = new Invalidation("*", null);
+
+    /**
+     * <p>Version of the batch encoding.</p>
+     */
+    private static final int VERSION = 1;
+
+    // Constructors ----------------------------------------------------------
+
+    public Invalidation(@NotNull String modelType, Long modelId) {
+        this.modelType = Objects.requireNonNull(modelType);
+        this.modelId = modelId;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public Long getModelId() {
+        return modelId;
+    }
+
+    public String getModelType() {
+        return modelType;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof Invalidation)) {
+            return false;
+        }
+        Invalidation that = (Invalidation) object;
+        return modelType.equals(that.modelType) && Objects.equals(modelId, that.modelId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(modelType, modelId);
+    }
+
+    @Override
+    public String toString() {
+        return "Invalidation{modelType=" + modelType + ", modelId=" + modelId + "}";
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Decode a batch of invalidations written by <code>encode()</code>.</p>
+     *
+     * @param bytes Encoded batch
+     *
+     * @throws IOException If the batch is truncated or of an unknown version
+     */
+    public static @NotNull Set<Invalidation> decode(@NotNull byte[] bytes) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown invalidation batch version " + version);
+        }
+        Set<Invalidation> invalidations = new LinkedHashSet<>();
+        int types = readVarLong(input).intValue();
+        for (int i = 0; i < types; i++) {
+            String modelType = input.readUTF();
+            int count = readVarLong(input).intValue();
+            if (count == 0) {
+                invalidations.add(new Invalidation(modelType, null));
+            }
+            long modelId = 0L;
+            for (int j = 0; j < count; j++) {
+                modelId += readVarLong(input);
+                invalidations.add(new Invalidation(modelType, modelId));
+            }
+        }
+        return invalidations;
+    }
+
+    /**
+     * <p>Encode a batch of invalidations.  Invalidations of a whole model
+     * type supersede those of individual model objects of that type.</p>
+     *
+     * @param invalidations Invalidations to be encoded
+     */
+    public static @NotNull byte[] encode(@NotNull Collection<Invalidation> invalidations) {
+        Map<String, SortedSet<Long>> modelIds = new LinkedHashMap<>();
+        Set<String> modelTypes = new HashSet<>();
+        for (Invalidation invalidation : invalidations) {
+            SortedSet<Long> ids = modelIds.computeIfAbsent(invalidation.modelType, k -> new TreeSet<>());
+            if (invalidation.modelId != null) {
+                ids.add(invalidation.modelId);
+            } else {
+                modelTypes.add(invalidation.modelType);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(VERSION);
+            writeVarLong(output, modelIds.size());
+            for (Map.Entry<String, SortedSet<Long>> entry : modelIds.entrySet()) {
+                output.writeUTF(entry.getKey());
+                if (modelTypes.contains(entry.getKey())) {
+                    writeVarLong(output, 0L);
+                    continue;
+                }
+                writeVarLong(output, entry.getValue().size());
+                long previous = 0L;
+                for (Long id : entry.getValue()) {
+                    writeVarLong(output, id - previous);
+                    previous = id;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Cannot happen writing to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static Long readVarLong(DataInputStream input) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+}
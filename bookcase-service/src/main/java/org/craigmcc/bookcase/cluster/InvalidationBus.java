@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.cluster;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Broadcasts {@link Invalidation}s to the other members of a cluster, and
+ * passes the invalidations they broadcast to a listener.</p>
+ *
+ * <p>Bursts are coalesced: the first invalidation published after a flush
+ * schedules the next flush <code>linger</code> milliseconds later, and every
+ * invalidation published until then joins the same batch (duplicates are
+ * dropped).  If a batch grows beyond <code>maxPending</code> invalidations,
+ * it is replaced by {@link Invalidation#ALL}, because refreshing everything
+ * once is cheaper than refreshing that many objects one by one.  A batch
+ * that cannot be sent is merged into the next one.</p>
+ *
+ * <p>Listeners are called on transport threads, and should hand the work
+ * off rather than block.</p>
+ */
+public class InvalidationBus implements AutoCloseable {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final long linger;
+
+    private final Consumer<Set<Invalidation>> listener;
+
+    private final Object lock = new Object();
+
+    private final int maxPending;
+
+    private Set<Invalidation> pending = new LinkedHashSet<>();
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong received = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong sent = new AtomicLong();
+
+    private final InvalidationTransport transport;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(InvalidationBus.class.getSimpleName());
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Create a bus that has not yet joined the cluster.</p>
+     *
+     * @param transport Group communication with the other members
+     * @param scheduler Executor that runs the delayed flushes
+     * @param linger Milliseconds to collect invalidations into one batch
+     * @param maxPending Maximum invalidations per batch before replacing
+     *                   them with {@link Invalidation#ALL}
+     * @param listener Listener for invalidations from other members
+     */
+    public InvalidationBus(
+            @NotNull InvalidationTransport transport,
+            @NotNull ScheduledExecutorService scheduler,
+            long linger,
+            int maxPending,
+            @NotNull Consumer<Set<Invalidation>> listener
+    ) {
+        this.transport = transport;
+        this.scheduler = scheduler;
+        this.linger = linger;
+        this.maxPending = maxPending;
+        this.listener = listener;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    /**
+     * <p>Return the number of cluster members currently visible.</p>
+     */
+    public int getMembers() {
+        return transport.getMembers();
+    }
+
+    /**
+     * <p>Return the number of invalidations published by this member.</p>
+     */
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * <p>Return the number of invalidations received from other members.</p>
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * <p>Return the number of batches sent to other members.</p>
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Send any pending invalidations and leave the cluster.</p>
+     */
+    @Override
+    public void close() {
+        flush();
+        transport.close();
+    }
+
+    /**
+     * <p>Send the pending invalidations (if any) immediately.</p>
+     */
+    public void flush() {
+        Set<Invalidation> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashSet<>();
+        }
+        try {
+            transport.send(Invalidation.encode(batch));
+            sent.incrementAndGet();
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, String.format(
+                    "Cannot send %d invalidations, retrying after %d ms", batch.size(), linger), e);
+            for (Invalidation invalidation : batch) {
+                add(invalidation);
+            }
+        }
+    }
+
+    /**
+     * <p>Publish the specified invalidation to the other members, in the
+     * batch that will be sent at the next flush.</p>
+     *
+     * @param invalidation Invalidation to be published
+     */
+    public void publish(@NotNull Invalidation invalidation) {
+        published.incrementAndGet();
+        add(invalidation);
+    }
+
+    /**
+     * <p>Join the cluster.</p>
+     *
+     * @throws Exception If the cluster cannot be joined
+     */
+    public void start() throws Exception {
+        transport.start(this::receive, () ->
+                listener.accept(Collections.singleton(Invalidation.ALL)));
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void add(Invalidation invalidation) {
+        boolean schedule;
+        synchronized (lock) {
+            schedule = pending.isEmpty();
+            if (!pending.contains(Invalidation.ALL)) {
+                pending.add(invalidation);
+                if (pending.size() > maxPending) {
+                    pending.clear();
+                    pending.add(Invalidation.ALL);
+                }
+            }
+        }
+        if (schedule) {
+            scheduler.schedule(this::flush, linger, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void receive(byte[] payload) {
+        Set<Invalidation> invalidations;
+        try {
+            invalidations = Invalidation.decode(payload);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Cannot decode invalidations, refreshing everything", e);
+            invalidations = Collections.singleton(Invalidation.ALL);
+        }
+        received.addAndGet(invalidations.size());
+        listener.accept(invalidations);
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.cluster;
+
+import javax.validation.constraints.NotNull;
+import java.util.function.Consumer;
+
+/**
+ * <p>Group communication used by an {@link InvalidationBus} to broadcast
+ * encoded batches of invalidations to every other member of the cluster.
+ * Implementations must not deliver a member's own messages back to it.</p>
+ */
+public interface InvalidationTransport extends AutoCloseable {
+
+    /**
+     * <p>Leave the cluster and release all resources.</p>
+     */
+    @Override
+    void close();
+
+    /**
+     * <p>Return the number of cluster members (including this one) currently
+     * visible to this member.</p>
+     */
+    int getMembers();
+
+    /**
+     * <p>Broadcast the specified encoded batch to the other members.</p>
+     *
+     * @param payload Encoded batch of invalidations
+     *
+     * @throws Exception If the batch cannot be sent
+     */
+    void send(@NotNull byte[] payload) throws Exception;
+
+    /**
+     * <p>Join the cluster.  Batches received from other members are passed
+     * to <code>receiver</code>.  If this member may have missed batches (for
+     * example, when a network partition heals), <code>resync</code> is run,
+     * and should treat every cached object as stale.</p>
+     *
+     * @param receiver Consumer of received batches
+     * @param resync Action to run after batches may have been missed
+     *
+     * @throws Exception If the cluster cannot be joined
+     */
+    void start(@NotNull Consumer<byte[]> receiver, @NotNull Runnable resync) throws Exception;
+
+}
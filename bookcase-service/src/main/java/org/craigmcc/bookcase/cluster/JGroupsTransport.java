@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.cluster;
+
+import org.jgroups.JChannel;
+import org.jgroups.MergeView;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+import org.jgroups.View;
+
+import javax.validation.constraints.NotNull;
+import java.util.function.Consumer;
+
+/**
+ * <p>{@link InvalidationTransport} over a JGroups channel (JGroups is shipped
+ * with WildFly as the <code>org.jgroups</code> module).  Batches are
+ * multicast to the whole cluster, and a merge view (after a network partition
+ * heals) triggers a resync, because members on either side may have missed
+ * each other's batches.</p>
+ */
+public class JGroupsTransport implements InvalidationTransport {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final JChannel channel;
+
+    private final String clusterName;
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Create a transport over the specified channel, which has not yet
+     * been connected.</p>
+     *
+     * @param channel Unconnected channel
+     * @param clusterName Name of the cluster to join
+     */
+    public JGroupsTransport(@NotNull JChannel channel, @NotNull String clusterName) {
+        this.channel = channel;
+        this.clusterName = clusterName;
+    }
+
+    /**
+     * <p>Create a transport over a channel with the specified protocol stack
+     * configuration.</p>
+     *
+     * @param stack Protocol stack configuration (file or resource name, such
+     *              as <code>udp.xml</code> or <code>tcp.xml</code>)
+     * @param clusterName Name of the cluster to join
+     *
+     * @throws Exception If the protocol stack cannot be created
+     */
+    public JGroupsTransport(@NotNull String stack, @NotNull String clusterName) throws Exception {
+        this(new JChannel(stack), clusterName);
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void close() {
+        channel.close();
+    }
+
+    @Override
+    public int getMembers() {
+        View view = channel.getView();
+        return (view != null) ? view.size() : 0;
+    }
+
+    @Override
+    public void send(@NotNull byte[] payload) throws Exception {
+        channel.send(new Message(null, payload));
+    }
+
+    @Override
+    public void start(@NotNull Consumer<byte[]> receiver, @NotNull Runnable resync) throws Exception {
+        channel.setDiscardOwnMessages(true);
+        channel.setReceiver(new ReceiverAdapter() {
+            @Override
+            public void receive(Message message) {
+                receiver.accept(message.getBuffer());
+            }
+            @Override
+            public void viewAccepted(View view) {
+                if (view instanceof MergeView) {
+                    resync.run();
+                }
+            }
+        });
+        channel.connect(clusterName);
+    }
+
+}
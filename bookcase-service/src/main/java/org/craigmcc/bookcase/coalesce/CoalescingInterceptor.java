@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.coalesce;
+
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.service.CoalescingService;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>Interceptor that coalesces concurrent identical calls to {@link Coalesced}
+ * service methods, keyed by the service class, the method, the argument
+ * values, and the current tenant (whose rows alone the call sees), so that they share a single execution (see {@link SingleFlight}).
+ * Calls made inside a transaction are never coalesced, because they must see
+ * that transaction's own uncommitted changes.  Coalesced callers receive the
+ * very same result objects (see {@link Coalesced}), so code that modifies a
+ * found entity must find it inside its own transaction.</p>
+ *
+ * <p>This interceptor runs outside {@link org.craigmcc.bookcase.statistics.SlowQueryInterceptor},
+ * so only calls that actually execute are timed.</p>
+ */
+@Coalesced
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION - 10)
+public class CoalescingInterceptor {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private CoalescingService coalescingService;
+
+    // Interceptor Methods ---------------------------------------------------
+
+    @AroundInvoke
+    public Object coalesce(InvocationContext context) throws Exception {
+        Method method = context.getMethod();
+        if (!isCoalesced(method) || !coalescingService.isCoalescing()) {
+            return context.proceed();
+        }
+        return coalescingService.execute(
+                new Key(context.getTarget().getClass(), method, context.getParameters(),
+                        TenantContext.current()),
+                context::proceed);
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    /**
+     * <p>Return true if calls to the specified method should be coalesced.</p>
+     *
+     * @param method Method being called
+     */
+    static boolean isCoalesced(Method method) {
+        return method.isAnnotationPresent(Coalesced.class) ||
+                method.getName().startsWith("find");
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Identity of a call, for the purposes of coalescing.</p>
+     */
+    static final class Key {
+
+        private final Object[] arguments;
+        private final int hashCode;
+        private final Method method;
+        private final Class<?> target;
+        private final String tenantId;
+
+        Key(Class<?> target, Method method, Object[] arguments, String tenantId) {
+            this.arguments = (arguments != null) ? arguments : new Object[0];
+            this.method = method;
+            this.target = target;
+            this.tenantId = tenantId;
+            this.hashCode = Objects.hash(target, method, Arrays.deepHashCode(this.arguments), tenantId);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) object;
+            return (this.hashCode == that.hashCode) &&
+                    this.target.equals(that.target) &&
+                    this.method.equals(that.method) &&
+                    Objects.equals(this.tenantId, that.tenantId) &&
+                    Arrays.deepEquals(this.arguments, that.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return target.getSimpleName() + "." + method.getName();
+        }
+
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.coalesce;
+
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Runs at most one execution of a piece of work per key at a time.  The
+ * first caller for a key (the leader) executes the work; callers arriving
+ * while it is in flight wait for, and share, the leader's result or
+ * exception.  If a result TTL is set, a successful result keeps being
+ * returned to callers for that long after it completes.</p>
+ *
+ * <p>Results are shared, not copied: every caller of a flight receives the
+ * same result object (for service calls, the same list of the same detached
+ * entities), so callers must treat results as read only.</p>
+ *
+ * <p>Keys must implement <code>equals()</code> and <code>hashCode()</code>.
+ * This class is thread safe.</p>
+ */
+public class SingleFlight {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final AtomicLong cachedCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private final AtomicLong executedCount = new AtomicLong();
+
+    private final Map<Object, Flight> flights = new ConcurrentHashMap<>();
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Number of retained results above which expired results are swept
+     * out whenever another result is retained.</p>
+     */
+    static final int SWEEP_THRESHOLD = 1024;
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Forget all executions in flight and retained results, so that the
+     * next caller for each key executes its work again.  Callers already
+     * waiting for an execution in flight still share its result.</p>
+     */
+    public void clear() {
+        flights.clear();
+    }
+
+    /**
+     * <p>Return the result of the specified work, executing it only if no
+     * execution for the same key is in flight (or retained).</p>
+     *
+     * @param key Key identifying equivalent work
+     * @param ttl Milliseconds to retain a successful result (zero for none)
+     * @param work Work to be executed
+     *
+     * @throws Exception If the work (executed by this or another caller)
+     *  threw an exception
+     */
+    public Object execute(@NotNull Object key, long ttl, @NotNull Callable<Object> work)
+            throws Exception {
+
+        Flight flight = flights.get(key);
+        if ((flight != null) && flight.isExpired(System.nanoTime())) {
+            flights.remove(key, flight);
+            flight = null;
+        }
+        if (flight == null) {
+            Flight mine = new Flight();
+            flight = flights.putIfAbsent(key, mine);
+            if (flight == null) {
+                return lead(key, ttl, mine, work);
+            }
+        }
+
+        if (flight.isDone()) {
+            cachedCount.incrementAndGet();
+        } else {
+            coalescedCount.incrementAndGet();
+        }
+        return flight.await();
+
+    }
+
+    /**
+     * <p>Return the number of calls answered by a retained result.</p>
+     */
+    public long getCachedCount() {
+        return cachedCount.get();
+    }
+
+    /**
+     * <p>Return the number of calls that shared an execution in flight.</p>
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * <p>Return the number of calls that actually executed their work.</p>
+     */
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * <p>Return the number of executions in flight plus retained results.</p>
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Object lead(Object key, long ttl, Flight flight, Callable<Object> work)
+            throws Exception {
+        executedCount.incrementAndGet();
+        boolean retained = false;
+        try {
+            Object result = work.call();
+            flight.complete(result, ttl);
+            retained = ttl > 0;
+            return result;
+        } catch (Throwable t) {
+            flight.fail(t);
+            throw t;
+        } finally {
+            if (!retained) {
+                flights.remove(key, flight);
+            } else if (flights.size() > SWEEP_THRESHOLD) {
+                long now = System.nanoTime();
+                flights.values().removeIf(f -> f.isExpired(now));
+            }
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>One execution of the work for a key, in flight or completed.</p>
+     */
+    private static final class Flight {
+
+        private volatile long expires = Long.MAX_VALUE;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        Object await() throws Exception {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw (Exception) cause;
+            }
+        }
+
+        void complete(Object result, long ttl) {
+            expires = System.nanoTime() + (Math.max(ttl, 0L) * 1_000_000L);
+            future.complete(result);
+        }
+
+        void fail(Throwable cause) {
+            expires = System.nanoTime();
+            future.completeExceptionally(cause);
+        }
+
+        boolean isDone() {
+            return future.isDone();
+        }
+
+        boolean isExpired(long now) {
+            return future.isDone() && (now - expires >= 0);
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.event;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Size and range of one time partition of the {@link MutatedModelEvent}
+ * table.</p>
+ */
+@Schema(
+        description = "Size and range of one time partition of the mutated model events.",
+        name = "EventPartition"
+)
+public class EventPartition {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final long bytes;
+    private final LocalDateTime from;
+    private final String name;
+    private final long rows;
+    private final LocalDateTime to;
+
+    // Constructors ----------------------------------------------------------
+
+    public EventPartition(
+            long bytes,
+            LocalDateTime from,
+            String name,
+            long rows,
+            LocalDateTime to
+    ) {
+        this.bytes = bytes;
+        this.from = from;
+        this.name = name;
+        this.rows = rows;
+        this.to = to;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "Total size on disk, including indexes.")
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Schema(description = "Inclusive lower bound of the 'updated' timestamps of events in this partition.")
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    @Schema(description = "Database table name of this partition.")
+    public String getName() {
+        return name;
+    }
+
+    @Schema(description = "Estimated number of events, as of the last database analyze.")
+    public long getRows() {
+        return rows;
+    }
+
+    @Schema(description = "Exclusive upper bound of the 'updated' timestamps of events in this partition.")
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.event;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.craigmcc.bookcase.export.ExportSection;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.library.model.Model;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
+
+/**
+ * <p>Replayable serialized form of the model object documented by a
+ * {@link MutatedModelEvent}.  The payload is a flat JSON object holding the
+ * same columns that a bulk export writes for the model's entity type (see
+ * {@link ExportSection}), so that projections can be rebuilt from the event
+ * table alone.  Models that belong to a tenant also record its
+ * <code>tenantId</code>, so that replays can be limited to one tenant.</p>
+ */
+public final class EventPayloads {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /**
+     * <p>Property getters of each model class, in export column order
+     * (empty for classes whose type is not exported).</p>
+     */
+    private static final Map<Class<?>, Map<String, Method>> GETTERS = new ConcurrentHashMap<>();
+
+    // Constructors ----------------------------------------------------------
+
+    private EventPayloads() { }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the fields of the specified payload, or an empty map if
+     * there is no payload.  Integral numbers are returned as
+     * <code>Long</code>s, and other scalars as <code>Boolean</code>s or
+     * <code>String</code>s.</p>
+     *
+     * @param payload Payload previously returned by <code>write()</code>
+     */
+    public static @NotNull Map<String, Object> read(String payload) {
+        if (payload == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> fields = new HashMap<>();
+        try (JsonParser parser = FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("payload: Must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NUMBER_INT) {
+                    fields.put(name, parser.getLongValue());
+                } else if ((token == JsonToken.VALUE_TRUE) || (token == JsonToken.VALUE_FALSE)) {
+                    fields.put(name, parser.getBooleanValue());
+                } else if (token != JsonToken.VALUE_NULL) {
+                    fields.put(name, parser.getText());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return fields;
+    }
+
+    /**
+     * <p>Return the type name (which is also the entity name) of the
+     * specified model object.</p>
+     *
+     * @param model Model object whose type to return
+     */
+    public static @NotNull String type(@NotNull Model model) {
+        return model.getClass().getSimpleName();
+    }
+
+    /**
+     * <p>Return the payload documenting the current state of the specified
+     * model object, or <code>null</code> if its type is not exported.</p>
+     *
+     * @param model Model object to serialize
+     */
+    public static String write(@NotNull Model model) {
+        Map<String, Method> getters =
+                GETTERS.computeIfAbsent(model.getClass(), EventPayloads::getters);
+        if (getters.isEmpty()) {
+            return null;
+        }
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, Method> entry : getters.entrySet()) {
+                Object value = entry.getValue().invoke(model);
+                if (value == null) {
+                    continue;
+                }
+                generator.writeFieldName(entry.getKey());
+                if (value instanceof Boolean) {
+                    generator.writeBoolean((Boolean) value);
+                } else if (value instanceof Integer) {
+                    generator.writeNumber((Integer) value);
+                } else if (value instanceof Long) {
+                    generator.writeNumber((Long) value);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            String tenantId = TenantContext.tenantOf(model);
+            if (tenantId != null) {
+                generator.writeStringField(TENANT_ID_COLUMN, tenantId);
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("payload: Cannot read " + type(model), e);
+        }
+        return writer.toString();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Resolve the getters of the exported columns of the specified model
+     * class.</p>
+     */
+    private static Map<String, Method> getters(Class<?> modelClass) {
+        Map<String, Method> getters = new LinkedHashMap<>();
+        for (ExportSection section : ExportSection.SECTIONS) {
+            if (section.getType().equals(modelClass.getSimpleName())) {
+                for (String column : section.getColumns()) {
+                    getters.put(column, getter(modelClass, column));
+                }
+            }
+        }
+        return getters;
+    }
+
+    private static Method getter(Class<?> modelClass, String column) {
+        String suffix = Character.toUpperCase(column.charAt(0)) + column.substring(1);
+        for (String prefix : List.of("get", "is")) {
+            try {
+                return modelClass.getMethod(prefix + suffix);
+            } catch (NoSuchMethodException e) {
+                /* Try the next prefix */
+            }
+        }
+        throw new IllegalStateException("payload: No getter for " +
+                modelClass.getSimpleName() + "." + column);
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.event;
+
+import org.craigmcc.library.model.Model;
+
+/**
+ * <p>Event denoting that a {@link Model} object was mutated on another member
+ * of the cluster, so that in-memory caches of it on this member are stale.
+ * Unlike {@link MutatedModelEvent}, this event is fired outside of any
+ * transaction, and is not recorded or relayed.</p>
+ *
+ * <p>The source is the current state of the model object (loaded after the
+ * other member committed), or, if it has been deleted, an otherwise empty
+ * instance with only its ID set.  If the source is <code>null</code>, every
+ * cached model object is stale, and caches should be rebuilt.</p>
+ */
+public class InvalidatedModelEvent {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final boolean deleted;
+
+    private final Model<?> source;
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Create an event invalidating every model object.</p>
+     */
+    public InvalidatedModelEvent() {
+        this(null, false);
+    }
+
+    public InvalidatedModelEvent(Model<?> source, boolean deleted) {
+        this.source = source;
+        this.deleted = deleted;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public Model<?> getSource() {
+        return source;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.craigmcc.bookcase.event;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -28,22 +29,44 @@ import javax.persistence.AccessType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Index;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 import java.util.Comparator;
+import java.util.Map;
 
 import static org.craigmcc.bookcase.model.Constants.MUTATED_MODEL_EVENT_TABLE;
 
 @Entity
 @Table(
         indexes = {
-                @Index(columnList = "updated ASC")
+                @Index(
+                        columnList = "updated ASC, id ASC",
+                        name = "IX_" + MUTATED_MODEL_EVENT_TABLE + "_updated"
+                )
         },
         name = MUTATED_MODEL_EVENT_TABLE
 )
 @Access(AccessType.FIELD)
+@NamedQueries({
+        @NamedQuery(
+                name = "MutatedModelEvent.findAfter",
+                query = "SELECT e FROM MutatedModelEvent e" +
+                        " WHERE (e.updated > :updated OR (e.updated = :updated AND e.id > :id))" +
+                        " AND e.updated < :before" +
+                        " ORDER BY e.updated, e.id"
+        ),
+        @NamedQuery(
+                name = "MutatedModelEvent.findFirst",
+                query = "SELECT e FROM MutatedModelEvent e" +
+                        " WHERE e.updated < :before" +
+                        " ORDER BY e.updated, e.id"
+        )
+})
 @Schema(
         description = "Mutated state event to be persisted (ordered by 'updated' property).",
         name = "MutatedModelEvent"
@@ -52,13 +75,42 @@ public class MutatedModelEvent extends Model<MutatedModelEvent> {
 
     // Instance Variables ----------------------------------------------------
 
+    /**
+     * <p>Fields of the payload, parsed on first use.</p>
+     */
+    @JsonIgnore
+    @Schema(hidden = true)
+    @Transient
+    private Map<String, Object> fields;
+
     @Column(
             columnDefinition = "TEXT",
             nullable = false
     )
     @Schema(description = "Object whose mutated state is documented by this event.")
     @NotBlank(message = "model: Required and must not be blank")
-    private String model;  // TODO - convert to serialized form?
+    private String model;
+
+    @Schema(description = "ID of the model object whose mutated state is documented by this event.")
+    private Long modelId;
+
+    @Schema(description = "Type (entity name) of the model object whose mutated state is documented by this event.")
+    private String modelType;
+
+    @Column(
+            columnDefinition = "TEXT"
+    )
+    @Schema(description = "Replayable JSON serialization of the mutated state (absent for events " +
+            "recorded before payloads were introduced).")
+    private String payload;
+
+    /**
+     * <p>The mutated model object itself, available only to in-process observers.</p>
+     */
+    @JsonIgnore
+    @Schema(hidden = true)
+    @Transient
+    private Model source;
 
     @Column(
             nullable = false
@@ -81,14 +133,18 @@ public class MutatedModelEvent extends Model<MutatedModelEvent> {
             @NotNull Model model,
             @NotNull Type type
     ) {
-        this.model = model.toString();  // TODO - serialized format?
+        this.model = model.toString();
+        this.modelId = model.getId();
+        this.modelType = EventPayloads.type(model);
+        this.payload = EventPayloads.write(model);
+        this.source = model;
         this.type = type;
         setPublished(LocalDateTime.now());
         setUpdated(getPublished());
     }
 
     public MutatedModelEvent(
-            @NotNull String model,      // TODO - serialized format?
+            @NotNull String model,
             @NotNull Type type
     ) {
         this.model = model;
@@ -99,6 +155,16 @@ public class MutatedModelEvent extends Model<MutatedModelEvent> {
 
     // Property Methods ------------------------------------------------------
 
+    /**
+     * <p>Return the fields of the payload (see {@link EventPayloads#read(String)}).</p>
+     */
+    public Map<String, Object> getFields() {
+        if (fields == null) {
+            fields = EventPayloads.read(payload);
+        }
+        return fields;
+    }
+
     public String getModel() {
         return model;
     }
@@ -107,6 +173,35 @@ public class MutatedModelEvent extends Model<MutatedModelEvent> {
         this.model = model;
     }
 
+    public Long getModelId() {
+        return modelId;
+    }
+
+    public void setModelId(Long modelId) {
+        this.modelId = modelId;
+    }
+
+    public String getModelType() {
+        return modelType;
+    }
+
+    public void setModelType(String modelType) {
+        this.modelType = modelType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+        this.fields = null;
+    }
+
+    public Model getSource() {
+        return source;
+    }
+
     public Type getType() {
         return type;
     }
@@ -120,6 +215,9 @@ public class MutatedModelEvent extends Model<MutatedModelEvent> {
     @Override
     public void copy(MutatedModelEvent that) {
         this.model = that.model;
+        this.modelId = that.modelId;
+        this.modelType = that.modelType;
+        setPayload(that.payload);
         this.type = that.type;
     }
 
@@ -132,6 +230,9 @@ public class MutatedModelEvent extends Model<MutatedModelEvent> {
         return new EqualsBuilder()
                 .appendSuper(super.equals(that))
                 .append(this.model, that.model)
+                .append(this.modelId, that.modelId)
+                .append(this.modelType, that.modelType)
+                .append(this.payload, that.payload)
                 .append(this.type, that.type)
                 .isEquals();
     }
@@ -141,7 +242,10 @@ public class MutatedModelEvent extends Model<MutatedModelEvent> {
         return new HashCodeBuilder()
                 .appendSuper(super.hashCode())
                 .append(this.model)
-                .append(this.model)
+                .append(this.modelId)
+                .append(this.modelType)
+                .append(this.payload)
+                .append(this.type)
                 .toHashCode();
     }
 
@@ -150,6 +254,8 @@ public class MutatedModelEvent extends Model<MutatedModelEvent> {
         return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
                 .appendSuper(super.toString())
                 .append("model", this.model)
+                .append("modelId", this.modelId)
+                .append("modelType", this.modelType)
                 .append("type", this.type)
                 .toString();
     }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.export;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>{@link ExportWriter} for the {@link ExportFormat#CSV} format.</p>
+ */
+public class CsvExportWriter implements ExportWriter {
+
+    // Instance Variables ----------------------------------------------------
+
+    private ExportSection section;
+
+    private final Writer writer;
+
+    // Constructors ----------------------------------------------------------
+
+    public CsvExportWriter(@NotNull OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void writeRow(@NotNull Object[] values) throws IOException {
+        writer.write(section.getType());
+        for (Object value : values) {
+            writer.write(',');
+            if (value != null) {
+                writeCell(value.toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void writeSection(@NotNull ExportSection section) throws IOException {
+        this.section = section;
+        writer.write(TYPE_COLUMN);
+        for (String column : section.getColumns()) {
+            writer.write(',');
+            writeCell(column);
+        }
+        writer.write("\r\n");
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Write a cell value, quoted (per RFC 4180) only when necessary.</p>
+     */
+    private void writeCell(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c == ',') || (c == '"') || (c == '\r') || (c == '\n')) {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.export;
+
+import org.craigmcc.bookcase.importer.CsvImportReader;
+import org.craigmcc.bookcase.importer.ImportReader;
+import org.craigmcc.bookcase.importer.NdjsonImportReader;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>Supported formats for bulk export (and import) of the catalog.</p>
+ */
+public enum ExportFormat {
+
+    /**
+     * <p>Comma separated values.  Each section starts with a header row
+     * whose first cell is <code>type</code>, and every data row starts with
+     * the type name of its section.</p>
+     */
+    CSV("text/csv", ".csv"),
+
+    /**
+     * <p>Newline delimited JSON.  Each line is an object with a
+     * <code>type</code> property plus the non-null columns of one row.</p>
+     */
+    NDJSON("application/x-ndjson", ".ndjson");
+
+    // Instance Variables ----------------------------------------------------
+
+    private final String extension;
+
+    private final String mediaType;
+
+    // Constructors ----------------------------------------------------------
+
+    ExportFormat(String mediaType, String extension) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the format with the specified (case insensitive) name.</p>
+     *
+     * @param name Name of the requested format
+     *
+     * @throws IllegalArgumentException If there is no such format
+     */
+    public static ExportFormat fromName(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("format: Must be 'csv' or 'ndjson', not '" + name + "'");
+    }
+
+    /**
+     * <p>Return a reader for this format on the specified input stream.</p>
+     *
+     * @param inputStream Stream from which an import will be read
+     */
+    public ImportReader reader(InputStream inputStream) {
+        return (this == CSV) ? new CsvImportReader(inputStream) : new NdjsonImportReader(inputStream);
+    }
+
+    /**
+     * <p>Return a writer for this format on the specified output stream.</p>
+     *
+     * @param outputStream Stream to which the export will be written
+     */
+    public ExportWriter writer(OutputStream outputStream) {
+        return (this == CSV) ? new CsvExportWriter(outputStream) : new NdjsonExportWriter(outputStream);
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.export;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.FIRST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.GOOGLE_ID;
+import static org.craigmcc.bookcase.model.Constants.LAST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.LOCATION_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
+import static org.craigmcc.bookcase.model.Constants.NOTES_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.ORDINAL_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.READ_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
+import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+import static org.craigmcc.library.model.Constants.PUBLISHED_COLUMN;
+import static org.craigmcc.library.model.Constants.UPDATED_COLUMN;
+import static org.craigmcc.library.model.Constants.VERSION_COLUMN;
+
+/**
+ * <p>Definition of the columns exported for one entity type.  Sections are
+ * exported in dependency order, so that every row only references rows in
+ * earlier sections.</p>
+ */
+public class ExportSection {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final List<String> columns;
+
+    private final String type;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>All sections, in dependency order.</p>
+     */
+    public static final List<ExportSection> SECTIONS = List.of(
+            new ExportSection(AUTHOR_NAME,
+                    ID_COLUMN, FIRST_NAME_COLUMN, LAST_NAME_COLUMN, NOTES_COLUMN,
+                    PUBLISHED_COLUMN, UPDATED_COLUMN, VERSION_COLUMN),
+            new ExportSection(ANTHOLOGY_NAME,
+                    ID_COLUMN, AUTHOR_ID_COLUMN, GOOGLE_ID, LOCATION_COLUMN, NOTES_COLUMN, READ_COLUMN, TITLE_COLUMN,
+                    PUBLISHED_COLUMN, UPDATED_COLUMN, VERSION_COLUMN),
+            new ExportSection(BOOK_NAME,
+                    ID_COLUMN, AUTHOR_ID_COLUMN, GOOGLE_ID, LOCATION_COLUMN, NOTES_COLUMN, READ_COLUMN, TITLE_COLUMN,
+                    PUBLISHED_COLUMN, UPDATED_COLUMN, VERSION_COLUMN),
+            new ExportSection(SERIES_NAME,
+                    ID_COLUMN, AUTHOR_ID_COLUMN, NOTES_COLUMN, TITLE_COLUMN,
+                    PUBLISHED_COLUMN, UPDATED_COLUMN, VERSION_COLUMN),
+            new ExportSection(MEMBER_NAME,
+                    ID_COLUMN, BOOK_ID_COLUMN, ORDINAL_COLUMN, SERIES_ID_COLUMN,
+                    PUBLISHED_COLUMN, UPDATED_COLUMN, VERSION_COLUMN),
+            new ExportSection(STORY_NAME,
+                    ID_COLUMN, ANTHOLOGY_ID_COLUMN, BOOK_ID_COLUMN, ORDINAL_COLUMN,
+                    PUBLISHED_COLUMN, UPDATED_COLUMN, VERSION_COLUMN)
+    );
+
+    // Constructors ----------------------------------------------------------
+
+    private ExportSection(String type, String... columns) {
+        this.columns = List.of(columns);
+        this.type = type;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    /**
+     * <p>Return the exported columns (entity attribute names), in order.</p>
+     */
+    public @NotNull List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * <p>Return the JPQL scalar projection that selects this section's
+     * columns, ordered by primary key.</p>
+     */
+    public @NotNull String getQuery() {
+        StringBuilder sb = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("x.").append(columns.get(i));
+        }
+        sb.append(" FROM ").append(type).append(" x ORDER BY x.").append(ID_COLUMN);
+        return sb.toString();
+    }
+
+    /**
+     * <p>Return the entity name of this section, which is also the value of
+     * the <code>type</code> column of its rows.</p>
+     */
+    public @NotNull String getType() {
+        return type;
+    }
+
+}
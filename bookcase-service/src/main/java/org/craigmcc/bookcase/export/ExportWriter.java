@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.export;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+
+/**
+ * <p>Streaming writer for one export format.  Rows are written as they are
+ * read from the database; nothing is retained between calls.</p>
+ */
+public interface ExportWriter {
+
+    /**
+     * <p>Name of the column identifying the section of each row.</p>
+     */
+    String TYPE_COLUMN = "type";
+
+    /**
+     * <p>Flush any buffered output to the underlying stream, without
+     * closing it.</p>
+     */
+    void flush() throws IOException;
+
+    /**
+     * <p>Write one row of the current section.</p>
+     *
+     * @param values Column values, in the order of the section's columns
+     */
+    void writeRow(@NotNull Object[] values) throws IOException;
+
+    /**
+     * <p>Start a new section, whose rows will follow.</p>
+     *
+     * @param section The section being started
+     */
+    void writeSection(@NotNull ExportSection section) throws IOException;
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * <p>{@link ExportWriter} for the {@link ExportFormat#NDJSON} format.</p>
+ */
+public class NdjsonExportWriter implements ExportWriter {
+
+    // Instance Variables ----------------------------------------------------
+
+    private List<String> columns;
+
+    private final JsonGenerator generator;
+
+    private String type;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    // Constructors ----------------------------------------------------------
+
+    public NdjsonExportWriter(@NotNull OutputStream outputStream) {
+        try {
+            this.generator = FACTORY.createGenerator(outputStream, JsonEncoding.UTF8);
+            this.generator.setRootValueSeparator(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void writeRow(@NotNull Object[] values) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField(TYPE_COLUMN, type);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            generator.writeFieldName(columns.get(i));
+            if (value instanceof Boolean) {
+                generator.writeBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                generator.writeNumber((Integer) value);
+            } else if (value instanceof Long) {
+                generator.writeNumber((Long) value);
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void writeSection(@NotNull ExportSection section) {
+        this.columns = section.getColumns();
+        this.type = section.getType();
+    }
+
+}
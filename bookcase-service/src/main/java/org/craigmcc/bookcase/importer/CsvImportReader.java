@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.craigmcc.bookcase.export.ExportWriter.TYPE_COLUMN;
+
+/**
+ * <p>{@link ImportReader} for the CSV format written by the bulk export.  A
+ * row whose first cell is <code>type</code> is a header row naming the
+ * columns of the rows that follow it; quoted cells (RFC 4180) may contain
+ * commas, quotes, and line breaks.</p>
+ */
+public class CsvImportReader implements ImportReader {
+
+    // Instance Variables ----------------------------------------------------
+
+    private List<String> columns;
+
+    private long line = 1;
+
+    private long number = 0;
+
+    private final BufferedReader reader;
+
+    // Constructors ----------------------------------------------------------
+
+    public CsvImportReader(@NotNull InputStream inputStream) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public ImportRecord next() throws IOException {
+        while (true) {
+            long start = line;
+            List<String> cells = readCells();
+            if (cells == null) {
+                return null;
+            }
+            if ((cells.size() == 1) && cells.get(0).isEmpty()) {
+                continue; // Blank line
+            }
+            if (TYPE_COLUMN.equals(cells.get(0))) {
+                columns = cells;
+                continue;
+            }
+            if (columns == null) {
+                throw new IOException("line " + start + ": Data row before any header row");
+            }
+            if (cells.size() > columns.size()) {
+                throw new IOException("line " + start + ": More cells than header columns");
+            }
+            Map<String, String> values = new HashMap<>();
+            for (int i = 1; i < cells.size(); i++) {
+                if (!cells.get(i).isEmpty()) {
+                    values.put(columns.get(i), cells.get(i));
+                }
+            }
+            return new ImportRecord(++number, start, cells.get(0), values);
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Read the cells of the next row, or return <code>null</code> at end of input.</p>
+     */
+    private List<String> readCells() throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("line " + line + ": Unterminated quoted cell");
+                } else if (c == '"') {
+                    reader.mark(1);
+                    int d = reader.read();
+                    if (d == '"') {
+                        cell.append('"');
+                    } else {
+                        quoted = false;
+                        if (d >= 0) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    cell.append((char) c);
+                }
+            } else if ((c < 0) || (c == '\n')) {
+                line++;
+                cells.add(cell.toString());
+                return cells;
+            } else if (c == '\r') {
+                // Ignored outside quotes (CRLF line endings)
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else if ((c == '"') && (cell.length() == 0)) {
+                quoted = true;
+            } else {
+                cell.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+}
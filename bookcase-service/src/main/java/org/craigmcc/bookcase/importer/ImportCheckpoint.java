@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.craigmcc.library.model.Model;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import static org.craigmcc.bookcase.model.Constants.IMPORT_CHECKPOINT_TABLE;
+
+/**
+ * <p>Durable progress of a named import, committed together with each chunk
+ * of imported rows so that a failed import can resume after the last
+ * committed row.</p>
+ */
+@Entity
+@Table(
+        name = IMPORT_CHECKPOINT_TABLE,
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        columnNames = { "name" },
+                        name = "UK_" + IMPORT_CHECKPOINT_TABLE + "_name"
+                )
+        }
+)
+@Access(AccessType.FIELD)
+@NamedQueries({
+        @NamedQuery(
+                name = "ImportCheckpoint.findByName",
+                query = "SELECT c FROM ImportCheckpoint c WHERE c.name = :name"
+        )
+})
+public class ImportCheckpoint extends Model<ImportCheckpoint> {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Column(nullable = false)
+    @NotBlank(message = "format: Required and must not be blank")
+    private String format;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    @Column(nullable = false)
+    @NotBlank(message = "name: Required and must not be blank")
+    private String name;
+
+    @Column(nullable = false)
+    @NotNull(message = "records: Required")
+    private Long records = 0L;
+
+    @Column(nullable = false)
+    @NotNull(message = "status: Required")
+    private ImportReport.Status status = ImportReport.Status.RUNNING;
+
+    // Constructors ----------------------------------------------------------
+
+    public ImportCheckpoint() { }
+
+    public ImportCheckpoint(@NotNull String name, @NotNull String format) {
+        this.format = format;
+        this.name = name;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * <p>Return the number of leading data rows of the import file that
+     * have been committed.</p>
+     */
+    public Long getRecords() {
+        return records;
+    }
+
+    public void setRecords(Long records) {
+        this.records = records;
+    }
+
+    public ImportReport.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(ImportReport.Status status) {
+        this.status = status;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void copy(ImportCheckpoint that) {
+        this.format = that.format;
+        this.message = that.message;
+        this.name = that.name;
+        this.records = that.records;
+        this.status = that.status;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof ImportCheckpoint)) {
+            return false;
+        }
+        ImportCheckpoint that = (ImportCheckpoint) object;
+        return new EqualsBuilder()
+                .appendSuper(super.equals(that))
+                .append(this.format, that.format)
+                .append(this.message, that.message)
+                .append(this.name, that.name)
+                .append(this.records, that.records)
+                .append(this.status, that.status)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .appendSuper(super.hashCode())
+                .append(this.format)
+                .append(this.message)
+                .append(this.name)
+                .append(this.records)
+                .append(this.status)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .appendSuper(super.toString())
+                .append("format", this.format)
+                .append("message", this.message)
+                .append("name", this.name)
+                .append("records", this.records)
+                .append("status", this.status)
+                .toString();
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import org.craigmcc.library.model.Model;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * <p>Result of parsing and validating one {@link ImportRecord}: either a
+ * model ready to be persisted (once its references are resolved), or the
+ * reasons the record was rejected.</p>
+ */
+public class ImportItem {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final List<String> errors;
+
+    private final Model<?> model;
+
+    private final ImportRecord record;
+
+    private final Long sourceId;
+
+    // Constructors ----------------------------------------------------------
+
+    public ImportItem(@NotNull ImportRecord record, Model<?> model, Long sourceId, @NotNull List<String> errors) {
+        this.errors = errors;
+        this.model = model;
+        this.record = record;
+        this.sourceId = sourceId;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public @NotNull List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * <p>Return the parsed model, with its references not yet resolved.</p>
+     */
+    public Model<?> getModel() {
+        return model;
+    }
+
+    public @NotNull ImportRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * <p>Return the <code>id</code> of this row in the import file, by which
+     * later rows of the same file may reference it.</p>
+     */
+    public Long getSourceId() {
+        return sourceId;
+    }
+
+    public boolean isValid() {
+        return (model != null) && errors.isEmpty();
+    }
+
+}
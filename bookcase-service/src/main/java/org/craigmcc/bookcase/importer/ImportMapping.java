@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.craigmcc.library.model.Model;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import static org.craigmcc.bookcase.model.Constants.IMPORT_MAPPING_TABLE;
+
+/**
+ * <p>Database ID assigned to a row of a named import, keyed by the row's
+ * <code>id</code> in the import file.  Committed together with the row, so
+ * that a resumed import can resolve references to rows imported before its
+ * checkpoint.  Only types that other rows can reference are recorded.</p>
+ */
+@Entity
+@Table(
+        name = IMPORT_MAPPING_TABLE,
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        columnNames = { "importName", "type", "sourceId" },
+                        name = "UK_" + IMPORT_MAPPING_TABLE + "_importName_type_sourceId"
+                )
+        }
+)
+@Access(AccessType.FIELD)
+@NamedQueries({
+        @NamedQuery(
+                name = "ImportMapping.deleteByImportName",
+                query = "DELETE FROM ImportMapping m WHERE m.importName = :importName"
+        ),
+        @NamedQuery(
+                name = "ImportMapping.findByImportName",
+                query = "SELECT m.type, m.sourceId, m.modelId FROM ImportMapping m " +
+                        "WHERE m.importName = :importName"
+        )
+})
+public class ImportMapping extends Model<ImportMapping> {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Column(nullable = false)
+    @NotBlank(message = "importName: Required and must not be blank")
+    private String importName;
+
+    @Column(nullable = false)
+    @NotNull(message = "modelId: Required")
+    private Long modelId;
+
+    @Column(nullable = false)
+    @NotNull(message = "sourceId: Required")
+    private Long sourceId;
+
+    @Column(nullable = false)
+    @NotBlank(message = "type: Required and must not be blank")
+    private String type;
+
+    // Constructors ----------------------------------------------------------
+
+    public ImportMapping() { }
+
+    public ImportMapping(
+            @NotNull String importName,
+            @NotNull String type,
+            @NotNull Long sourceId,
+            @NotNull Long modelId
+    ) {
+        this.importName = importName;
+        this.modelId = modelId;
+        this.sourceId = sourceId;
+        this.type = type;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public String getImportName() {
+        return importName;
+    }
+
+    public void setImportName(String importName) {
+        this.importName = importName;
+    }
+
+    public Long getModelId() {
+        return modelId;
+    }
+
+    public void setModelId(Long modelId) {
+        this.modelId = modelId;
+    }
+
+    public Long getSourceId() {
+        return sourceId;
+    }
+
+    public void setSourceId(Long sourceId) {
+        this.sourceId = sourceId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void copy(ImportMapping that) {
+        this.importName = that.importName;
+        this.modelId = that.modelId;
+        this.sourceId = that.sourceId;
+        this.type = that.type;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof ImportMapping)) {
+            return false;
+        }
+        ImportMapping that = (ImportMapping) object;
+        return new EqualsBuilder()
+                .appendSuper(super.equals(that))
+                .append(this.importName, that.importName)
+                .append(this.modelId, that.modelId)
+                .append(this.sourceId, that.sourceId)
+                .append(this.type, that.type)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .appendSuper(super.hashCode())
+                .append(this.importName)
+                .append(this.modelId)
+                .append(this.sourceId)
+                .append(this.type)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .appendSuper(super.toString())
+                .append("importName", this.importName)
+                .append("modelId", this.modelId)
+                .append("sourceId", this.sourceId)
+                .append("type", this.type)
+                .toString();
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Resolved references for one import, by model type: the database ID
+ * assigned to each row ID of the import file, and the database ID for each
+ * natural key (author <code>"lastName|firstName"</code>, or title) seen so
+ * far.  Not thread safe; used only by the thread running the import.</p>
+ */
+public class ImportMappings {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Map<String, Map<Long, Long>> ids = new HashMap<>();
+
+    private final Map<String, Map<String, Long>> keys = new HashMap<>();
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Marker for a natural key that matches more than one model.</p>
+     */
+    public static final Long AMBIGUOUS = -1L;
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the database ID for the specified file row ID, or
+     * <code>null</code> if that row has not been imported.</p>
+     */
+    public Long getId(@NotNull String type, @NotNull Long sourceId) {
+        Map<Long, Long> map = ids.get(type);
+        return (map != null) ? map.get(sourceId) : null;
+    }
+
+    /**
+     * <p>Return the database ID for the specified natural key,
+     * {@link #AMBIGUOUS}, or <code>null</code> if the key is unknown.</p>
+     */
+    public Long getKey(@NotNull String type, @NotNull String key) {
+        Map<String, Long> map = keys.get(type);
+        return (map != null) ? map.get(key) : null;
+    }
+
+    public void putId(@NotNull String type, @NotNull Long sourceId, @NotNull Long modelId) {
+        ids.computeIfAbsent(type, k -> new HashMap<>()).put(sourceId, modelId);
+    }
+
+    /**
+     * <p>Record the database ID for a natural key.  A key that is already
+     * recorded for a different ID becomes {@link #AMBIGUOUS}.</p>
+     */
+    public void putKey(@NotNull String type, @NotNull String key, @NotNull Long modelId) {
+        keys.computeIfAbsent(type, k -> new HashMap<>())
+                .merge(key, modelId, (o, n) -> o.equals(n) ? o : AMBIGUOUS);
+    }
+
+    /**
+     * <p>Return the natural key of an author.</p>
+     */
+    public static @NotNull String authorKey(String lastName, String firstName) {
+        return lastName + "|" + firstName;
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.library.model.Model;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.FIRST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.GOOGLE_ID;
+import static org.craigmcc.bookcase.model.Constants.LAST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.LOCATION_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
+import static org.craigmcc.bookcase.model.Constants.NOTES_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.ORDINAL_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.READ_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
+import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+import static org.craigmcc.library.model.Constants.PUBLISHED_COLUMN;
+import static org.craigmcc.library.model.Constants.UPDATED_COLUMN;
+
+/**
+ * <p>Convert {@link ImportRecord}s into models and validate them with Bean
+ * Validation.  References to other rows are resolved later (in file order),
+ * so violations on reference ID properties are ignored here.  Instances are
+ * stateless and may be shared by parallel parsing threads.</p>
+ */
+public class ImportParser {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Validator validator;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Set<String> REFERENCE_COLUMNS = Set.of
+            (ANTHOLOGY_ID_COLUMN, AUTHOR_ID_COLUMN, BOOK_ID_COLUMN, SERIES_ID_COLUMN);
+
+    // Constructors ----------------------------------------------------------
+
+    public ImportParser(@NotNull Validator validator) {
+        this.validator = validator;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public @NotNull ImportItem parse(@NotNull ImportRecord record) {
+
+        List<String> errors = new ArrayList<>();
+        Model<?> model = null;
+        Long sourceId = null;
+
+        try {
+            sourceId = toLong(record, ID_COLUMN);
+            model = toModel(record);
+            if (model == null) {
+                errors.add("type: Unknown type '" + record.getType() + "'");
+            } else {
+                model.setPublished(toLocalDateTime(record, PUBLISHED_COLUMN));
+                model.setUpdated(toLocalDateTime(record, UPDATED_COLUMN));
+                for (ConstraintViolation<?> violation : validator.validate(model)) {
+                    if (!REFERENCE_COLUMNS.contains(violation.getPropertyPath().toString())) {
+                        errors.add(violation.getMessage());
+                    }
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            errors.add(e.getMessage());
+        }
+
+        return new ImportItem(record, model, sourceId, errors);
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Boolean toBoolean(ImportRecord record, String column) {
+        String value = record.getValue(column);
+        if ((value == null) || "false".equalsIgnoreCase(value)) {
+            return (value == null) ? null : Boolean.FALSE;
+        } else if ("true".equalsIgnoreCase(value)) {
+            return Boolean.TRUE;
+        }
+        throw new IllegalArgumentException(column + ": Must be 'true' or 'false', not '" + value + "'");
+    }
+
+    private Integer toInteger(ImportRecord record, String column) {
+        String value = record.getValue(column);
+        try {
+            return (value == null) ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + ": Must be an integer, not '" + value + "'");
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(ImportRecord record, String column) {
+        String value = record.getValue(column);
+        try {
+            return (value == null) ? null : LocalDateTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(column + ": Must be an ISO date and time, not '" + value + "'");
+        }
+    }
+
+    private Book.Location toLocation(ImportRecord record) {
+        String value = record.getValue(LOCATION_COLUMN);
+        try {
+            return (value == null) ? null : Book.Location.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(LOCATION_COLUMN + ": Unknown location '" + value + "'");
+        }
+    }
+
+    private Long toLong(ImportRecord record, String column) {
+        String value = record.getValue(column);
+        try {
+            return (value == null) ? null : Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + ": Must be an integer, not '" + value + "'");
+        }
+    }
+
+    private Model<?> toModel(ImportRecord record) {
+        switch (record.getType()) {
+            case ANTHOLOGY_NAME:
+                Anthology anthology = new Anthology(null, toLocation(record), record.getValue(NOTES_COLUMN),
+                        toBoolean(record, READ_COLUMN), record.getValue(TITLE_COLUMN));
+                anthology.setGoogleId(record.getValue(GOOGLE_ID));
+                return anthology;
+            case AUTHOR_NAME:
+                return new Author(record.getValue(FIRST_NAME_COLUMN), record.getValue(LAST_NAME_COLUMN),
+                        record.getValue(NOTES_COLUMN));
+            case BOOK_NAME:
+                Book book = new Book(null, toLocation(record), record.getValue(NOTES_COLUMN),
+                        toBoolean(record, READ_COLUMN), record.getValue(TITLE_COLUMN));
+                book.setGoogleId(record.getValue(GOOGLE_ID));
+                return book;
+            case MEMBER_NAME:
+                return new Member(null, toInteger(record, ORDINAL_COLUMN), null);
+            case SERIES_NAME:
+                return new Series(null, record.getValue(NOTES_COLUMN), record.getValue(TITLE_COLUMN));
+            case STORY_NAME:
+                return new Story(null, null, toInteger(record, ORDINAL_COLUMN));
+            default:
+                return null;
+        }
+    }
+
+}
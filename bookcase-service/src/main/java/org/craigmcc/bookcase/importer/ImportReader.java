@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import java.io.IOException;
+
+/**
+ * <p>Streaming reader for one import format.  Rows are returned one at a
+ * time as they are read, so files of any size can be imported.</p>
+ */
+public interface ImportReader {
+
+    /**
+     * <p>Return the next data row, or <code>null</code> at end of input.</p>
+     *
+     * @throws IOException If the input cannot be read or is malformed
+     */
+    ImportRecord next() throws IOException;
+
+}
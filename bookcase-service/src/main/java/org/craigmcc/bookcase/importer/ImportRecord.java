@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+
+/**
+ * <p>One data row read from an import file, before it is parsed.  Values are
+ * keyed by column name; absent and empty values are omitted.</p>
+ */
+public class ImportRecord {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final long line;
+
+    private final long number;
+
+    private final String type;
+
+    private final Map<String, String> values;
+
+    // Constructors ----------------------------------------------------------
+
+    public ImportRecord(long number, long line, @NotNull String type, @NotNull Map<String, String> values) {
+        this.line = line;
+        this.number = number;
+        this.type = type;
+        this.values = values;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    /**
+     * <p>Return the line of the import file on which this row starts.</p>
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * <p>Return the one-based position of this row among all data rows of
+     * the import file (header rows are not counted).</p>
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    public @NotNull String getType() {
+        return type;
+    }
+
+    public String getValue(@NotNull String column) {
+        return values.get(column);
+    }
+
+    public @NotNull Map<String, String> getValues() {
+        return values;
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Progress and throughput of one import.  Updated by the thread running
+ * the import and read concurrently by progress requests, so all access is
+ * synchronized.</p>
+ */
+@Schema(
+        description = "Progress and throughput of a bulk import.",
+        name = "ImportReport"
+)
+public class ImportReport {
+
+    // Instance Variables ----------------------------------------------------
+
+    private long chunks = 0;
+
+    private final List<String> errors = new ArrayList<>();
+
+    private final int errorLimit;
+
+    private final String format;
+
+    private long inserted = 0;
+
+    private long matched = 0;
+
+    private String message;
+
+    private final String name;
+
+    private long read = 0;
+
+    private long rejected = 0;
+
+    private final long resumedAfter;
+
+    private final LocalDateTime started = LocalDateTime.now();
+
+    private Status status = Status.RUNNING;
+
+    private LocalDateTime updated = started;
+
+    // Constructors ----------------------------------------------------------
+
+    public ImportReport(@NotNull String name, @NotNull String format, long resumedAfter, int errorLimit) {
+        this.errorLimit = errorLimit;
+        this.format = format;
+        this.name = name;
+        this.resumedAfter = resumedAfter;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "Number of chunks committed so far.")
+    public synchronized long getChunks() {
+        return chunks;
+    }
+
+    @Schema(description = "Messages for rejected rows (limited to the first few).")
+    public synchronized List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    @Schema(description = "Format of the import file.")
+    public String getFormat() {
+        return format;
+    }
+
+    @Schema(description = "Number of rows inserted so far.")
+    public synchronized long getInserted() {
+        return inserted;
+    }
+
+    @Schema(description = "Number of author rows matched (by name) to existing authors so far.")
+    public synchronized long getMatched() {
+        return matched;
+    }
+
+    @Schema(description = "Reason the import failed, if it did.")
+    public synchronized String getMessage() {
+        return message;
+    }
+
+    @Schema(description = "Name identifying this import (and its checkpoint).")
+    public String getName() {
+        return name;
+    }
+
+    @Schema(description = "Number of rows read and processed so far (excluding skipped rows).")
+    public synchronized long getRead() {
+        return read;
+    }
+
+    @Schema(description = "Average number of rows processed per second.")
+    public synchronized long getRecordsPerSecond() {
+        long millis = Duration.between(started, updated).toMillis();
+        return (millis > 0) ? (read * 1000) / millis : read;
+    }
+
+    @Schema(description = "Number of rows rejected so far.")
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    @Schema(description = "Number of rows skipped because an earlier attempt committed them.")
+    public long getResumedAfter() {
+        return resumedAfter;
+    }
+
+    @Schema(description = "Timestamp when this import (or resumed import) started.")
+    public LocalDateTime getStarted() {
+        return started;
+    }
+
+    @Schema(description = "Current status of this import.")
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    @Schema(description = "Timestamp when this report was last updated.")
+    public synchronized LocalDateTime getUpdated() {
+        return updated;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public synchronized void chunkCommitted() {
+        chunks++;
+        updated = LocalDateTime.now();
+    }
+
+    public synchronized void completed() {
+        status = Status.COMPLETED;
+        updated = LocalDateTime.now();
+    }
+
+    public synchronized void failed(String message) {
+        this.message = message;
+        status = Status.FAILED;
+        updated = LocalDateTime.now();
+    }
+
+    public synchronized void inserted() {
+        read++;
+        inserted++;
+    }
+
+    public synchronized void matched() {
+        read++;
+        matched++;
+    }
+
+    public synchronized void rejected(@NotNull ImportRecord record, @NotNull List<String> reasons) {
+        read++;
+        rejected++;
+        if (errors.size() < errorLimit) {
+            errors.add("line " + record.getLine() + " (" + record.getType() + "): " +
+                    String.join("; ", reasons));
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    @Schema(description = "Status of an import.")
+    public enum Status {
+
+        @Schema(description = "The import finished; rejected rows are listed in the report.")
+        COMPLETED,
+
+        @Schema(description = "The import stopped after an error, and may be resumed from its checkpoint.")
+        FAILED,
+
+        @Schema(description = "The import is in progress.")
+        RUNNING
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.importer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.craigmcc.bookcase.export.ExportWriter.TYPE_COLUMN;
+
+/**
+ * <p>{@link ImportReader} for the NDJSON format written by the bulk export.
+ * Each non-blank line is a flat JSON object with a <code>type</code>
+ * property; scalar property values are converted to strings.</p>
+ */
+public class NdjsonImportReader implements ImportReader {
+
+    // Instance Variables ----------------------------------------------------
+
+    private long line = 0;
+
+    private long number = 0;
+
+    private final BufferedReader reader;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    // Constructors ----------------------------------------------------------
+
+    public NdjsonImportReader(@NotNull InputStream inputStream) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public ImportRecord next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.isBlank());
+        Map<String, String> values = new HashMap<>();
+        try (JsonParser parser = FACTORY.createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("line " + line + ": Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token.isStructStart()) {
+                    throw new IOException("line " + line + ": Nested value for '" + name + "'");
+                } else if (token != JsonToken.VALUE_NULL) {
+                    values.put(name, parser.getText());
+                }
+            }
+        }
+        String type = values.remove(TYPE_COLUMN);
+        if (type == null) {
+            throw new IOException("line " + line + ": Missing '" + TYPE_COLUMN + "' property");
+        }
+        return new ImportRecord(++number, line, type, values);
+    }
+
+}
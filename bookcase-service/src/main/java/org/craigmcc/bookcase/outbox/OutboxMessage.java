@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.outbox;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.craigmcc.library.model.Model;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+import static org.craigmcc.bookcase.model.Constants.OUTBOX_MESSAGE_TABLE;
+
+/**
+ * <p>Model mutation waiting to be relayed to the outbox JMS destination.
+ * Messages are written in the same transaction as the mutation they
+ * document, and deleted in the same transaction that sends them, so every
+ * committed mutation is delivered at least once.</p>
+ */
+@Entity
+@Table(name = OUTBOX_MESSAGE_TABLE)
+@Access(AccessType.FIELD)
+@NamedQueries({
+        @NamedQuery(
+                name = "OutboxMessage.count",
+                query = "SELECT COUNT(m) FROM OutboxMessage m"
+        ),
+        @NamedQuery(
+                name = "OutboxMessage.findFirst",
+                query = "SELECT m FROM OutboxMessage m ORDER BY m.id"
+        ),
+        @NamedQuery(
+                name = "OutboxMessage.findOldest",
+                query = "SELECT MIN(m.published) FROM OutboxMessage m"
+        )
+})
+public class OutboxMessage extends Model<OutboxMessage> {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Column(nullable = false)
+    @NotNull(message = "modelId: Required")
+    private Long modelId;
+
+    @Column(nullable = false)
+    @NotBlank(message = "modelType: Required and must not be blank")
+    private String modelType;
+
+    @Column(
+            columnDefinition = "TEXT",
+            nullable = false
+    )
+    @NotNull(message = "payload: Required")
+    private String payload;
+
+    @Column(nullable = false)
+    @NotNull(message = "type: Required")
+    private MutatedModelEvent.Type type;
+
+    // Constructors ----------------------------------------------------------
+
+    public OutboxMessage() { }
+
+    public OutboxMessage(@NotNull MutatedModelEvent event) {
+        this.modelId = event.getModelId();
+        this.modelType = event.getModelType();
+        this.payload = event.getPayload();
+        this.type = event.getType();
+        setPublished(LocalDateTime.now());
+        setUpdated(getPublished());
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public Long getModelId() {
+        return modelId;
+    }
+
+    public void setModelId(Long modelId) {
+        this.modelId = modelId;
+    }
+
+    public String getModelType() {
+        return modelType;
+    }
+
+    public void setModelType(String modelType) {
+        this.modelType = modelType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public MutatedModelEvent.Type getType() {
+        return type;
+    }
+
+    public void setType(MutatedModelEvent.Type type) {
+        this.type = type;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void copy(OutboxMessage that) {
+        this.modelId = that.modelId;
+        this.modelType = that.modelType;
+        this.payload = that.payload;
+        this.type = that.type;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof OutboxMessage)) {
+            return false;
+        }
+        OutboxMessage that = (OutboxMessage) object;
+        return new EqualsBuilder()
+                .appendSuper(super.equals(that))
+                .append(this.modelId, that.modelId)
+                .append(this.modelType, that.modelType)
+                .append(this.payload, that.payload)
+                .append(this.type, that.type)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .appendSuper(super.hashCode())
+                .append(this.modelId)
+                .append(this.modelType)
+                .append(this.payload)
+                .append(this.type)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .appendSuper(super.toString())
+                .append("modelId", this.modelId)
+                .append("modelType", this.modelType)
+                .append("type", this.type)
+                .toString();
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.projection;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+/**
+ * <p>Immutable per-author counts maintained by {@link AuthorSummaryProjection}.</p>
+ */
+@Schema(
+        description = "Counts of the anthologies, books, and series written by an author.",
+        name = "AuthorSummary"
+)
+public class AuthorSummary {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final long anthologies;
+    private final long authorId;
+    private final long books;
+    private final long readBooks;
+    private final long series;
+
+    // Constructors ----------------------------------------------------------
+
+    public AuthorSummary(long authorId) {
+        this(0L, authorId, 0L, 0L, 0L);
+    }
+
+    public AuthorSummary(
+            long anthologies,
+            long authorId,
+            long books,
+            long readBooks,
+            long series
+    ) {
+        this.anthologies = anthologies;
+        this.authorId = authorId;
+        this.books = books;
+        this.readBooks = readBooks;
+        this.series = series;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "Number of anthologies by this author.")
+    public long getAnthologies() {
+        return anthologies;
+    }
+
+    @Schema(description = "ID of the author.")
+    public long getAuthorId() {
+        return authorId;
+    }
+
+    @Schema(description = "Number of books by this author.")
+    public long getBooks() {
+        return books;
+    }
+
+    @Schema(description = "Number of books by this author that have been read.")
+    public long getReadBooks() {
+        return readBooks;
+    }
+
+    @Schema(description = "Number of series by this author.")
+    public long getSeries() {
+        return series;
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    /**
+     * <p>Return true if every count is zero.</p>
+     */
+    boolean isEmpty() {
+        return (anthologies == 0L) && (books == 0L) && (series == 0L);
+    }
+
+}
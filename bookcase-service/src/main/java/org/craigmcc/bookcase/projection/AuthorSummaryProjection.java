@@ -0,0 +1,237 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.projection;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.READ_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+
+/**
+ * <p>{@link Projection} of the number of anthologies, books (and read books),
+ * and series by each author.  Besides the summaries themselves, the author
+ * and read flag of every anthology, book, and series are tracked (and
+ * snapshotted), so that updates that move an object to another author, and
+ * deletes, can be subtracted from the right summary.</p>
+ */
+@ApplicationScoped
+public class AuthorSummaryProjection implements Projection {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Author and read flag of each tracked object, keyed by entity name
+     * and then by ID.</p>
+     */
+    private final Map<String, Map<Long, Entry>> entries = Map.of(
+            ANTHOLOGY_NAME, new ConcurrentHashMap<>(),
+            BOOK_NAME, new ConcurrentHashMap<>(),
+            SERIES_NAME, new ConcurrentHashMap<>()
+    );
+
+    private final Map<Long, AuthorSummary> summaries = new ConcurrentHashMap<>();
+
+    // Static Variables ------------------------------------------------------
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    public static final String NAME = "authorSummaries";
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void apply(@NotNull MutatedModelEvent event) {
+        Long id = event.getModelId();
+        if ((id == null) || (event.getPayload() == null)) {
+            return;
+        }
+        if (AUTHOR_NAME.equals(event.getModelType())) {
+            if (event.getType() == MutatedModelEvent.Type.DELETED) {
+                for (Map<Long, Entry> map : entries.values()) {
+                    map.values().removeIf(entry -> entry.authorId == id);
+                }
+                summaries.remove(id);
+            }
+            return;
+        }
+        Map<Long, Entry> map = entries.get(event.getModelType());
+        if (map == null) {
+            return;
+        }
+        if (event.getType() == MutatedModelEvent.Type.DELETED) {
+            Entry previous = map.remove(id);
+            if (previous != null) {
+                adjust(event.getModelType(), previous, -1);
+            }
+        } else {
+            Object authorId = event.getFields().get(AUTHOR_ID_COLUMN);
+            if (authorId instanceof Long) {
+                put(event.getModelType(), map, id,
+                        new Entry((Long) authorId, Boolean.TRUE.equals(event.getFields().get(READ_COLUMN))));
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Map<Long, Entry> map : entries.values()) {
+            map.clear();
+        }
+        summaries.clear();
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return NAME;
+    }
+
+    /**
+     * <p>Return the summaries of all authors with at least one anthology,
+     * book, or series, ordered by author ID.</p>
+     */
+    public @NotNull List<AuthorSummary> getSummaries() {
+        List<AuthorSummary> results = new ArrayList<>(summaries.values());
+        results.sort(Comparator.comparingLong(AuthorSummary::getAuthorId));
+        return results;
+    }
+
+    /**
+     * <p>Return the summary of the specified author (with all counts zero if
+     * nothing by this author has been replayed).</p>
+     *
+     * @param authorId ID of the author to summarize
+     */
+    public @NotNull AuthorSummary getSummary(@NotNull Long authorId) {
+        return summaries.getOrDefault(authorId, new AuthorSummary(authorId));
+    }
+
+    @Override
+    public void restore(@NotNull String state) throws IOException {
+        clear();
+        try (JsonParser parser = FACTORY.createParser(state)) {
+            expect(parser, JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String type = parser.getCurrentName();
+                Map<Long, Entry> map = entries.get(type);
+                if (map == null) {
+                    throw new IOException("state: Unknown type " + type);
+                }
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_ARRAY) {
+                    expect(parser, JsonToken.VALUE_NUMBER_INT);
+                    long id = parser.getLongValue();
+                    expect(parser, JsonToken.VALUE_NUMBER_INT);
+                    long authorId = parser.getLongValue();
+                    parser.nextToken();
+                    boolean read = parser.getBooleanValue();
+                    expect(parser, JsonToken.END_ARRAY);
+                    put(type, map, id, new Entry(authorId, read));
+                }
+            }
+        }
+    }
+
+    @Override
+    public @NotNull String snapshot() throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, Map<Long, Entry>> map : entries.entrySet()) {
+                generator.writeArrayFieldStart(map.getKey());
+                for (Map.Entry<Long, Entry> entry : map.getValue().entrySet()) {
+                    generator.writeStartArray();
+                    generator.writeNumber(entry.getKey());
+                    generator.writeNumber(entry.getValue().authorId);
+                    generator.writeBoolean(entry.getValue().read);
+                    generator.writeEndArray();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Add (if <code>sign</code> is 1) or subtract (if <code>sign</code> is
+     * -1) the specified entry to or from its author's summary.</p>
+     */
+    private void adjust(String type, Entry entry, int sign) {
+        summaries.compute(entry.authorId, (authorId, summary) -> {
+            AuthorSummary current = (summary != null) ? summary : new AuthorSummary(authorId);
+            AuthorSummary adjusted = new AuthorSummary(
+                    current.getAnthologies() + (ANTHOLOGY_NAME.equals(type) ? sign : 0),
+                    authorId,
+                    current.getBooks() + (BOOK_NAME.equals(type) ? sign : 0),
+                    current.getReadBooks() + ((BOOK_NAME.equals(type) && entry.read) ? sign : 0),
+                    current.getSeries() + (SERIES_NAME.equals(type) ? sign : 0));
+            return adjusted.isEmpty() ? null : adjusted;
+        });
+    }
+
+    private void expect(JsonParser parser, JsonToken expected) throws IOException {
+        if (parser.nextToken() != expected) {
+            throw new IOException("state: Expected " + expected + " but found " + parser.currentToken());
+        }
+    }
+
+    /**
+     * <p>Record the specified entry, replacing (and subtracting) any
+     * previous entry for the same object.</p>
+     */
+    private void put(String type, Map<Long, Entry> map, long id, Entry entry) {
+        Entry previous = map.put(id, entry);
+        if (previous != null) {
+            adjust(type, previous, -1);
+        }
+        adjust(type, entry, 1);
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    private static final class Entry {
+
+        private final long authorId;
+        private final boolean read;
+
+        private Entry(long authorId, boolean read) {
+            this.authorId = authorId;
+            this.read = read;
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.projection;
+
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+
+/**
+ * <p>Read model that is built by replaying the persisted
+ * {@link MutatedModelEvent}s, in <code>updated</code> then <code>id</code>
+ * order, and is checkpointed by periodic snapshots of its state.
+ * Implementations are application scoped CDI beans; they are discovered and
+ * driven by <code>ProjectionService</code>.</p>
+ *
+ * <p>Events are replayed in parallel, partitioned by model ID, so
+ * <code>apply()</code> will be called concurrently for events of different
+ * model objects, but always in order for the events of any one model object.
+ * Because a failed replay is retried from the last position that was fully
+ * applied, <code>apply()</code> must also be idempotent.  The remaining
+ * methods are never called concurrently with <code>apply()</code> or each
+ * other.</p>
+ */
+public interface Projection {
+
+    /**
+     * <p>Apply the specified event to this projection's state.  Events for
+     * model types this projection does not track, and events recorded
+     * without a payload, should be ignored.</p>
+     *
+     * @param event Event to be applied
+     */
+    void apply(@NotNull MutatedModelEvent event);
+
+    /**
+     * <p>Discard all state, before replaying from the first event.</p>
+     */
+    void clear();
+
+    /**
+     * <p>Return the unique name of this projection, which identifies its
+     * snapshots.</p>
+     */
+    @NotNull String getName();
+
+    /**
+     * <p>Replace all state with that of the specified snapshot.</p>
+     *
+     * @param state State previously returned by <code>snapshot()</code>
+     *
+     * @throws IOException If the state cannot be parsed
+     */
+    void restore(@NotNull String state) throws IOException;
+
+    /**
+     * <p>Return the serialized form of the current state.</p>
+     *
+     * @throws IOException If the state cannot be serialized
+     */
+    @NotNull String snapshot() throws IOException;
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.projection;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.craigmcc.library.model.Model;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+import static org.craigmcc.bookcase.model.Constants.PROJECTION_SNAPSHOT_TABLE;
+
+/**
+ * <p>Latest snapshot of the state of a named {@link Projection}, together with
+ * the high-water mark (the <code>updated</code> timestamp and ID of the last
+ * applied event) from which replay resumes.</p>
+ */
+@Entity
+@Table(
+        name = PROJECTION_SNAPSHOT_TABLE,
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        columnNames = { "name" },
+                        name = "UK_" + PROJECTION_SNAPSHOT_TABLE + "_name"
+                )
+        }
+)
+@Access(AccessType.FIELD)
+@NamedQueries({
+        @NamedQuery(
+                name = "ProjectionSnapshot.findByName",
+                query = "SELECT s FROM ProjectionSnapshot s WHERE s.name = :name"
+        )
+})
+public class ProjectionSnapshot extends Model<ProjectionSnapshot> {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Column(nullable = false)
+    @NotNull(message = "eventId: Required")
+    private Long eventId;
+
+    @Column(nullable = false)
+    @NotNull(message = "eventUpdated: Required")
+    private LocalDateTime eventUpdated;
+
+    @Column(nullable = false)
+    @NotBlank(message = "name: Required and must not be blank")
+    private String name;
+
+    @Column(
+            columnDefinition = "TEXT",
+            nullable = false
+    )
+    @NotNull(message = "state: Required")
+    private String state;
+
+    // Constructors ----------------------------------------------------------
+
+    public ProjectionSnapshot() { }
+
+    public ProjectionSnapshot(@NotNull String name) {
+        this.name = name;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    /**
+     * <p>Return the ID of the last event applied to the snapshot state.</p>
+     */
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    /**
+     * <p>Return the <code>updated</code> timestamp of the last event applied
+     * to the snapshot state.</p>
+     */
+    public LocalDateTime getEventUpdated() {
+        return eventUpdated;
+    }
+
+    public void setEventUpdated(LocalDateTime eventUpdated) {
+        this.eventUpdated = eventUpdated;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void copy(ProjectionSnapshot that) {
+        this.eventId = that.eventId;
+        this.eventUpdated = that.eventUpdated;
+        this.name = that.name;
+        this.state = that.state;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof ProjectionSnapshot)) {
+            return false;
+        }
+        ProjectionSnapshot that = (ProjectionSnapshot) object;
+        return new EqualsBuilder()
+                .appendSuper(super.equals(that))
+                .append(this.eventId, that.eventId)
+                .append(this.eventUpdated, that.eventUpdated)
+                .append(this.name, that.name)
+                .append(this.state, that.state)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .appendSuper(super.hashCode())
+                .append(this.eventId)
+                .append(this.eventUpdated)
+                .append(this.name)
+                .append(this.state)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+                .appendSuper(super.toString())
+                .append("eventId", this.eventId)
+                .append("eventUpdated", this.eventUpdated)
+                .append("name", this.name)
+                .toString();
+    }
+
+}
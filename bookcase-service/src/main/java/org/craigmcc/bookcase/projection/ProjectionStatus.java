@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.projection;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Replay progress of a {@link Projection}.</p>
+ */
+@Schema(
+        description = "Replay progress of an event sourced projection.",
+        name = "ProjectionStatus"
+)
+public class ProjectionStatus {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Long eventId;
+    private final LocalDateTime eventUpdated;
+    private final long events;
+    private final String name;
+    private final Long snapshotEventId;
+    private final LocalDateTime snapshotted;
+
+    // Constructors ----------------------------------------------------------
+
+    public ProjectionStatus(
+            Long eventId,
+            LocalDateTime eventUpdated,
+            long events,
+            String name,
+            Long snapshotEventId,
+            LocalDateTime snapshotted
+    ) {
+        this.eventId = eventId;
+        this.eventUpdated = eventUpdated;
+        this.events = events;
+        this.name = name;
+        this.snapshotEventId = snapshotEventId;
+        this.snapshotted = snapshotted;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "ID of the last applied event (absent if none has been applied).")
+    public Long getEventId() {
+        return eventId;
+    }
+
+    @Schema(description = "Timestamp of the last applied event (absent if none has been applied).")
+    public LocalDateTime getEventUpdated() {
+        return eventUpdated;
+    }
+
+    @Schema(description = "Number of events applied since the projection was last restored or rebuilt.")
+    public long getEvents() {
+        return events;
+    }
+
+    @Schema(description = "Unique name of the projection.")
+    public String getName() {
+        return name;
+    }
+
+    @Schema(description = "ID of the last event included in the latest snapshot (absent if there is none).")
+    public Long getSnapshotEventId() {
+        return snapshotEventId;
+    }
+
+    @Schema(description = "Timestamp when the latest snapshot was taken (absent if there is none).")
+    public LocalDateTime getSnapshotted() {
+        return snapshotted;
+    }
+
+}
@@ -15,11 +15,21 @@
  */
 package org.craigmcc.bookcase.service;
 
+import org.craigmcc.bookcase.browse.BrowseCriteria;
+import org.craigmcc.bookcase.browse.BrowsePage;
+import org.craigmcc.bookcase.browse.BrowseQuery;
+import org.craigmcc.bookcase.catalog.CatalogSnapshot;
+import org.craigmcc.bookcase.coalesce.Coalesced;
 import org.craigmcc.bookcase.event.DeletedModelEvent;
 import org.craigmcc.bookcase.event.ForAnthology;
 import org.craigmcc.bookcase.event.InsertedModelEvent;
 import org.craigmcc.bookcase.event.UpdatedModelEvent;
 import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.statistics.SlowQueryLogged;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantScoped;
 import org.craigmcc.library.model.ModelService;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
@@ -28,40 +38,56 @@ import org.craigmcc.library.shared.exception.NotUnique;
 
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceException;
-import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_IDS_PARAMETER;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_VALIDATION_MESSAGE;
+import static org.craigmcc.bookcase.model.Constants.IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
+@Coalesced
 @LocalBean
+@SlowQueryLogged
 @Stateless
+@TenantScoped
 public class AnthologyService extends ModelService<Anthology> {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private CatalogSnapshotService catalogSnapshotService;
+
     @Inject
     @ForAnthology
     private Event<DeletedModelEvent> deletedAnthologyEvent;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     protected EntityManager entityManager;
 
     @Inject
     @ForAnthology
     private Event<InsertedModelEvent> insertedAnthologyEvent;
 
+    @Inject
+    private ReadQueryService readQueryService;
+
     @Inject
     @ForAnthology
     private Event<UpdatedModelEvent> updatedAnthologyEvent;
@@ -71,13 +97,35 @@ public class AnthologyService extends ModelService<Anthology> {
 
     // Public Methods --------------------------------------------------------
 
+    /**
+     * <p>Return one page of anthologies matching the specified criteria, with
+     * facet counts.  This always queries the database (or read replica),
+     * relying on the composite indexes of the anthology table.</p>
+     *
+     * @param criteria Filters, sort order, and page position
+     *
+     * @throws BadRequest If the limit or cursor is invalid
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull BrowsePage<Anthology> browse(@NotNull BrowseCriteria criteria)
+            throws BadRequest, InternalServerError {
+
+        BrowseQuery<Anthology> query = new BrowseQuery<>(ANTHOLOGY_NAME, Anthology.class, criteria);
+        try {
+            return readQueryService.execute(query::execute);
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
     @Override
     public @NotNull Anthology delete(@NotNull Long id) throws InternalServerError, NotFound {
 
         try {
 
             Anthology deleted = entityManager.find(Anthology.class, id);
-            if (deleted != null) {
+            if ((deleted != null) && TenantContext.isCurrent(deleted)) {
                 entityManager.remove(deleted);
                 deleted.setUpdated(LocalDateTime.now());
                 deletedAnthologyEvent.fire(new DeletedModelEvent(deleted));
@@ -93,6 +141,7 @@ public class AnthologyService extends ModelService<Anthology> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull Anthology find(@NotNull Long id)
             throws InternalServerError, NotFound {
 
@@ -100,16 +149,26 @@ public class AnthologyService extends ModelService<Anthology> {
             throw new NotFound("id: Cannot be null");
         }
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            Anthology result = snapshot.findAnthology(id);
+            if (result == null) {
+                throw new NotFound("id: Missing anthology " + id);
+            }
+            return result;
+        }
+
         try {
 
-            TypedQuery<Anthology> query = entityManager.createNamedQuery
-                    (ANTHOLOGY_NAME + ".findById", Anthology.class)
-                    .setParameter(ID_COLUMN, id);
-            Anthology result = query.getSingleResult();
+            Anthology result = readQueryService.getSingleResult
+                    (ANTHOLOGY_NAME + ".findById", Anthology.class, ID_COLUMN, id);
+            if (result == null) {
+                throw new NotFound("id: Missing anthology " + id);
+            }
             return result;
 
-        } catch (NoResultException e) {
-            throw new NotFound("id: Missing anthology " + id);
+        } catch (NotFound e) {
+            throw e;
         } catch (Exception e) {
             throw new InternalServerError(e.getMessage(), e);
         }
@@ -117,13 +176,18 @@ public class AnthologyService extends ModelService<Anthology> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Anthology> findAll() throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findAllAnthologies();
+        }
+
         try {
 
-            TypedQuery<Anthology> query = entityManager.createNamedQuery
+            List<Anthology> results = readQueryService.getResultList
                     (ANTHOLOGY_NAME + ".findAll", Anthology.class);
-            List<Anthology> results = query.getResultList();
             return results;
 
         } catch (Exception e) {
@@ -132,15 +196,107 @@ public class AnthologyService extends ModelService<Anthology> {
 
     }
 
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull List<Anthology> findByAuthorId(@NotNull Long authorId)
+            throws InternalServerError {
+
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findAnthologiesByAuthorId(authorId);
+        }
+
+        try {
+
+            List<Anthology> results = readQueryService.getResultList
+                    (ANTHOLOGY_NAME + ".findByAuthorId", Anthology.class, AUTHOR_ID_COLUMN, authorId);
+            return results;
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    /**
+     * <p>Return the anthologies written by any of the specified authors, using a single query.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull List<Anthology> findByAuthorIds(@NotNull Collection<Long> authorIds)
+            throws InternalServerError {
+
+        if (authorIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            List<Anthology> results = new ArrayList<>();
+            for (Long authorId : authorIds) {
+                results.addAll(snapshot.findAnthologiesByAuthorId(authorId));
+            }
+            return results;
+        }
+
+        try {
+
+            List<Anthology> results = readQueryService.getResultList
+                    (ANTHOLOGY_NAME + ".findByAuthorIds", Anthology.class, AUTHOR_IDS_PARAMETER, authorIds);
+            return results;
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    /**
+     * <p>Return the anthologies with any of the specified IDs, using a single query.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull List<Anthology> findByIds(@NotNull Collection<Long> ids)
+            throws InternalServerError {
+
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            List<Anthology> results = new ArrayList<>();
+            for (Long id : ids) {
+                Anthology anthology = snapshot.findAnthology(id);
+                if (anthology != null) {
+                    results.add(anthology);
+                }
+            }
+            return results;
+        }
+
+        try {
+
+            List<Anthology> results = readQueryService.getResultList
+                    (ANTHOLOGY_NAME + ".findByIds", Anthology.class, IDS_PARAMETER, ids);
+            return results;
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Anthology> findByTitle(@NotNull String title)
             throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findAnthologiesByTitle(title);
+        }
+
         try {
 
-            TypedQuery<Anthology> query = entityManager.createNamedQuery
-                    (ANTHOLOGY_NAME + ".findByTitle", Anthology.class)
-                    .setParameter(TITLE_COLUMN, title);
-            List<Anthology> result = query.getResultList();
+            List<Anthology> result = readQueryService.getResultList
+                    (ANTHOLOGY_NAME + ".findByTitle", Anthology.class, TITLE_COLUMN, title);
             return result;
 
         } catch (Exception e) {
@@ -155,6 +311,7 @@ public class AnthologyService extends ModelService<Anthology> {
 
         try {
 
+            checkReferences(anthology);
             anthology.setId(null); // Ignore any existing primary key
             anthology.setPublished(LocalDateTime.now());
             anthology.setUpdated(anthology.getPublished());
@@ -164,6 +321,8 @@ public class AnthologyService extends ModelService<Anthology> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
+        } catch (BadRequest e) {
+            throw e;
         } catch (PersistenceException e) {
             handlePersistenceException(e);
         } catch (Exception e) {
@@ -182,7 +341,8 @@ public class AnthologyService extends ModelService<Anthology> {
 
         try {
 
-            original = find(anthologyId);
+            checkReferences(anthology);
+            original = findManaged(anthologyId);
             original.copy(anthology);
             original.setUpdated(LocalDateTime.now());
             entityManager.merge(original);
@@ -191,7 +351,7 @@ public class AnthologyService extends ModelService<Anthology> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
-        } catch (InternalServerError e) {
+        } catch (BadRequest e) {
             throw e;
         } catch (NotFound e) {
             throw e;
@@ -205,4 +365,28 @@ public class AnthologyService extends ModelService<Anthology> {
 
     }
 
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Refuse references to the models of other tenants, which the
+     * foreign keys alone would allow.</p>
+     */
+    private void checkReferences(Anthology anthology) throws BadRequest {
+        if (!TenantFilters.isVisible(entityManager, Author.class, anthology.getAuthorId())) {
+            throw new BadRequest(AUTHOR_ID_VALIDATION_MESSAGE);
+        }
+    }
+
+    /**
+     * <p>Return the persistent instance (never the shared catalog snapshot
+     * instance) of the specified anthology, so that it may be modified.</p>
+     */
+    private Anthology findManaged(Long id) throws NotFound {
+        Anthology result = (id != null) ? entityManager.find(Anthology.class, id) : null;
+        if ((result == null) || !TenantContext.isCurrent(result)) {
+            throw new NotFound("id: Missing anthology " + id);
+        }
+        return result;
+    }
+
 }
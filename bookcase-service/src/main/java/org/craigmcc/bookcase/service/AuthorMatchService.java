@@ -0,0 +1,243 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.event.DeletedModelEvent;
+import org.craigmcc.bookcase.event.ForAuthor;
+import org.craigmcc.bookcase.event.InsertedModelEvent;
+import org.craigmcc.bookcase.event.InvalidatedModelEvent;
+import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.model.text.NameIndex;
+import org.craigmcc.bookcase.model.text.NameMatch;
+import org.craigmcc.bookcase.tenant.TenantCache;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.FIRST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.LAST_NAME_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+
+/**
+ * <p>Ranked, typo and sound-alike tolerant matching of author names, and
+ * detection of duplicate authors, served from an in-memory {@link NameIndex}
+ * of normalized names, trigrams, and phonetic codes for each tenant (so
+ * that authors only match, or duplicate, authors of the same tenant).</p>
+ *
+ * <p>The index of a tenant is built when it is first used (the default tenant
+ * at startup) and maintained from the author mutation events (and the
+ * invalidations of authors mutated on other cluster members).
+ * Bulk changes that fire no events (such as imports) must call
+ * <code>rebuild()</code>.  Because the index is only updated once a
+ * transaction has committed, concurrent inserts of the same author are
+ * still caught by the unique constraint on author names.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@DependsOn("DevModeStartupService")
+public class AuthorMatchService {
+
+    // Instance Variables ----------------------------------------------------
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    protected EntityManager entityManager;
+
+    /**
+     * <p>Index of the authors of each tenant that has been used.</p>
+     */
+    private TenantCache<NameIndex> indexes;
+
+    /**
+     * <p>Maximum number of authors returned by a name match.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "author.match.limit", defaultValue = "50")
+    private Integer matchLimit;
+
+    /**
+     * <p>Minimum score (0.0 through 1.0) of authors returned by a name match.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "author.match.min.score", defaultValue = "0.5")
+    private Double minScore;
+
+    @Inject
+    private TenantRegistry tenantRegistry;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(AuthorMatchService.class.getSimpleName());
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        indexes = new TenantCache<>(tenantRegistry::isKnown);
+        rebuild();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the IDs of existing authors whose names are the same as the
+     * specified name, ignoring case, accents, punctuation, and spacing.</p>
+     *
+     * @param firstName First name of the author
+     * @param lastName Last name of the author
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED) // In case the index must be built
+    public @NotNull Set<Long> findDuplicates(String firstName, String lastName) {
+        return index().findDuplicates(firstName, lastName);
+    }
+
+    /**
+     * <p>Return the authors best matching the specified name (or part of a
+     * name, in either order), best first.</p>
+     *
+     * @param name Name to match
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED) // In case the index must be built
+    public @NotNull List<NameMatch> match(@NotNull String name) {
+        return index().match(name, matchLimit, minScore);
+    }
+
+    /**
+     * <p>Rebuild the index of the current tenant from the database.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void rebuild() {
+        String tenantId = TenantContext.current();
+        synchronized (indexes.lock(tenantId)) {
+            indexes.put(tenantId, build());
+        }
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleDeletedAuthor
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) @ForAuthor DeletedModelEvent event) {
+        remove((Author) event.getSource());
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleInsertedAuthor
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) @ForAuthor InsertedModelEvent event) {
+        put((Author) event.getSource());
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleInvalidatedModel(@Observes InvalidatedModelEvent event) {
+        if (event.getSource() == null) {
+            // Indexes of every tenant are rebuilt as they are next used
+            indexes.clear();
+        } else if (event.getSource() instanceof Author) {
+            if (event.isDeleted()) {
+                remove((Author) event.getSource());
+            } else {
+                put((Author) event.getSource());
+            }
+        }
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleUpdatedAuthor
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) @ForAuthor UpdatedModelEvent event) {
+        put((Author) event.getSource());
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Build and return the index of the current tenant.  The caller must
+     * hold the lock of the tenant.</p>
+     */
+    private NameIndex build() {
+        long started = System.currentTimeMillis();
+        NameIndex index = new NameIndex();
+        for (Object[] row : TenantFilters.enable(entityManager).createQuery(
+                "SELECT a." + ID_COLUMN + ", a." + FIRST_NAME_COLUMN + ", a." + LAST_NAME_COLUMN +
+                        " FROM " + AUTHOR_NAME + " a",
+                Object[].class).getResultList()) {
+            index.put((Long) row[0], (String) row[1], (String) row[2]);
+        }
+        LOG.info(String.format("Built author name index of tenant %s (%d authors) in %d ms",
+                TenantContext.current(), index.size(), System.currentTimeMillis() - started));
+        return index;
+    }
+
+    /**
+     * <p>Return the index of the current tenant, building it if it has not
+     * been used before.</p>
+     */
+    private NameIndex index() {
+        return indexes.get(TenantContext.current(), this::build);
+    }
+
+    /**
+     * <p>Add (or replace) the specified author in the index of its tenant,
+     * if that index has been built.</p>
+     */
+    private void put(Author author) {
+        NameIndex index = (author.getTenantId() != null) ? indexes.get(author.getTenantId()) : null;
+        if (index != null) {
+            index.put(author.getId(), author.getFirstName(), author.getLastName());
+        }
+    }
+
+    /**
+     * <p>Remove the specified author from the index of its tenant (or, if its
+     * tenant is not known, as for the deletes of other cluster members, from
+     * every index).</p>
+     */
+    private void remove(Author author) {
+        for (String tenantId : indexes.tenantIds()) {
+            if ((author.getTenantId() == null) || author.getTenantId().equals(tenantId)) {
+                NameIndex index = indexes.get(tenantId);
+                if (index != null) {
+                    index.remove(author.getId());
+                }
+            }
+        }
+    }
+
+}
@@ -15,11 +15,18 @@
  */
 package org.craigmcc.bookcase.service;
 
+import org.craigmcc.bookcase.catalog.CatalogSnapshot;
+import org.craigmcc.bookcase.coalesce.Coalesced;
 import org.craigmcc.bookcase.event.DeletedModelEvent;
 import org.craigmcc.bookcase.event.ForAuthor;
 import org.craigmcc.bookcase.event.InsertedModelEvent;
 import org.craigmcc.bookcase.event.UpdatedModelEvent;
 import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.model.text.NameMatch;
+import org.craigmcc.bookcase.statistics.SlowQueryLogged;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantScoped;
 import org.craigmcc.library.model.ModelService;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
@@ -28,43 +35,58 @@ import org.craigmcc.library.shared.exception.NotUnique;
 
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityExistsException;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceException;
-import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
-import static org.craigmcc.bookcase.model.Constants.FIRST_NAME_COLUMN;
-import static org.craigmcc.bookcase.model.Constants.LAST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.NAME_UNIQUE_VALIDATION_MESSAGE;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
+@Coalesced
 @LocalBean
+@SlowQueryLogged
 @Stateless
+@TenantScoped
 public class AuthorService extends ModelService<Author> {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private AuthorMatchService authorMatchService;
+
+    @Inject
+    private CatalogSnapshotService catalogSnapshotService;
+
     @Inject
     @ForAuthor
     private Event<DeletedModelEvent> deletedAuthorEvent;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     protected EntityManager entityManager;
 
     @Inject
     @ForAuthor
     private Event<InsertedModelEvent> insertedAuthorEvent;
 
+    @Inject
+    private ReadQueryService readQueryService;
+
     @Inject
     @ForAuthor
     private Event<UpdatedModelEvent> updatedAuthorEvent;
@@ -77,7 +99,7 @@ public class AuthorService extends ModelService<Author> {
         try {
 
             Author deleted = entityManager.find(Author.class, id);
-            if (deleted != null) {
+            if ((deleted != null) && TenantContext.isCurrent(deleted)) {
                 entityManager.remove(deleted);
                 deleted.setUpdated(LocalDateTime.now());
                 deletedAuthorEvent.fire(new DeletedModelEvent(deleted));
@@ -93,6 +115,7 @@ public class AuthorService extends ModelService<Author> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull Author find(@NotNull Long id)
             throws InternalServerError, NotFound {
 
@@ -100,16 +123,26 @@ public class AuthorService extends ModelService<Author> {
             throw new NotFound("id: Cannot be null");
         }
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            Author result = snapshot.findAuthor(id);
+            if (result == null) {
+                throw new NotFound("id: Missing author " + id);
+            }
+            return result;
+        }
+
         try {
 
-            TypedQuery<Author> query = entityManager.createNamedQuery
-                    (AUTHOR_NAME + ".findById", Author.class)
-                    .setParameter(ID_COLUMN, id);
-            Author result = query.getSingleResult();
+            Author result = readQueryService.getSingleResult
+                    (AUTHOR_NAME + ".findById", Author.class, ID_COLUMN, id);
+            if (result == null) {
+                throw new NotFound("id: Missing author " + id);
+            }
             return result;
 
-        } catch (NoResultException e) {
-            throw new NotFound("id: Missing author " + id);
+        } catch (NotFound e) {
+            throw e;
         } catch (Exception e) {
             throw new InternalServerError(e.getMessage(), e);
         }
@@ -117,13 +150,18 @@ public class AuthorService extends ModelService<Author> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Author> findAll() throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findAllAuthors();
+        }
+
         try {
 
-            TypedQuery<Author> query = entityManager.createNamedQuery
+            List<Author> results = readQueryService.getResultList
                     (AUTHOR_NAME + ".findAll", Author.class);
-            List<Author> results = query.getResultList();
             return results;
 
         } catch (Exception e) {
@@ -132,24 +170,51 @@ public class AuthorService extends ModelService<Author> {
 
     }
 
+    /**
+     * <p>Return the authors best matching the specified name (or part of a
+     * name, in either order, tolerating typos and sound-alike spellings),
+     * best first.</p>
+     *
+     * @param name Name to match
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Author> findByName(@NotBlank String name) throws InternalServerError {
 
-        try {
+        List<NameMatch> matches = authorMatchService.match(name);
+        if (matches.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-            String firstName = name;
-            String lastName = name;
-            int index = name.indexOf(" ");
-            if ((index > 0) && (index < name.length() - 1)) {
-                firstName = name.substring(0, index).trim();
-                lastName = name.substring(index + 1).trim();
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            List<Author> results = new ArrayList<>(matches.size());
+            for (NameMatch match : matches) {
+                Author author = snapshot.findAuthor(match.getId());
+                if (author != null) {
+                    results.add(author);
+                }
             }
+            return results;
+        }
 
-            TypedQuery<Author> query = entityManager.createNamedQuery
-                    (AUTHOR_NAME + ".findByName", Author.class)
-                    .setParameter(FIRST_NAME_COLUMN, firstName)
-                    .setParameter(LAST_NAME_COLUMN, lastName);
-            List<Author> result = query.getResultList();
-            return result;
+        try {
+
+            List<Long> ids = new ArrayList<>(matches.size());
+            for (NameMatch match : matches) {
+                ids.add(match.getId());
+            }
+            Map<Long, Author> authors = new HashMap<>();
+            for (Author author : readQueryService.getResultList
+                    (AUTHOR_NAME + ".findByIds", Author.class, IDS_PARAMETER, ids)) {
+                authors.put(author.getId(), author);
+            }
+            List<Author> results = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                if (authors.containsKey(id)) {
+                    results.add(authors.get(id));
+                }
+            }
+            return results;
 
         } catch (Exception e) {
             throw new InternalServerError(e.getMessage(), e);
@@ -163,13 +228,8 @@ public class AuthorService extends ModelService<Author> {
 
         try {
 
-            // Precheck uniqueness constraint
-            TypedQuery<Author> authorQuery = entityManager.createNamedQuery
-                    (AUTHOR_NAME + ".findByNameExact", Author.class);
-            authorQuery.setParameter(FIRST_NAME_COLUMN, author.getFirstName());
-            authorQuery.setParameter(LAST_NAME_COLUMN, author.getLastName());
-            List<Author> matches = authorQuery.getResultList();
-            if (matches.size() > 0) {
+            // Precheck uniqueness (ignoring case, accents, punctuation, and spacing)
+            if (!authorMatchService.findDuplicates(author.getFirstName(), author.getLastName()).isEmpty()) {
                 throw new NotUnique(NAME_UNIQUE_VALIDATION_MESSAGE);
             }
 
@@ -199,6 +259,17 @@ public class AuthorService extends ModelService<Author> {
 
     }
 
+    /**
+     * <p>Return true unless the specified author exists and belongs to a
+     * tenant other than the current one.</p>
+     *
+     * @param authorId ID of the author to be checked
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public boolean isVisible(@NotNull Long authorId) {
+        return TenantFilters.isVisible(entityManager, Author.class, authorId);
+    }
+
     @Override
     public @NotNull Author update(@NotNull Long authorId, @NotNull Author author)
             throws BadRequest, InternalServerError, NotFound, NotUnique {
@@ -207,22 +278,15 @@ public class AuthorService extends ModelService<Author> {
 
         try {
 
-            // Precheck uniqueness constraint
-            TypedQuery<Author> authorQuery = entityManager.createNamedQuery
-                    (AUTHOR_NAME + ".findByNameExact", Author.class);
-            authorQuery.setParameter(FIRST_NAME_COLUMN, author.getFirstName());
-            authorQuery.setParameter(LAST_NAME_COLUMN, author.getLastName());
-            List<Author> matches = authorQuery.getResultList();
-            if (matches.size() > 0) {
-                for (Author match : matches) {
-                    if (match.getId() != author.getId()) {
-                        throw new NotUnique(NAME_UNIQUE_VALIDATION_MESSAGE);
-                    }
+            // Precheck uniqueness (ignoring case, accents, punctuation, and spacing)
+            for (Long duplicateId : authorMatchService.findDuplicates(author.getFirstName(), author.getLastName())) {
+                if (!duplicateId.equals(authorId)) {
+                    throw new NotUnique(NAME_UNIQUE_VALIDATION_MESSAGE);
                 }
             }
 
             // Perform the requested update
-            original = find(authorId);
+            original = findManaged(authorId);
             original.copy(author);
             original.setUpdated(LocalDateTime.now());
             entityManager.merge(original);
@@ -234,8 +298,6 @@ public class AuthorService extends ModelService<Author> {
             throw new BadRequest(formatMessage(e));
         } catch (EntityExistsException e) {
             throw new NotUnique(NAME_UNIQUE_VALIDATION_MESSAGE);
-        } catch (InternalServerError e) {
-            throw e;
         } catch (NotFound e) {
             throw e;
         } catch (NotUnique e) {
@@ -252,4 +314,18 @@ public class AuthorService extends ModelService<Author> {
 
     }
 
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Return the persistent instance (never the shared catalog snapshot
+     * instance) of the specified author, so that it may be modified.</p>
+     */
+    private Author findManaged(Long id) throws NotFound {
+        Author result = (id != null) ? entityManager.find(Author.class, id) : null;
+        if ((result == null) || !TenantContext.isCurrent(result)) {
+            throw new NotFound("id: Missing author " + id);
+        }
+        return result;
+    }
+
 }
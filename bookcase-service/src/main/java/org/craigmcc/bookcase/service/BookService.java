@@ -15,11 +15,21 @@
  */
 package org.craigmcc.bookcase.service;
 
+import org.craigmcc.bookcase.browse.BrowseCriteria;
+import org.craigmcc.bookcase.browse.BrowsePage;
+import org.craigmcc.bookcase.browse.BrowseQuery;
+import org.craigmcc.bookcase.catalog.CatalogSnapshot;
+import org.craigmcc.bookcase.coalesce.Coalesced;
 import org.craigmcc.bookcase.event.DeletedModelEvent;
 import org.craigmcc.bookcase.event.ForBook;
 import org.craigmcc.bookcase.event.InsertedModelEvent;
 import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.Author;
 import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.statistics.SlowQueryLogged;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantScoped;
 import org.craigmcc.library.model.ModelService;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
@@ -28,52 +38,89 @@ import org.craigmcc.library.shared.exception.NotUnique;
 
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceException;
-import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_IDS_PARAMETER;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_VALIDATION_MESSAGE;
 import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
 import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
+@Coalesced
 @LocalBean
+@SlowQueryLogged
 @Stateless
+@TenantScoped
 public class BookService extends ModelService<Book> {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private CatalogSnapshotService catalogSnapshotService;
+
     @Inject
     @ForBook
     private Event<DeletedModelEvent> deletedBookEvent;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     protected EntityManager entityManager;
 
     @Inject
     @ForBook
     private Event<InsertedModelEvent> insertedBookEvent;
 
+    @Inject
+    private ReadQueryService readQueryService;
+
     @Inject
     @ForBook
     private Event<UpdatedModelEvent> updatedBookEvent;
 
     // Public Methods --------------------------------------------------------
 
+    /**
+     * <p>Return one page of books matching the specified criteria, with
+     * facet counts.  This always queries the database (or read replica),
+     * relying on the composite indexes of the book table.</p>
+     *
+     * @param criteria Filters, sort order, and page position
+     *
+     * @throws BadRequest If the limit or cursor is invalid
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull BrowsePage<Book> browse(@NotNull BrowseCriteria criteria)
+            throws BadRequest, InternalServerError {
+
+        BrowseQuery<Book> query = new BrowseQuery<>(BOOK_NAME, Book.class, criteria);
+        try {
+            return readQueryService.execute(query::execute);
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
     @Override
     public @NotNull Book delete(@NotNull Long id) throws InternalServerError, NotFound {
 
         try {
 
             Book deleted = entityManager.find(Book.class, id);
-            if (deleted != null) {
+            if ((deleted != null) && TenantContext.isCurrent(deleted)) {
                 entityManager.remove(deleted);
                 deleted.setUpdated(LocalDateTime.now());
                 deletedBookEvent.fire(new DeletedModelEvent(deleted));
@@ -89,6 +136,7 @@ public class BookService extends ModelService<Book> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull Book find(@NotNull Long id)
             throws InternalServerError, NotFound {
 
@@ -96,16 +144,26 @@ public class BookService extends ModelService<Book> {
             throw new NotFound("id: Cannot be null");
         }
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            Book result = snapshot.findBook(id);
+            if (result == null) {
+                throw new NotFound("id: Missing book " + id);
+            }
+            return result;
+        }
+
         try {
 
-            TypedQuery<Book> query = entityManager.createNamedQuery
-                    (BOOK_NAME + ".findById", Book.class)
-                    .setParameter(ID_COLUMN, id);
-            Book result = query.getSingleResult();
+            Book result = readQueryService.getSingleResult
+                    (BOOK_NAME + ".findById", Book.class, ID_COLUMN, id);
+            if (result == null) {
+                throw new NotFound("id: Missing book " + id);
+            }
             return result;
 
-        } catch (NoResultException e) {
-            throw new NotFound("id: Missing book " + id);
+        } catch (NotFound e) {
+            throw e;
         } catch (Exception e) {
             throw new InternalServerError(e.getMessage(), e);
         }
@@ -113,13 +171,18 @@ public class BookService extends ModelService<Book> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Book> findAll() throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findAllBooks();
+        }
+
         try {
 
-            TypedQuery<Book> query = entityManager.createNamedQuery
+            List<Book> results = readQueryService.getResultList
                     (BOOK_NAME + ".findAll", Book.class);
-            List<Book> results = query.getResultList();
             return results;
 
         } catch (Exception e) {
@@ -128,15 +191,72 @@ public class BookService extends ModelService<Book> {
 
     }
 
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull List<Book> findByAuthorId(@NotNull Long authorId)
+            throws InternalServerError {
+
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findBooksByAuthorId(authorId);
+        }
+
+        try {
+
+            List<Book> results = readQueryService.getResultList
+                    (BOOK_NAME + ".findByAuthorId", Book.class, AUTHOR_ID_COLUMN, authorId);
+            return results;
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    /**
+     * <p>Return the books written by any of the specified authors, using a single query.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull List<Book> findByAuthorIds(@NotNull Collection<Long> authorIds)
+            throws InternalServerError {
+
+        if (authorIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            List<Book> results = new ArrayList<>();
+            for (Long authorId : authorIds) {
+                results.addAll(snapshot.findBooksByAuthorId(authorId));
+            }
+            return results;
+        }
+
+        try {
+
+            List<Book> results = readQueryService.getResultList
+                    (BOOK_NAME + ".findByAuthorIds", Book.class, AUTHOR_IDS_PARAMETER, authorIds);
+            return results;
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Book> findByTitle(@NotNull String title)
             throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findBooksByTitle(title);
+        }
+
         try {
 
-            TypedQuery<Book> query = entityManager.createNamedQuery
-                    (BOOK_NAME + ".findByTitle", Book.class)
-                    .setParameter(TITLE_COLUMN, title);
-            List<Book> result = query.getResultList();
+            List<Book> result = readQueryService.getResultList
+                    (BOOK_NAME + ".findByTitle", Book.class, TITLE_COLUMN, title);
             return result;
 
         } catch (Exception e) {
@@ -151,6 +271,7 @@ public class BookService extends ModelService<Book> {
 
         try {
 
+            checkReferences(book);
             book.setId(null); // Ignore any existing primary key
             book.setPublished(LocalDateTime.now());
             book.setUpdated(book.getPublished());
@@ -160,6 +281,8 @@ public class BookService extends ModelService<Book> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
+        } catch (BadRequest e) {
+            throw e;
         } catch (PersistenceException e) {
             handlePersistenceException(e);
         } catch (Exception e) {
@@ -178,7 +301,8 @@ public class BookService extends ModelService<Book> {
 
         try {
 
-            original = find(bookId);
+            checkReferences(book);
+            original = findManaged(bookId);
             original.copy(book);
             original.setUpdated(LocalDateTime.now());
             entityManager.merge(original);
@@ -187,7 +311,7 @@ public class BookService extends ModelService<Book> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
-        } catch (InternalServerError e) {
+        } catch (BadRequest e) {
             throw e;
         } catch (NotFound e) {
             throw e;
@@ -201,4 +325,28 @@ public class BookService extends ModelService<Book> {
 
     }
 
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Refuse references to the models of other tenants, which the
+     * foreign keys alone would allow.</p>
+     */
+    private void checkReferences(Book book) throws BadRequest {
+        if (!TenantFilters.isVisible(entityManager, Author.class, book.getAuthorId())) {
+            throw new BadRequest(AUTHOR_ID_VALIDATION_MESSAGE);
+        }
+    }
+
+    /**
+     * <p>Return the persistent instance (never the shared catalog snapshot
+     * instance) of the specified book, so that it may be modified.</p>
+     */
+    private Book findManaged(Long id) throws NotFound {
+        Book result = (id != null) ? entityManager.find(Book.class, id) : null;
+        if ((result == null) || !TenantContext.isCurrent(result)) {
+            throw new NotFound("id: Missing book " + id);
+        }
+        return result;
+    }
+
 }
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.catalog.CatalogSnapshot;
+import org.craigmcc.bookcase.catalog.CatalogVerification;
+import org.craigmcc.bookcase.event.DeletedModelEvent;
+import org.craigmcc.bookcase.event.InsertedModelEvent;
+import org.craigmcc.bookcase.event.InvalidatedModelEvent;
+import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.tenant.TenantCache;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantRegistry;
+import org.craigmcc.library.model.Model;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
+import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+import static org.craigmcc.library.model.Constants.VERSION_COLUMN;
+
+/**
+ * <p>Optional in-memory read model of the entire catalog.  If enabled (via the
+ * <code>catalog.snapshot.enabled</code> configuration property), the catalog of
+ * each tenant is loaded into an immutable {@link CatalogSnapshot} when it is
+ * first used (the default tenant at startup, after any development mode
+ * population), and the <code>find*()</code> methods of the model services are
+ * served from the snapshot of the current tenant without touching the
+ * database.</p>
+ *
+ * <p>The snapshots are kept current by observing the model mutation events after
+ * their transactions have committed successfully (and the invalidations of
+ * models mutated on other cluster members).  Each change builds a
+ * replacement snapshot for the tenant of the changed model (under a lock of
+ * that tenant's own, which serializes its writers) and publishes it through
+ * a {@link TenantCache}, so readers never block.  Bulk changes that do not fire model events (such as
+ * development mode population) must call <code>reload()</code> afterwards.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@DependsOn("DevModeStartupService")
+public class CatalogSnapshotService {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Serve catalog reads from an in-memory snapshot.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "catalog.snapshot.enabled", defaultValue = "false")
+    private boolean enabled;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    protected EntityManager entityManager;
+
+    /**
+     * <p>Snapshot of the catalog of each tenant that has been used.</p>
+     */
+    private TenantCache<CatalogSnapshot> snapshots;
+
+    @Inject
+    private TenantRegistry tenantRegistry;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(CatalogSnapshotService.class.getSimpleName());
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        snapshots = new TenantCache<>(tenantRegistry::isKnown);
+        if (enabled) {
+            reload();
+        }
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the snapshot of the current tenant (loading it if it has not
+     * been used before), or <code>null</code> if the snapshot is disabled (in
+     * which case callers must read from the database).</p>
+     */
+    public CatalogSnapshot getSnapshot() {
+        if (!enabled) {
+            return null;
+        }
+        return snapshots.get(TenantContext.current(), this::load);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * <p>Replace the snapshot of the current tenant with one freshly loaded
+     * from the database.  This is a no-op if the snapshot is disabled.</p>
+     */
+    public void reload() {
+
+        if (!enabled) {
+            return;
+        }
+
+        String tenantId = TenantContext.current();
+        synchronized (snapshots.lock(tenantId)) {
+            snapshots.put(tenantId, load());
+        }
+
+    }
+
+    /**
+     * <p>Compare the snapshot of the current tenant to the database, reporting
+     * any models whose identifiers or versions differ.</p>
+     */
+    public @NotNull CatalogVerification verify() {
+
+        CatalogSnapshot snapshot = enabled ? snapshots.get(TenantContext.current()) : null;
+        CatalogSnapshot current = (snapshot != null) ? snapshot : CatalogSnapshot.EMPTY;
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        List<String> differences = new ArrayList<>();
+
+        TenantFilters.enable(entityManager);
+        verify(ANTHOLOGY_NAME, current.findAllAnthologies(), counts, differences);
+        verify(AUTHOR_NAME, current.findAllAuthors(), counts, differences);
+        verify(BOOK_NAME, current.findAllBooks(), counts, differences);
+        verify(MEMBER_NAME, current.findAllMembers(), counts, differences);
+        verify(SERIES_NAME, current.findAllSeries(), counts, differences);
+        verify(STORY_NAME, current.findAllStories(), counts, differences);
+
+        return new CatalogVerification(
+                Collections.unmodifiableMap(counts),
+                Collections.unmodifiableList(differences),
+                (snapshot != null) ? snapshot.getCreated() : null,
+                LocalDateTime.now()
+        );
+
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleDeletedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) DeletedModelEvent event) {
+        apply(event.getSource(), true);
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleInsertedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) InsertedModelEvent event) {
+        apply(event.getSource(), false);
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleInvalidatedModel(@Observes InvalidatedModelEvent event) {
+        if (event.getSource() == null) {
+            // Snapshots of every tenant are reloaded as they are next used
+            snapshots.clear();
+        } else {
+            apply(event.getSource(), event.isDeleted());
+        }
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleUpdatedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) UpdatedModelEvent event) {
+        apply(event.getSource(), false);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Apply a change to the specified model to the snapshot of its tenant
+     * (or, if its tenant is not known, as for the deletes of other cluster
+     * members, to every snapshot).  Tenants without a snapshot are skipped,
+     * because theirs will include the change when it is loaded.</p>
+     */
+    private void apply(Model<?> model, boolean deleted) {
+        if (model == null) {
+            return;
+        }
+        String tenantId = TenantContext.tenantOf(model);
+        for (String snapshotTenantId : new ArrayList<>(snapshots.tenantIds())) {
+            if ((tenantId == null) || tenantId.equals(snapshotTenantId)) {
+                synchronized (snapshots.lock(snapshotTenantId)) {
+                    CatalogSnapshot snapshot = snapshots.get(snapshotTenantId);
+                    if (snapshot != null) {
+                        CatalogSnapshot.Builder builder = snapshot.toBuilder();
+                        snapshots.put(snapshotTenantId,
+                                deleted ? builder.remove(model).build() : builder.put(model).build());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Load and return the snapshot of the current tenant.  The caller
+     * must hold the lock of the tenant.</p>
+     */
+    private CatalogSnapshot load() {
+        long started = System.currentTimeMillis();
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder();
+        TenantFilters.enable(entityManager);
+        // Load in dependency order so that nested references can be linked
+        load(builder, AUTHOR_NAME, Author.class);
+        load(builder, BOOK_NAME, Book.class);
+        load(builder, ANTHOLOGY_NAME, Anthology.class);
+        load(builder, SERIES_NAME, Series.class);
+        load(builder, MEMBER_NAME, Member.class);
+        load(builder, STORY_NAME, Story.class);
+        CatalogSnapshot snapshot = builder.build();
+        LOG.info(String.format("Loaded catalog snapshot of tenant %s (%d authors, %d books) in %d ms",
+                TenantContext.current(),
+                snapshot.findAllAuthors().size(),
+                snapshot.findAllBooks().size(),
+                System.currentTimeMillis() - started));
+        return snapshot;
+    }
+
+    private <M extends Model<M>> void load
+            (CatalogSnapshot.Builder builder, String name, Class<M> clazz) {
+        for (M model : entityManager.createNamedQuery(name + ".findAll", clazz).getResultList()) {
+            builder.put(model);
+        }
+    }
+
+    private void verify(
+            String name,
+            List<? extends Model<?>> models,
+            Map<String, Integer> counts,
+            List<String> differences
+    ) {
+
+        counts.put(name, models.size());
+
+        Map<Long, Integer> expected = new HashMap<>();
+        List<Object[]> rows = entityManager.createQuery(
+                "SELECT m." + ID_COLUMN + ", m." + VERSION_COLUMN + " FROM " + name + " m",
+                Object[].class).getResultList();
+        for (Object[] row : rows) {
+            expected.put((Long) row[0], (Integer) row[1]);
+        }
+
+        for (Model<?> model : models) {
+            if (!expected.containsKey(model.getId())) {
+                differences.add(String.format("%s %d: not in database", name, model.getId()));
+            } else {
+                Integer version = expected.remove(model.getId());
+                if (!Objects.equals(version, model.getVersion())) {
+                    differences.add(String.format("%s %d: snapshot version %s, database version %s",
+                            name, model.getId(), model.getVersion(), version));
+                }
+            }
+        }
+        for (Long id : expected.keySet()) {
+            differences.add(String.format("%s %d: missing from snapshot", name, id));
+        }
+
+    }
+
+}
@@ -0,0 +1,615 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.catalog.CatalogStatistics;
+import org.craigmcc.bookcase.event.DeletedModelEvent;
+import org.craigmcc.bookcase.event.InsertedModelEvent;
+import org.craigmcc.bookcase.event.InvalidatedModelEvent;
+import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.tenant.TenantCache;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantRegistry;
+import org.craigmcc.library.model.Model;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.LOCATION_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
+import static org.craigmcc.bookcase.model.Constants.READ_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+
+/**
+ * <p>Catalog counters (books by location and read status, books per author,
+ * members per series, and stories per anthology) that are maintained
+ * incrementally from the model mutation events (and the invalidations of
+ * models mutated on other cluster members), so that reading any of them
+ * never touches the database.  Each tenant has its own counters, computed
+ * when the tenant is first used (the default tenant at startup), and the
+ * public methods report those of the current tenant.  Each tenant's book
+ * count and drift are also published as gauges tagged with the tenant.</p>
+ *
+ * <p>To apply updates and deletes as deltas, the service keeps the few
+ * counted attributes of each book, member, and story.  Applying an event
+ * replaces (or removes) the recorded attributes of its model, so replaying
+ * an event is harmless.  Deleting an author, book, series, or anthology
+ * cascades to rows that fire no events of their own, so such deletes (and
+ * bulk changes such as imports, which must call <code>reconcile()</code>)
+ * recompute the counters of their tenant from the database.  The counters
+ * of every known tenant are also reconciled periodically (every
+ * <code>catalog.statistics.reconcile.interval</code> seconds) with
+ * <code>GROUP BY</code> queries, and the number of counters found to have
+ * drifted is reported.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@DependsOn("DevModeStartupService")
+public class CatalogStatisticsService {
+
+    // Instance Variables ----------------------------------------------------
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    protected EntityManager entityManager;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    /**
+     * <p>Seconds between reconciliations of the counters with the database
+     * (zero disables periodic reconciliation).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "catalog.statistics.reconcile.interval", defaultValue = "900")
+    private Integer reconcileInterval;
+
+    @Inject
+    private TenantRegistry tenantRegistry;
+
+    /**
+     * <p>Counters of each tenant that has been used.</p>
+     */
+    private TenantCache<Counters> tenants;
+
+    @Resource
+    private TimerService timerService;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(CatalogStatisticsService.class.getSimpleName());
+
+    /**
+     * <p>Prefix for the names of all metrics registered by this service.</p>
+     */
+    public static final String METRIC_PREFIX = "bookcase.catalog.";
+
+    /**
+     * <p>Location key for books without a location.</p>
+     */
+    public static final String NO_LOCATION = "NONE";
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        tenants = new TenantCache<>(tenantRegistry::isKnown);
+        reconcile();
+        if (reconcileInterval > 0) {
+            long interval = reconcileInterval * 1000L;
+            timerService.createIntervalTimer(interval, interval, new TimerConfig(null, false));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        metricRegistry.removeMatching((metricID, metric) ->
+                metricID.getName().startsWith(METRIC_PREFIX));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the number of books by the specified author.</p>
+     *
+     * @param authorId ID of the author
+     */
+    public long getAuthorBookCount(@NotNull Long authorId) {
+        return counters().booksByAuthor.getOrDefault(authorId, 0L);
+    }
+
+    /**
+     * <p>Return the number of books by each author (with any books), keyed by author ID.</p>
+     */
+    public @NotNull Map<Long, Long> getAuthorBookCounts() {
+        return Collections.unmodifiableMap(new TreeMap<>(counters().booksByAuthor));
+    }
+
+    /**
+     * <p>Return the number of stories in the specified anthology.</p>
+     *
+     * @param anthologyId ID of the anthology
+     */
+    public long getAnthologyStoryCount(@NotNull Long anthologyId) {
+        return counters().storiesByAnthology.getOrDefault(anthologyId, 0L);
+    }
+
+    /**
+     * <p>Return the number of stories in each anthology (with any stories), keyed by anthology ID.</p>
+     */
+    public @NotNull Map<Long, Long> getAnthologyStoryCounts() {
+        return Collections.unmodifiableMap(new TreeMap<>(counters().storiesByAnthology));
+    }
+
+    /**
+     * <p>Return the number of members of the specified series.</p>
+     *
+     * @param seriesId ID of the series
+     */
+    public long getSeriesMemberCount(@NotNull Long seriesId) {
+        return counters().membersBySeries.getOrDefault(seriesId, 0L);
+    }
+
+    /**
+     * <p>Return the number of members of each series (with any members), keyed by series ID.</p>
+     */
+    public @NotNull Map<Long, Long> getSeriesMemberCounts() {
+        return Collections.unmodifiableMap(new TreeMap<>(counters().membersBySeries));
+    }
+
+    /**
+     * <p>Return the summary counts of books.</p>
+     */
+    public @NotNull CatalogStatistics getStatistics() {
+        Counters counters = counters();
+        synchronized (counters) {
+            return new CatalogStatistics(
+                    counters.books.size(),
+                    Collections.unmodifiableMap(new TreeMap<>(counters.booksByLocation)),
+                    counters.drift,
+                    counters.readBooks,
+                    counters.reconciled,
+                    Collections.unmodifiableMap(new TreeMap<>(counters.unreadBooksByLocation))
+            );
+        }
+    }
+
+    /**
+     * <p>Recompute all counters of the current tenant from the database, and
+     * return the number of counters whose values had drifted.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public long reconcile() {
+        String tenantId = TenantContext.current();
+        Counters counters = tenants.get(tenantId);
+        if (counters != null) {
+            return reconcile(tenantId, counters);
+        }
+        // Counters of a tenant are only published once they have been computed
+        return tenants.get(tenantId, () -> {
+            Counters created = new Counters();
+            reconcile(tenantId, created);
+            registerGauges(tenantId);
+            return created;
+        }).drift;
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void handleDeletedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) DeletedModelEvent event) {
+        remove(event.getSource());
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleInsertedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) InsertedModelEvent event) {
+        put(event.getSource());
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void handleInvalidatedModel(@Observes InvalidatedModelEvent event) {
+        if (event.getSource() == null) {
+            reconcileAll();
+        } else if (event.isDeleted()) {
+            remove(event.getSource());
+        } else {
+            put(event.getSource());
+        }
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleUpdatedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) UpdatedModelEvent event) {
+        put(event.getSource());
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void handleTimeout() {
+        reconcileAll();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void add(Counters counters, BookState state, long delta) {
+        add(counters.booksByAuthor, state.authorId, delta);
+        add(counters.booksByLocation, state.location, delta);
+        if (state.read) {
+            counters.readBooks += delta;
+        } else {
+            add(counters.unreadBooksByLocation, state.location, delta);
+        }
+    }
+
+    private void add(Map<Long, Long> counters, Long key, long delta) {
+        if (key != null) {
+            counters.merge(key, delta, (a, b) -> ((a + b) == 0L) ? null : a + b);
+        }
+    }
+
+    private void add(Map<String, Long> counters, String key, long delta) {
+        counters.merge(key, delta, (a, b) -> ((a + b) == 0L) ? null : a + b);
+    }
+
+    private Map<Long, Long> countBy(String name, String column) {
+        Map<Long, Long> counters = new ConcurrentHashMap<>();
+        for (Object[] row : entityManager.createQuery(
+                "SELECT x." + column + ", COUNT(x) FROM " + name + " x GROUP BY x." + column,
+                Object[].class).getResultList()) {
+            if (row[0] != null) {
+                counters.put((Long) row[0], (Long) row[1]);
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * <p>Return the counters of the current tenant, computing them if the
+     * tenant has not been used before.</p>
+     */
+    private Counters counters() {
+        Counters counters = tenants.get(TenantContext.current());
+        if (counters == null) {
+            reconcile();
+            counters = tenants.get(TenantContext.current());
+        }
+        return counters;
+    }
+
+    private <K> long differences(Map<K, Long> before, Map<K, Long> after) {
+        Set<K> keys = new HashSet<>(before.keySet());
+        keys.addAll(after.keySet());
+        return keys.stream()
+                .filter(key -> !Objects.equals(before.get(key), after.get(key)))
+                .count();
+    }
+
+    private String locationKey(Book.Location location) {
+        return (location != null) ? location.name() : NO_LOCATION;
+    }
+
+    /**
+     * <p>Return the counters of the tenant of the specified model, or
+     * <code>null</code> if that tenant has not been used (its counters will
+     * be computed from the database when it is).</p>
+     */
+    private Counters countersOf(Model<?> model) {
+        String tenantId = TenantContext.tenantOf(model);
+        return (tenantId != null) ? tenants.get(tenantId) : null;
+    }
+
+    private void put(Model<?> model) {
+        Counters counters = countersOf(model);
+        if (counters == null) {
+            return;
+        }
+        if (model instanceof Book) {
+            Book book = (Book) model;
+            synchronized (counters) {
+                removeBook(counters, book.getId());
+                BookState state = new BookState(book.getAuthorId(), book.getLocation(), book.getRead());
+                counters.books.put(book.getId(), state);
+                add(counters, state, 1L);
+            }
+        } else if (model instanceof Member) {
+            Member member = (Member) model;
+            synchronized (counters) {
+                removeMember(counters, member.getId());
+                counters.members.put(member.getId(), member.getSeriesId());
+                add(counters.membersBySeries, member.getSeriesId(), 1L);
+            }
+        } else if (model instanceof Story) {
+            Story story = (Story) model;
+            synchronized (counters) {
+                removeStory(counters, story.getId());
+                counters.stories.put(story.getId(), story.getAnthologyId());
+                add(counters.storiesByAnthology, story.getAnthologyId(), 1L);
+            }
+        }
+    }
+
+    /**
+     * <p>Recompute the specified counters of the specified tenant (which
+     * must be the current tenant) from the database, and return the number
+     * of counters whose values had drifted.</p>
+     */
+    private long reconcile(String tenantId, Counters counters) {
+
+        synchronized (counters) {
+
+            long started = System.currentTimeMillis();
+            TenantFilters.enable(entityManager);
+
+            counters.books.clear();
+            long read = 0L;
+            for (Object[] row : entityManager.createQuery(
+                    "SELECT b." + ID_COLUMN + ", b." + AUTHOR_ID_COLUMN + ", b." + LOCATION_COLUMN +
+                            ", b." + READ_COLUMN + " FROM " + BOOK_NAME + " b",
+                    Object[].class).getResultList()) {
+                BookState state = new BookState((Long) row[1], (Book.Location) row[2], (Boolean) row[3]);
+                counters.books.put((Long) row[0], state);
+                if (state.read) {
+                    read++;
+                }
+            }
+            counters.members.clear();
+            for (Object[] row : entityManager.createQuery(
+                    "SELECT m." + ID_COLUMN + ", m." + SERIES_ID_COLUMN + " FROM " + MEMBER_NAME + " m",
+                    Object[].class).getResultList()) {
+                counters.members.put((Long) row[0], (Long) row[1]);
+            }
+            counters.stories.clear();
+            for (Object[] row : entityManager.createQuery(
+                    "SELECT s." + ID_COLUMN + ", s." + ANTHOLOGY_ID_COLUMN + " FROM " + STORY_NAME + " s",
+                    Object[].class).getResultList()) {
+                counters.stories.put((Long) row[0], (Long) row[1]);
+            }
+
+            Map<Long, Long> newBooksByAuthor = countBy(BOOK_NAME, AUTHOR_ID_COLUMN);
+            Map<String, Long> newBooksByLocation = new ConcurrentHashMap<>();
+            Map<String, Long> newUnreadBooksByLocation = new ConcurrentHashMap<>();
+            for (Object[] row : entityManager.createQuery(
+                    "SELECT b." + LOCATION_COLUMN + ", b." + READ_COLUMN + ", COUNT(b) " +
+                            "FROM " + BOOK_NAME + " b " +
+                            "GROUP BY b." + LOCATION_COLUMN + ", b." + READ_COLUMN,
+                    Object[].class).getResultList()) {
+                String location = locationKey((Book.Location) row[0]);
+                newBooksByLocation.merge(location, (Long) row[2], Long::sum);
+                if (!Boolean.TRUE.equals(row[1])) {
+                    newUnreadBooksByLocation.merge(location, (Long) row[2], Long::sum);
+                }
+            }
+            Map<Long, Long> newMembersBySeries = countBy(MEMBER_NAME, SERIES_ID_COLUMN);
+            Map<Long, Long> newStoriesByAnthology = countBy(STORY_NAME, ANTHOLOGY_ID_COLUMN);
+
+            long differences = (read != counters.readBooks) ? 1L : 0L;
+            differences += differences(counters.booksByAuthor, newBooksByAuthor);
+            differences += differences(counters.booksByLocation, newBooksByLocation);
+            differences += differences(counters.membersBySeries, newMembersBySeries);
+            differences += differences(counters.storiesByAnthology, newStoriesByAnthology);
+            differences += differences(counters.unreadBooksByLocation, newUnreadBooksByLocation);
+
+            counters.booksByAuthor = newBooksByAuthor;
+            counters.booksByLocation = newBooksByLocation;
+            counters.membersBySeries = newMembersBySeries;
+            counters.readBooks = read;
+            counters.storiesByAnthology = newStoriesByAnthology;
+            counters.unreadBooksByLocation = newUnreadBooksByLocation;
+            counters.drift = differences;
+            counters.reconciled = LocalDateTime.now();
+
+            if (differences > 0) {
+                LOG.info(String.format("Reconciled catalog statistics of tenant %s (%d counters drifted) in %d ms",
+                        tenantId, differences, System.currentTimeMillis() - started));
+            }
+            return differences;
+
+        }
+
+    }
+
+    /**
+     * <p>Recompute the counters of every tenant that has been used.</p>
+     */
+    private void reconcileAll() {
+        for (String tenantId : tenants.tenantIds()) {
+            TenantContext.run(tenantId, this::reconcile);
+        }
+    }
+
+    private void registerGauge(String tenantId, String name, String description,
+                               Function<Counters, Long> value) {
+        Gauge<Long> gauge = () -> {
+            Counters counters = tenants.get(tenantId);
+            return (counters != null) ? value.apply(counters) : 0L;
+        };
+        metricRegistry.register(Metadata.builder()
+                .withName(METRIC_PREFIX + name)
+                .withDescription(description)
+                .withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.NONE)
+                .build(), gauge, new Tag("tenant", tenantId));
+    }
+
+    private void registerGauges(String tenantId) {
+        registerGauge(tenantId, "books",
+                "Books in the catalog of the tenant", counters -> (long) counters.books.size());
+        registerGauge(tenantId, "drift",
+                "Counters of the tenant found to have drifted by the last reconciliation",
+                counters -> counters.drift);
+    }
+
+    /**
+     * <p>Remove the specified model from the counters of its tenant (or, if
+     * its tenant is not known, as for the deletes of other cluster members,
+     * from the counters of every tenant).</p>
+     */
+    private void remove(Model<?> model) {
+        if (model == null) {
+            return;
+        }
+        String tenantId = TenantContext.tenantOf(model);
+        if (tenantId == null) {
+            for (String knownTenantId : tenants.tenantIds()) {
+                TenantContext.run(knownTenantId, () -> remove(tenants.get(knownTenantId), model));
+            }
+        } else if (tenants.get(tenantId) != null) {
+            TenantContext.run(tenantId, () -> remove(tenants.get(tenantId), model));
+        }
+    }
+
+    private void remove(Counters counters, Model<?> model) {
+        if (model instanceof Member) {
+            synchronized (counters) {
+                removeMember(counters, model.getId());
+            }
+        } else if (model instanceof Story) {
+            synchronized (counters) {
+                removeStory(counters, model.getId());
+            }
+        } else {
+            // Deletes of other models cascade to rows that fire no events
+            reconcile();
+        }
+    }
+
+    private void removeBook(Counters counters, Long bookId) {
+        BookState state = counters.books.remove(bookId);
+        if (state != null) {
+            add(counters, state, -1L);
+        }
+    }
+
+    private void removeMember(Counters counters, Long memberId) {
+        if (counters.members.containsKey(memberId)) {
+            add(counters.membersBySeries, counters.members.remove(memberId), -1L);
+        }
+    }
+
+    private void removeStory(Counters counters, Long storyId) {
+        if (counters.stories.containsKey(storyId)) {
+            add(counters.storiesByAnthology, counters.stories.remove(storyId), -1L);
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Counted attributes of a book.</p>
+     */
+    private class BookState {
+
+        private final Long authorId;
+        private final String location;
+        private final boolean read;
+
+        private BookState(Long authorId, Book.Location location, Boolean read) {
+            this.authorId = authorId;
+            this.location = locationKey(location);
+            this.read = Boolean.TRUE.equals(read);
+        }
+
+    }
+
+    /**
+     * <p>Counters of one tenant, guarded by the instance itself.</p>
+     */
+    private static class Counters {
+
+        /**
+         * <p>Recorded attributes of each book, keyed by book ID.</p>
+         */
+        private final Map<Long, BookState> books = new HashMap<>();
+
+        private volatile Map<Long, Long> booksByAuthor = new ConcurrentHashMap<>();
+
+        private volatile Map<String, Long> booksByLocation = new ConcurrentHashMap<>();
+
+        private volatile long drift;
+
+        /**
+         * <p>Recorded series ID of each member, keyed by member ID.</p>
+         */
+        private final Map<Long, Long> members = new HashMap<>();
+
+        private volatile Map<Long, Long> membersBySeries = new ConcurrentHashMap<>();
+
+        private volatile long readBooks;
+
+        private volatile LocalDateTime reconciled;
+
+        /**
+         * <p>Recorded anthology ID of each story, keyed by story ID.</p>
+         */
+        private final Map<Long, Long> stories = new HashMap<>();
+
+        private volatile Map<Long, Long> storiesByAnthology = new ConcurrentHashMap<>();
+
+        private volatile Map<String, Long> unreadBooksByLocation = new ConcurrentHashMap<>();
+
+    }
+
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.cluster.Invalidation;
+import org.craigmcc.bookcase.cluster.InvalidationBus;
+import org.craigmcc.bookcase.cluster.JGroupsTransport;
+import org.craigmcc.bookcase.event.DeletedModelEvent;
+import org.craigmcc.bookcase.event.InsertedModelEvent;
+import org.craigmcc.bookcase.event.InvalidatedModelEvent;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.library.model.Model;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+
+/**
+ * <p>Keeps the in-memory caches of every member of a cluster (several
+ * application servers sharing one database) current.  The model mutation
+ * events are only fired on the member that made the change, so, if enabled
+ * (via the <code>cluster.invalidation.enabled</code> configuration property),
+ * the type and ID of each committed mutation is broadcast to the other
+ * members over JGroups, coalesced into batches every
+ * <code>cluster.invalidation.linger</code> milliseconds (see
+ * {@link InvalidationBus}).  The deployment must depend on the
+ * <code>org.jgroups</code> module, and the <code>cluster.invalidation.stack</code>
+ * configuration must suit the network (the default <code>udp.xml</code>
+ * requires IP multicast).</p>
+ *
+ * <p>A member receiving a batch reloads each invalidated model object from
+ * the database, and fires an {@link InvalidatedModelEvent} (with an empty
+ * instance for objects that no longer exist) that the caches observe.
+ * Invalidations only carry IDs and every refresh re-reads the committed
+ * state, so batches may arrive late, twice, or in any order without caches
+ * diverging.  Bulk changes that fire no events (such as imports) must call
+ * <code>publishAll()</code>, which makes the other members rebuild their
+ * caches entirely.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@DependsOn("DevModeStartupService")
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ClusterInvalidationService {
+
+    // Instance Variables ----------------------------------------------------
+
+    private InvalidationBus bus;
+
+    /**
+     * <p>Name of the JGroups cluster joined by every member.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "cluster.invalidation.cluster", defaultValue = "bookcase")
+    private String clusterName;
+
+    /**
+     * <p>Broadcast invalidations to the other members of the cluster.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "cluster.invalidation.enabled", defaultValue = "false")
+    private boolean enabled;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    protected EntityManager entityManager;
+
+    @Inject
+    private Event<InvalidatedModelEvent> invalidatedModelEvent;
+
+    /**
+     * <p>Milliseconds invalidations are collected into one broadcast.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "cluster.invalidation.linger", defaultValue = "100")
+    private Long linger;
+
+    /**
+     * <p>Maximum invalidations per broadcast before they are replaced by an
+     * invalidation of everything.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "cluster.invalidation.batch.size", defaultValue = "500")
+    private Integer maxPending;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private final Object refreshLock = new Object();
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    /**
+     * <p>JGroups protocol stack configuration.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "cluster.invalidation.stack", defaultValue = "udp.xml")
+    private String stack;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(ClusterInvalidationService.class.getSimpleName());
+
+    /**
+     * <p>Prefix for the names of all metrics registered by this service.</p>
+     */
+    public static final String METRIC_PREFIX = "bookcase.cluster.";
+
+    /**
+     * <p>Model classes that may be invalidated, keyed by model type.</p>
+     */
+    private static final Map<String, Class<? extends Model<?>>> MODEL_CLASSES = new HashMap<>();
+
+    static {
+        MODEL_CLASSES.put(Anthology.class.getSimpleName(), Anthology.class);
+        MODEL_CLASSES.put(Author.class.getSimpleName(), Author.class);
+        MODEL_CLASSES.put(Book.class.getSimpleName(), Book.class);
+        MODEL_CLASSES.put(Member.class.getSimpleName(), Member.class);
+        MODEL_CLASSES.put(Series.class.getSimpleName(), Series.class);
+        MODEL_CLASSES.put(Story.class.getSimpleName(), Story.class);
+    }
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            bus = new InvalidationBus(new JGroupsTransport(stack, clusterName), scheduler,
+                    linger, maxPending, invalidations -> scheduler.execute(() -> refresh(invalidations)));
+            bus.start();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot join cluster " + clusterName, e);
+        }
+        registerMetrics();
+        LOG.info(String.format("Joined cluster %s with %d members", clusterName, bus.getMembers()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (bus != null) {
+            bus.close();
+        }
+        metricRegistry.removeMatching((metricID, metric) ->
+                metricID.getName().startsWith(METRIC_PREFIX));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * <p>Broadcast the specified invalidation to the other members.  This is
+     * a no-op if invalidations are disabled.</p>
+     *
+     * @param invalidation Invalidation to be broadcast
+     */
+    public void publish(@NotNull Invalidation invalidation) {
+        if (bus != null) {
+            bus.publish(invalidation);
+        }
+    }
+
+    /**
+     * <p>Make the other members rebuild all of their caches, after a bulk
+     * change that fired no model events.</p>
+     */
+    public void publishAll() {
+        publish(Invalidation.ALL);
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    public void handleDeletedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) DeletedModelEvent event) {
+        publish(event);
+    }
+
+    public void handleInsertedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) InsertedModelEvent event) {
+        publish(event);
+    }
+
+    public void handleUpdatedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) UpdatedModelEvent event) {
+        publish(event);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void publish(MutatedModelEvent event) {
+        if ((event.getModelType() != null) && (event.getModelId() != null)) {
+            publish(new Invalidation(event.getModelType(), event.getModelId()));
+        }
+    }
+
+    /**
+     * <p>Reload the specified invalidated model objects, and tell the caches
+     * about them.  Refreshes are serialized, so that a later refresh of an
+     * object is never overtaken by an earlier one.</p>
+     */
+    private void refresh(Set<Invalidation> invalidations) {
+        synchronized (refreshLock) {
+            for (Invalidation invalidation : invalidations) {
+                if (invalidation.getModelId() == null) {
+                    invalidatedModelEvent.fire(new InvalidatedModelEvent());
+                    return;
+                }
+            }
+            for (Invalidation invalidation : invalidations) {
+                Class<? extends Model<?>> modelClass = MODEL_CLASSES.get(invalidation.getModelType());
+                if (modelClass == null) {
+                    continue;
+                }
+                try {
+                    Model<?> model = entityManager.find(modelClass, invalidation.getModelId());
+                    if (model != null) {
+                        invalidatedModelEvent.fire(new InvalidatedModelEvent(model, false));
+                    } else {
+                        model = modelClass.getDeclaredConstructor().newInstance();
+                        model.setId(invalidation.getModelId());
+                        invalidatedModelEvent.fire(new InvalidatedModelEvent(model, true));
+                    }
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    LOG.log(Level.WARNING, "Cannot refresh " + invalidation, e);
+                }
+            }
+        }
+    }
+
+    private void registerGauge(String name, String description, Gauge<Long> gauge) {
+        Metadata metadata = Metadata.builder()
+                .withName(METRIC_PREFIX + name)
+                .withDescription(description)
+                .withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.NONE)
+                .build();
+        metricRegistry.register(metadata, gauge);
+    }
+
+    private void registerMetrics() {
+        registerGauge("members",
+                "Cluster members currently visible to this member",
+                () -> (long) bus.getMembers());
+        registerGauge("published",
+                "Invalidations published by this member",
+                bus::getPublished);
+        registerGauge("received",
+                "Invalidations received from other members",
+                bus::getReceived);
+        registerGauge("sent",
+                "Batches of invalidations broadcast by this member",
+                bus::getSent);
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.coalesce.CoalescingInterceptor;
+import org.craigmcc.bookcase.coalesce.SingleFlight;
+import org.craigmcc.bookcase.event.InvalidatedModelEvent;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.Callable;
+
+/**
+ * <p>Shared state of {@link CoalescingInterceptor}: the calls in flight (and,
+ * if <code>coalesce.result.ttl</code> is set, recently completed results),
+ * plus counts of executed, coalesced, and cached calls, which are registered
+ * as application scoped metrics gauges.  Whenever a model mutation commits,
+ * retained results are discarded and later calls stop joining executions
+ * already in flight, so a TTL only ever hides changes made by other
+ * servers.</p>
+ */
+@LocalBean
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class CoalescingService {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Coalesce concurrent identical service reads.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "coalesce.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    private final SingleFlight flights = new SingleFlight();
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    /**
+     * <p>Milliseconds to keep returning a completed read result to identical
+     * calls (0 to share only calls that are still in flight).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "coalesce.result.ttl", defaultValue = "0")
+    private long resultTtl;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Prefix for the names of all metrics registered by this service.</p>
+     */
+    public static final String METRIC_PREFIX = "bookcase.coalesce.";
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        registerGauge("cachedCount",
+                "Service reads answered by a recently completed identical read",
+                flights::getCachedCount);
+        registerGauge("coalescedCount",
+                "Service reads that shared an identical read in flight",
+                flights::getCoalescedCount);
+        registerGauge("executedCount",
+                "Coalescable service reads that were executed",
+                flights::getExecutedCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        metricRegistry.removeMatching((metricID, metric) ->
+                metricID.getName().startsWith(METRIC_PREFIX));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the result of the specified call, sharing the execution of an
+     * identical call in flight (or a retained result) if there is one.</p>
+     *
+     * @param key Key identifying identical calls
+     * @param work Call to be executed
+     *
+     * @throws Exception If the call threw an exception
+     */
+    public Object execute(@NotNull Object key, @NotNull Callable<Object> work) throws Exception {
+        return flights.execute(key, resultTtl, work);
+    }
+
+    public long getCachedCount() {
+        return flights.getCachedCount();
+    }
+
+    public long getCoalescedCount() {
+        return flights.getCoalescedCount();
+    }
+
+    public long getExecutedCount() {
+        return flights.getExecutedCount();
+    }
+
+    /**
+     * <p>Return true if a call made now may be coalesced, which requires that
+     * coalescing be enabled, and that the caller not be in a transaction.</p>
+     */
+    public boolean isCoalescing() {
+        return enabled && (transactionSynchronizationRegistry.getTransactionKey() == null);
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleInvalidatedModel(@Observes InvalidatedModelEvent event) {
+        flights.clear();
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleMutatedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS) MutatedModelEvent event) {
+        flights.clear();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void registerGauge(String name, String description, Gauge<Long> gauge) {
+        Metadata metadata = Metadata.builder()
+                .withName(METRIC_PREFIX + name)
+                .withDescription(description)
+                .withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.NONE)
+                .build();
+        metricRegistry.register(metadata, gauge);
+    }
+
+}
@@ -25,8 +25,11 @@ import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
 import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
 import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
+import static org.craigmcc.bookcase.model.Constants.OUTBOX_MESSAGE_TABLE;
+import static org.craigmcc.bookcase.model.Constants.PROJECTION_SNAPSHOT_TABLE;
 import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
 import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 
 /**
  * <p>Split out from {@link DevModeStartupService} so that service and integration
@@ -38,7 +41,7 @@ public class DevModeDepopulateService {
 
     // Instance Variables ----------------------------------------------------
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     private EntityManager entityManager;
 
     private static final Logger LOG =
@@ -56,6 +59,8 @@ public class DevModeDepopulateService {
         depopulateBooks();
         depopulateAuthors();
         depopulateMutatedModelEvents();
+        depopulateOutboxMessages();
+        depopulateProjectionSnapshots();
         // Restart the sequence generator since we are reloading data from scratch
         resetSequence();
         LOG.info("------ Depopulate Development Test Data End ------");
@@ -103,6 +108,20 @@ public class DevModeDepopulateService {
         LOG.info(String.format("Deleted %d mutated model events", deletedCount));
     }
 
+    private void depopulateOutboxMessages() {
+        int deletedCount = entityManager
+                .createNativeQuery("DELETE FROM " + OUTBOX_MESSAGE_TABLE)
+                .executeUpdate();
+        LOG.info(String.format("Deleted %d outbox messages", deletedCount));
+    }
+
+    private void depopulateProjectionSnapshots() {
+        int deletedCount = entityManager
+                .createNativeQuery("DELETE FROM " + PROJECTION_SNAPSHOT_TABLE)
+                .executeUpdate();
+        LOG.info(String.format("Deleted %d projection snapshots", deletedCount));
+    }
+
     private void depopulateSeries() {
         int deletedCount = entityManager
                 .createQuery("DELETE FROM " + SERIES_NAME)
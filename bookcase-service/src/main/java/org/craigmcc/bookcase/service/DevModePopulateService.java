@@ -31,6 +31,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+
 /**
  * <p>Split out from {@link DevModeStartupService} so that service and integration
  * tests can call it separately if needed.</p>
@@ -50,7 +52,7 @@ public class DevModePopulateService {
     // Key is "title"
     private Map<String, Book> books = new HashMap<>();
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     private EntityManager entityManager;
 
     // Key is "title"
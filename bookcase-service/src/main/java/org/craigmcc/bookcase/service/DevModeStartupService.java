@@ -18,6 +18,7 @@ package org.craigmcc.bookcase.service;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.annotation.PostConstruct;
+import javax.ejb.DependsOn;
 import javax.ejb.LocalBean;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
@@ -30,6 +31,7 @@ import java.util.logging.Logger;
 @LocalBean
 @Startup
 @Singleton
+@DependsOn("SortKeyService")
 public class DevModeStartupService {
 
     // Instance Variables ----------------------------------------------------
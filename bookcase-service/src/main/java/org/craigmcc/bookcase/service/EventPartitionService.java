@@ -0,0 +1,633 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.craigmcc.bookcase.event.EventPartition;
+import org.craigmcc.bookcase.projection.Projection;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.UserTransaction;
+import javax.validation.constraints.NotNull;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import static org.craigmcc.bookcase.model.Constants.MUTATED_MODEL_EVENT_TABLE;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+
+/**
+ * <p>Time partitioning, retention, and archival of the mutated model event
+ * table (requires Postgres 11 or later).  If enabled (via the
+ * <code>event.partition.enabled</code> configuration property), the table
+ * is converted once into a table range partitioned on <code>updated</code>
+ * (copying any existing events), with a default partition that catches
+ * events outside every range (so that inserts never fail, even if
+ * maintenance stops running), and then, at startup and every
+ * <code>event.partition.interval</code> seconds:</p>
+ * <ul>
+ * <li>Partitions of one <code>event.partition.period</code> (DAYS, WEEKS,
+ *     or MONTHS) are created, so that the current period and the next
+ *     <code>event.partition.premake</code> periods are covered.  Any events
+ *     in the default partition that fall in a new partition's range are
+ *     moved into it.</li>
+ * <li>Partitions that ended more than <code>event.retention.periods</code>
+ *     periods ago are expired.  Each is first archived (if
+ *     <code>event.archive.directory</code> is set) as a gzipped NDJSON file
+ *     named after the partition, and then detached (leaving a standalone
+ *     table) or dropped, according to <code>event.retention.action</code>.
+ *     Partitions holding events after the oldest projection snapshot are
+ *     kept, and so is every partition while any deployed projection has no
+ *     snapshot at all, so that every projection can still be rebuilt.</li>
+ * <li>The estimated row count and size of each partition are published as
+ *     application scoped metrics gauges.</li>
+ * </ul>
+ *
+ * <p>Hibernate schema update does not recognize partitioned tables, and
+ * logs a (harmless) failure to create the event table once the table has
+ * been converted.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@DependsOn("DevModeStartupService")
+@TransactionManagement(TransactionManagementType.BEAN)
+public class EventPartitionService {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Directory to which expired partitions are archived (none if not
+     * set).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "event.archive.directory")
+    private Optional<String> archiveDirectory;
+
+    /**
+     * <p>Partition the mutated model event table.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "event.partition.enabled", defaultValue = "false")
+    private boolean enabled;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    private EntityManager entityManager;
+
+    /**
+     * <p>Seconds between partition maintenance runs (zero disables periodic
+     * maintenance).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "event.partition.interval", defaultValue = "3600")
+    private Integer interval;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    /**
+     * <p>Partitions found by the last maintenance run, ordered by range.</p>
+     */
+    private volatile List<EventPartition> partitions = Collections.emptyList();
+
+    /**
+     * <p>Time range of each partition (DAYS, WEEKS, or MONTHS).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "event.partition.period", defaultValue = "MONTHS")
+    private String period;
+
+    /**
+     * <p>Number of future periods for which partitions are created in
+     * advance.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "event.partition.premake", defaultValue = "2")
+    private Integer premake;
+
+    @Inject
+    @Any
+    private Instance<Projection> projections;
+
+    /**
+     * <p>Action (DETACH or DROP) taken on expired partitions.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "event.retention.action", defaultValue = "DETACH")
+    private String retentionAction;
+
+    /**
+     * <p>Number of complete periods for which events are retained (zero
+     * retains events forever).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "event.retention.periods", defaultValue = "12")
+    private Integer retentionPeriods;
+
+    @Resource
+    private TimerService timerService;
+
+    /**
+     * <p>Transaction timeout (in seconds) for converting the table or
+     * archiving one partition.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "event.partition.transaction.timeout", defaultValue = "3600")
+    private Integer transactionTimeout;
+
+    @Resource
+    private UserTransaction userTransaction;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Columns of the event table, in archive order.</p>
+     */
+    private static final List<String> ARCHIVE_COLUMNS = List.of(
+            "id", "model", "modelId", "modelType", "payload", "published", "type", "updated", "version");
+
+    /**
+     * <p>Number of rows fetched from the database per round trip while
+     * archiving.</p>
+     */
+    private static final int ARCHIVE_FETCH_SIZE = 1000;
+
+    /**
+     * <p>Range bounds of a partition, as returned by <code>pg_get_expr()</code>.</p>
+     */
+    private static final Pattern BOUNDS =
+            Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+
+    private static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private static final Logger LOG =
+            Logger.getLogger(EventPartitionService.class.getSimpleName());
+
+    /**
+     * <p>Prefix for the names of all metrics registered by this service.</p>
+     */
+    public static final String METRIC_PREFIX = "bookcase.events.";
+
+    /**
+     * <p>Name of the event table in the Postgres catalog (which folds the
+     * unquoted mixed case name).</p>
+     */
+    private static final String TABLE = MUTATED_MODEL_EVENT_TABLE.toLowerCase();
+
+    /**
+     * <p>Name of the default partition, which holds events outside the range
+     * of every other partition.</p>
+     */
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+
+    /**
+     * <p>Format of the partition start date in partition names.</p>
+     */
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        if (!enabled) {
+            return;
+        }
+        handleTimeout();
+        if (interval > 0) {
+            long millis = interval * 1000L;
+            timerService.createIntervalTimer(millis, millis, new TimerConfig(null, false));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        removeGauges();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the partitions found by the last maintenance run, ordered by
+     * range (empty if partitioning is disabled).</p>
+     */
+    public @NotNull List<EventPartition> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * <p>Convert the event table (if necessary), create upcoming partitions,
+     * expire old partitions, and refresh the partition metrics.</p>
+     *
+     * @throws InternalServerError If a database or archive error occurs
+     */
+    public synchronized void maintain() throws InternalServerError {
+        ChronoUnit unit = unit();
+        if (!transaction(this::isPartitioned)) {
+            transaction(() -> convert(unit));
+        }
+        transaction(() -> {
+            createDefault();
+            List<EventPartition> existing = findPartitions();
+            create(unit, existing.isEmpty() ? null : existing.get(existing.size() - 1).getTo());
+            return null;
+        });
+        if (transaction(this::isDefaultUsed)) {
+            LOG.warning(String.format("Partition %s holds events outside every partition range, " +
+                    "which are never expired", DEFAULT_PARTITION));
+        }
+        expire(unit);
+        refresh(transaction(this::findPartitions));
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    @Timeout
+    public void handleTimeout() {
+        try {
+            maintain();
+        } catch (InternalServerError e) {
+            LOG.log(Level.WARNING, "Cannot maintain mutated model event partitions", e);
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Write every event in the specified partition to a gzipped NDJSON
+     * file in the archive directory, replacing any earlier archive of it.</p>
+     */
+    private Path archive(Path directory, EventPartition partition) throws Exception {
+        Files.createDirectories(directory);
+        Path archive = directory.resolve(partition.getName() + ".ndjson.gz");
+        Path temporary = directory.resolve(partition.getName() + ".ndjson.gz.tmp");
+        long count = 0;
+        Session session = entityManager.unwrap(Session.class);
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(temporary));
+             JsonGenerator generator = FACTORY.createGenerator(outputStream, JsonEncoding.UTF8);
+             ScrollableResults results = session.createNativeQuery(
+                     "SELECT " + String.join(", ", ARCHIVE_COLUMNS) +
+                             " FROM " + partition.getName() + " ORDER BY updated, id")
+                     .setFetchSize(ARCHIVE_FETCH_SIZE)
+                     .setReadOnly(true)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            generator.setRootValueSeparator(null);
+            while (results.next()) {
+                Object[] values = results.get();
+                generator.writeStartObject();
+                for (int i = 0; i < values.length; i++) {
+                    Object value = values[i];
+                    if (value == null) {
+                        continue;
+                    }
+                    generator.writeFieldName(ARCHIVE_COLUMNS.get(i));
+                    if (value instanceof Number) {
+                        generator.writeNumber(((Number) value).longValue());
+                    } else if (value instanceof Timestamp) {
+                        generator.writeString(((Timestamp) value).toLocalDateTime().toString());
+                    } else {
+                        generator.writeString(value.toString());
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        Files.move(temporary, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info(String.format("Archived %d events from partition %s to %s", count, partition.getName(), archive));
+        return archive;
+    }
+
+    /**
+     * <p>Convert the unpartitioned event table into a partitioned table,
+     * with partitions covering every existing event.</p>
+     */
+    private Void convert(ChronoUnit unit) {
+        String unpartitioned = TABLE + "_unpartitioned";
+        execute("ALTER TABLE " + TABLE + " RENAME TO " + unpartitioned);
+        execute("CREATE TABLE " + TABLE + " (LIKE " + unpartitioned + " INCLUDING DEFAULTS)" +
+                " PARTITION BY RANGE (updated)");
+        createDefault();
+        Object earliest = entityManager
+                .createNativeQuery("SELECT MIN(updated) FROM " + unpartitioned)
+                .getSingleResult();
+        create(unit, (earliest != null)
+                ? startOf(unit, ((Timestamp) earliest).toLocalDateTime()) : null);
+        int copied = execute("INSERT INTO " + TABLE + " SELECT * FROM " + unpartitioned);
+        execute("DROP TABLE " + unpartitioned);
+        execute("ALTER TABLE " + TABLE + " ADD PRIMARY KEY (id, updated)");
+        execute("CREATE INDEX IX_" + MUTATED_MODEL_EVENT_TABLE + "_updated ON " + TABLE + " (updated, id)");
+        LOG.info(String.format("Partitioned the mutated model event table by %s, copying %d events",
+                unit, copied));
+        return null;
+    }
+
+    /**
+     * <p>Create consecutive partitions, starting at the specified time (or
+     * the start of the current period if <code>null</code>), until the
+     * current period and the premade periods are covered.  Each is created
+     * detached, filled with the events of its range from the default
+     * partition, and then attached (which would fail if the default
+     * partition still held events in its range).</p>
+     */
+    private void create(ChronoUnit unit, LocalDateTime from) {
+        LocalDateTime start = startOf(unit, LocalDateTime.now());
+        LocalDateTime until = start.plus(premake + 1, unit);
+        if (from != null) {
+            start = from;
+        }
+        while (start.isBefore(until)) {
+            LocalDateTime end = start.plus(1, unit);
+            String name = TABLE + "_" + SUFFIX.format(start);
+            execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS)");
+            int moved = execute("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                    " WHERE updated >= '" + start + "' AND updated < '" + end + "' RETURNING *)" +
+                    " INSERT INTO " + name + " SELECT * FROM moved");
+            execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name +
+                    " FOR VALUES FROM ('" + start + "') TO ('" + end + "')");
+            LOG.info(String.format("Created partition %s for events from %s to %s, moving %d events",
+                    name, start, end, moved));
+            start = end;
+        }
+    }
+
+    /**
+     * <p>Create the default partition, unless it already exists (as it will
+     * not for tables converted before it was introduced).</p>
+     */
+    private void createDefault() {
+        execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+    }
+
+    private int execute(String sql) {
+        return entityManager.createNativeQuery(sql).executeUpdate();
+    }
+
+    /**
+     * <p>Archive and detach or drop every expired partition, each in its own
+     * transaction.</p>
+     */
+    private void expire(ChronoUnit unit) throws InternalServerError {
+        if (retentionPeriods <= 0) {
+            return;
+        }
+        boolean drop = "DROP".equalsIgnoreCase(retentionAction);
+        LocalDateTime cutoff = startOf(unit, LocalDateTime.now()).minus(retentionPeriods, unit);
+        Map<String, LocalDateTime> snapshots = transaction(this::findSnapshots);
+        LocalDateTime snapshotted = null;
+        for (Projection projection : projections) {
+            LocalDateTime updated = snapshots.get(projection.getName());
+            if (updated == null) {
+                LOG.warning(String.format("Retaining expired partitions until projection %s " +
+                        "has been snapshotted", projection.getName()));
+                return;
+            }
+            if ((snapshotted == null) || updated.isBefore(snapshotted)) {
+                snapshotted = updated;
+            }
+        }
+        for (EventPartition partition : transaction(this::findPartitions)) {
+            if (partition.getTo().isAfter(cutoff)) {
+                break;
+            }
+            if ((snapshotted != null) && partition.getTo().isAfter(snapshotted)) {
+                LOG.warning(String.format("Retaining expired partition %s until every projection " +
+                        "has been snapshotted after %s", partition.getName(), partition.getTo()));
+                break;
+            }
+            transaction(() -> {
+                if (archiveDirectory.isPresent() && !archiveDirectory.get().isBlank()) {
+                    archive(Paths.get(archiveDirectory.get()), partition);
+                }
+                execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition.getName());
+                if (drop) {
+                    execute("DROP TABLE " + partition.getName());
+                }
+                return null;
+            });
+            LOG.info(String.format("Expired partition %s (%s)",
+                    partition.getName(), drop ? "dropped" : "detached"));
+        }
+    }
+
+    /**
+     * <p>Return the range partitions of the event table, ordered by range.</p>
+     */
+    @SuppressWarnings("unchecked")
+    private List<EventPartition> findPartitions() {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)," +
+                        " CAST(GREATEST(c.reltuples, 0) AS bigint), pg_total_relation_size(c.oid)" +
+                        " FROM pg_inherits i" +
+                        " JOIN pg_class c ON c.oid = i.inhrelid" +
+                        " WHERE i.inhparent = to_regclass('" + TABLE + "')")
+                .getResultList();
+        List<EventPartition> results = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Matcher matcher = BOUNDS.matcher((String) row[1]);
+            if (!matcher.find()) {
+                continue;
+            }
+            results.add(new EventPartition(
+                    ((Number) row[3]).longValue(),
+                    LocalDateTime.parse(matcher.group(1).replace(' ', 'T')),
+                    (String) row[0],
+                    ((Number) row[2]).longValue(),
+                    LocalDateTime.parse(matcher.group(2).replace(' ', 'T'))));
+        }
+        results.sort((o1, o2) -> o1.getFrom().compareTo(o2.getFrom()));
+        return results;
+    }
+
+    /**
+     * <p>Return the high-water mark of the latest snapshot of each projection
+     * that has one, keyed by projection name.</p>
+     */
+    private Map<String, LocalDateTime> findSnapshots() {
+        Map<String, LocalDateTime> results = new HashMap<>();
+        for (Object[] row : entityManager.createQuery(
+                "SELECT s.name, s.eventUpdated FROM ProjectionSnapshot s", Object[].class)
+                .getResultList()) {
+            results.put((String) row[0], (LocalDateTime) row[1]);
+        }
+        return results;
+    }
+
+    private Boolean isDefaultUsed() {
+        return (Boolean) entityManager
+                .createNativeQuery("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + ")")
+                .getSingleResult();
+    }
+
+    private Boolean isPartitioned() {
+        Object kind = entityManager
+                .createNativeQuery("SELECT CAST(relkind AS text) FROM pg_class" +
+                        " WHERE oid = to_regclass('" + TABLE + "')")
+                .getSingleResult();
+        return "p".equals(kind);
+    }
+
+    /**
+     * <p>Publish the specified partitions, replacing the gauges of the
+     * previous ones.</p>
+     */
+    private void refresh(List<EventPartition> found) {
+        partitions = Collections.unmodifiableList(found);
+        removeGauges();
+        registerGauge("partitions", "Partitions of the mutated model event table",
+                MetricUnits.NONE, (long) found.size());
+        for (EventPartition partition : found) {
+            Tag tag = new Tag("partition", partition.getName());
+            registerGauge("partition.bytes", "Size of this event partition, including indexes",
+                    MetricUnits.BYTES, partition.getBytes(), tag);
+            registerGauge("partition.rows", "Estimated number of events in this partition",
+                    MetricUnits.NONE, partition.getRows(), tag);
+        }
+    }
+
+    private void registerGauge(String name, String description, String unit, long value, Tag... tags) {
+        Metadata metadata = Metadata.builder()
+                .withName(METRIC_PREFIX + name)
+                .withDescription(description)
+                .withType(MetricType.GAUGE)
+                .withUnit(unit)
+                .build();
+        Gauge<Long> gauge = () -> value;
+        metricRegistry.register(metadata, gauge, tags);
+    }
+
+    private void removeGauges() {
+        metricRegistry.removeMatching((metricID, metric) ->
+                metricID.getName().startsWith(METRIC_PREFIX));
+    }
+
+    private void rollback() {
+        try {
+            if (userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                userTransaction.rollback();
+            }
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Cannot roll back event partition transaction", e);
+        }
+    }
+
+    /**
+     * <p>Return the start of the period containing the specified time.</p>
+     */
+    private LocalDateTime startOf(ChronoUnit unit, LocalDateTime time) {
+        LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+        switch (unit) {
+            case MONTHS:
+                return day.with(TemporalAdjusters.firstDayOfMonth());
+            case WEEKS:
+                return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            default:
+                return day;
+        }
+    }
+
+    /**
+     * <p>Perform the specified work in its own transaction, and return its
+     * result.</p>
+     */
+    private <R> R transaction(Callable<R> work) throws InternalServerError {
+        try {
+            userTransaction.setTransactionTimeout(transactionTimeout);
+            userTransaction.begin();
+            R result = work.call();
+            userTransaction.commit();
+            return result;
+        } catch (Exception e) {
+            rollback();
+            throw new InternalServerError(e.getMessage(), e);
+        } finally {
+            try {
+                userTransaction.setTransactionTimeout(0); // Back to the container default
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Cannot reset event partition transaction timeout", e);
+            }
+        }
+    }
+
+    private ChronoUnit unit() throws InternalServerError {
+        switch (period.toUpperCase()) {
+            case "DAYS":
+                return ChronoUnit.DAYS;
+            case "MONTHS":
+                return ChronoUnit.MONTHS;
+            case "WEEKS":
+                return ChronoUnit.WEEKS;
+            default:
+                throw new InternalServerError(String.format
+                        ("event.partition.period: Must be DAYS, WEEKS, or MONTHS, not %s", period));
+        }
+    }
+
+}
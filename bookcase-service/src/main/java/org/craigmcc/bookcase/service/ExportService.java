@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.export.ExportFormat;
+import org.craigmcc.bookcase.export.ExportSection;
+import org.craigmcc.bookcase.export.ExportWriter;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import javax.annotation.Resource;
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+import javax.validation.constraints.NotNull;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.WARNING;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+
+/**
+ * <p>Stream the entire catalog of the current tenant, in dependency order,
+ * to an output stream.
+ * Each section is read through a forward only cursor over a scalar
+ * projection, so no entities are instantiated or retained in a persistence
+ * context, and memory use does not depend on the size of the catalog.</p>
+ *
+ * <p>The export manages its own (read only) transaction, because Postgres
+ * only honors the JDBC fetch size inside a transaction, and because an export
+ * of a large catalog can outlast the default transaction timeout.</p>
+ */
+@LocalBean
+@Stateless
+@TransactionManagement(TransactionManagementType.BEAN)
+public class ExportService {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Number of rows fetched from the database per round trip.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "export.fetch.size", defaultValue = "1000")
+    private Integer fetchSize;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    private EntityManager primaryEntityManager;
+
+    @Inject
+    private ReadQueryService readQueryService;
+
+    /**
+     * <p>Transaction timeout (in seconds) for a complete export.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "export.transaction.timeout", defaultValue = "3600")
+    private Integer transactionTimeout;
+
+    @Resource
+    private UserTransaction userTransaction;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG = Logger.getLogger(ExportService.class.getSimpleName());
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Export all sections of the catalog in the specified format, and
+     * return the number of rows exported per section.  The output stream
+     * is flushed but not closed.</p>
+     *
+     * @param format Format in which to write the export
+     * @param outputStream Stream to which the export is written
+     *
+     * @throws InternalServerError If a database or output error occurs
+     */
+    public @NotNull Map<String, Long> export(@NotNull ExportFormat format, @NotNull OutputStream outputStream)
+            throws InternalServerError {
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        long started = System.currentTimeMillis();
+        ExportWriter writer = format.writer(outputStream);
+        EntityManager replicaEntityManager = null;
+
+        try {
+
+            userTransaction.setTransactionTimeout(transactionTimeout);
+            userTransaction.begin();
+            replicaEntityManager = readQueryService.createReplicaEntityManager();
+            EntityManager entityManager = primaryEntityManager;
+            if (replicaEntityManager != null) {
+                replicaEntityManager.joinTransaction();
+                entityManager = replicaEntityManager;
+            }
+            Session session = TenantFilters.enable(entityManager).unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            for (ExportSection section : ExportSection.SECTIONS) {
+                counts.put(section.getType(), export(session, section, writer));
+            }
+            writer.flush();
+            userTransaction.commit();
+
+        } catch (Exception e) {
+            rollback();
+            throw new InternalServerError(e.getMessage(), e);
+        } finally {
+            if (replicaEntityManager != null) {
+                replicaEntityManager.close();
+            }
+            resetTransactionTimeout();
+        }
+
+        LOG.info(String.format("Exported %s as %s in %d ms",
+                counts, format, System.currentTimeMillis() - started));
+        return counts;
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private long export(Session session, ExportSection section, ExportWriter writer)
+            throws Exception {
+        long count = 0;
+        writer.writeSection(section);
+        try (ScrollableResults results = session.createQuery(section.getQuery())
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                writer.writeRow(results.get());
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void resetTransactionTimeout() {
+        try {
+            userTransaction.setTransactionTimeout(0); // Back to the container default
+        } catch (SystemException e) {
+            LOG.log(WARNING, "Cannot reset export transaction timeout", e);
+        }
+    }
+
+    private void rollback() {
+        try {
+            if (userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                userTransaction.rollback();
+            }
+        } catch (Exception e) {
+            LOG.log(WARNING, "Cannot roll back export transaction", e);
+        }
+    }
+
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.importer.ImportCheckpoint;
+import org.craigmcc.bookcase.importer.ImportItem;
+import org.craigmcc.bookcase.importer.ImportMapping;
+import org.craigmcc.bookcase.importer.ImportMappings;
+import org.craigmcc.bookcase.importer.ImportRecord;
+import org.craigmcc.bookcase.importer.ImportReport;
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.tenant.TenantScoped;
+import org.craigmcc.library.model.Model;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceContext;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_FIELD;
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_FIELD;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_FIELD;
+import static org.craigmcc.bookcase.model.Constants.BOOK_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.craigmcc.bookcase.model.Constants.FIRST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.LAST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_FIELD;
+import static org.craigmcc.bookcase.model.Constants.SERIES_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+
+/**
+ * <p>Transactional steps of an import, split out from {@link ImportService}
+ * so that each chunk of rows (together with the import checkpoint) commits
+ * in its own transaction.</p>
+ *
+ * <p>Checkpoints and ID mappings are stored under the name of the import
+ * qualified by its tenant (see <code>tenantName()</code>), so that tenants
+ * may use the same import names.</p>
+ */
+@LocalBean
+@Stateless
+@TenantScoped
+public class ImportChunkService {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Number of inserts sent to the database per JDBC batch (the
+     * persistence context is also flushed and cleared at this interval).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "import.batch.size", defaultValue = "50")
+    private Integer batchSize;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    private EntityManager entityManager;
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Start (or, if <code>resume</code> is true, resume) the named import,
+     * and return its checkpoint.  Starting an import discards any earlier
+     * checkpoint with the same name.</p>
+     *
+     * @param name Name of the import
+     * @param format Format of the import file
+     * @param resume Resume after the rows committed by an earlier attempt?
+     *
+     * @throws BadRequest If resuming an import in a different format
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public @NotNull ImportCheckpoint begin(@NotNull String name, @NotNull String format, boolean resume)
+            throws BadRequest {
+        ImportCheckpoint checkpoint = findCheckpoint(name);
+        if (checkpoint == null) {
+            checkpoint = new ImportCheckpoint(tenantName(name), format);
+            checkpoint.setPublished(LocalDateTime.now());
+            entityManager.persist(checkpoint);
+        } else if (resume) {
+            if (!format.equals(checkpoint.getFormat())) {
+                throw new BadRequest("format: Import '" + name + "' was started as " + checkpoint.getFormat());
+            }
+        } else {
+            entityManager.createNamedQuery("ImportMapping.deleteByImportName")
+                    .setParameter("importName", tenantName(name))
+                    .executeUpdate();
+            checkpoint.setFormat(format);
+            checkpoint.setPublished(LocalDateTime.now());
+            checkpoint.setRecords(0L);
+        }
+        checkpoint.setMessage(null);
+        checkpoint.setStatus(ImportReport.Status.RUNNING);
+        checkpoint.setUpdated(LocalDateTime.now());
+        return checkpoint;
+    }
+
+    /**
+     * <p>Resolve references, persist the valid items of one chunk in JDBC
+     * batches, and advance the checkpoint past the chunk.  Resolved IDs and
+     * natural keys are added to <code>mappings</code>, and outcomes are
+     * counted in <code>report</code>.</p>
+     *
+     * @param report Report of the running import
+     * @param items Parsed items of the chunk, in file order
+     * @param mappings References resolved so far by this import
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void commit(@NotNull ImportReport report, @NotNull List<ImportItem> items,
+                       @NotNull ImportMappings mappings) {
+
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        int persisted = 0;
+
+        for (ImportItem item : items) {
+
+            ImportRecord record = item.getRecord();
+            if (!item.isValid()) {
+                report.rejected(record, item.getErrors());
+                continue;
+            }
+
+            Model<?> model = item.getModel();
+            try {
+                if (model instanceof Author) {
+                    Author author = (Author) model;
+                    String key = ImportMappings.authorKey(author.getLastName(), author.getFirstName());
+                    Long existing = findKey(AUTHOR_NAME, key, mappings);
+                    if (existing != null) {
+                        map(report, AUTHOR_NAME, item.getSourceId(), existing, mappings);
+                        report.matched();
+                        continue;
+                    }
+                } else {
+                    resolve(model, record, mappings);
+                }
+            } catch (IllegalArgumentException e) {
+                report.rejected(record, List.of(e.getMessage()));
+                continue;
+            }
+
+            if (model.getPublished() == null) {
+                model.setPublished(LocalDateTime.now());
+            }
+            if (model.getUpdated() == null) {
+                model.setUpdated(model.getPublished());
+            }
+            entityManager.persist(model);
+            map(report, typeOf(model), item.getSourceId(), model.getId(), mappings);
+            report.inserted();
+
+            if (++persisted % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+
+        }
+
+        ImportCheckpoint checkpoint = findCheckpoint(report.getName());
+        checkpoint.setRecords(items.get(items.size() - 1).getRecord().getNumber());
+        checkpoint.setUpdated(LocalDateTime.now());
+        entityManager.flush();
+
+    }
+
+    /**
+     * <p>Record the final status of the named import.  The ID mappings of a
+     * completed import are no longer needed, and are deleted.</p>
+     *
+     * @param name Name of the import
+     * @param status Final status
+     * @param message Failure message, if any
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void finish(@NotNull String name, @NotNull ImportReport.Status status, String message) {
+        ImportCheckpoint checkpoint = findCheckpoint(name);
+        if (checkpoint == null) {
+            return;
+        }
+        if (status == ImportReport.Status.COMPLETED) {
+            entityManager.createNamedQuery("ImportMapping.deleteByImportName")
+                    .setParameter("importName", tenantName(name))
+                    .executeUpdate();
+        }
+        checkpoint.setMessage(message);
+        checkpoint.setStatus(status);
+        checkpoint.setUpdated(LocalDateTime.now());
+    }
+
+    /**
+     * <p>Return the checkpoint of the named import, or <code>null</code> if
+     * there is none.</p>
+     *
+     * @param name Name of the import
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public ImportCheckpoint findCheckpoint(@NotNull String name) {
+        List<ImportCheckpoint> results = entityManager
+                .createNamedQuery("ImportCheckpoint.findByName", ImportCheckpoint.class)
+                .setParameter("name", tenantName(name))
+                .getResultList();
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * <p>Return the ID mappings committed by earlier attempts of the named import.</p>
+     *
+     * @param name Name of the import
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public @NotNull ImportMappings loadMappings(@NotNull String name) {
+        ImportMappings mappings = new ImportMappings();
+        List<?> rows = entityManager.createNamedQuery("ImportMapping.findByImportName")
+                .setParameter("importName", tenantName(name))
+                .getResultList();
+        for (Object row : rows) {
+            Object[] values = (Object[]) row;
+            mappings.putId((String) values[0], (Long) values[1], (Long) values[2]);
+        }
+        return mappings;
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    /**
+     * <p>Return the specified import name qualified by the current tenant.
+     * Names of the default tenant are not qualified, so that its imports
+     * started before there were tenants can still be resumed.</p>
+     *
+     * @param name Name of the import
+     */
+    static String tenantName(String name) {
+        String tenantId = TenantContext.current();
+        return DEFAULT_TENANT_ID.equals(tenantId) ? name : tenantId + "/" + name;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Return the ID of the model of the specified type matching the
+     * specified natural key, from this import or (failing that) the database.</p>
+     */
+    private Long findKey(String type, String key, ImportMappings mappings) {
+        Long modelId = mappings.getKey(type, key);
+        if (modelId != null) {
+            return modelId;
+        }
+        List<Long> matches;
+        if (AUTHOR_NAME.equals(type)) {
+            int split = key.indexOf('|');
+            matches = entityManager.createQuery("SELECT a.id FROM " + AUTHOR_NAME + " a " +
+                    "WHERE a." + FIRST_NAME_COLUMN + " = :" + FIRST_NAME_COLUMN + " " +
+                    "AND a." + LAST_NAME_COLUMN + " = :" + LAST_NAME_COLUMN, Long.class)
+                    .setParameter(FIRST_NAME_COLUMN, (split < 0) ? "" : key.substring(split + 1))
+                    .setParameter(LAST_NAME_COLUMN, (split < 0) ? key : key.substring(0, split))
+                    .setFlushMode(FlushModeType.COMMIT) // Rows of this import are in mappings
+                    .setMaxResults(2)
+                    .getResultList();
+        } else {
+            matches = entityManager.createQuery("SELECT x.id FROM " + type + " x " +
+                    "WHERE x." + TITLE_COLUMN + " = :" + TITLE_COLUMN, Long.class)
+                    .setParameter(TITLE_COLUMN, key)
+                    .setFlushMode(FlushModeType.COMMIT) // Rows of this import are in mappings
+                    .setMaxResults(2)
+                    .getResultList();
+        }
+        if (matches.isEmpty()) {
+            return null;
+        }
+        modelId = (matches.size() == 1) ? matches.get(0) : ImportMappings.AMBIGUOUS;
+        mappings.putKey(type, key, modelId);
+        return modelId;
+    }
+
+    /**
+     * <p>Record the database ID of an imported (or matched) row, both by its
+     * file ID (durably, for resume) and by its natural key.</p>
+     */
+    private void map(ImportReport report, String type, Long sourceId, Long modelId, ImportMappings mappings) {
+        if (AUTHOR_NAME.equals(type) || ANTHOLOGY_NAME.equals(type)
+                || BOOK_NAME.equals(type) || SERIES_NAME.equals(type)) {
+            if (sourceId != null) {
+                mappings.putId(type, sourceId, modelId);
+                ImportMapping mapping = new ImportMapping(tenantName(report.getName()), type, sourceId, modelId);
+                mapping.setPublished(LocalDateTime.now());
+                mapping.setUpdated(mapping.getPublished());
+                entityManager.persist(mapping);
+            }
+        }
+    }
+
+    /**
+     * <p>Return the ID of the model of the specified type that a row
+     * references, by file ID (<code>idColumn</code>) or by natural key
+     * (<code>keyColumn</code>).</p>
+     *
+     * @throws IllegalArgumentException If the reference is missing or cannot be resolved
+     */
+    private Long reference(ImportRecord record, String type, String idColumn, String keyColumn,
+                           ImportMappings mappings) {
+        String sourceId = record.getValue(idColumn);
+        if (sourceId != null) {
+            Long modelId;
+            try {
+                modelId = mappings.getId(type, Long.valueOf(sourceId.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(idColumn + ": Must be an integer, not '" + sourceId + "'");
+            }
+            if (modelId == null) {
+                throw new IllegalArgumentException(idColumn + ": No " + type + " with id " +
+                        sourceId + " has been imported");
+            }
+            return modelId;
+        }
+        String key = record.getValue(keyColumn);
+        if (key == null) {
+            throw new IllegalArgumentException(idColumn + " or " + keyColumn + ": Required");
+        }
+        Long modelId = findKey(type, key, mappings);
+        if (modelId == null) {
+            throw new IllegalArgumentException(keyColumn + ": No " + type + " matches '" + key + "'");
+        } else if (ImportMappings.AMBIGUOUS.equals(modelId)) {
+            throw new IllegalArgumentException(keyColumn + ": More than one " + type + " matches '" + key + "'");
+        }
+        return modelId;
+    }
+
+    /**
+     * <p>Set the reference IDs of the specified model.</p>
+     */
+    private void resolve(Model<?> model, ImportRecord record, ImportMappings mappings) {
+        if (model instanceof Anthology) {
+            ((Anthology) model).setAuthorId
+                    (reference(record, AUTHOR_NAME, AUTHOR_ID_COLUMN, AUTHOR_FIELD, mappings));
+        } else if (model instanceof Book) {
+            ((Book) model).setAuthorId
+                    (reference(record, AUTHOR_NAME, AUTHOR_ID_COLUMN, AUTHOR_FIELD, mappings));
+        } else if (model instanceof Member) {
+            Member member = (Member) model;
+            member.setBookId(reference(record, BOOK_NAME, BOOK_ID_COLUMN, BOOK_FIELD, mappings));
+            member.setSeriesId(reference(record, SERIES_NAME, SERIES_ID_COLUMN, SERIES_FIELD, mappings));
+        } else if (model instanceof Series) {
+            ((Series) model).setAuthorId
+                    (reference(record, AUTHOR_NAME, AUTHOR_ID_COLUMN, AUTHOR_FIELD, mappings));
+        } else if (model instanceof Story) {
+            Story story = (Story) model;
+            story.setAnthologyId(reference(record, ANTHOLOGY_NAME, ANTHOLOGY_ID_COLUMN, ANTHOLOGY_FIELD, mappings));
+            story.setBookId(reference(record, BOOK_NAME, BOOK_ID_COLUMN, BOOK_FIELD, mappings));
+        }
+    }
+
+    private String typeOf(Model<?> model) {
+        return model.getClass().getSimpleName(); // Entity names match class names
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.export.ExportFormat;
+import org.craigmcc.bookcase.importer.ImportCheckpoint;
+import org.craigmcc.bookcase.importer.ImportItem;
+import org.craigmcc.bookcase.importer.ImportMappings;
+import org.craigmcc.bookcase.importer.ImportParser;
+import org.craigmcc.bookcase.importer.ImportReader;
+import org.craigmcc.bookcase.importer.ImportRecord;
+import org.craigmcc.bookcase.importer.ImportReport;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+import javax.validation.Validator;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.SEVERE;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * <p>Bulk import of a catalog file (in any {@link ExportFormat}) as a staged
+ * pipeline.  Rows are read in chunks; each chunk is parsed and validated in
+ * parallel slices on a managed executor while the previous chunk is being
+ * persisted; and each chunk is persisted (in JDBC batches) in its own
+ * transaction by {@link ImportChunkService}, together with a checkpoint of
+ * the number of rows consumed.  Invalid rows are rejected individually,
+ * without failing the import.  If a chunk fails, the import stops, and can be
+ * resumed after the last committed chunk by re-submitting the same file
+ * under the same name.</p>
+ *
+ * <p>Imports deliberately do not fire per-row model events; the author name
+ * index and suggestion indexes are rebuilt, the catalog snapshot (if
+ * enabled) is reloaded, and the catalog statistics are reconciled, once
+ * when an import ends.</p>
+ */
+@LocalBean
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ImportService {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private AuthorMatchService authorMatchService;
+
+    @Inject
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Inject
+    private CatalogStatisticsService catalogStatisticsService;
+
+    @Inject
+    private ClusterInvalidationService clusterInvalidationService;
+
+    /**
+     * <p>Number of rows read, parsed, and committed together.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "import.chunk.size", defaultValue = "1000")
+    private Integer chunkSize;
+
+    @Inject
+    private ImportChunkService importChunkService;
+
+    /**
+     * <p>Maximum number of row errors retained in an import report.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "import.error.limit", defaultValue = "100")
+    private Integer errorLimit;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    /**
+     * <p>Number of slices each chunk is split into for parallel parsing.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "import.parallelism", defaultValue = "4")
+    private Integer parallelism;
+
+    private final Map<String, ImportReport> reports = new ConcurrentHashMap<>();
+
+    @Inject
+    private SuggestService suggestService;
+
+    @Inject
+    private Validator validator;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(ImportService.class.getSimpleName());
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the report of the named import, from memory if it has run
+     * since startup, or else from its checkpoint.</p>
+     *
+     * @param name Name of the import
+     *
+     * @throws NotFound If there is no import with this name
+     */
+    public @NotNull ImportReport getReport(@NotNull String name) throws NotFound {
+        ImportReport report = reports.get(ImportChunkService.tenantName(name));
+        if (report != null) {
+            return report;
+        }
+        ImportCheckpoint checkpoint = importChunkService.findCheckpoint(name);
+        if (checkpoint == null) {
+            throw new NotFound("name: Missing import '" + name + "'");
+        }
+        report = new ImportReport(name, checkpoint.getFormat(), checkpoint.getRecords(), errorLimit);
+        if (checkpoint.getStatus() == ImportReport.Status.COMPLETED) {
+            report.completed();
+        } else {
+            report.failed((checkpoint.getMessage() != null) ? checkpoint.getMessage()
+                    : "Interrupted after " + checkpoint.getRecords() + " rows");
+        }
+        return report;
+    }
+
+    /**
+     * <p>Import the catalog rows on the specified input stream, and return
+     * the report of the completed import.</p>
+     *
+     * @param name Name of the import (used to report on and resume it)
+     * @param format Format of the input stream
+     * @param inputStream Stream to import from
+     * @param resume Skip the rows committed by an earlier attempt with this name?
+     *
+     * @throws BadRequest If the import cannot be resumed in this format
+     * @throws InternalServerError If the import fails (it can then be resumed)
+     * @throws NotUnique If an import with this name is already running
+     */
+    public @NotNull ImportReport importCatalog(@NotNull String name, @NotNull ExportFormat format,
+                                               @NotNull InputStream inputStream, boolean resume)
+            throws BadRequest, InternalServerError, NotUnique {
+
+        ImportReport report;
+        synchronized (reports) {
+            ImportReport running = reports.get(ImportChunkService.tenantName(name));
+            if ((running != null) && (running.getStatus() == ImportReport.Status.RUNNING)) {
+                throw new NotUnique("name: Import '" + name + "' is already running");
+            }
+            ImportCheckpoint checkpoint = importChunkService.begin(name, format.name(), resume);
+            report = new ImportReport(name, format.name(), resume ? checkpoint.getRecords() : 0L, errorLimit);
+            reports.put(ImportChunkService.tenantName(name), report);
+        }
+
+        List<Future<List<ImportItem>>> parsing = Collections.emptyList();
+        try {
+            ImportMappings mappings = (report.getResumedAfter() > 0)
+                    ? importChunkService.loadMappings(name) : new ImportMappings();
+            ImportParser parser = new ImportParser(validator);
+            ImportReader reader = format.reader(inputStream);
+            parsing = parse(parser, readChunk(reader, report));
+            while (!parsing.isEmpty()) {
+                List<ImportItem> items = collect(parsing);
+                parsing = parse(parser, readChunk(reader, report));
+                importChunkService.commit(report, items, mappings);
+                report.chunkCommitted();
+            }
+            importChunkService.finish(name, ImportReport.Status.COMPLETED, null);
+            report.completed();
+        } catch (Exception e) {
+            parsing.forEach(future -> future.cancel(true));
+            String message = "Import '" + name + "' failed after " + report.getRead() +
+                    " rows: " + e.getMessage();
+            LOG.log(SEVERE, message, e);
+            report.failed(message);
+            try {
+                importChunkService.finish(name, ImportReport.Status.FAILED, message);
+            } catch (Exception f) {
+                LOG.log(WARNING, "Cannot record failure of import '" + name + "'", f);
+            }
+            throw new InternalServerError(message, e);
+        } finally {
+            authorMatchService.rebuild();
+            catalogSnapshotService.reload();
+            catalogStatisticsService.reconcile();
+            suggestService.rebuild();
+            clusterInvalidationService.publishAll();
+        }
+
+        LOG.info(String.format("Import '%s' completed: %d read, %d inserted, %d matched, %d rejected (%d rows/second)",
+                name, report.getRead(), report.getInserted(), report.getMatched(),
+                report.getRejected(), report.getRecordsPerSecond()));
+        return report;
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Wait for the parse of a chunk to complete, and return its items in file order.</p>
+     */
+    private List<ImportItem> collect(List<Future<List<ImportItem>>> parsing)
+            throws ExecutionException, InterruptedException {
+        List<ImportItem> items = new ArrayList<>(chunkSize);
+        for (Future<List<ImportItem>> future : parsing) {
+            items.addAll(future.get());
+        }
+        return items;
+    }
+
+    /**
+     * <p>Start parsing a chunk in parallel slices, and return the pending results.</p>
+     */
+    private List<Future<List<ImportItem>>> parse(ImportParser parser, List<ImportRecord> records) {
+        List<Future<List<ImportItem>>> futures = new ArrayList<>(parallelism);
+        if (records.isEmpty()) {
+            return futures;
+        }
+        int size = (records.size() + parallelism - 1) / parallelism;
+        for (int start = 0; start < records.size(); start += size) {
+            List<ImportRecord> slice = records.subList(start, Math.min(start + size, records.size()));
+            futures.add(executor.submit(() -> {
+                List<ImportItem> items = new ArrayList<>(slice.size());
+                for (ImportRecord record : slice) {
+                    items.add(parser.parse(record));
+                }
+                return items;
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * <p>Read the next chunk of rows, skipping those already committed by an
+     * earlier attempt.  An empty chunk means the input is exhausted.</p>
+     */
+    private List<ImportRecord> readChunk(ImportReader reader, ImportReport report) throws IOException {
+        List<ImportRecord> records = new ArrayList<>(chunkSize);
+        ImportRecord record;
+        while ((records.size() < chunkSize) && ((record = reader.next()) != null)) {
+            if (record.getNumber() > report.getResumedAfter()) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+}
@@ -15,11 +15,19 @@
  */
 package org.craigmcc.bookcase.service;
 
+import org.craigmcc.bookcase.catalog.CatalogSnapshot;
+import org.craigmcc.bookcase.coalesce.Coalesced;
 import org.craigmcc.bookcase.event.DeletedModelEvent;
 import org.craigmcc.bookcase.event.ForMember;
 import org.craigmcc.bookcase.event.InsertedModelEvent;
 import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.Book;
 import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.statistics.SlowQueryLogged;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantScoped;
 import org.craigmcc.library.model.ModelService;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
@@ -28,40 +36,58 @@ import org.craigmcc.library.shared.exception.NotUnique;
 
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceException;
-import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static org.craigmcc.bookcase.model.Constants.BOOK_ID_VALIDATION_MESSAGE;
 import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
+import static org.craigmcc.bookcase.model.Constants.SERIES_IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.SERIES_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_ID_VALIDATION_MESSAGE;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
+@Coalesced
 @LocalBean
+@SlowQueryLogged
 @Stateless
+@TenantScoped
 public class MemberService extends ModelService<Member> {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private CatalogSnapshotService catalogSnapshotService;
+
     @Inject
     @ForMember
     private Event<DeletedModelEvent> deletedMemberEvent;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     protected EntityManager entityManager;
 
     @Inject
     @ForMember
     private Event<InsertedModelEvent> insertedMemberEvent;
 
+    @Inject
+    private ReadQueryService readQueryService;
+
     @Inject
     @ForMember
     private Event<UpdatedModelEvent> updatedMemberEvent;
@@ -77,7 +103,7 @@ public class MemberService extends ModelService<Member> {
         try {
 
             Member deleted = entityManager.find(Member.class, id);
-            if (deleted != null) {
+            if ((deleted != null) && TenantContext.isCurrent(deleted)) {
                 entityManager.remove(deleted);
                 deleted.setUpdated(LocalDateTime.now());
                 deletedMemberEvent.fire(new DeletedModelEvent(deleted));
@@ -93,6 +119,7 @@ public class MemberService extends ModelService<Member> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull Member find(@NotNull Long id)
             throws InternalServerError, NotFound {
 
@@ -100,16 +127,26 @@ public class MemberService extends ModelService<Member> {
             throw new NotFound("id: Cannot be null");
         }
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            Member result = snapshot.findMember(id);
+            if (result == null) {
+                throw new NotFound("id: Missing member " + id);
+            }
+            return result;
+        }
+
         try {
 
-            TypedQuery<Member> query = entityManager.createNamedQuery
-                    (MEMBER_NAME + ".findById", Member.class)
-                    .setParameter(ID_COLUMN, id);
-            Member result = query.getSingleResult();
+            Member result = readQueryService.getSingleResult
+                    (MEMBER_NAME + ".findById", Member.class, ID_COLUMN, id);
+            if (result == null) {
+                throw new NotFound("id: Missing member " + id);
+            }
             return result;
 
-        } catch (NoResultException e) {
-            throw new NotFound("id: Missing member " + id);
+        } catch (NotFound e) {
+            throw e;
         } catch (Exception e) {
             throw new InternalServerError(e.getMessage(), e);
         }
@@ -117,13 +154,18 @@ public class MemberService extends ModelService<Member> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Member> findAll() throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findAllMembers();
+        }
+
         try {
 
-            TypedQuery<Member> query = entityManager.createNamedQuery
+            List<Member> results = readQueryService.getResultList
                     (MEMBER_NAME + ".findAll", Member.class);
-            List<Member> results = query.getResultList();
             return results;
 
         } catch (Exception e) {
@@ -132,15 +174,19 @@ public class MemberService extends ModelService<Member> {
 
     }
 
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Member> findBySeriesId(@NotNull Long seriesId)
             throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findMembersBySeriesId(seriesId);
+        }
+
         try {
 
-            TypedQuery<Member> query = entityManager.createNamedQuery
-                    (MEMBER_NAME + ".findBySeriesId", Member.class)
-                    .setParameter(SERIES_ID_COLUMN, seriesId);
-            List<Member> result = query.getResultList();
+            List<Member> result = readQueryService.getResultList
+                    (MEMBER_NAME + ".findBySeriesId", Member.class, SERIES_ID_COLUMN, seriesId);
             return result;
 
         } catch (Exception e) {
@@ -149,12 +195,51 @@ public class MemberService extends ModelService<Member> {
 
     }
 
+    /**
+     * <p>Return the members of any of the specified series, using a single query.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull List<Member> findBySeriesIds(@NotNull Collection<Long> seriesIds)
+            throws InternalServerError {
+
+        if (seriesIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            List<Member> results = new ArrayList<>();
+            for (Long seriesId : seriesIds) {
+                results.addAll(snapshot.findMembersBySeriesId(seriesId));
+            }
+            return results;
+        }
+
+        try {
+
+            List<Member> results = readQueryService.getResultList
+                    (MEMBER_NAME + ".findBySeriesIds", Member.class, SERIES_IDS_PARAMETER, seriesIds);
+            return results;
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    /**
+     * <p>Insert the specified member with the ordinal it already has, which
+     * need not leave room for later inserts.  Only <code>insertAt()</code>
+     * assigns sparse ordinals; crowded ordinals written here are spread out
+     * by the next periodic renumbering (see <code>OrdinalRenumberService</code>).</p>
+     */
     @Override
     public @NotNull Member insert(@NotNull Member member)
             throws BadRequest, InternalServerError, NotUnique {
 
         try {
 
+            checkReferences(member);
             member.setId(null); // Ignore any existing primary key
             member.setPublished(LocalDateTime.now());
             member.setUpdated(member.getPublished());
@@ -164,6 +249,8 @@ public class MemberService extends ModelService<Member> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
+        } catch (BadRequest e) {
+            throw e;
         } catch (PersistenceException e) {
             handlePersistenceException(e);
         } catch (Exception e) {
@@ -174,6 +261,122 @@ public class MemberService extends ModelService<Member> {
 
     }
 
+    /**
+     * <p>Insert the specified member at the specified (zero relative) position
+     * among the current members of its series.  It is given an ordinal between
+     * those of its new neighbours, so no other member changes unless the
+     * series first has to be renumbered to make room.  The series
+     * is locked first, so concurrent inserts into it cannot be given the same
+     * ordinal.</p>
+     *
+     * @param member Member to be inserted
+     * @param position Position of the new member (clamped to the valid range)
+     */
+    public @NotNull Member insertAt(@NotNull Member member, int position)
+            throws BadRequest, InternalServerError, NotUnique {
+
+        if (member.getSeriesId() != null) {
+            try {
+                OrdinalUpdater.lock(entityManager, Series.class, member.getSeriesId());
+                Map<Long, Integer> current = OrdinalUpdater.ordinals
+                        (entityManager, MEMBER_NAME, SERIES_ID_COLUMN, member.getSeriesId());
+                Integer ordinal = OrdinalUpdater.ordinalAt(current, position);
+                if (ordinal == null) {
+                    renumber(member.getSeriesId());
+                    current = OrdinalUpdater.ordinals
+                            (entityManager, MEMBER_NAME, SERIES_ID_COLUMN, member.getSeriesId());
+                    ordinal = OrdinalUpdater.ordinalAt(current, position);
+                }
+                member.setOrdinal(ordinal);
+            } catch (Exception e) {
+                throw new InternalServerError(e.getMessage(), e);
+            }
+        }
+        return insert(member);
+
+    }
+
+    /**
+     * <p>Reassign evenly spaced ordinals to the members of the specified
+     * series, keeping their current order, and return the number of members
+     * whose ordinal changed.</p>
+     *
+     * @param seriesId ID of the series to be renumbered
+     */
+    public int renumber(@NotNull Long seriesId) throws InternalServerError {
+
+        try {
+
+            OrdinalUpdater.lock(entityManager, Series.class, seriesId);
+            Map<Long, Integer> current = OrdinalUpdater.ordinals
+                    (entityManager, MEMBER_NAME, SERIES_ID_COLUMN, seriesId);
+            Set<Long> changed = OrdinalUpdater.renumber
+                    (entityManager, MEMBER_NAME, current, new ArrayList<>(current.keySet()));
+            fireUpdated(seriesId, changed);
+            return changed.size();
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    /**
+     * <p>Renumber every series whose members' ordinals have run out of room
+     * (see <code>Ordinals.isCrowded()</code>), and return the number of series
+     * renumbered.</p>
+     */
+    public int renumberCrowded() throws InternalServerError {
+
+        List<Long> seriesIds;
+        try {
+            seriesIds = OrdinalUpdater.crowded(entityManager, MEMBER_NAME, SERIES_ID_COLUMN);
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+        for (Long seriesId : seriesIds) {
+            renumber(seriesId);
+        }
+        return seriesIds.size();
+
+    }
+
+    /**
+     * <p>Put the members of the specified series in the specified order,
+     * with set based updates of the members whose ordinal changes, and
+     * return the members in their new order.</p>
+     *
+     * @param seriesId ID of the series to be reordered
+     * @param memberIds IDs of every member of the series, in the new order
+     *
+     * @throws BadRequest If the IDs are not those of the series' members,
+     *                    each listed exactly once
+     */
+    public @NotNull List<Member> reorder(@NotNull Long seriesId, @NotNull List<Long> memberIds)
+            throws BadRequest, InternalServerError {
+
+        try {
+
+            OrdinalUpdater.lock(entityManager, Series.class, seriesId);
+            Map<Long, Integer> current = OrdinalUpdater.ordinals
+                    (entityManager, MEMBER_NAME, SERIES_ID_COLUMN, seriesId);
+            if ((memberIds.size() != current.size())
+                    || !current.keySet().equals(new HashSet<>(memberIds))) {
+                throw new BadRequest(String.format
+                        ("memberIds: Must list each member of series %d exactly once", seriesId));
+            }
+            Set<Long> changed = OrdinalUpdater.renumber
+                    (entityManager, MEMBER_NAME, current, memberIds);
+            return fireUpdated(seriesId, changed);
+
+        } catch (BadRequest e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
     @Override
     public @NotNull Member update(@NotNull Long memberId, @NotNull Member member)
             throws BadRequest, InternalServerError, NotFound, NotUnique {
@@ -182,7 +385,8 @@ public class MemberService extends ModelService<Member> {
 
         try {
 
-            original = find(memberId);
+            checkReferences(member);
+            original = findManaged(memberId);
             original.copy(member);
             original.setUpdated(LocalDateTime.now());
             entityManager.merge(original);
@@ -191,7 +395,7 @@ public class MemberService extends ModelService<Member> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
-        } catch (InternalServerError e) {
+        } catch (BadRequest e) {
             throw e;
         } catch (NotFound e) {
             throw e;
@@ -205,4 +409,48 @@ public class MemberService extends ModelService<Member> {
 
     }
 
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Refuse references to the models of other tenants, which the
+     * foreign keys alone would allow.</p>
+     */
+    private void checkReferences(Member member) throws BadRequest {
+        if (!TenantFilters.isVisible(entityManager, Book.class, member.getBookId())) {
+            throw new BadRequest(BOOK_ID_VALIDATION_MESSAGE);
+        }
+        if (!TenantFilters.isVisible(entityManager, Series.class, member.getSeriesId())) {
+            throw new BadRequest(SERIES_ID_VALIDATION_MESSAGE);
+        }
+    }
+
+    /**
+     * <p>Return the persistent instance (never the shared catalog snapshot
+     * instance) of the specified member, so that it may be modified.</p>
+     */
+    private Member findManaged(Long id) throws NotFound {
+        Member result = (id != null) ? entityManager.find(Member.class, id) : null;
+        if ((result == null) || !TenantContext.isCurrent(result)) {
+            throw new NotFound("id: Missing member " + id);
+        }
+        return result;
+    }
+
+    /**
+     * <p>Fire update events for the specified (bulk updated) members of the
+     * specified series, and return all of its members in order.</p>
+     */
+    private List<Member> fireUpdated(Long seriesId, Set<Long> changed) {
+        List<Member> results = entityManager.createNamedQuery
+                (MEMBER_NAME + ".findBySeriesId", Member.class)
+                .setParameter(SERIES_ID_COLUMN, seriesId)
+                .getResultList();
+        for (Member result : results) {
+            if (changed.contains(result.getId())) {
+                updatedMemberEvent.fire(new UpdatedModelEvent(result));
+            }
+        }
+        return results;
+    }
+
 }
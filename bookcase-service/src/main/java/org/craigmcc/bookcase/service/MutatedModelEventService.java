@@ -36,7 +36,9 @@ import java.util.Collection;
 import java.util.List;
 import java.util.logging.Logger;
 
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
+import static org.craigmcc.library.model.Constants.UPDATED_COLUMN;
 
 @LocalBean
 @Stateless
@@ -44,7 +46,7 @@ public class MutatedModelEventService {
 
     // Instance Variables ----------------------------------------------------
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     EntityManager entityManager;
 
     // Static Variables ------------------------------------------------------
@@ -61,6 +63,38 @@ public class MutatedModelEventService {
         return mutatedModelEvent;
     }
 
+    /**
+     * <p>Return up to <code>limit</code> events, in replay (<code>updated</code>
+     * then <code>id</code>) order, that follow the specified position and
+     * were recorded before the specified time.</p>
+     *
+     * @param updated Timestamp of the last event already replayed, or
+     *                <code>null</code> to start with the first event
+     * @param id ID of the last event already replayed (ignored if
+     *           <code>updated</code> is <code>null</code>)
+     * @param before Exclusive upper bound on the timestamps of returned events
+     * @param limit Maximum number of events to return
+     */
+    public @NotNull List<MutatedModelEvent> findAfter(
+            LocalDateTime updated,
+            Long id,
+            @NotNull LocalDateTime before,
+            int limit
+    ) {
+        TypedQuery<MutatedModelEvent> query;
+        if (updated == null) {
+            query = entityManager.createNamedQuery("MutatedModelEvent.findFirst", MutatedModelEvent.class);
+        } else {
+            query = entityManager.createNamedQuery("MutatedModelEvent.findAfter", MutatedModelEvent.class)
+                    .setParameter(UPDATED_COLUMN, updated)
+                    .setParameter(ID_COLUMN, id);
+        }
+        return query
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     public @NotNull Collection<MutatedModelEvent> findAll() {
 
         CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
@@ -99,9 +133,16 @@ public class MutatedModelEventService {
     private void handleMutatedModel(MutatedModelEvent mutatedModelEvent) {
         MutatedModelEvent event = new MutatedModelEvent(
                 mutatedModelEvent.getModel(), mutatedModelEvent.getType());
+        event.setModelId(mutatedModelEvent.getModelId());
+        event.setModelType(mutatedModelEvent.getModelType());
+        event.setPayload(mutatedModelEvent.getPayload());
         event.setPublished(LocalDateTime.now());
         event.setUpdated((event.getPublished()));
         entityManager.persist(event);
+        // Let later observers (such as event streams) know the recorded position of this event
+        mutatedModelEvent.setId(event.getId());
+        mutatedModelEvent.setPublished(event.getPublished());
+        mutatedModelEvent.setUpdated(event.getUpdated());
     }
 
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Periodically renumbers the series members and anthology stories whose
+ * sparse ordinals (see <code>Ordinals</code>) have run out of room between
+ * neighbours, so that later inserts and moves only touch one row.  Each
+ * parent is renumbered in its current order.  This also converts dense
+ * ordinals written before sparse ordinals were introduced.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@DependsOn("DevModeStartupService")
+public class OrdinalRenumberService {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private MemberService memberService;
+
+    /**
+     * <p>Seconds between checks for crowded ordinals (zero disables periodic
+     * renumbering).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "ordinal.renumber.interval", defaultValue = "3600")
+    private Integer renumberInterval;
+
+    @Inject
+    private StoryService storyService;
+
+    @Resource
+    private TimerService timerService;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(OrdinalRenumberService.class.getSimpleName());
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        if (renumberInterval > 0) {
+            long interval = renumberInterval * 1000L;
+            timerService.createIntervalTimer(interval, interval, new TimerConfig(null, false));
+        }
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Renumber every series and anthology whose ordinals are crowded, and
+     * return the number renumbered.</p>
+     */
+    public int renumber() throws InternalServerError {
+        int count = memberService.renumberCrowded() + storyService.renumberCrowded();
+        if (count > 0) {
+            LOG.info(String.format("Renumbered ordinals of %d series and anthologies", count));
+        }
+        return count;
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleTimeout() {
+        try {
+            renumber();
+        } catch (InternalServerError e) {
+            LOG.log(Level.WARNING, "Cannot renumber crowded ordinals", e);
+        }
+    }
+
+}
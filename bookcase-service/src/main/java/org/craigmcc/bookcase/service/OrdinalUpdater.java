@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.model.Ordinals;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.craigmcc.bookcase.model.Constants.ORDINAL_COLUMN;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+import static org.craigmcc.library.model.Constants.UPDATED_COLUMN;
+import static org.craigmcc.library.model.Constants.VERSION_COLUMN;
+
+/**
+ * <p>Set-based reads and updates of the sparse ordinals (see
+ * <code>Ordinals</code>) of the children (series members or anthology
+ * stories) of a parent, shared by <code>MemberService</code> and
+ * <code>StoryService</code>.  Updates are bulk statements, so they bump the
+ * <code>version</code> and <code>updated</code> columns themselves.
+ * Callers {@link #lock(EntityManager, Class, Long)} the parent before reading
+ * its children's ordinals, so that concurrent inserts and renumberings of
+ * the same parent are serialized instead of computing the same ordinal.</p>
+ */
+final class OrdinalUpdater {
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Maximum number of rows changed by a single update statement.</p>
+     */
+    static final int BATCH_SIZE = 500;
+
+    // Constructors ----------------------------------------------------------
+
+    private OrdinalUpdater() {
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the IDs of the parents (among all children of the specified
+     * entity) whose children's ordinals are crowded (see
+     * <code>Ordinals.isCrowded()</code>).</p>
+     *
+     * @param entityManager Entity manager for the primary database
+     * @param name Entity name of the children
+     * @param parentColumn Name of the children's parent ID column
+     */
+    static List<Long> crowded(EntityManager entityManager, String name, String parentColumn) {
+        List<Object[]> rows = entityManager.createQuery(
+                "SELECT x." + parentColumn + ", x." + ORDINAL_COLUMN + " FROM " + name + " x" +
+                        " ORDER BY x." + parentColumn + " ASC, x." + ORDINAL_COLUMN + " ASC",
+                Object[].class)
+                .getResultList();
+        List<Long> results = new ArrayList<>();
+        Long parentId = null;
+        List<Integer> ordinals = new ArrayList<>();
+        for (Object[] row : rows) {
+            if (!row[0].equals(parentId)) {
+                if ((parentId != null) && Ordinals.isCrowded(ordinals)) {
+                    results.add(parentId);
+                }
+                parentId = (Long) row[0];
+                ordinals.clear();
+            }
+            ordinals.add((Integer) row[1]);
+        }
+        if ((parentId != null) && Ordinals.isCrowded(ordinals)) {
+            results.add(parentId);
+        }
+        return results;
+    }
+
+    /**
+     * <p>Lock the specified parent (with a pessimistic write lock held until
+     * the current transaction ends), so that no other transaction reads or
+     * changes its children's ordinals until then.  A missing parent is
+     * ignored.</p>
+     *
+     * @param entityManager Entity manager for the primary database
+     * @param parentClass Entity class of the parent
+     * @param parentId ID of the parent
+     */
+    static void lock(EntityManager entityManager, Class<?> parentClass, Long parentId) {
+        entityManager.find(parentClass, parentId, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * <p>Return the ordinals (which may be <code>null</code>) of all children
+     * of the specified parent, keyed by child ID, in order.</p>
+     *
+     * @param entityManager Entity manager for the primary database
+     * @param name Entity name of the children
+     * @param parentColumn Name of the children's parent ID column
+     * @param parentId ID of the parent
+     */
+    static Map<Long, Integer> ordinals(
+            EntityManager entityManager,
+            String name,
+            String parentColumn,
+            Long parentId
+    ) {
+        List<Object[]> rows = entityManager.createQuery(
+                "SELECT x." + ID_COLUMN + ", x." + ORDINAL_COLUMN + " FROM " + name + " x" +
+                        " WHERE x." + parentColumn + " = :" + parentColumn +
+                        " ORDER BY x." + ORDINAL_COLUMN + " ASC, x." + ID_COLUMN + " ASC",
+                Object[].class)
+                .setParameter(parentColumn, parentId)
+                .getResultList();
+        Map<Long, Integer> results = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            results.put((Long) row[0], (Integer) row[1]);
+        }
+        return results;
+    }
+
+    /**
+     * <p>Return an ordinal that places a new child at the specified (zero
+     * relative, and clamped to the valid range) position among the specified
+     * children, or <code>null</code> if there is no room there.</p>
+     *
+     * @param current Current ordinals, keyed by child ID, in order
+     * @param position Position of the new child
+     */
+    static Integer ordinalAt(Map<Long, Integer> current, int position) {
+        List<Integer> ordinals = new ArrayList<>(current.values());
+        int index = Math.max(0, Math.min(position, ordinals.size()));
+        return Ordinals.between(
+                (index > 0) ? ordinals.get(index - 1) : null,
+                (index < ordinals.size()) ? ordinals.get(index) : null);
+    }
+
+    /**
+     * <p>Assign evenly spaced ordinals to the specified children, in the
+     * specified order, and return the IDs of those whose ordinal changed.</p>
+     *
+     * @param entityManager Entity manager for the primary database
+     * @param name Entity name of the children
+     * @param current Current ordinals, keyed by child ID
+     * @param order Child IDs in their new order
+     */
+    static Set<Long> renumber(
+            EntityManager entityManager,
+            String name,
+            Map<Long, Integer> current,
+            List<Long> order
+    ) {
+        Map<Long, Integer> changes = new LinkedHashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            Long id = order.get(i);
+            Integer ordinal = Ordinals.position(i);
+            if (!ordinal.equals(current.get(id))) {
+                changes.put(id, ordinal);
+            }
+        }
+        update(entityManager, name, changes);
+        return new HashSet<>(changes.keySet());
+    }
+
+    /**
+     * <p>Set the ordinals of the specified children, using one bulk update
+     * per {@link #BATCH_SIZE} children.</p>
+     *
+     * @param entityManager Entity manager for the primary database
+     * @param name Entity name of the children
+     * @param ordinals New ordinals, keyed by child ID
+     */
+    static void update(EntityManager entityManager, String name, Map<Long, Integer> ordinals) {
+        LocalDateTime updated = LocalDateTime.now();
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(ordinals.entrySet());
+        for (int start = 0; start < entries.size(); start += BATCH_SIZE) {
+            List<Map.Entry<Long, Integer>> batch =
+                    entries.subList(start, Math.min(start + BATCH_SIZE, entries.size()));
+            // IDs and ordinals are numbers computed here, so they are safe to inline
+            StringBuilder cases = new StringBuilder("CASE x." + ID_COLUMN);
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (Map.Entry<Long, Integer> entry : batch) {
+                cases.append(" WHEN ").append(entry.getKey().longValue())
+                        .append(" THEN ").append(entry.getValue().intValue());
+                ids.add(entry.getKey());
+            }
+            cases.append(" ELSE x.").append(ORDINAL_COLUMN).append(" END");
+            entityManager.createQuery(
+                    "UPDATE " + name + " x SET x." + ORDINAL_COLUMN + " = " + cases +
+                            ", x." + UPDATED_COLUMN + " = :" + UPDATED_COLUMN +
+                            ", x." + VERSION_COLUMN + " = x." + VERSION_COLUMN + " + 1" +
+                            " WHERE x." + ID_COLUMN + " IN :ids")
+                    .setParameter(UPDATED_COLUMN, updated)
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJBException;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.jms.Destination;
+import javax.jms.JMSDestinationDefinition;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Relays the transactional outbox (see {@link OutboxService}) to the JMS
+ * destination named by <code>outbox.destination</code>, which defaults to a
+ * queue defined by this application (and hosted by the embedded Artemis
+ * broker of the WildFly "full" profiles).  Every <code>outbox.linger</code>
+ * milliseconds, waiting messages are sent in batches of
+ * <code>outbox.batch.size</code> (each batch in its own transaction) until
+ * none are left, so a message waits at most about one linger interval.
+ * A batch that fails is rolled back and retried at the next interval.</p>
+ *
+ * <p>The number of relayed messages, and the number and age of the messages
+ * still waiting after each relay, are registered as application scoped
+ * metrics.</p>
+ */
+@JMSDestinationDefinition(
+        destinationName = "bookcaseEvents",
+        interfaceName = "javax.jms.Queue",
+        name = OutboxRelayService.DEFAULT_DESTINATION
+)
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@DependsOn("DevModeStartupService")
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class OutboxRelayService {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Maximum number of messages sent per transaction.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "outbox.batch.size", defaultValue = "100")
+    private Integer batchSize;
+
+    private Destination destination;
+
+    /**
+     * <p>JNDI name of the JMS destination messages are relayed to.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "outbox.destination", defaultValue = DEFAULT_DESTINATION)
+    private String destinationName;
+
+    /**
+     * <p>Relay the outbox (messages are only written while enabled).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "outbox.enabled", defaultValue = "false")
+    private boolean enabled;
+
+    /**
+     * <p>Age (in milliseconds) of the oldest waiting message after the last
+     * relay.</p>
+     */
+    private volatile long lag = 0L;
+
+    /**
+     * <p>Milliseconds between relays of the outbox.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "outbox.linger", defaultValue = "1000")
+    private Long linger;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    OutboxService outboxService;
+
+    /**
+     * <p>Number of waiting messages after the last relay.</p>
+     */
+    private volatile long pending = 0L;
+
+    Counter relayed;
+
+    @Resource
+    private TimerService timerService;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>JNDI name of the queue defined by this application.</p>
+     */
+    public static final String DEFAULT_DESTINATION = "java:global/jms/queue/bookcaseEvents";
+
+    private static final Logger LOG =
+            Logger.getLogger(OutboxRelayService.class.getSimpleName());
+
+    /**
+     * <p>Prefix for the names of all metrics registered by this service.</p>
+     */
+    public static final String METRIC_PREFIX = "bookcase.outbox.";
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            destination = (Destination) new InitialContext().lookup(destinationName);
+        } catch (NamingException e) {
+            throw new IllegalStateException("Cannot look up outbox destination " + destinationName, e);
+        }
+        registerMetrics();
+        timerService.createIntervalTimer(linger, linger, new TimerConfig(null, false));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        metricRegistry.removeMatching((metricID, metric) ->
+                metricID.getName().startsWith(METRIC_PREFIX));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Send every waiting message, and return the number sent.</p>
+     */
+    public long relay() {
+        long count = 0;
+        int sent;
+        do {
+            sent = outboxService.relay(destination, batchSize);
+            relayed.inc(sent);
+            count += sent;
+        } while (sent >= batchSize);
+        LocalDateTime oldest = outboxService.findOldest();
+        lag = (oldest != null) ? Duration.between(oldest, LocalDateTime.now()).toMillis() : 0L;
+        pending = outboxService.count();
+        return count;
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    /**
+     * <p>Set the maximum number of messages sent per transaction (normally
+     * configured by <code>outbox.batch.size</code>).</p>
+     */
+    void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    @Timeout
+    public void handleTimeout() {
+        try {
+            relay();
+        } catch (EJBException e) {
+            LOG.log(Level.WARNING, "Cannot relay the outbox, retrying after " + linger + " ms", e);
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void registerMetrics() {
+        relayed = metricRegistry.counter(Metadata.builder()
+                .withName(METRIC_PREFIX + "relayed")
+                .withDescription("Outbox messages sent to the JMS destination")
+                .withType(MetricType.COUNTER)
+                .build());
+        Gauge<Long> lagGauge = () -> lag;
+        metricRegistry.register(Metadata.builder()
+                .withName(METRIC_PREFIX + "lag")
+                .withDescription("Age of the oldest outbox message still waiting after the last relay")
+                .withType(MetricType.GAUGE)
+                .withUnit(MetricUnits.MILLISECONDS)
+                .build(), lagGauge);
+        Gauge<Long> pendingGauge = () -> pending;
+        metricRegistry.register(Metadata.builder()
+                .withName(METRIC_PREFIX + "pending")
+                .withDescription("Outbox messages still waiting after the last relay")
+                .withType(MetricType.GAUGE)
+                .build(), pendingGauge);
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.event.DeletedModelEvent;
+import org.craigmcc.bookcase.event.InsertedModelEvent;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.outbox.OutboxMessage;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.jms.Destination;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+
+/**
+ * <p>Transactional outbox of model mutations.  If enabled (via the
+ * <code>outbox.enabled</code> configuration property), every model event
+ * writes an {@link OutboxMessage} in the transaction of the mutation itself,
+ * and <code>relay()</code> sends the oldest messages to a JMS destination
+ * and deletes them in a single (XA) transaction.</p>
+ *
+ * <p>Each JMS message has the model payload (see <code>EventPayloads</code>)
+ * as its text, the <code>eventId</code>, <code>modelId</code>,
+ * <code>modelType</code>, <code>type</code>, and <code>published</code>
+ * properties, and a <code>JMSXGroupID</code> of the model type and ID, so
+ * that messages about one model object are consumed in order.  Because
+ * delivery is at least once, consumers should ignore an <code>eventId</code>
+ * they have already seen.</p>
+ */
+@LocalBean
+@Stateless
+public class OutboxService {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Write an outbox message for every model mutation.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "outbox.enabled", defaultValue = "false")
+    private boolean enabled;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    EntityManager entityManager;
+
+    @Inject
+    private JMSContext jmsContext;
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the number of messages waiting to be relayed.</p>
+     */
+    public long count() {
+        return entityManager
+                .createNamedQuery("OutboxMessage.count", Long.class)
+                .getSingleResult();
+    }
+
+    /**
+     * <p>Return the time the oldest waiting message was written, or
+     * <code>null</code> if no messages are waiting.</p>
+     */
+    public LocalDateTime findOldest() {
+        return entityManager
+                .createNamedQuery("OutboxMessage.findOldest", LocalDateTime.class)
+                .getSingleResult();
+    }
+
+    /**
+     * <p>Send up to <code>limit</code> of the oldest waiting messages, in
+     * the order they were written, to the specified destination, delete them,
+     * and return the number sent.  The messages are locked, so concurrent
+     * relays (on other cluster members) wait instead of reordering them.</p>
+     *
+     * @param destination JMS destination to send messages to
+     * @param limit Maximum number of messages to send
+     */
+    public int relay(@NotNull Destination destination, int limit) {
+        List<OutboxMessage> messages = entityManager
+                .createNamedQuery("OutboxMessage.findFirst", OutboxMessage.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(limit)
+                .getResultList();
+        JMSProducer producer = jmsContext.createProducer();
+        for (OutboxMessage message : messages) {
+            producer
+                    .setProperty("JMSXGroupID", message.getModelType() + ":" + message.getModelId())
+                    .setProperty("eventId", message.getId())
+                    .setProperty("modelId", message.getModelId())
+                    .setProperty("modelType", message.getModelType())
+                    .setProperty("published", message.getPublished().toString())
+                    .setProperty("type", message.getType().name())
+                    .send(destination, message.getPayload());
+            entityManager.remove(message);
+        }
+        return messages.size();
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    /**
+     * <p>Enable or disable writing messages (normally configured by
+     * <code>outbox.enabled</code>).</p>
+     */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    public void handleDeletedModel(@Observes DeletedModelEvent event) {
+        write(event);
+    }
+
+    public void handleInsertedModel(@Observes InsertedModelEvent event) {
+        write(event);
+    }
+
+    public void handleUpdatedModel(@Observes UpdatedModelEvent event) {
+        write(event);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void write(MutatedModelEvent event) {
+        if (enabled && (event.getModelId() != null) && (event.getPayload() != null)) {
+            entityManager.persist(new OutboxMessage(event));
+        }
+    }
+
+}
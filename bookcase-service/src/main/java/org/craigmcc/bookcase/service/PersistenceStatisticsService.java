@@ -0,0 +1,365 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.statistics.PersistenceStatistics;
+import org.craigmcc.bookcase.statistics.PersistenceStatistics.EntityStatistics;
+import org.craigmcc.bookcase.statistics.PersistenceStatistics.NamedQueryStatistics;
+import org.craigmcc.bookcase.statistics.PersistenceStatistics.SlowQuery;
+import org.craigmcc.bookcase.statistics.SlowQueryInterceptor;
+import org.craigmcc.bookcase.statistics.SlowStatementListener;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.PersistenceUnit;
+import javax.validation.constraints.NotNull;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+
+/**
+ * <p>Aggregate persistence statistics, gathered from the Hibernate statistics
+ * of our persistence unit (enabled by <code>hibernate.generate_statistics</code>)
+ * plus slow service calls reported by {@link SlowQueryInterceptor} and slow
+ * SQL statements reported by {@link SlowStatementListener}.  Besides the
+ * snapshot returned by <code>getStatistics()</code>, the most interesting values
+ * are registered as application scoped metrics gauges.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PersistenceStatisticsService {
+
+    // Instance Variables ----------------------------------------------------
+
+    @PersistenceUnit(unitName = PRIMARY_UNIT)
+    private EntityManagerFactory entityManagerFactory;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    /**
+     * <p>Query strings of our named queries, keyed by query name.  Hibernate
+     * records query statistics by query string, not by name.</p>
+     */
+    private final Map<String, String> namedQueries = new TreeMap<>();
+
+    /**
+     * <p>Maximum number of sampled slow queries to retain.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "persistence.slow.query.history", defaultValue = "50")
+    private int slowQueryHistory;
+
+    private final AtomicLong slowQueryCount = new AtomicLong();
+
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    /**
+     * <p>Fraction (0.0 through 1.0) of slow statements that are logged.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "persistence.slow.query.sample.rate", defaultValue = "1.0")
+    private double slowStatementSampleRate;
+
+    /**
+     * <p>Elapsed time (in milliseconds) at or above which a SQL statement is
+     * slow, or zero to disable slow statement checking.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "persistence.slow.statement.threshold", defaultValue = "100")
+    private long slowStatementThreshold;
+
+    private Statistics statistics;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(PersistenceStatisticsService.class.getSimpleName());
+
+    /**
+     * <p>Maximum length of the SQL recorded for a slow statement.</p>
+     */
+    static final int MAX_STATEMENT_LENGTH = 1000;
+
+    /**
+     * <p>Prefix for the names of all metrics registered by this service.</p>
+     */
+    public static final String METRIC_PREFIX = "bookcase.persistence.";
+
+    /**
+     * <p>Model classes whose entity and named query statistics are reported.</p>
+     */
+    static final List<Class<?>> MODEL_CLASSES = List.of(
+            Anthology.class,
+            Author.class,
+            Book.class,
+            Member.class,
+            Series.class,
+            Story.class
+    );
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (Class<?> modelClass : MODEL_CLASSES) {
+            NamedQueries annotation = modelClass.getAnnotation(NamedQueries.class);
+            if (annotation != null) {
+                for (NamedQuery namedQuery : annotation.value()) {
+                    namedQueries.put(namedQuery.name(), namedQuery.query());
+                }
+            }
+        }
+        registerGauges();
+        SlowStatementListener.install(slowStatementThreshold, this::recordSlowStatement);
+        if (!statistics.isStatisticsEnabled()) {
+            LOG.info("Hibernate statistics are disabled, only slow queries will be reported");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        SlowStatementListener.uninstall();
+        metricRegistry.removeMatching((metricID, metric) ->
+                metricID.getName().startsWith(METRIC_PREFIX));
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return a snapshot of the current persistence statistics.</p>
+     */
+    public @NotNull PersistenceStatistics getStatistics() {
+
+        Map<String, EntityStatistics> entities = new LinkedHashMap<>();
+        for (Class<?> modelClass : MODEL_CLASSES) {
+            org.hibernate.stat.EntityStatistics entityStatistics =
+                    statistics.getEntityStatistics(modelClass.getName());
+            entities.put(modelClass.getSimpleName(), new EntityStatistics(
+                    entityStatistics.getDeleteCount(),
+                    entityStatistics.getFetchCount(),
+                    entityStatistics.getInsertCount(),
+                    entityStatistics.getLoadCount(),
+                    entityStatistics.getUpdateCount()
+            ));
+        }
+
+        Map<String, NamedQueryStatistics> queries = new LinkedHashMap<>();
+        for (Map.Entry<String, String> namedQuery : namedQueries.entrySet()) {
+            QueryStatistics queryStatistics =
+                    statistics.getQueryStatistics(namedQuery.getValue());
+            queries.put(namedQuery.getKey(), new NamedQueryStatistics(
+                    queryStatistics.getExecutionCount(),
+                    queryStatistics.getExecutionAvgTimeAsDouble(),
+                    queryStatistics.getExecutionMaxTime(),
+                    queryStatistics.getExecutionRowCount()
+            ));
+        }
+
+        List<SlowQuery> recentSlowQueries;
+        synchronized (slowQueries) {
+            recentSlowQueries = new ArrayList<>(slowQueries);
+        }
+
+        return new PersistenceStatistics(
+                statistics.isStatisticsEnabled(),
+                Collections.unmodifiableMap(entities),
+                statistics.getEntityFetchCount(),
+                statistics.getEntityLoadCount(),
+                Collections.unmodifiableMap(queries),
+                statistics.getPrepareStatementCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(),
+                Collections.unmodifiableList(recentSlowQueries),
+                slowQueryCount.get(),
+                LocalDateTime.ofInstant
+                        (Instant.ofEpochMilli(statistics.getStartTime()), ZoneId.systemDefault())
+        );
+
+    }
+
+    /**
+     * <p>Record a slow query detected by {@link SlowQueryInterceptor}.</p>
+     *
+     * @param operation Service class and method that was called (or
+     *                  <code>SQL</code> for a slow statement)
+     * @param parameters Description of the (possibly redacted) call parameters
+     * @param elapsed Elapsed time in milliseconds
+     * @param sampled Was this slow query selected for logging and history?
+     */
+    public void recordSlowQuery(
+            @NotNull String operation,
+            @NotNull String parameters,
+            long elapsed,
+            boolean sampled
+    ) {
+        slowQueryCount.incrementAndGet();
+        if (sampled && (slowQueryHistory > 0)) {
+            SlowQuery slowQuery =
+                    new SlowQuery(elapsed, operation, parameters, LocalDateTime.now());
+            synchronized (slowQueries) {
+                slowQueries.addFirst(slowQuery);
+                while (slowQueries.size() > slowQueryHistory) {
+                    slowQueries.removeLast();
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Record (and, if sampled, log) a slow SQL statement detected by
+     * {@link SlowStatementListener}.  Such statements are recorded with
+     * <code>SQL</code> as their operation and their (truncated) SQL as their
+     * parameters.</p>
+     *
+     * @param sql SQL of the statement, with placeholders for its parameters
+     * @param elapsed Elapsed time in milliseconds
+     */
+    public void recordSlowStatement(@NotNull String sql, long elapsed) {
+        boolean sampled = (slowStatementSampleRate >= 1.0) ||
+                (ThreadLocalRandom.current().nextDouble() < slowStatementSampleRate);
+        String statement = (sql.length() > MAX_STATEMENT_LENGTH)
+                ? sql.substring(0, MAX_STATEMENT_LENGTH) + "..." : sql;
+        recordSlowQuery("SQL", statement, elapsed, sampled);
+        if (sampled) {
+            LOG.warning(String.format("Slow statement: %s took %d ms", statement, elapsed));
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void registerGauge(
+            String name,
+            String description,
+            String unit,
+            Gauge<Long> gauge,
+            Tag... tags
+    ) {
+        Metadata metadata = Metadata.builder()
+                .withName(METRIC_PREFIX + name)
+                .withDescription(description)
+                .withType(MetricType.GAUGE)
+                .withUnit(unit)
+                .build();
+        metricRegistry.register(metadata, gauge, tags);
+    }
+
+    private void registerGauges() {
+
+        registerGauge("entityFetchCount",
+                "Entities fetched by a separate SQL statement",
+                MetricUnits.NONE, statistics::getEntityFetchCount);
+        registerGauge("entityLoadCount",
+                "Entities loaded from the database",
+                MetricUnits.NONE, statistics::getEntityLoadCount);
+        registerGauge("queryExecutionCount",
+                "Queries executed",
+                MetricUnits.NONE, statistics::getQueryExecutionCount);
+        registerGauge("queryExecutionMaxTime",
+                "Maximum query execution time",
+                MetricUnits.MILLISECONDS, statistics::getQueryExecutionMaxTime);
+        registerGauge("slowQueryCount",
+                "Slow service calls and SQL statements detected",
+                MetricUnits.NONE, slowQueryCount::get);
+
+        for (Class<?> modelClass : MODEL_CLASSES) {
+            Tag tag = new Tag("entity", modelClass.getSimpleName());
+            registerGauge("entity.fetchCount",
+                    "Entities of this type fetched by a separate SQL statement",
+                    MetricUnits.NONE, entityGauge(modelClass,
+                            org.hibernate.stat.EntityStatistics::getFetchCount), tag);
+            registerGauge("entity.loadCount",
+                    "Entities of this type loaded from the database",
+                    MetricUnits.NONE, entityGauge(modelClass,
+                            org.hibernate.stat.EntityStatistics::getLoadCount), tag);
+        }
+
+        for (Map.Entry<String, String> namedQuery : namedQueries.entrySet()) {
+            Tag tag = new Tag("query", namedQuery.getKey());
+            registerGauge("namedQuery.executionCount",
+                    "Executions of this named query",
+                    MetricUnits.NONE, queryGauge(namedQuery.getValue(),
+                            QueryStatistics::getExecutionCount), tag);
+            registerGauge("namedQuery.executionMeanTime",
+                    "Mean execution time of this named query",
+                    MetricUnits.MILLISECONDS, queryGauge(namedQuery.getValue(),
+                            QueryStatistics::getExecutionAvgTime), tag);
+            registerGauge("namedQuery.executionMaxTime",
+                    "Maximum execution time of this named query",
+                    MetricUnits.MILLISECONDS, queryGauge(namedQuery.getValue(),
+                            QueryStatistics::getExecutionMaxTime), tag);
+        }
+
+    }
+
+    private Gauge<Long> entityGauge(
+            Class<?> modelClass,
+            ToLongFunction<org.hibernate.stat.EntityStatistics> function
+    ) {
+        String entityName = modelClass.getName();
+        return () -> function.applyAsLong(statistics.getEntityStatistics(entityName));
+    }
+
+    private Gauge<Long> queryGauge(
+            String query,
+            ToLongFunction<QueryStatistics> function
+    ) {
+        return () -> function.applyAsLong(statistics.getQueryStatistics(query));
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+/**
+ * <p>Names of the persistence units defined in <code>persistence.xml</code>.
+ * Because there is more than one, every <code>@PersistenceContext</code> and
+ * <code>@PersistenceUnit</code> injection must name the one it wants.</p>
+ */
+public interface PersistenceUnits {
+
+    /**
+     * <p>Primary (read/write) database, used for all updates.</p>
+     */
+    String PRIMARY_UNIT = "prod";
+
+    /**
+     * <p>Read replica database, used for read only queries when enabled.  This
+     * unit is not managed by the container (see <code>ReadQueryService</code>),
+     * so it cannot be injected.</p>
+     */
+    String READ_UNIT = "read";
+
+}
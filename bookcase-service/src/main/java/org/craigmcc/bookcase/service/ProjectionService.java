@@ -0,0 +1,449 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.craigmcc.bookcase.projection.Projection;
+import org.craigmcc.bookcase.projection.ProjectionSnapshot;
+import org.craigmcc.bookcase.projection.ProjectionStatus;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Drives the {@link Projection}s (read models built from the persisted
+ * model events) that are deployed as CDI beans.  At startup, each projection
+ * is restored from its latest {@link ProjectionSnapshot} and then caught up
+ * by replaying the events recorded after the snapshot's high-water mark, in
+ * <code>updated</code> then <code>id</code> order.  Thereafter, projections
+ * are caught up every <code>projection.catchup.interval</code> seconds, and
+ * snapshotted every <code>projection.snapshot.interval</code> seconds if they
+ * have advanced, so that a rebuild never has to start from the first
+ * event.</p>
+ *
+ * <p>Events are read in pages of <code>projection.batch.size</code>, and each
+ * page is replayed in <code>projection.parallelism</code> partitions (by
+ * model ID) on a managed executor.  The position only advances after a whole
+ * page has been applied, so a failed page is replayed again at the next
+ * catch up.  Because event timestamps are assigned before their transactions
+ * commit, events are only replayed once they are older than
+ * <code>projection.settle.delay</code> milliseconds, so that an event
+ * committed late is not skipped.  Bulk changes that do not fire model events
+ * (such as imports and development mode population) are not projected.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@DependsOn("DevModeStartupService")
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ProjectionService {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Maximum number of events read (and replayed in parallel) at a time.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "projection.batch.size", defaultValue = "1000")
+    private Integer batchSize;
+
+    /**
+     * <p>Seconds between catch ups of every projection (zero disables
+     * periodic catch up and snapshots).</p>
+     */
+    @Inject
+    @ConfigProperty(name = "projection.catchup.interval", defaultValue = "10")
+    private Integer catchupInterval;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Inject
+    private MutatedModelEventService mutatedModelEventService;
+
+    /**
+     * <p>Number of partitions each page of events is replayed in.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "projection.parallelism", defaultValue = "4")
+    private Integer parallelism;
+
+    @Inject
+    @Any
+    private Instance<Projection> projections;
+
+    @Inject
+    private ProjectionSnapshotService projectionSnapshotService;
+
+    /**
+     * <p>Replay state of each projection, keyed by name.  Populated at
+     * startup and not modified afterwards.</p>
+     */
+    private final Map<String, Replay> replays = new LinkedHashMap<>();
+
+    /**
+     * <p>Minimum age (in milliseconds) of replayed events.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "projection.settle.delay", defaultValue = "5000")
+    private Long settleDelay;
+
+    /**
+     * <p>Minimum seconds between snapshots of a projection.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "projection.snapshot.interval", defaultValue = "300")
+    private Integer snapshotInterval;
+
+    @Resource
+    private TimerService timerService;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(ProjectionService.class.getSimpleName());
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        for (Projection projection : projections) {
+            replays.put(projection.getName(), new Replay(projection));
+        }
+        for (Replay replay : replays.values()) {
+            try {
+                rebuild(replay, false);
+            } catch (InternalServerError e) {
+                LOG.log(Level.WARNING, String.format("Cannot restore projection %s",
+                        replay.projection.getName()), e);
+            }
+        }
+        if (catchupInterval > 0) {
+            long interval = catchupInterval * 1000L;
+            timerService.createIntervalTimer(interval, interval, new TimerConfig(null, false));
+        }
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Replay the events recorded since the last catch up of the named
+     * projection, and return its status.</p>
+     *
+     * @param name Name of the projection
+     *
+     * @throws InternalServerError If the events cannot be replayed
+     * @throws NotFound If there is no projection with this name
+     */
+    public @NotNull ProjectionStatus catchUp(@NotNull String name) throws InternalServerError, NotFound {
+        Replay replay = replay(name);
+        synchronized (replay) {
+            catchUp(replay);
+            return replay.status();
+        }
+    }
+
+    /**
+     * <p>Return the status of the named projection.</p>
+     *
+     * @param name Name of the projection
+     *
+     * @throws NotFound If there is no projection with this name
+     */
+    public @NotNull ProjectionStatus getStatus(@NotNull String name) throws NotFound {
+        Replay replay = replay(name);
+        synchronized (replay) {
+            return replay.status();
+        }
+    }
+
+    /**
+     * <p>Return the status of every projection, ordered by name.</p>
+     */
+    public @NotNull List<ProjectionStatus> getStatuses() {
+        List<ProjectionStatus> results = new ArrayList<>(replays.size());
+        for (Replay replay : replays.values()) {
+            synchronized (replay) {
+                results.add(replay.status());
+            }
+        }
+        results.sort((o1, o2) -> o1.getName().compareTo(o2.getName()));
+        return results;
+    }
+
+    /**
+     * <p>Rebuild every projection from its latest snapshot (if any), for
+     * example after the event table has been cleared.</p>
+     */
+    public void rebuild() {
+        for (Replay replay : replays.values()) {
+            synchronized (replay) {
+                try {
+                    rebuild(replay, false);
+                } catch (InternalServerError e) {
+                    LOG.log(Level.WARNING, String.format("Cannot rebuild projection %s",
+                            replay.projection.getName()), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Rebuild the named projection, and return its status.  Queries of
+     * the projection during a rebuild see partially replayed state.</p>
+     *
+     * @param name Name of the projection
+     * @param full Replay every event (and take a new snapshot afterwards)
+     *             if true, or else start from the latest snapshot
+     *
+     * @throws InternalServerError If the snapshot cannot be restored, or the
+     *                              events cannot be replayed
+     * @throws NotFound If there is no projection with this name
+     */
+    public @NotNull ProjectionStatus rebuild(@NotNull String name, boolean full)
+            throws InternalServerError, NotFound {
+        Replay replay = replay(name);
+        synchronized (replay) {
+            rebuild(replay, full);
+            if (full) {
+                snapshot(replay);
+            }
+            return replay.status();
+        }
+    }
+
+    /**
+     * <p>Catch up the named projection, snapshot its state, and return its
+     * status.</p>
+     *
+     * @param name Name of the projection
+     *
+     * @throws InternalServerError If the events cannot be replayed, or the
+     *                              state cannot be snapshotted
+     * @throws NotFound If there is no projection with this name
+     */
+    public @NotNull ProjectionStatus snapshot(@NotNull String name) throws InternalServerError, NotFound {
+        Replay replay = replay(name);
+        synchronized (replay) {
+            catchUp(replay);
+            snapshot(replay);
+            return replay.status();
+        }
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    @Timeout
+    public void handleTimeout() {
+        LocalDateTime due = LocalDateTime.now().minusSeconds(snapshotInterval);
+        for (Replay replay : replays.values()) {
+            synchronized (replay) {
+                try {
+                    catchUp(replay);
+                    if ((replay.eventId != null) && !replay.eventId.equals(replay.snapshotEventId)
+                            && ((replay.snapshotted == null) || replay.snapshotted.isBefore(due))) {
+                        snapshot(replay);
+                    }
+                } catch (InternalServerError e) {
+                    LOG.log(Level.WARNING, String.format("Cannot catch up projection %s",
+                            replay.projection.getName()), e);
+                }
+            }
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Apply a page of events to the specified projection, in partitions
+     * by model ID that each preserve the page order.</p>
+     */
+    private void apply(Projection projection, List<MutatedModelEvent> events) throws InternalServerError {
+        if ((parallelism <= 1) || (events.size() < parallelism)) {
+            for (MutatedModelEvent event : events) {
+                projection.apply(event);
+            }
+            return;
+        }
+        List<List<MutatedModelEvent>> partitions = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (MutatedModelEvent event : events) {
+            long modelId = (event.getModelId() != null) ? event.getModelId() : 0L;
+            partitions.get((int) Math.floorMod(modelId, (long) parallelism)).add(event);
+        }
+        List<Future<?>> futures = new ArrayList<>(parallelism);
+        for (List<MutatedModelEvent> partition : partitions) {
+            futures.add(executor.submit(() -> {
+                for (MutatedModelEvent event : partition) {
+                    projection.apply(event);
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new InternalServerError(String.format("projection: Cannot apply events to %s: %s",
+                    projection.getName(), e.getCause()), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerError(String.format("projection: Interrupted applying events to %s",
+                    projection.getName()), e);
+        }
+    }
+
+    /**
+     * <p>Replay every settled event after the current position of the
+     * specified projection.  The caller must hold the replay's lock.</p>
+     */
+    private void catchUp(Replay replay) throws InternalServerError {
+        LocalDateTime before = LocalDateTime.now().minusNanos(settleDelay * 1_000_000L);
+        List<MutatedModelEvent> events;
+        do {
+            events = mutatedModelEventService.findAfter
+                    (replay.eventUpdated, replay.eventId, before, batchSize);
+            if (events.isEmpty()) {
+                break;
+            }
+            apply(replay.projection, events);
+            MutatedModelEvent last = events.get(events.size() - 1);
+            replay.eventId = last.getId();
+            replay.eventUpdated = last.getUpdated();
+            replay.events += events.size();
+        } while (events.size() >= batchSize);
+    }
+
+    /**
+     * <p>Reset the specified projection to its latest snapshot (or to empty
+     * if <code>full</code> or if there is none), and catch it up.  The caller
+     * must hold the replay's lock (except during startup).</p>
+     */
+    private void rebuild(Replay replay, boolean full) throws InternalServerError {
+        Projection projection = replay.projection;
+        ProjectionSnapshot snapshot = projectionSnapshotService.find(projection.getName());
+        projection.clear();
+        replay.eventId = null;
+        replay.eventUpdated = null;
+        replay.events = 0L;
+        replay.snapshotEventId = (snapshot != null) ? snapshot.getEventId() : null;
+        replay.snapshotted = (snapshot != null) ? snapshot.getUpdated() : null;
+        String from = "the first event";
+        if ((snapshot != null) && !full) {
+            try {
+                projection.restore(snapshot.getState());
+            } catch (IOException e) {
+                projection.clear();
+                throw new InternalServerError(String.format("projection: Cannot restore %s: %s",
+                        projection.getName(), e.getMessage()), e);
+            }
+            replay.eventId = snapshot.getEventId();
+            replay.eventUpdated = snapshot.getEventUpdated();
+            from = "the snapshot at event " + snapshot.getEventId();
+        }
+        catchUp(replay);
+        LOG.info(String.format("Rebuilt projection %s from %s, replaying %d events",
+                projection.getName(), from, replay.events));
+    }
+
+    private Replay replay(String name) throws NotFound {
+        Replay replay = replays.get(name);
+        if (replay == null) {
+            throw new NotFound(String.format("name: Missing projection %s", name));
+        }
+        return replay;
+    }
+
+    /**
+     * <p>Store the current state of the specified projection as its latest
+     * snapshot, unless no event has been applied.  The caller must hold the
+     * replay's lock.</p>
+     */
+    private void snapshot(Replay replay) throws InternalServerError {
+        if (replay.eventId == null) {
+            return;
+        }
+        Projection projection = replay.projection;
+        try {
+            ProjectionSnapshot snapshot = projectionSnapshotService.save(projection.getName(),
+                    replay.eventId, replay.eventUpdated, projection.snapshot());
+            replay.snapshotEventId = snapshot.getEventId();
+            replay.snapshotted = snapshot.getUpdated();
+        } catch (IOException e) {
+            throw new InternalServerError(String.format("projection: Cannot snapshot %s: %s",
+                    projection.getName(), e.getMessage()), e);
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Replay position and snapshot bookkeeping of one projection, guarded
+     * by its own monitor.</p>
+     */
+    private static final class Replay {
+
+        private Long eventId;
+        private LocalDateTime eventUpdated;
+        private long events;
+        private final Projection projection;
+        private Long snapshotEventId;
+        private LocalDateTime snapshotted;
+
+        private Replay(Projection projection) {
+            this.projection = projection;
+        }
+
+        private ProjectionStatus status() {
+            return new ProjectionStatus(eventId, eventUpdated, events,
+                    projection.getName(), snapshotEventId, snapshotted);
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.projection.ProjectionSnapshot;
+
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+
+/**
+ * <p>Transactional storage of projection snapshots, split out from
+ * {@link ProjectionService} so that each snapshot commits in its own
+ * transaction.</p>
+ */
+@LocalBean
+@Stateless
+public class ProjectionSnapshotService {
+
+    // Instance Variables ----------------------------------------------------
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    private EntityManager entityManager;
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Delete the snapshot of the named projection, if there is one.</p>
+     *
+     * @param name Name of the projection
+     */
+    public void delete(@NotNull String name) {
+        ProjectionSnapshot snapshot = find(name);
+        if (snapshot != null) {
+            entityManager.remove(snapshot);
+        }
+    }
+
+    /**
+     * <p>Return the snapshot of the named projection, or <code>null</code>
+     * if none has been taken.</p>
+     *
+     * @param name Name of the projection
+     */
+    public ProjectionSnapshot find(@NotNull String name) {
+        List<ProjectionSnapshot> results = entityManager
+                .createNamedQuery("ProjectionSnapshot.findByName", ProjectionSnapshot.class)
+                .setParameter("name", name)
+                .getResultList();
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * <p>Store the specified state as the snapshot of the named projection,
+     * replacing any previous snapshot, and return it.</p>
+     *
+     * @param name Name of the projection
+     * @param eventId ID of the last event applied to the state
+     * @param eventUpdated Timestamp of the last event applied to the state
+     * @param state Serialized state of the projection
+     */
+    public @NotNull ProjectionSnapshot save(
+            @NotNull String name,
+            @NotNull Long eventId,
+            @NotNull LocalDateTime eventUpdated,
+            @NotNull String state
+    ) {
+        ProjectionSnapshot snapshot = find(name);
+        boolean inserted = (snapshot == null);
+        if (inserted) {
+            snapshot = new ProjectionSnapshot(name);
+            snapshot.setPublished(LocalDateTime.now());
+        }
+        snapshot.setEventId(eventId);
+        snapshot.setEventUpdated(eventUpdated);
+        snapshot.setState(state);
+        snapshot.setUpdated(LocalDateTime.now());
+        if (inserted) {
+            entityManager.persist(snapshot);
+        }
+        return snapshot;
+    }
+
+}
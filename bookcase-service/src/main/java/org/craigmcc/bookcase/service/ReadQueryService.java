@@ -0,0 +1,282 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NoResultException;
+import javax.persistence.NonUniqueResultException;
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.QueryTimeoutException;
+import javax.persistence.TypedQuery;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.craigmcc.bookcase.service.PersistenceUnits.READ_UNIT;
+
+/**
+ * <p>Executes read only named (or, through <code>execute()</code>, dynamic)
+ * queries for the model services.  Queries run
+ * outside of any container transaction, with the Hibernate read only hint
+ * (so that no snapshots are kept for dirty checking) and flush mode
+ * <code>MANUAL</code> (so that nothing is ever flushed).</p>
+ *
+ * <p>If <code>persistence.read.replica.enabled</code> is set, queries are
+ * routed to the read replica (the <code>read</code> persistence unit).  If the
+ * replica fails with anything other than an expected query result exception,
+ * the query is retried against the primary database, and the replica is
+ * bypassed for <code>persistence.read.replica.retry.interval</code> seconds
+ * before being tried again.  Because replicas lag the primary, callers that
+ * must see their own writes should not use this service.</p>
+ *
+ * <p>The <code>read</code> persistence unit is not managed by the container,
+ * so that its <code>BookcaseReadDS</code> data source only has to exist when
+ * the replica is enabled.  Its entity manager factory is created at startup
+ * in that case, and if that fails, all queries go to the primary.</p>
+ *
+ * <p>Every query (including those of <code>execute()</code>) sees only the
+ * rows of the current tenant.</p>
+ */
+@LocalBean
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ReadQueryService {
+
+    // Instance Variables ----------------------------------------------------
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    protected EntityManager primaryEntityManager;
+
+    /**
+     * <p>Route read only queries to the read replica.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "persistence.read.replica.enabled", defaultValue = "false")
+    private boolean replicaEnabled;
+
+    /**
+     * <p>Factory for entity managers of the read replica, or <code>null</code>
+     * if it is not enabled (or could not be started).</p>
+     */
+    private EntityManagerFactory replicaFactory;
+
+    /**
+     * <p>Seconds to bypass the read replica after it fails.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "persistence.read.replica.retry.interval", defaultValue = "30")
+    private long replicaRetryInterval;
+
+    /**
+     * <p>Time (from <code>System.currentTimeMillis()</code>) before which
+     * the read replica will be bypassed.</p>
+     */
+    private volatile long replicaUnavailableUntil = 0L;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Hibernate query hint for flush mode.</p>
+     */
+    public static final String FLUSH_MODE_HINT = "org.hibernate.flushMode";
+
+    /**
+     * <p>Hibernate query hint for loading entities as read only.</p>
+     */
+    public static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+
+    private static final Logger LOG =
+            Logger.getLogger(ReadQueryService.class.getSimpleName());
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        if (!replicaEnabled) {
+            return;
+        }
+        try {
+            replicaFactory = Persistence.createEntityManagerFactory(READ_UNIT);
+        } catch (PersistenceException e) {
+            LOG.log(Level.SEVERE, "Cannot start read replica persistence unit, reading from primary", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (replicaFactory != null) {
+            replicaFactory.close();
+            replicaFactory = null;
+        }
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return a new entity manager of the read replica, which the caller
+     * must close (and join to any transaction it begins), or <code>null</code>
+     * if queries are currently routed to the primary.</p>
+     */
+    public EntityManager createReplicaEntityManager() {
+        return useReplica() ? replicaFactory.createEntityManager() : null;
+    }
+
+    /**
+     * <p>Perform the specified read only work (typically dynamic queries that
+     * cannot be expressed as named queries) against the read replica if it
+     * is active, or else the primary, and return its result.  Queries must
+     * be prepared with <code>readOnly()</code>.</p>
+     *
+     * @param work Function performing queries on the supplied entity manager
+     */
+    public <R> R execute(@NotNull Function<EntityManager, R> work) {
+        return replicaOrPrimary(entityManager -> work.apply(TenantFilters.enable(entityManager)));
+    }
+
+    /**
+     * <p>Return all results of the specified named query.</p>
+     *
+     * @param name Name of the named query to execute
+     * @param resultClass Class of the query results
+     * @param parameters Alternating parameter names and values
+     */
+    public <M> @NotNull List<M> getResultList(
+            @NotNull String name,
+            @NotNull Class<M> resultClass,
+            Object... parameters
+    ) {
+        return replicaOrPrimary(entityManager ->
+                query(entityManager, name, resultClass, parameters).getResultList());
+    }
+
+    /**
+     * <p>Return the single result of the specified named query, or
+     * <code>null</code> if there is no result.</p>
+     *
+     * @param name Name of the named query to execute
+     * @param resultClass Class of the query result
+     * @param parameters Alternating parameter names and values
+     */
+    public <M> M getSingleResult(
+            @NotNull String name,
+            @NotNull Class<M> resultClass,
+            Object... parameters
+    ) {
+        return replicaOrPrimary(entityManager ->
+                single(query(entityManager, name, resultClass, parameters)));
+    }
+
+    /**
+     * <p>Return true if queries are currently routed to the read replica.</p>
+     */
+    public boolean isReplicaActive() {
+        return useReplica();
+    }
+
+    /**
+     * <p>Mark the specified query as read only, with no flush before execution.</p>
+     *
+     * @param query Query to be marked
+     */
+    public static <Q extends Query> Q readOnly(@NotNull Q query) {
+        query.setHint(READ_ONLY_HINT, true);
+        query.setHint(FLUSH_MODE_HINT, "MANUAL");
+        return query;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private <M> TypedQuery<M> query(
+            EntityManager entityManager,
+            String name,
+            Class<M> resultClass,
+            Object... parameters
+    ) {
+        TypedQuery<M> query = readOnly(TenantFilters.enable(entityManager).createNamedQuery(name, resultClass));
+        for (int i = 0; i < parameters.length; i += 2) {
+            query.setParameter((String) parameters[i], parameters[i + 1]);
+        }
+        return query;
+    }
+
+    /**
+     * <p>Perform the specified work on a new entity manager of the read
+     * replica if it is active, falling back to the primary if that fails
+     * (other than with an expected query result exception).</p>
+     */
+    private <R> R replicaOrPrimary(Function<EntityManager, R> work) {
+        if (useReplica()) {
+            EntityManager replica = null;
+            try {
+                replica = replicaFactory.createEntityManager();
+                return work.apply(replica);
+            } catch (NonUniqueResultException e) {
+                throw e;
+            } catch (PersistenceException e) {
+                replicaFailed(e);
+            } finally {
+                if (replica != null) {
+                    replica.close();
+                }
+            }
+        }
+        return work.apply(primaryEntityManager);
+    }
+
+    private void replicaFailed(PersistenceException e) {
+        if (e instanceof QueryTimeoutException) {
+            LOG.warning("Read replica query timed out, retrying on primary");
+            return;
+        }
+        replicaUnavailableUntil = System.currentTimeMillis() + (replicaRetryInterval * 1000L);
+        LOG.log(Level.WARNING, String.format(
+                "Read replica failed, routing reads to primary for %d seconds",
+                replicaRetryInterval), e);
+    }
+
+    private <M> M single(TypedQuery<M> query) {
+        try {
+            return query.getSingleResult();
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+
+    private boolean useReplica() {
+        return (replicaFactory != null) && (System.currentTimeMillis() >= replicaUnavailableUntil);
+    }
+
+}
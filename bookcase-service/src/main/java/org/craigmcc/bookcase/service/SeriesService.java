@@ -15,11 +15,18 @@
  */
 package org.craigmcc.bookcase.service;
 
+import org.craigmcc.bookcase.catalog.CatalogSnapshot;
+import org.craigmcc.bookcase.coalesce.Coalesced;
 import org.craigmcc.bookcase.event.DeletedModelEvent;
 import org.craigmcc.bookcase.event.ForSeries;
 import org.craigmcc.bookcase.event.InsertedModelEvent;
 import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.Author;
 import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.statistics.SlowQueryLogged;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantScoped;
 import org.craigmcc.library.model.ModelService;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
@@ -28,40 +35,55 @@ import org.craigmcc.library.shared.exception.NotUnique;
 
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceException;
-import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_IDS_PARAMETER;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_VALIDATION_MESSAGE;
+import static org.craigmcc.bookcase.model.Constants.IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
 import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
+@Coalesced
 @LocalBean
+@SlowQueryLogged
 @Stateless
+@TenantScoped
 public class SeriesService extends ModelService<Series> {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private CatalogSnapshotService catalogSnapshotService;
+
     @Inject
     @ForSeries
     private Event<DeletedModelEvent> deletedSeriesEvent;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     protected EntityManager entityManager;
 
     @Inject
     @ForSeries
     private Event<InsertedModelEvent> insertedSeriesEvent;
 
+    @Inject
+    private ReadQueryService readQueryService;
+
     @Inject
     @ForSeries
     private Event<UpdatedModelEvent> updatedSeriesEvent;
@@ -77,7 +99,7 @@ public class SeriesService extends ModelService<Series> {
         try {
 
             Series deleted = entityManager.find(Series.class, id);
-            if (deleted != null) {
+            if ((deleted != null) && TenantContext.isCurrent(deleted)) {
                 entityManager.remove(deleted);
                 deleted.setUpdated(LocalDateTime.now());
                 deletedSeriesEvent.fire(new DeletedModelEvent(deleted));
@@ -93,6 +115,7 @@ public class SeriesService extends ModelService<Series> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull Series find(@NotNull Long id)
             throws InternalServerError, NotFound {
 
@@ -100,16 +123,26 @@ public class SeriesService extends ModelService<Series> {
             throw new NotFound("id: Cannot be null");
         }
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            Series result = snapshot.findSeries(id);
+            if (result == null) {
+                throw new NotFound("id: Missing Series " + id);
+            }
+            return result;
+        }
+
         try {
 
-            TypedQuery<Series> query = entityManager.createNamedQuery
-                    (SERIES_NAME + ".findById", Series.class)
-                    .setParameter(ID_COLUMN, id);
-            Series result = query.getSingleResult();
+            Series result = readQueryService.getSingleResult
+                    (SERIES_NAME + ".findById", Series.class, ID_COLUMN, id);
+            if (result == null) {
+                throw new NotFound("id: Missing Series " + id);
+            }
             return result;
 
-        } catch (NoResultException e) {
-            throw new NotFound("id: Missing Series " + id);
+        } catch (NotFound e) {
+            throw e;
         } catch (Exception e) {
             throw new InternalServerError(e.getMessage(), e);
         }
@@ -117,13 +150,18 @@ public class SeriesService extends ModelService<Series> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Series> findAll() throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findAllSeries();
+        }
+
         try {
 
-            TypedQuery<Series> query = entityManager.createNamedQuery
+            List<Series> results = readQueryService.getResultList
                     (SERIES_NAME + ".findAll", Series.class);
-            List<Series> results = query.getResultList();
             return results;
 
         } catch (Exception e) {
@@ -132,15 +170,86 @@ public class SeriesService extends ModelService<Series> {
 
     }
 
+    /**
+     * <p>Return the series written by any of the specified authors, using a single query.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull List<Series> findByAuthorIds(@NotNull Collection<Long> authorIds)
+            throws InternalServerError {
+
+        if (authorIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            List<Series> results = new ArrayList<>();
+            for (Long authorId : authorIds) {
+                results.addAll(snapshot.findSeriesByAuthorId(authorId));
+            }
+            return results;
+        }
+
+        try {
+
+            List<Series> results = readQueryService.getResultList
+                    (SERIES_NAME + ".findByAuthorIds", Series.class, AUTHOR_IDS_PARAMETER, authorIds);
+            return results;
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    /**
+     * <p>Return the series with any of the specified IDs, using a single query.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull List<Series> findByIds(@NotNull Collection<Long> ids)
+            throws InternalServerError {
+
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            List<Series> results = new ArrayList<>();
+            for (Long id : ids) {
+                Series series = snapshot.findSeries(id);
+                if (series != null) {
+                    results.add(series);
+                }
+            }
+            return results;
+        }
+
+        try {
+
+            List<Series> results = readQueryService.getResultList
+                    (SERIES_NAME + ".findByIds", Series.class, IDS_PARAMETER, ids);
+            return results;
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Series> findByTitle(@NotNull String title)
             throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findSeriesByTitle(title);
+        }
+
         try {
 
-            TypedQuery<Series> query = entityManager.createNamedQuery
-                    (SERIES_NAME + ".findByTitle", Series.class)
-                    .setParameter(TITLE_COLUMN, title);
-            List<Series> result = query.getResultList();
+            List<Series> result = readQueryService.getResultList
+                    (SERIES_NAME + ".findByTitle", Series.class, TITLE_COLUMN, title);
             return result;
 
         } catch (Exception e) {
@@ -155,6 +264,7 @@ public class SeriesService extends ModelService<Series> {
 
         try {
 
+            checkReferences(series);
             series.setId(null); // Ignore any existing primary key
             series.setPublished(LocalDateTime.now());
             series.setUpdated(series.getPublished());
@@ -164,6 +274,8 @@ public class SeriesService extends ModelService<Series> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
+        } catch (BadRequest e) {
+            throw e;
         } catch (PersistenceException e) {
             handlePersistenceException(e);
         } catch (Exception e) {
@@ -181,7 +293,8 @@ public class SeriesService extends ModelService<Series> {
 
         try {
 
-            original = find(seriesId);
+            checkReferences(series);
+            original = findManaged(seriesId);
             original.copy(series);
             original.setUpdated(LocalDateTime.now());
             entityManager.merge(original);
@@ -190,7 +303,7 @@ public class SeriesService extends ModelService<Series> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
-        } catch (InternalServerError e) {
+        } catch (BadRequest e) {
             throw e;
         } catch (NotFound e) {
             throw e;
@@ -204,4 +317,28 @@ public class SeriesService extends ModelService<Series> {
 
     }
 
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Refuse references to the models of other tenants, which the
+     * foreign keys alone would allow.</p>
+     */
+    private void checkReferences(Series series) throws BadRequest {
+        if (!TenantFilters.isVisible(entityManager, Author.class, series.getAuthorId())) {
+            throw new BadRequest(AUTHOR_ID_VALIDATION_MESSAGE);
+        }
+    }
+
+    /**
+     * <p>Return the persistent instance (never the shared catalog snapshot
+     * instance) of the specified Series, so that it may be modified.</p>
+     */
+    private Series findManaged(Long id) throws NotFound {
+        Series result = (id != null) ? entityManager.find(Series.class, id) : null;
+        if ((result == null) || !TenantContext.isCurrent(result)) {
+            throw new NotFound("id: Missing Series " + id);
+        }
+        return result;
+    }
+
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.model.text.SortKeys;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.FIRST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.LAST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.NAME_KEY_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.TITLE_KEY_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+
+/**
+ * <p>Fills in the sort keys (see <code>SortKeys</code>) of rows that were
+ * written before the sort key columns existed.  The entities maintain their
+ * own keys on every insert and update, so this only finds work to do the
+ * first time the application starts against an older database.  Keys are
+ * set with bulk updates, which leave the <code>updated</code> timestamps of
+ * the affected rows alone.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+public class SortKeyService {
+
+    // Instance Variables ----------------------------------------------------
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    protected EntityManager entityManager;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(SortKeyService.class.getSimpleName());
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        backfill();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Set the sort keys of all anthologies, authors, books, and series
+     * that do not have one, and return the number of rows updated.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public int backfill() {
+        int count = backfillTitleKeys(ANTHOLOGY_NAME)
+                + backfillNameKeys()
+                + backfillTitleKeys(BOOK_NAME)
+                + backfillTitleKeys(SERIES_NAME);
+        if (count > 0) {
+            LOG.info(String.format("Filled in %d missing sort keys", count));
+        }
+        return count;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private int backfillNameKeys() {
+        List<Object[]> rows = entityManager.createQuery(
+                "SELECT a." + ID_COLUMN + ", a." + FIRST_NAME_COLUMN + ", a." + LAST_NAME_COLUMN +
+                        " FROM " + AUTHOR_NAME + " a WHERE a." + NAME_KEY_COLUMN + " IS NULL",
+                Object[].class).getResultList();
+        Query update = entityManager.createQuery(
+                "UPDATE " + AUTHOR_NAME + " a SET a." + NAME_KEY_COLUMN + " = :" + NAME_KEY_COLUMN +
+                        " WHERE a." + ID_COLUMN + " = :" + ID_COLUMN);
+        for (Object[] row : rows) {
+            update.setParameter(NAME_KEY_COLUMN, SortKeys.nameKey((String) row[1], (String) row[2]))
+                    .setParameter(ID_COLUMN, row[0])
+                    .executeUpdate();
+        }
+        return rows.size();
+    }
+
+    private int backfillTitleKeys(String name) {
+        List<Object[]> rows = entityManager.createQuery(
+                "SELECT x." + ID_COLUMN + ", x." + TITLE_COLUMN +
+                        " FROM " + name + " x WHERE x." + TITLE_KEY_COLUMN + " IS NULL",
+                Object[].class).getResultList();
+        Query update = entityManager.createQuery(
+                "UPDATE " + name + " x SET x." + TITLE_KEY_COLUMN + " = :" + TITLE_KEY_COLUMN +
+                        " WHERE x." + ID_COLUMN + " = :" + ID_COLUMN);
+        for (Object[] row : rows) {
+            update.setParameter(TITLE_KEY_COLUMN, SortKeys.titleKey((String) row[1]))
+                    .setParameter(ID_COLUMN, row[0])
+                    .executeUpdate();
+        }
+        return rows.size();
+    }
+
+}
@@ -15,11 +15,19 @@
  */
 package org.craigmcc.bookcase.service;
 
+import org.craigmcc.bookcase.catalog.CatalogSnapshot;
+import org.craigmcc.bookcase.coalesce.Coalesced;
 import org.craigmcc.bookcase.event.DeletedModelEvent;
 import org.craigmcc.bookcase.event.ForStory;
 import org.craigmcc.bookcase.event.InsertedModelEvent;
 import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Book;
 import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.statistics.SlowQueryLogged;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantScoped;
 import org.craigmcc.library.model.ModelService;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.InternalServerError;
@@ -28,39 +36,57 @@ import org.craigmcc.library.shared.exception.NotUnique;
 
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceException;
-import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_IDS_PARAMETER;
 import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_ID_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_ID_VALIDATION_MESSAGE;
+import static org.craigmcc.bookcase.model.Constants.BOOK_ID_VALIDATION_MESSAGE;
 import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 
+@Coalesced
 @LocalBean
+@SlowQueryLogged
 @Stateless
+@TenantScoped
 public class StoryService extends ModelService<Story> {
 
     // Instance Variables ----------------------------------------------------
 
+    @Inject
+    private CatalogSnapshotService catalogSnapshotService;
+
     @Inject
     @ForStory
     private Event<DeletedModelEvent> deletedStoryEvent;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     protected EntityManager entityManager;
 
     @Inject
     @ForStory
     private Event<InsertedModelEvent> insertedStoryEvent;
 
+    @Inject
+    private ReadQueryService readQueryService;
+
     @Inject
     @ForStory
     private Event<UpdatedModelEvent> updatedStoryEvent;
@@ -73,7 +99,7 @@ public class StoryService extends ModelService<Story> {
         try {
 
             Story deleted = entityManager.find(Story.class, id);
-            if (deleted != null) {
+            if ((deleted != null) && TenantContext.isCurrent(deleted)) {
                 entityManager.remove(deleted);
                 deleted.setUpdated(LocalDateTime.now());
                 deletedStoryEvent.fire(new DeletedModelEvent(deleted));
@@ -89,6 +115,7 @@ public class StoryService extends ModelService<Story> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull Story find(@NotNull Long id)
             throws InternalServerError, NotFound {
 
@@ -96,16 +123,26 @@ public class StoryService extends ModelService<Story> {
             throw new NotFound("id: Cannot be null");
         }
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            Story result = snapshot.findStory(id);
+            if (result == null) {
+                throw new NotFound("id: Missing story " + id);
+            }
+            return result;
+        }
+
         try {
 
-            TypedQuery<Story> query = entityManager.createNamedQuery
-                    (STORY_NAME + ".findById", Story.class)
-                    .setParameter(ID_COLUMN, id);
-            Story result = query.getSingleResult();
+            Story result = readQueryService.getSingleResult
+                    (STORY_NAME + ".findById", Story.class, ID_COLUMN, id);
+            if (result == null) {
+                throw new NotFound("id: Missing story " + id);
+            }
             return result;
 
-        } catch (NoResultException e) {
-            throw new NotFound("id: Missing story " + id);
+        } catch (NotFound e) {
+            throw e;
         } catch (Exception e) {
             throw new InternalServerError(e.getMessage(), e);
         }
@@ -113,13 +150,18 @@ public class StoryService extends ModelService<Story> {
     }
 
     @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Story> findAll() throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findAllStories();
+        }
+
         try {
 
-            TypedQuery<Story> query = entityManager.createNamedQuery
+            List<Story> results = readQueryService.getResultList
                     (STORY_NAME + ".findAll", Story.class);
-            List<Story> results = query.getResultList();
             return results;
 
         } catch (Exception e) {
@@ -128,15 +170,19 @@ public class StoryService extends ModelService<Story> {
 
     }
 
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public @NotNull List<Story> findByAnthologyId(@NotNull Long anthologyId)
             throws InternalServerError {
 
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findStoriesByAnthologyId(anthologyId);
+        }
+
         try {
 
-            TypedQuery<Story> query = entityManager.createNamedQuery
-                    (STORY_NAME + ".findByAnthologyId", Story.class)
-                    .setParameter(ANTHOLOGY_ID_COLUMN, anthologyId);
-            List<Story> result = query.getResultList();
+            List<Story> result = readQueryService.getResultList
+                    (STORY_NAME + ".findByAnthologyId", Story.class, ANTHOLOGY_ID_COLUMN, anthologyId);
             return result;
 
         } catch (Exception e) {
@@ -145,12 +191,51 @@ public class StoryService extends ModelService<Story> {
 
     }
 
+    /**
+     * <p>Return the stories included in any of the specified anthologies, using a single query.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public @NotNull List<Story> findByAnthologyIds(@NotNull Collection<Long> anthologyIds)
+            throws InternalServerError {
+
+        if (anthologyIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            List<Story> results = new ArrayList<>();
+            for (Long anthologyId : anthologyIds) {
+                results.addAll(snapshot.findStoriesByAnthologyId(anthologyId));
+            }
+            return results;
+        }
+
+        try {
+
+            List<Story> results = readQueryService.getResultList
+                    (STORY_NAME + ".findByAnthologyIds", Story.class, ANTHOLOGY_IDS_PARAMETER, anthologyIds);
+            return results;
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    /**
+     * <p>Insert the specified story with the ordinal it already has, which
+     * need not leave room for later inserts.  Only <code>insertAt()</code>
+     * assigns sparse ordinals; crowded ordinals written here are spread out
+     * by the next periodic renumbering (see <code>OrdinalRenumberService</code>).</p>
+     */
     @Override
     public @NotNull Story insert(@NotNull Story story)
             throws BadRequest, InternalServerError, NotUnique {
 
         try {
 
+            checkReferences(story);
             story.setId(null); // Ignore any existing primary key
             story.setPublished(LocalDateTime.now());
             story.setUpdated(story.getPublished());
@@ -160,6 +245,8 @@ public class StoryService extends ModelService<Story> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
+        } catch (BadRequest e) {
+            throw e;
         } catch (PersistenceException e) {
             handlePersistenceException(e);
         } catch (Exception e) {
@@ -170,6 +257,122 @@ public class StoryService extends ModelService<Story> {
 
     }
 
+    /**
+     * <p>Insert the specified story at the specified (zero relative) position
+     * among the current stories of its anthology.  It is given an ordinal between
+     * those of its new neighbours, so no other story changes unless the
+     * anthology first has to be renumbered to make room.  The anthology
+     * is locked first, so concurrent inserts into it cannot be given the same
+     * ordinal.</p>
+     *
+     * @param story Story to be inserted
+     * @param position Position of the new story (clamped to the valid range)
+     */
+    public @NotNull Story insertAt(@NotNull Story story, int position)
+            throws BadRequest, InternalServerError, NotUnique {
+
+        if (story.getAnthologyId() != null) {
+            try {
+                OrdinalUpdater.lock(entityManager, Anthology.class, story.getAnthologyId());
+                Map<Long, Integer> current = OrdinalUpdater.ordinals
+                        (entityManager, STORY_NAME, ANTHOLOGY_ID_COLUMN, story.getAnthologyId());
+                Integer ordinal = OrdinalUpdater.ordinalAt(current, position);
+                if (ordinal == null) {
+                    renumber(story.getAnthologyId());
+                    current = OrdinalUpdater.ordinals
+                            (entityManager, STORY_NAME, ANTHOLOGY_ID_COLUMN, story.getAnthologyId());
+                    ordinal = OrdinalUpdater.ordinalAt(current, position);
+                }
+                story.setOrdinal(ordinal);
+            } catch (Exception e) {
+                throw new InternalServerError(e.getMessage(), e);
+            }
+        }
+        return insert(story);
+
+    }
+
+    /**
+     * <p>Reassign evenly spaced ordinals to the stories of the specified
+     * anthology, keeping their current order, and return the number of stories
+     * whose ordinal changed.</p>
+     *
+     * @param anthologyId ID of the anthology to be renumbered
+     */
+    public int renumber(@NotNull Long anthologyId) throws InternalServerError {
+
+        try {
+
+            OrdinalUpdater.lock(entityManager, Anthology.class, anthologyId);
+            Map<Long, Integer> current = OrdinalUpdater.ordinals
+                    (entityManager, STORY_NAME, ANTHOLOGY_ID_COLUMN, anthologyId);
+            Set<Long> changed = OrdinalUpdater.renumber
+                    (entityManager, STORY_NAME, current, new ArrayList<>(current.keySet()));
+            fireUpdated(anthologyId, changed);
+            return changed.size();
+
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
+    /**
+     * <p>Renumber every anthology whose stories' ordinals have run out of room
+     * (see <code>Ordinals.isCrowded()</code>), and return the number of
+     * anthologies renumbered.</p>
+     */
+    public int renumberCrowded() throws InternalServerError {
+
+        List<Long> anthologyIds;
+        try {
+            anthologyIds = OrdinalUpdater.crowded(entityManager, STORY_NAME, ANTHOLOGY_ID_COLUMN);
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+        for (Long anthologyId : anthologyIds) {
+            renumber(anthologyId);
+        }
+        return anthologyIds.size();
+
+    }
+
+    /**
+     * <p>Put the stories of the specified anthology in the specified order,
+     * with set based updates of the stories whose ordinal changes, and
+     * return the stories in their new order.</p>
+     *
+     * @param anthologyId ID of the anthology to be reordered
+     * @param storyIds IDs of every story of the anthology, in the new order
+     *
+     * @throws BadRequest If the IDs are not those of the anthology's stories,
+     *                    each listed exactly once
+     */
+    public @NotNull List<Story> reorder(@NotNull Long anthologyId, @NotNull List<Long> storyIds)
+            throws BadRequest, InternalServerError {
+
+        try {
+
+            OrdinalUpdater.lock(entityManager, Anthology.class, anthologyId);
+            Map<Long, Integer> current = OrdinalUpdater.ordinals
+                    (entityManager, STORY_NAME, ANTHOLOGY_ID_COLUMN, anthologyId);
+            if ((storyIds.size() != current.size())
+                    || !current.keySet().equals(new HashSet<>(storyIds))) {
+                throw new BadRequest(String.format
+                        ("storyIds: Must list each story of anthology %d exactly once", anthologyId));
+            }
+            Set<Long> changed = OrdinalUpdater.renumber
+                    (entityManager, STORY_NAME, current, storyIds);
+            return fireUpdated(anthologyId, changed);
+
+        } catch (BadRequest e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InternalServerError(e.getMessage(), e);
+        }
+
+    }
+
     @Override
     public @NotNull Story update(@NotNull Long storyId, @NotNull Story story)
             throws BadRequest, InternalServerError, NotFound, NotUnique {
@@ -178,7 +381,8 @@ public class StoryService extends ModelService<Story> {
 
         try {
 
-            original = find(storyId);
+            checkReferences(story);
+            original = findManaged(storyId);
             original.copy(story);
             original.setUpdated(LocalDateTime.now());
             entityManager.merge(original);
@@ -187,7 +391,7 @@ public class StoryService extends ModelService<Story> {
 
         } catch (ConstraintViolationException e) {
             throw new BadRequest(formatMessage(e));
-        } catch (InternalServerError e) {
+        } catch (BadRequest e) {
             throw e;
         } catch (NotFound e) {
             throw e;
@@ -201,4 +405,48 @@ public class StoryService extends ModelService<Story> {
 
     }
 
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Refuse references to the models of other tenants, which the
+     * foreign keys alone would allow.</p>
+     */
+    private void checkReferences(Story story) throws BadRequest {
+        if (!TenantFilters.isVisible(entityManager, Anthology.class, story.getAnthologyId())) {
+            throw new BadRequest(ANTHOLOGY_ID_VALIDATION_MESSAGE);
+        }
+        if (!TenantFilters.isVisible(entityManager, Book.class, story.getBookId())) {
+            throw new BadRequest(BOOK_ID_VALIDATION_MESSAGE);
+        }
+    }
+
+    /**
+     * <p>Return the persistent instance (never the shared catalog snapshot
+     * instance) of the specified story, so that it may be modified.</p>
+     */
+    private Story findManaged(Long id) throws NotFound {
+        Story result = (id != null) ? entityManager.find(Story.class, id) : null;
+        if ((result == null) || !TenantContext.isCurrent(result)) {
+            throw new NotFound("id: Missing story " + id);
+        }
+        return result;
+    }
+
+    /**
+     * <p>Fire update events for the specified (bulk updated) stories of the
+     * specified anthology, and return all of its stories in order.</p>
+     */
+    private List<Story> fireUpdated(Long anthologyId, Set<Long> changed) {
+        List<Story> results = entityManager.createNamedQuery
+                (STORY_NAME + ".findByAnthologyId", Story.class)
+                .setParameter(ANTHOLOGY_ID_COLUMN, anthologyId)
+                .getResultList();
+        for (Story result : results) {
+            if (changed.contains(result.getId())) {
+                updatedStoryEvent.fire(new UpdatedModelEvent(result));
+            }
+        }
+        return results;
+    }
+
 }
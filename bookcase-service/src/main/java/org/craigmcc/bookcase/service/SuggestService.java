@@ -0,0 +1,455 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.event.DeletedModelEvent;
+import org.craigmcc.bookcase.event.InsertedModelEvent;
+import org.craigmcc.bookcase.event.InvalidatedModelEvent;
+import org.craigmcc.bookcase.event.UpdatedModelEvent;
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.bookcase.model.text.PrefixIndex;
+import org.craigmcc.bookcase.model.text.Suggestion;
+import org.craigmcc.bookcase.model.text.TextNormalizer;
+import org.craigmcc.bookcase.tenant.TenantCache;
+import org.craigmcc.bookcase.tenant.TenantFilters;
+import org.craigmcc.bookcase.tenant.TenantRegistry;
+import org.craigmcc.library.model.Model;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Priority;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.FIRST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.LAST_NAME_COLUMN;
+import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+
+/**
+ * <p>Type-ahead suggestions of authors, anthologies, books, and series,
+ * served from one in-memory {@link PrefixIndex} per type.  Titles are
+ * indexed under each of their word suffixes (so "tower" finds "The Dark
+ * Tower"), and authors under both "first last" and "last first".  The
+ * popularity of an author is the number of their books, of a series the
+ * number of its members, and of an anthology the number of its stories
+ * (all taken from {@link CatalogStatisticsService}), and books all weigh
+ * the same.</p>
+ *
+ * <p>Each tenant has its own indexes, built when the tenant is first used
+ * (the default tenant at startup), and maintained from the model
+ * mutation events (and the invalidations of models mutated on other cluster
+ * members) after the statistics have been updated.  Deleting an
+ * author cascades to rows that fire no events of their own, so it (and
+ * bulk changes such as imports, which must call <code>rebuild()</code>)
+ * rebuilds the indexes of its tenant from the database.</p>
+ */
+@LocalBean
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@DependsOn("CatalogStatisticsService")
+public class SuggestService {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private CatalogStatisticsService catalogStatisticsService;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    protected EntityManager entityManager;
+
+    /**
+     * <p>Indexes of each tenant that has been used.</p>
+     */
+    private TenantCache<Indexes> tenants;
+
+    @Inject
+    private TenantRegistry tenantRegistry;
+
+    /**
+     * <p>Number of leading words of a title at which it may be matched.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "suggest.title.words", defaultValue = "8")
+    private Integer titleWords;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Default maximum number of suggestions.</p>
+     */
+    public static final int DEFAULT_LIMIT = 10;
+
+    private static final Logger LOG =
+            Logger.getLogger(SuggestService.class.getSimpleName());
+
+    /**
+     * <p>Maximum number of suggestions.</p>
+     */
+    public static final int MAX_LIMIT = PrefixIndex.MAX_RESULTS;
+
+    /**
+     * <p>Suggestion types, in the order used when none are specified.</p>
+     */
+    public static final List<String> TYPES = Collections.unmodifiableList
+            (Arrays.asList("book", "author", "series", "anthology"));
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        tenants = new TenantCache<>(tenantRegistry::isKnown);
+        rebuild();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Rebuild all indexes of the current tenant from the database.</p>
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void rebuild() {
+        String tenantId = TenantContext.current();
+        synchronized (tenants.lock(tenantId)) {
+            tenants.put(tenantId, build());
+        }
+    }
+
+    /**
+     * <p>Return suggestions for the specified query, heaviest first (ties
+     * in label order) or in order of the matched text.</p>
+     *
+     * @param query Query text (normalized before matching, so case and accents are ignored)
+     * @param types Comma separated list of types to suggest (default is all of <code>TYPES</code>)
+     * @param limit Maximum number of suggestions (default is <code>DEFAULT_LIMIT</code>)
+     * @param order Order of suggestions ("popularity" (the default) or "alphabetical")
+     *
+     * @throws BadRequest If a type, the limit, or the order is invalid
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED) // In case the indexes must be built
+    public @NotNull List<Suggestion> suggest(String query, String types, Integer limit, String order)
+            throws BadRequest {
+
+        int max = (limit != null) ? limit : DEFAULT_LIMIT;
+        if ((max < 1) || (max > MAX_LIMIT)) {
+            throw new BadRequest("limit: Must be between 1 and " + MAX_LIMIT);
+        }
+        boolean alphabetical;
+        if ((order == null) || "popularity".equalsIgnoreCase(order)) {
+            alphabetical = false;
+        } else if ("alphabetical".equalsIgnoreCase(order)) {
+            alphabetical = true;
+        } else {
+            throw new BadRequest("order: Must be 'popularity' or 'alphabetical'");
+        }
+        Indexes tenantIndexes = indexes();
+        Map<String, PrefixIndex> indexes = new LinkedHashMap<>();
+        for (String type : (types != null) && !types.trim().isEmpty()
+                ? Arrays.asList(types.split(",")) : TYPES) {
+            PrefixIndex index = tenantIndexes.get(type.trim().toLowerCase(Locale.ROOT));
+            if (index == null) {
+                throw new BadRequest("types: Invalid type '" + type.trim() + "', must be one of " + TYPES);
+            }
+            indexes.putIfAbsent(index.getType(), index);
+        }
+
+        String prefix = TextNormalizer.normalize(query);
+        List<Suggestion> results = new ArrayList<>();
+        if (prefix.isEmpty()) {
+            return results;
+        }
+        for (PrefixIndex index : indexes.values()) {
+            results.addAll(index.suggest(prefix, max, alphabetical));
+        }
+        results.sort(alphabetical
+                ? Comparator.comparing(Suggestion::getMatch).thenComparing(Suggestion::getLabel)
+                : Comparator.comparingLong(Suggestion::getWeight).reversed().thenComparing(Suggestion::getLabel));
+        return (results.size() > max) ? new ArrayList<>(results.subList(0, max)) : results;
+
+    }
+
+    // Event Observer Methods ------------------------------------------------
+
+    // These observers run after those of CatalogStatisticsService, so that weights are current
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void handleDeletedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS)
+             @Priority(Interceptor.Priority.APPLICATION + 600) DeletedModelEvent event) {
+        remove(event.getSource());
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleInsertedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS)
+             @Priority(Interceptor.Priority.APPLICATION + 600) InsertedModelEvent event) {
+        put(event.getSource(), true);
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void handleInvalidatedModel
+            (@Observes @Priority(Interceptor.Priority.APPLICATION + 600) InvalidatedModelEvent event) {
+        if (event.getSource() == null) {
+            // Indexes of every tenant are rebuilt as they are next used
+            tenants.clear();
+        } else if (event.isDeleted()) {
+            remove(event.getSource());
+        } else {
+            put(event.getSource(), false);
+        }
+    }
+
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void handleUpdatedModel
+            (@Observes(during = TransactionPhase.AFTER_SUCCESS)
+             @Priority(Interceptor.Priority.APPLICATION + 600) UpdatedModelEvent event) {
+        put(event.getSource(), false);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Build and return the indexes of the current tenant.  The caller
+     * must hold the lock of the tenant.</p>
+     */
+    private Indexes build() {
+
+        long started = System.currentTimeMillis();
+        TenantFilters.enable(entityManager);
+
+        Indexes indexes = new Indexes();
+        load(indexes.anthologies, ANTHOLOGY_NAME, catalogStatisticsService::getAnthologyStoryCount);
+        for (Object[] row : entityManager.createQuery(
+                "SELECT a." + ID_COLUMN + ", a." + FIRST_NAME_COLUMN + ", a." + LAST_NAME_COLUMN +
+                        " FROM " + AUTHOR_NAME + " a",
+                Object[].class).getResultList()) {
+            putAuthor(indexes.authors, (Long) row[0], (String) row[1], (String) row[2]);
+        }
+        load(indexes.books, BOOK_NAME, id -> 0L);
+        load(indexes.series, SERIES_NAME, catalogStatisticsService::getSeriesMemberCount);
+
+        LOG.info(String.format("Built suggestion indexes of tenant %s (%d authors, %d anthologies, %d books, %d series) in %d ms",
+                TenantContext.current(), indexes.authors.size(), indexes.anthologies.size(),
+                indexes.books.size(), indexes.series.size(), System.currentTimeMillis() - started));
+        return indexes;
+
+    }
+
+    /**
+     * <p>Return the indexes of the current tenant, building them if the
+     * tenant has not been used before.</p>
+     */
+    private Indexes indexes() {
+        return tenants.get(TenantContext.current(), this::build);
+    }
+
+    private void load(PrefixIndex index, String name, Function<Long, Long> weights) {
+        for (Object[] row : entityManager.createQuery(
+                "SELECT x." + ID_COLUMN + ", x." + TITLE_COLUMN + " FROM " + name + " x",
+                Object[].class).getResultList()) {
+            putTitle(index, (Long) row[0], (String) row[1], weights.apply((Long) row[0]));
+        }
+    }
+
+    /**
+     * <p>Add (or replace) the specified model in the indexes of its tenant,
+     * if they have been built.  Weights are those of the model's tenant.</p>
+     */
+    private void put(Model<?> model, boolean inserted) {
+        String tenantId = TenantContext.tenantOf(model);
+        Indexes indexes = (tenantId != null) ? tenants.get(tenantId) : null;
+        if (indexes == null) {
+            return;
+        }
+        TenantContext.run(tenantId, () -> {
+            synchronized (tenants.lock(tenantId)) {
+                if (model instanceof Anthology) {
+                    Anthology anthology = (Anthology) model;
+                    putTitle(indexes.anthologies, anthology.getId(), anthology.getTitle(),
+                            catalogStatisticsService.getAnthologyStoryCount(anthology.getId()));
+                } else if (model instanceof Author) {
+                    Author author = (Author) model;
+                    putAuthor(indexes.authors, author.getId(), author.getFirstName(), author.getLastName());
+                } else if (model instanceof Book) {
+                    Book book = (Book) model;
+                    putTitle(indexes.books, book.getId(), book.getTitle(), 0L);
+                } else if (model instanceof Series) {
+                    Series aSeries = (Series) model;
+                    putTitle(indexes.series, aSeries.getId(), aSeries.getTitle(),
+                            catalogStatisticsService.getSeriesMemberCount(aSeries.getId()));
+                }
+                reweigh(indexes, model, inserted);
+            }
+        });
+    }
+
+    private void putAuthor(PrefixIndex index, Long id, String firstName, String lastName) {
+        index.put(id, firstName + " " + lastName,
+                Arrays.asList(TextNormalizer.normalize(firstName + " " + lastName),
+                        TextNormalizer.normalize(lastName + " " + firstName)),
+                catalogStatisticsService.getAuthorBookCount(id));
+    }
+
+    private void putTitle(PrefixIndex index, Long id, String title, long weight) {
+        index.put(id, title, TextNormalizer.wordSuffixes(TextNormalizer.normalize(title), titleWords), weight);
+    }
+
+    /**
+     * <p>Remove the specified model from the indexes of its tenant (or, if
+     * its tenant is not known, as for the deletes of other cluster members,
+     * from the indexes of every tenant).</p>
+     */
+    private void remove(Model<?> model) {
+        String tenantId = TenantContext.tenantOf(model);
+        if (tenantId == null) {
+            for (String knownTenantId : tenants.tenantIds()) {
+                remove(knownTenantId, model);
+            }
+        } else {
+            remove(tenantId, model);
+        }
+    }
+
+    private void remove(String tenantId, Model<?> model) {
+        Indexes indexes = tenants.get(tenantId);
+        if (indexes == null) {
+            return;
+        }
+        if (model instanceof Author) {
+            // Deletes of authors cascade to anthologies, books, and series that fire no events
+            tenants.remove(tenantId);
+            return;
+        }
+        TenantContext.run(tenantId, () -> {
+            synchronized (tenants.lock(tenantId)) {
+                if (model instanceof Anthology) {
+                    indexes.anthologies.remove(model.getId());
+                } else if (model instanceof Book) {
+                    indexes.books.remove(model.getId());
+                } else if (model instanceof Series) {
+                    indexes.series.remove(model.getId());
+                }
+                reweigh(indexes, model, false);
+            }
+        });
+    }
+
+    /**
+     * <p>Bring the weights affected by a change to the specified model up to
+     * date.  An insert affects only the parents of the new model, but the
+     * parents of a model before an update or delete are not known, so then
+     * every model of the affected type is compared with its current count.</p>
+     */
+    private void reweigh(Indexes indexes, Model<?> model, boolean inserted) {
+        if (inserted) {
+            if (model instanceof Book) {
+                Long authorId = ((Book) model).getAuthorId();
+                indexes.authors.setWeight(authorId, catalogStatisticsService.getAuthorBookCount(authorId));
+            } else if (model instanceof Member) {
+                Long seriesId = ((Member) model).getSeriesId();
+                indexes.series.setWeight(seriesId, catalogStatisticsService.getSeriesMemberCount(seriesId));
+            } else if (model instanceof Story) {
+                Long anthologyId = ((Story) model).getAnthologyId();
+                indexes.anthologies.setWeight(anthologyId, catalogStatisticsService.getAnthologyStoryCount(anthologyId));
+            }
+            return;
+        }
+        if (model instanceof Book) {
+            reweigh(indexes.authors, catalogStatisticsService::getAuthorBookCount);
+        }
+        if ((model instanceof Book) || (model instanceof Member)) {
+            reweigh(indexes.series, catalogStatisticsService::getSeriesMemberCount);
+        }
+        if ((model instanceof Book) || (model instanceof Story)) {
+            reweigh(indexes.anthologies, catalogStatisticsService::getAnthologyStoryCount);
+        }
+    }
+
+    private void reweigh(PrefixIndex index, Function<Long, Long> weights) {
+        for (Long id : index.getIds()) {
+            index.setWeight(id, weights.apply(id));
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Indexes of one tenant.</p>
+     */
+    private static class Indexes {
+
+        private final PrefixIndex anthologies = new PrefixIndex(ANTHOLOGY_NAME);
+
+        private final PrefixIndex authors = new PrefixIndex(AUTHOR_NAME);
+
+        private final PrefixIndex books = new PrefixIndex(BOOK_NAME);
+
+        private final PrefixIndex series = new PrefixIndex(SERIES_NAME);
+
+        private PrefixIndex get(String type) {
+            switch (type) {
+                case "anthology":
+                    return anthologies;
+                case "author":
+                    return authors;
+                case "book":
+                    return books;
+                case "series":
+                    return series;
+                default:
+                    return null;
+            }
+        }
+
+    }
+
+}
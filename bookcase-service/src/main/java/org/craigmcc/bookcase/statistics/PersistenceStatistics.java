@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.statistics;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Immutable snapshot of persistence statistics, gathered from the Hibernate
+ * statistics of the persistence unit plus the slow query history recorded by
+ * {@link SlowQueryInterceptor} and {@link SlowStatementListener}.</p>
+ */
+@Schema(
+        description = "Snapshot of persistence statistics since the server was started.",
+        name = "PersistenceStatistics"
+)
+public class PersistenceStatistics {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final boolean enabled;
+    private final Map<String, EntityStatistics> entities;
+    private final long entityFetchCount;
+    private final long entityLoadCount;
+    private final Map<String, NamedQueryStatistics> namedQueries;
+    private final long prepareStatementCount;
+    private final long queryExecutionCount;
+    private final long queryExecutionMaxTime;
+    private final List<SlowQuery> recentSlowQueries;
+    private final long slowQueryCount;
+    private final LocalDateTime started;
+
+    // Constructors ----------------------------------------------------------
+
+    public PersistenceStatistics(
+            boolean enabled,
+            Map<String, EntityStatistics> entities,
+            long entityFetchCount,
+            long entityLoadCount,
+            Map<String, NamedQueryStatistics> namedQueries,
+            long prepareStatementCount,
+            long queryExecutionCount,
+            long queryExecutionMaxTime,
+            List<SlowQuery> recentSlowQueries,
+            long slowQueryCount,
+            LocalDateTime started
+    ) {
+        this.enabled = enabled;
+        this.entities = entities;
+        this.entityFetchCount = entityFetchCount;
+        this.entityLoadCount = entityLoadCount;
+        this.namedQueries = namedQueries;
+        this.prepareStatementCount = prepareStatementCount;
+        this.queryExecutionCount = queryExecutionCount;
+        this.queryExecutionMaxTime = queryExecutionMaxTime;
+        this.recentSlowQueries = recentSlowQueries;
+        this.slowQueryCount = slowQueryCount;
+        this.started = started;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    @Schema(description = "Are Hibernate statistics being collected?  " +
+            "If not, only slow query information is available.")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Schema(description = "Per-entity statistics, keyed by entity name.")
+    public Map<String, EntityStatistics> getEntities() {
+        return entities;
+    }
+
+    @Schema(description = "Number of entities fetched by a separate SQL statement " +
+            "(a count that grows along with the load count indicates an N+1 problem).")
+    public long getEntityFetchCount() {
+        return entityFetchCount;
+    }
+
+    @Schema(description = "Number of entities loaded from the database.")
+    public long getEntityLoadCount() {
+        return entityLoadCount;
+    }
+
+    @Schema(description = "Per-named-query statistics, keyed by query name.")
+    public Map<String, NamedQueryStatistics> getNamedQueries() {
+        return namedQueries;
+    }
+
+    @Schema(description = "Number of JDBC statements prepared.")
+    public long getPrepareStatementCount() {
+        return prepareStatementCount;
+    }
+
+    @Schema(description = "Number of JPQL/HQL queries executed.")
+    public long getQueryExecutionCount() {
+        return queryExecutionCount;
+    }
+
+    @Schema(description = "Maximum execution time (in milliseconds) of any query.")
+    public long getQueryExecutionMaxTime() {
+        return queryExecutionMaxTime;
+    }
+
+    @Schema(description = "Most recent sampled slow service calls and SQL statements, newest first.")
+    public List<SlowQuery> getRecentSlowQueries() {
+        return recentSlowQueries;
+    }
+
+    @Schema(description = "Number of slow service calls and SQL statements detected (sampled or not).")
+    public long getSlowQueryCount() {
+        return slowQueryCount;
+    }
+
+    @Schema(description = "Timestamp when statistics collection was started.")
+    public LocalDateTime getStarted() {
+        return started;
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    @Schema(
+            description = "Load and fetch statistics for a single entity.",
+            name = "EntityStatistics"
+    )
+    public static class EntityStatistics {
+
+        private final long deleteCount;
+        private final long fetchCount;
+        private final long insertCount;
+        private final long loadCount;
+        private final long updateCount;
+
+        public EntityStatistics(
+                long deleteCount,
+                long fetchCount,
+                long insertCount,
+                long loadCount,
+                long updateCount
+        ) {
+            this.deleteCount = deleteCount;
+            this.fetchCount = fetchCount;
+            this.insertCount = insertCount;
+            this.loadCount = loadCount;
+            this.updateCount = updateCount;
+        }
+
+        public long getDeleteCount() {
+            return deleteCount;
+        }
+
+        public long getFetchCount() {
+            return fetchCount;
+        }
+
+        public long getInsertCount() {
+            return insertCount;
+        }
+
+        public long getLoadCount() {
+            return loadCount;
+        }
+
+        public long getUpdateCount() {
+            return updateCount;
+        }
+
+    }
+
+    @Schema(
+            description = "Execution statistics for a single named query.",
+            name = "NamedQueryStatistics"
+    )
+    public static class NamedQueryStatistics {
+
+        private final long executionCount;
+        private final double executionMeanTime;
+        private final long executionMaxTime;
+        private final long executionRowCount;
+
+        public NamedQueryStatistics(
+                long executionCount,
+                double executionMeanTime,
+                long executionMaxTime,
+                long executionRowCount
+        ) {
+            this.executionCount = executionCount;
+            this.executionMeanTime = executionMeanTime;
+            this.executionMaxTime = executionMaxTime;
+            this.executionRowCount = executionRowCount;
+        }
+
+        public long getExecutionCount() {
+            return executionCount;
+        }
+
+        @Schema(description = "Mean execution time in milliseconds.")
+        public double getExecutionMeanTime() {
+            return executionMeanTime;
+        }
+
+        @Schema(description = "Maximum execution time in milliseconds.")
+        public long getExecutionMaxTime() {
+            return executionMaxTime;
+        }
+
+        public long getExecutionRowCount() {
+            return executionRowCount;
+        }
+
+    }
+
+    @Schema(
+            description = "A single (sampled) slow query, with redacted parameters.",
+            name = "SlowQuery"
+    )
+    public static class SlowQuery {
+
+        private final long elapsed;
+        private final String operation;
+        private final String parameters;
+        private final LocalDateTime timestamp;
+
+        public SlowQuery(
+                long elapsed,
+                String operation,
+                String parameters,
+                LocalDateTime timestamp
+        ) {
+            this.elapsed = elapsed;
+            this.operation = operation;
+            this.parameters = parameters;
+            this.timestamp = timestamp;
+        }
+
+        @Schema(description = "Elapsed time in milliseconds.")
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        @Schema(description = "Service class and method that was called, or SQL for a slow statement.")
+        public String getOperation() {
+            return operation;
+        }
+
+        @Schema(description = "Call parameters (redacted unless configured otherwise), or the SQL of a slow statement.")
+        public String getParameters() {
+            return parameters;
+        }
+
+        public LocalDateTime getTimestamp() {
+            return timestamp;
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.statistics;
+
+import org.craigmcc.bookcase.service.PersistenceStatisticsService;
+import org.craigmcc.library.model.Model;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * <p>Interceptor that times calls to {@link SlowQueryLogged} service methods, and
+ * reports the ones that exceed <code>persistence.slow.query.threshold</code>
+ * milliseconds.  Every slow call is counted, but only a sampled fraction
+ * (<code>persistence.slow.query.sample.rate</code>) of them is logged and
+ * retained in the recent slow query history, so that a struggling database
+ * does not also flood the server log.</p>
+ *
+ * <p>Unless <code>persistence.slow.query.redact</code> is false, argument values
+ * that might contain user data (strings and model contents) are replaced by
+ * <code>?</code>, in the same manner as JDBC bind parameters.  Identifiers,
+ * numbers, booleans, and enums are reported as is.</p>
+ *
+ * <p>The individual SQL statements that make a call slow are reported
+ * separately by {@link SlowStatementListener}.</p>
+ */
+@SlowQueryLogged
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class SlowQueryInterceptor {
+
+    // Instance Variables ----------------------------------------------------
+
+    @Inject
+    private PersistenceStatisticsService persistenceStatisticsService;
+
+    /**
+     * <p>Redact argument values that might contain user data.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "persistence.slow.query.redact", defaultValue = "true")
+    private boolean redact;
+
+    /**
+     * <p>Fraction (0.0 through 1.0) of slow calls that are logged.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "persistence.slow.query.sample.rate", defaultValue = "1.0")
+    private double sampleRate;
+
+    /**
+     * <p>Elapsed time (in milliseconds) at or above which a call is slow,
+     * or zero to disable slow query checking entirely.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "persistence.slow.query.threshold", defaultValue = "250")
+    private long threshold;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Logger LOG =
+            Logger.getLogger(SlowQueryInterceptor.class.getSimpleName());
+
+    // Interceptor Methods ---------------------------------------------------
+
+    @AroundInvoke
+    public Object checkSlowQuery(InvocationContext context) throws Exception {
+
+        if (threshold <= 0) {
+            return context.proceed();
+        }
+
+        long started = System.nanoTime();
+        try {
+            return context.proceed();
+        } finally {
+            long elapsed = (System.nanoTime() - started) / 1_000_000L;
+            if (elapsed >= threshold) {
+                boolean sampled = (sampleRate >= 1.0) ||
+                        (ThreadLocalRandom.current().nextDouble() < sampleRate);
+                String operation = context.getMethod().getDeclaringClass().getSimpleName() +
+                        "." + context.getMethod().getName();
+                String parameters = describe(context.getParameters(), redact);
+                persistenceStatisticsService.recordSlowQuery
+                        (operation, parameters, elapsed, sampled);
+                if (sampled) {
+                    LOG.warning(String.format("Slow query: %s(%s) took %d ms",
+                            operation, parameters, elapsed));
+                }
+            }
+        }
+
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    /**
+     * <p>Return a printable description of the specified call parameters.</p>
+     *
+     * @param parameters Parameters passed to the intercepted method
+     * @param redact Should values that might contain user data be redacted?
+     */
+    static String describe(Object[] parameters, boolean redact) {
+        if (parameters == null) {
+            return "";
+        }
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Object parameter : parameters) {
+            if (parameter == null) {
+                joiner.add("null");
+            } else if (!redact) {
+                joiner.add(parameter.toString());
+            } else if ((parameter instanceof Number) ||
+                       (parameter instanceof Boolean) ||
+                       (parameter instanceof Enum)) {
+                joiner.add(parameter.toString());
+            } else if (parameter instanceof Model) {
+                joiner.add(parameter.getClass().getSimpleName() +
+                        "[id=" + ((Model) parameter).getId() + ",?]");
+            } else {
+                joiner.add("?");
+            }
+        }
+        return joiner.toString();
+    }
+
+}
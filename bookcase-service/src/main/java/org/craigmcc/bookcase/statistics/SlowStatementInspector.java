@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.statistics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * <p>Hibernate statement inspector (configured by
+ * <code>hibernate.session_factory.statement_inspector</code>) that remembers,
+ * for the current thread, the SQL of the statement about to be prepared, so
+ * that {@link SlowStatementListener} can report which statement was slow.
+ * The SQL is never changed.</p>
+ *
+ * <p>A single instance is shared by every session of a persistence unit, so
+ * the SQL is kept per thread.  Hibernate inspects a statement immediately
+ * before preparing it, on the thread of the session that prepares it.</p>
+ */
+public class SlowStatementInspector implements StatementInspector {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final ThreadLocal<String> INSPECTED = new ThreadLocal<>();
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public String inspect(String sql) {
+        INSPECTED.set(sql);
+        return sql;
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return and forget the SQL most recently inspected on this thread,
+     * or <code>null</code> if there is none.</p>
+     */
+    static String take() {
+        String sql = INSPECTED.get();
+        INSPECTED.remove();
+        return sql;
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.statistics;
+
+import org.hibernate.BaseSessionEventListener;
+
+import javax.validation.constraints.NotNull;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * <p>Hibernate session event listener (configured by
+ * <code>hibernate.session.events.auto</code>) that times the execution of
+ * every JDBC statement and batch, and reports those that take at least
+ * <code>persistence.slow.statement.threshold</code> milliseconds, with their
+ * SQL as captured by {@link SlowStatementInspector}.  Unlike
+ * {@link SlowQueryInterceptor}, which times whole service calls, this
+ * identifies the individual statement that was slow.  The SQL has
+ * <code>?</code> placeholders for its bind parameters, so it contains no
+ * user data.</p>
+ *
+ * <p>Hibernate creates one listener per session, so instances need not be
+ * thread safe.  Hibernate (not CDI) creates them, so they report to
+ * whatever recorder has been installed (by
+ * <code>PersistenceStatisticsService</code>), and report nothing while none
+ * is.  A batch is reported with the SQL most recently prepared by its
+ * session, which is that of the batch unless other statements were
+ * prepared while it was being filled.</p>
+ */
+public class SlowStatementListener extends BaseSessionEventListener {
+
+    // Instance Variables ----------------------------------------------------
+
+    private String executing;
+
+    private String prepared;
+
+    private long started;
+
+    // Static Variables ------------------------------------------------------
+
+    /**
+     * <p>Prefix for the reported SQL of a batch.</p>
+     */
+    static final String BATCH_PREFIX = "[batch] ";
+
+    private static volatile ObjLongConsumer<String> recorder;
+
+    /**
+     * <p>Reported SQL of a statement whose SQL was not captured.</p>
+     */
+    static final String UNKNOWN_SQL = "(unknown)";
+
+    private static volatile long threshold;
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        finish();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        start((prepared != null) ? BATCH_PREFIX + prepared : null);
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        finish();
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        start(prepared);
+    }
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        String sql = SlowStatementInspector.take();
+        if (sql != null) {
+            prepared = sql;
+        }
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Report statements taking at least the specified number of
+     * milliseconds (zero to report none) to the specified recorder, which
+     * receives their SQL and elapsed milliseconds.</p>
+     *
+     * @param threshold Elapsed milliseconds at or above which a statement is slow
+     * @param recorder Recorder of slow statements
+     */
+    public static void install(long threshold, @NotNull ObjLongConsumer<String> recorder) {
+        SlowStatementListener.threshold = threshold;
+        SlowStatementListener.recorder = recorder;
+    }
+
+    /**
+     * <p>Stop reporting slow statements.</p>
+     */
+    public static void uninstall() {
+        recorder = null;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void finish() {
+        ObjLongConsumer<String> current = recorder;
+        if ((executing == null) || (current == null)) {
+            executing = null;
+            return;
+        }
+        long elapsed = (System.nanoTime() - started) / 1_000_000L;
+        if (elapsed >= threshold) {
+            current.accept(executing, elapsed);
+        }
+        executing = null;
+    }
+
+    private void start(String sql) {
+        if ((recorder == null) || (threshold <= 0)) {
+            return;
+        }
+        executing = (sql != null) ? sql : UNKNOWN_SQL;
+        started = System.nanoTime();
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.tenant;
+
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * <p>An in-memory value (such as an index or a snapshot) kept for each
+ * tenant.  Each value is loaded when its tenant is first used, under a lock
+ * of that tenant's own, so loading (or rebuilding) one tenant's value never
+ * blocks the readers or writers of another's.  Values are only kept for
+ * known tenants (see {@link TenantRegistry}), so the number of entries is
+ * bounded by the configuration rather than by the tenant IDs that clients
+ * send.</p>
+ *
+ * @param <V> Type of the cached values
+ */
+public final class TenantCache<V> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Predicate<String> known;
+
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    private final Map<String, V> values = new ConcurrentHashMap<>();
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * <p>Construct a cache for the tenants accepted by the specified test.</p>
+     *
+     * @param known Test of whether a tenant is known
+     */
+    public TenantCache(@NotNull Predicate<String> known) {
+        this.known = known;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Forget the values of every tenant (they are loaded again as their
+     * tenants are next used).</p>
+     */
+    public void clear() {
+        values.clear();
+    }
+
+    /**
+     * <p>Return the value of the specified tenant, or <code>null</code> if
+     * it has not been loaded.</p>
+     *
+     * @param tenantId ID of the tenant
+     */
+    public V get(@NotNull String tenantId) {
+        return values.get(tenantId);
+    }
+
+    /**
+     * <p>Return the value of the specified tenant, loading it (while holding
+     * the lock of the tenant) if it has not been loaded.</p>
+     *
+     * @param tenantId ID of the tenant
+     * @param loader Loader of the value of the tenant
+     *
+     * @throws IllegalStateException If the tenant is not known
+     */
+    public V get(@NotNull String tenantId, @NotNull Supplier<V> loader) {
+        V value = values.get(tenantId);
+        if (value != null) {
+            return value;
+        }
+        synchronized (lock(tenantId)) {
+            value = values.get(tenantId);
+            if (value == null) {
+                value = loader.get();
+                values.put(tenantId, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * <p>Return the lock that guards the loading and the replacement of the
+     * value of the specified tenant.</p>
+     *
+     * @param tenantId ID of the tenant
+     *
+     * @throws IllegalStateException If the tenant is not known
+     */
+    public @NotNull Object lock(@NotNull String tenantId) {
+        Object lock = locks.get(tenantId);
+        if (lock != null) {
+            return lock;
+        }
+        if (!known.test(tenantId)) {
+            throw new IllegalStateException("tenantId: Unknown tenant '" + tenantId + "'");
+        }
+        return locks.computeIfAbsent(tenantId, k -> new Object());
+    }
+
+    /**
+     * <p>Replace the value of the specified tenant.  The caller should hold
+     * the lock of the tenant.</p>
+     *
+     * @param tenantId ID of the tenant
+     * @param value New value
+     *
+     * @throws IllegalStateException If the tenant is not known
+     */
+    public void put(@NotNull String tenantId, @NotNull V value) {
+        lock(tenantId);
+        values.put(tenantId, value);
+    }
+
+    /**
+     * <p>Forget the value of the specified tenant (it is loaded again when
+     * the tenant is next used).</p>
+     *
+     * @param tenantId ID of the tenant
+     */
+    public void remove(@NotNull String tenantId) {
+        values.remove(tenantId);
+    }
+
+    /**
+     * <p>Return the IDs of the tenants whose values are loaded.</p>
+     */
+    public @NotNull Set<String> tenantIds() {
+        return values.keySet();
+    }
+
+}
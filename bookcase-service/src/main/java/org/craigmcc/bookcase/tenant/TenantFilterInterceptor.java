@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.tenant;
+
+import javax.annotation.Priority;
+import javax.annotation.Resource;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+
+/**
+ * <p>Interceptor that restricts the queries of {@link TenantScoped} service
+ * methods to the rows of the current tenant, by enabling the tenant filter
+ * on the session of the caller's transaction (which every transaction scoped
+ * entity manager of the primary persistence unit shares).  Calls outside a
+ * transaction are left alone, because each of their queries may get a
+ * session of its own; such reads go through <code>ReadQueryService</code>,
+ * which filters them itself.</p>
+ *
+ * <p>This interceptor runs inside {@link org.craigmcc.bookcase.coalesce.CoalescingInterceptor}
+ * and {@link org.craigmcc.bookcase.statistics.SlowQueryInterceptor}.</p>
+ */
+@TenantScoped
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION + 10)
+public class TenantFilterInterceptor {
+
+    // Instance Variables ----------------------------------------------------
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    private EntityManager entityManager;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    // Interceptor Methods ---------------------------------------------------
+
+    @AroundInvoke
+    public Object filterTenant(InvocationContext context) throws Exception {
+        if (transactionSynchronizationRegistry.getTransactionKey() != null) {
+            TenantFilters.enable(entityManager);
+        }
+        return context.proceed();
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.tenant;
+
+import org.craigmcc.bookcase.model.TenantContext;
+import org.craigmcc.library.model.Model;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.validation.constraints.NotNull;
+
+import static org.craigmcc.bookcase.model.Constants.TENANT_FILTER;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
+
+/**
+ * <p>Enables and disables the tenant filter (declared by
+ * <code>TenantModel</code>) on the Hibernate session behind an entity
+ * manager.  Filters belong to a session, so they must be enabled again for
+ * each transaction (or, outside of a transaction, within the same bean
+ * method call that runs the queries).  They restrict queries, but not
+ * lookups by primary key, nor bulk updates and deletes.</p>
+ */
+public final class TenantFilters {
+
+    // Constructors ----------------------------------------------------------
+
+    private TenantFilters() { }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Let queries on the specified entity manager see the rows of every
+     * tenant, and return it.</p>
+     *
+     * @param entityManager Entity manager to be unfiltered
+     */
+    public static <E extends EntityManager> E disable(@NotNull E entityManager) {
+        entityManager.unwrap(Session.class).disableFilter(TENANT_FILTER);
+        return entityManager;
+    }
+
+    /**
+     * <p>Restrict queries on the specified entity manager to the rows of the
+     * tenant of the current thread, and return it.</p>
+     *
+     * @param entityManager Entity manager to be filtered
+     */
+    public static <E extends EntityManager> E enable(@NotNull E entityManager) {
+        return enable(entityManager, TenantContext.current());
+    }
+
+    /**
+     * <p>Restrict queries on the specified entity manager to the rows of the
+     * specified tenant, and return it.</p>
+     *
+     * @param entityManager Entity manager to be filtered
+     * @param tenantId ID of the tenant
+     */
+    public static <E extends EntityManager> E enable(@NotNull E entityManager, @NotNull String tenantId) {
+        entityManager.unwrap(Session.class)
+                .enableFilter(TENANT_FILTER)
+                .setParameter(TENANT_ID_COLUMN, tenantId);
+        return entityManager;
+    }
+
+    /**
+     * <p>Return true unless the specified model exists and belongs to a
+     * tenant other than the current one.  Lookups by primary key are not
+     * filtered, so this is how references to other models are checked.</p>
+     *
+     * @param entityManager Entity manager to look the model up with
+     * @param modelClass Class of the referenced model
+     * @param id ID of the referenced model (if any)
+     */
+    public static <M> boolean isVisible(
+            @NotNull EntityManager entityManager,
+            @NotNull Class<M> modelClass,
+            Long id
+    ) {
+        if (id == null) {
+            return true;
+        }
+        M model = entityManager.find(modelClass, id);
+        return !(model instanceof Model) || TenantContext.isCurrent((Model<?>) model);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.tenant;
+
+import org.craigmcc.bookcase.model.TenantContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+
+/**
+ * <p>The tenants this server serves: those listed (comma separated) in the
+ * <code>tenant.ids</code> configuration property, plus the default tenant
+ * (for which startup and timer work is done).  Requests for any other
+ * tenant are rejected, and per-tenant caches are only kept for these, so
+ * their number is bounded by the configuration rather than by the tenant
+ * IDs that clients send.</p>
+ */
+@ApplicationScoped
+public class TenantRegistry {
+
+    // Instance Variables ----------------------------------------------------
+
+    /**
+     * <p>Comma separated IDs of the tenants (besides the default tenant)
+     * this server serves.</p>
+     */
+    @Inject
+    @ConfigProperty(name = "tenant.ids", defaultValue = DEFAULT_TENANT_ID)
+    private String ids;
+
+    private Set<String> tenantIds;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @PostConstruct
+    public void startup() {
+        tenantIds = parse(ids);
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the IDs of the tenants this server serves, in order.</p>
+     */
+    public @NotNull Set<String> getTenantIds() {
+        return tenantIds;
+    }
+
+    /**
+     * <p>Return true if this server serves the specified tenant.</p>
+     *
+     * @param tenantId ID of the tenant to be checked
+     */
+    public boolean isKnown(String tenantId) {
+        return (tenantId != null) && tenantIds.contains(tenantId);
+    }
+
+    // Package Methods -------------------------------------------------------
+
+    /**
+     * <p>Set the comma separated additional tenant IDs (normally configured
+     * by <code>tenant.ids</code>), which take effect at the next
+     * {@link #startup()}.</p>
+     */
+    void setIds(String ids) {
+        this.ids = ids;
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    /**
+     * <p>Return the tenant IDs in the specified comma separated list, plus
+     * the default tenant.</p>
+     *
+     * @param ids Comma separated tenant IDs (may be <code>null</code>)
+     *
+     * @throws IllegalArgumentException If a listed tenant ID is not valid
+     */
+    static Set<String> parse(String ids) {
+        Set<String> tenantIds = new TreeSet<>();
+        tenantIds.add(DEFAULT_TENANT_ID);
+        if (ids != null) {
+            for (String id : ids.split(",")) {
+                String tenantId = id.trim();
+                if (tenantId.isEmpty()) {
+                    continue;
+                }
+                if (!TenantContext.isValid(tenantId)) {
+                    throw new IllegalArgumentException("tenant.ids: Invalid tenant ID '" + tenantId + "'");
+                }
+                tenantIds.add(tenantId);
+            }
+        }
+        return Collections.unmodifiableSet(tenantIds);
+    }
+
+}
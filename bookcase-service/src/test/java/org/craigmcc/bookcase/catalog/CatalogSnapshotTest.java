@@ -0,0 +1,241 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.catalog;
+
+import org.craigmcc.bookcase.model.Anthology;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.service.ServiceTests;
+import org.craigmcc.library.model.Model;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+@Category(ServiceTests.class)
+public class CatalogSnapshotTest {
+
+    private CatalogSnapshot snapshot;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        snapshot = new CatalogSnapshot.Builder()
+                .put(author(1L, "Fred", "Flintstone"))
+                .put(author(2L, "Barney", "Rubble"))
+                .put(book(10L, 1L, "The Quarry"))
+                .put(book(11L, 1L, "Bedrock"))
+                .put(book(12L, 2L, "Dinosaurs"))
+                .put(anthology(30L, 2L, "Collected"))
+                .put(series(40L, 1L, "Stone Age"))
+                .put(member(60L, 10L, 40L, 2))
+                .put(member(61L, 11L, 40L, 1))
+                .put(story(70L, 30L, 12L, 1))
+                .build();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void build() {
+
+        assertThat(ids(snapshot.findAllAuthors()), contains(1L, 2L));
+        assertThat(ids(snapshot.findAllBooks()), contains(11L, 12L, 10L));
+        assertThat(ids(snapshot.findBooksByAuthorId(1L)), contains(11L, 10L));
+        assertThat(ids(snapshot.findMembersBySeriesId(40L)), contains(61L, 60L));
+        assertThat(ids(snapshot.findStoriesByAnthologyId(30L)), contains(70L));
+        assertThat(snapshot.findBook(10L).getAuthor(), sameInstance(snapshot.findAuthor(1L)));
+        assertThat(snapshot.findMember(60L).getBook(), sameInstance(snapshot.findBook(10L)));
+
+    }
+
+    @Test
+    public void putMovesBetweenGroups() {
+
+        CatalogSnapshot updated = snapshot.toBuilder().put(book(10L, 2L, "The Quarry")).build();
+
+        assertThat(ids(updated.findBooksByAuthorId(1L)), contains(11L));
+        assertThat(ids(updated.findBooksByAuthorId(2L)), contains(12L, 10L));
+        assertThat(updated.findBook(10L).getAuthor(), sameInstance(updated.findAuthor(2L)));
+        assertThat(ids(snapshot.findBooksByAuthorId(1L)), contains(11L, 10L));
+
+    }
+
+    @Test
+    public void putRelinksDependents() {
+
+        CatalogSnapshot updated = snapshot.toBuilder().put(book(10L, 1L, "Aardvarks")).build();
+
+        assertThat(ids(updated.findAllBooks()), contains(10L, 11L, 12L));
+        assertThat(updated.findMember(60L).getBook(), sameInstance(updated.findBook(10L)));
+        assertThat(updated.findMember(60L).getBook().getTitle(), is("Aardvarks"));
+        assertThat(snapshot.findMember(60L).getBook().getTitle(), is("The Quarry"));
+
+    }
+
+    @Test
+    public void putSharesUnchangedTypes() {
+
+        CatalogSnapshot updated = snapshot.toBuilder().put(story(71L, 30L, 11L, 2)).build();
+
+        assertThat(updated.findAllAuthors(), sameInstance(snapshot.findAllAuthors()));
+        assertThat(updated.findAllBooks(), sameInstance(snapshot.findAllBooks()));
+        assertThat(updated.findMembersBySeriesId(40L), sameInstance(snapshot.findMembersBySeriesId(40L)));
+        assertThat(ids(updated.findStoriesByAnthologyId(30L)), contains(70L, 71L));
+
+    }
+
+    @Test
+    public void removeCascades() {
+
+        CatalogSnapshot updated = snapshot.toBuilder().remove(author(1L, "Fred", "Flintstone")).build();
+
+        assertThat(updated.findAuthor(1L), is(nullValue()));
+        assertThat(ids(updated.findAllBooks()), contains(12L));
+        assertThat(updated.findAllSeries(), is(empty()));
+        assertThat(updated.findAllMembers(), is(empty()));
+        assertThat(ids(updated.findAllStories()), contains(70L));
+
+        updated = updated.toBuilder().remove(book(12L, 2L, "Dinosaurs")).build();
+        assertThat(updated.findAllStories(), is(empty()));
+        assertThat(ids(updated.findAllAnthologies()), contains(30L));
+
+    }
+
+    /**
+     * <p>Snapshots patched one change at a time must match those rebuilt from
+     * scratch with the same contents.</p>
+     */
+    @Test
+    public void patchedMatchesRebuilt() {
+
+        Random random = new Random(42L);
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder();
+        for (long authorId = 1L; authorId <= 20L; authorId++) {
+            builder.put(author(authorId, "First" + authorId, "Last" + authorId));
+            builder.put(series(1000L + authorId, authorId, "Series " + authorId));
+        }
+        for (long bookId = 100L; bookId < 500L; bookId++) {
+            builder.put(book(bookId, 1L + random.nextInt(20), "Book " + random.nextInt(1000000) + " " + bookId));
+            builder.put(member(2000L + bookId, bookId, 1001L + random.nextInt(20), (int) bookId));
+        }
+        CatalogSnapshot patched = builder.build();
+
+        for (int step = 0; step < 200; step++) {
+            long bookId = 100L + random.nextInt(400);
+            CatalogSnapshot.Builder changes = patched.toBuilder();
+            if (random.nextInt(4) == 0) {
+                changes.remove(book(bookId, 1L, "Removed"));
+            } else {
+                changes.put(book(bookId, 1L + random.nextInt(20), "Book " + random.nextInt(1000000) + " " + bookId));
+                changes.put(member(2000L + bookId, bookId, 1001L + random.nextInt(20), (int) bookId));
+            }
+            patched = changes.build();
+            assertMatches(patched, rebuilt(patched));
+        }
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static Anthology anthology(Long id, Long authorId, String title) {
+        Anthology anthology = new Anthology(authorId, Book.Location.BOX, null, false, title);
+        anthology.setId(id);
+        return anthology;
+    }
+
+    private static void assertMatches(CatalogSnapshot actual, CatalogSnapshot expected) {
+        assertThat(ids(actual.findAllBooks()), is(ids(expected.findAllBooks())));
+        assertThat(ids(actual.findAllMembers()), is(ids(expected.findAllMembers())));
+        for (Author author : expected.findAllAuthors()) {
+            assertThat(ids(actual.findBooksByAuthorId(author.getId())),
+                    is(ids(expected.findBooksByAuthorId(author.getId()))));
+        }
+        for (Series item : expected.findAllSeries()) {
+            assertThat(ids(actual.findMembersBySeriesId(item.getId())),
+                    is(ids(expected.findMembersBySeriesId(item.getId()))));
+        }
+        for (Book book : expected.findAllBooks()) {
+            assertThat(ids(actual.findMembersByBookId(book.getId())),
+                    is(ids(expected.findMembersByBookId(book.getId()))));
+            assertThat(actual.findBook(book.getId()).getAuthor(),
+                    sameInstance(actual.findAuthor(book.getAuthorId())));
+        }
+    }
+
+    private static Author author(Long id, String firstName, String lastName) {
+        Author author = new Author(firstName, lastName, null);
+        author.setId(id);
+        return author;
+    }
+
+    private static Book book(Long id, Long authorId, String title) {
+        Book book = new Book(authorId, Book.Location.BOX, null, false, title);
+        book.setId(id);
+        return book;
+    }
+
+    private static List<Long> ids(List<? extends Model<?>> models) {
+        return models.stream().map(Model::getId).collect(Collectors.toList());
+    }
+
+    private static Member member(Long id, Long bookId, Long seriesId, Integer ordinal) {
+        Member member = new Member(bookId, ordinal, seriesId);
+        member.setId(id);
+        return member;
+    }
+
+    private static CatalogSnapshot rebuilt(CatalogSnapshot snapshot) {
+        CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder();
+        List<Model<?>> models = new ArrayList<>();
+        models.addAll(snapshot.findAllAuthors());
+        models.addAll(snapshot.findAllBooks());
+        models.addAll(snapshot.findAllAnthologies());
+        models.addAll(snapshot.findAllSeries());
+        models.addAll(snapshot.findAllMembers());
+        models.addAll(snapshot.findAllStories());
+        models.forEach(builder::put);
+        return builder.build();
+    }
+
+    private static Series series(Long id, Long authorId, String title) {
+        Series series = new Series(authorId, null, title);
+        series.setId(id);
+        return series;
+    }
+
+    private static Story story(Long id, Long anthologyId, Long bookId, Integer ordinal) {
+        Story story = new Story(anthologyId, bookId, ordinal);
+        story.setId(id);
+        return story;
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.cluster;
+
+import org.jgroups.JChannel;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.SHARED_LOOPBACK_PING;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * <p>Test harness that runs several cluster members in one JVM, each with its
+ * own {@link InvalidationBus} and its own cache of a shared "database" (a
+ * map of model IDs to versions).  Each member caches as the services do:
+ * writes update the database and the local cache, and publish an
+ * invalidation, and received invalidations reload the cached entries from
+ * the database.  Members are connected either by an in-memory loopback or by
+ * JGroups channels over the <code>SHARED_LOOPBACK</code> transport.</p>
+ */
+public class ClusterHarness implements AutoCloseable {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Map<Long, Long> database = new ConcurrentHashMap<>();
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+
+    // Static Variables ------------------------------------------------------
+
+    public static final String MODEL_TYPE = "Book";
+
+    // Constructors ----------------------------------------------------------
+
+    private ClusterHarness() {
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Start a cluster of members connected by JGroups channels over the
+     * shared loopback transport.</p>
+     *
+     * @param members Number of members
+     * @param linger Milliseconds invalidations are collected into one batch
+     * @param maxPending Maximum invalidations per batch
+     */
+    public static ClusterHarness jgroups(int members, long linger, int maxPending) throws Exception {
+        ClusterHarness harness = new ClusterHarness();
+        String clusterName = "harness-" + System.nanoTime();
+        for (int i = 0; i < members; i++) {
+            JChannel channel = new JChannel(
+                    new SHARED_LOOPBACK(),
+                    new SHARED_LOOPBACK_PING(),
+                    new NAKACK2(),
+                    new UNICAST3(),
+                    new STABLE(),
+                    new GMS()
+            );
+            harness.start(new JGroupsTransport(channel, clusterName), linger, maxPending);
+        }
+        return harness;
+    }
+
+    /**
+     * <p>Start a cluster of members connected by an in-memory loopback.</p>
+     *
+     * @param members Number of members
+     * @param linger Milliseconds invalidations are collected into one batch
+     * @param maxPending Maximum invalidations per batch
+     */
+    public static ClusterHarness loopback(int members, long linger, int maxPending) throws Exception {
+        ClusterHarness harness = new ClusterHarness();
+        List<LoopbackTransport> group = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < members; i++) {
+            harness.start(new LoopbackTransport(group), linger, maxPending);
+        }
+        return harness;
+    }
+
+    @Override
+    public void close() {
+        for (Node node : nodes) {
+            node.bus.close();
+        }
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * <p>Return true if the cache of every member matches the database.</p>
+     */
+    public boolean isConverged() {
+        for (Node node : nodes) {
+            if (!node.cache.equals(database)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Node getNode(int index) {
+        return nodes.get(index);
+    }
+
+    public int getNodes() {
+        return nodes.size();
+    }
+
+    /**
+     * <p>Wait until every member's cache matches the database, and return
+     * true, or return false if that takes longer than the specified time.</p>
+     *
+     * @param timeout Maximum milliseconds to wait
+     */
+    public boolean awaitConvergence(long timeout) throws InterruptedException {
+        long until = System.currentTimeMillis() + timeout;
+        while (!isConverged()) {
+            if (System.currentTimeMillis() > until) {
+                return false;
+            }
+            Thread.sleep(10L);
+        }
+        return true;
+    }
+
+    /**
+     * <p>Wait until every member sees the specified number of members, and
+     * return true, or return false if that takes longer than the specified
+     * time.</p>
+     *
+     * @param members Number of members expected
+     * @param timeout Maximum milliseconds to wait
+     */
+    public boolean awaitMembers(int members, long timeout) throws InterruptedException {
+        long until = System.currentTimeMillis() + timeout;
+        for (Node node : nodes) {
+            while (node.bus.getMembers() != members) {
+                if (System.currentTimeMillis() > until) {
+                    return false;
+                }
+                Thread.sleep(10L);
+            }
+        }
+        return true;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void start(InvalidationTransport transport, long linger, int maxPending) throws Exception {
+        Node node = new Node();
+        node.bus = new InvalidationBus(transport, scheduler, linger, maxPending, node::refresh);
+        node.bus.start();
+        nodes.add(node);
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>One member of the cluster.</p>
+     */
+    public class Node {
+
+        private InvalidationBus bus;
+
+        private final Map<Long, Long> cache = new ConcurrentHashMap<>();
+
+        private final Object lock = new Object();
+
+        private long refreshes = 0L;
+
+        public InvalidationBus getBus() {
+            return bus;
+        }
+
+        public Map<Long, Long> getCache() {
+            return cache;
+        }
+
+        /**
+         * <p>Return the number of invalidation batches this member has applied.</p>
+         */
+        public long getRefreshes() {
+            synchronized (lock) {
+                return refreshes;
+            }
+        }
+
+        /**
+         * <p>Delete the specified model ID, as a service on this member would.</p>
+         */
+        public void delete(long modelId) {
+            synchronized (lock) {
+                database.remove(modelId);
+                cache.remove(modelId);
+            }
+            bus.publish(new Invalidation(MODEL_TYPE, modelId));
+        }
+
+        /**
+         * <p>Insert or update the specified model ID, as a service on this
+         * member would.</p>
+         */
+        public void write(long modelId) {
+            synchronized (lock) {
+                Long version = database.merge(modelId, 1L, Long::sum);
+                cache.put(modelId, version);
+            }
+            bus.publish(new Invalidation(MODEL_TYPE, modelId));
+        }
+
+        private void refresh(Set<Invalidation> invalidations) {
+            synchronized (lock) {
+                refreshes++;
+                if (invalidations.contains(Invalidation.ALL)) {
+                    cache.clear();
+                    cache.putAll(new HashMap<>(database));
+                    return;
+                }
+                for (Invalidation invalidation : invalidations) {
+                    Long version = database.get(invalidation.getModelId());
+                    if (version != null) {
+                        cache.put(invalidation.getModelId(), version);
+                    } else {
+                        cache.remove(invalidation.getModelId());
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * <p>Transport that delivers batches directly to the other members of an
+     * in-memory group, on the sending thread.</p>
+     */
+    private static class LoopbackTransport implements InvalidationTransport {
+
+        private final List<LoopbackTransport> group;
+
+        private Consumer<byte[]> receiver;
+
+        private LoopbackTransport(List<LoopbackTransport> group) {
+            this.group = group;
+        }
+
+        @Override
+        public void close() {
+            group.remove(this);
+        }
+
+        @Override
+        public int getMembers() {
+            return group.size();
+        }
+
+        @Override
+        public void send(byte[] payload) {
+            for (LoopbackTransport member : group) {
+                if (member != this) {
+                    member.receiver.accept(payload);
+                }
+            }
+        }
+
+        @Override
+        public void start(Consumer<byte[]> receiver, Runnable resync) {
+            this.receiver = receiver;
+            group.add(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.cluster;
+
+import org.craigmcc.bookcase.service.ServiceTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.fail;
+
+@Category(ServiceTests.class)
+public class InvalidationBusTest {
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void coalesceBurst() throws Exception {
+
+        try (ClusterHarness harness = ClusterHarness.loopback(2, 200L, 1000)) {
+            ClusterHarness.Node node = harness.getNode(0);
+            for (int i = 0; i < 500; i++) {
+                node.write(i % 50);
+            }
+            assertThat(harness.awaitConvergence(5000L), is(true));
+            assertThat(node.getBus().getPublished(), is(500L));
+            assertThat(node.getBus().getSent(), lessThanOrEqualTo(2L));
+            assertThat(harness.getNode(1).getBus().getReceived(), lessThanOrEqualTo(100L));
+        }
+
+    }
+
+    @Test
+    public void coalesceOverflow() throws Exception {
+
+        try (ClusterHarness harness = ClusterHarness.loopback(2, 200L, 10)) {
+            ClusterHarness.Node node = harness.getNode(0);
+            for (int i = 0; i < 100; i++) {
+                node.write(i);
+            }
+            assertThat(harness.awaitConvergence(5000L), is(true));
+            // The whole burst collapses into a single invalidation of everything
+            assertThat(node.getBus().getSent(), is(1L));
+            assertThat(harness.getNode(1).getBus().getReceived(), is(1L));
+        }
+
+    }
+
+    @Test
+    public void convergeJGroups() throws Exception {
+
+        try (ClusterHarness harness = ClusterHarness.jgroups(3, 20L, 500)) {
+            assertThat(harness.awaitMembers(3, 10000L), is(true));
+            writeConcurrently(harness, 2000, 200);
+            assertThat(harness.awaitConvergence(10000L), is(true));
+        }
+
+    }
+
+    @Test
+    public void convergeLoopback() throws Exception {
+
+        try (ClusterHarness harness = ClusterHarness.loopback(4, 20L, 500)) {
+            writeConcurrently(harness, 5000, 200);
+            assertThat(harness.awaitConvergence(10000L), is(true));
+            long sent = 0L;
+            for (int i = 0; i < harness.getNodes(); i++) {
+                sent += harness.getNode(i).getBus().getSent();
+            }
+            assertThat(sent, is(lessThan(5000L)));
+        }
+
+    }
+
+    @Test
+    public void decodeMalformed() throws Exception {
+
+        try {
+            Invalidation.decode(new byte[] { 99 });
+            fail("Should have thrown IOException");
+        } catch (IOException e) {
+            /* Expected result */
+        }
+
+    }
+
+    @Test
+    public void encodeDecode() throws Exception {
+
+        List<Invalidation> invalidations = Arrays.asList(
+                new Invalidation("Book", 1000000L),
+                new Invalidation("Author", 7L),
+                new Invalidation("Book", 3L),
+                new Invalidation("Book", 3L),
+                new Invalidation("Book", Long.MAX_VALUE),
+                new Invalidation("Series", 5L),
+                new Invalidation("Series", null)
+        );
+        Set<Invalidation> decoded = Invalidation.decode(Invalidation.encode(invalidations));
+
+        assertThat(decoded, containsInAnyOrder(
+                new Invalidation("Book", 3L),
+                new Invalidation("Book", 1000000L),
+                new Invalidation("Book", Long.MAX_VALUE),
+                new Invalidation("Author", 7L),
+                new Invalidation("Series", null)
+        ));
+        assertThat(Invalidation.decode(Invalidation.encode(Arrays.asList(Invalidation.ALL))),
+                contains(Invalidation.ALL));
+
+    }
+
+    @Test
+    public void publishFailure() throws Exception {
+
+        AtomicReference<byte[]> delivered = new AtomicReference<>();
+        boolean[] failing = { true };
+        InvalidationTransport transport = new InvalidationTransport() {
+            @Override
+            public void close() {
+            }
+            @Override
+            public int getMembers() {
+                return 2;
+            }
+            @Override
+            public void send(byte[] payload) throws Exception {
+                if (failing[0]) {
+                    throw new IllegalStateException("Network down");
+                }
+                delivered.set(payload);
+            }
+            @Override
+            public void start(Consumer<byte[]> receiver, Runnable resync) {
+            }
+        };
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try (InvalidationBus bus = new InvalidationBus(transport, scheduler, 10000L, 100, invalidations -> { })) {
+            bus.publish(new Invalidation("Book", 1L));
+            bus.flush();
+            assertThat(bus.getSent(), is(0L));
+            failing[0] = false;
+            bus.publish(new Invalidation("Book", 2L));
+            bus.flush();
+            assertThat(bus.getSent(), is(1L));
+            assertThat(Invalidation.decode(delivered.get()), containsInAnyOrder(
+                    new Invalidation("Book", 1L), new Invalidation("Book", 2L)));
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Write (or occasionally delete) random model IDs from every member
+     * at once.</p>
+     */
+    private void writeConcurrently(ClusterHarness harness, int writes, int ids) throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(harness.getNodes());
+        try {
+            Future<?>[] futures = new Future<?>[harness.getNodes()];
+            for (int i = 0; i < harness.getNodes(); i++) {
+                ClusterHarness.Node node = harness.getNode(i);
+                Random random = new Random(i);
+                futures[i] = writers.submit(() -> {
+                    for (int j = 0; j < writes / harness.getNodes(); j++) {
+                        long id = random.nextInt(ids);
+                        if (random.nextInt(10) == 0) {
+                            node.delete(id);
+                        } else {
+                            node.write(id);
+                        }
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+}
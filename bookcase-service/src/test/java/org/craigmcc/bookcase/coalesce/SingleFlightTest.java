@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.coalesce;
+
+import org.craigmcc.bookcase.service.ServiceTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+
+/**
+ * <p>Deterministic tests of {@link SingleFlight}: the leader's work blocks
+ * until every other caller is known to be waiting for it.</p>
+ */
+@Category(ServiceTests.class)
+public class SingleFlightTest {
+
+    private ExecutorService executor;
+
+    private SingleFlight singleFlight;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final int CALLS = 8;
+
+    private static final String KEY = "key";
+
+    private static final long TIMEOUT = 10_000L;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(CALLS);
+        singleFlight = new SingleFlight();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void coalescesConcurrentCalls() throws Exception {
+
+        Object result = new Object();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Object>> futures = start(() -> {
+            executions.incrementAndGet();
+            release.await();
+            return result;
+        });
+
+        release.countDown();
+        for (Future<Object> future : futures) {
+            assertThat(future.get(TIMEOUT, TimeUnit.MILLISECONDS), is(sameInstance(result)));
+        }
+        assertThat(executions.get(), is(1));
+        assertThat(singleFlight.getExecutedCount(), is(1L));
+        assertThat(singleFlight.getCoalescedCount(), is((long) CALLS - 1));
+        assertThat(singleFlight.getCachedCount(), is(0L));
+        assertThat(singleFlight.size(), is(0));
+
+    }
+
+    @Test
+    public void propagatesExceptionToEveryWaiter() throws Exception {
+
+        IllegalStateException exception = new IllegalStateException("Failed");
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Object>> futures = start(() -> {
+            executions.incrementAndGet();
+            release.await();
+            throw exception;
+        });
+
+        release.countDown();
+        for (Future<Object> future : futures) {
+            try {
+                future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+                fail("Should have thrown IllegalStateException");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(sameInstance(exception)));
+            }
+        }
+        assertThat(executions.get(), is(1));
+        assertThat(singleFlight.getExecutedCount(), is(1L));
+        assertThat(singleFlight.getCoalescedCount(), is((long) CALLS - 1));
+
+        // Failures are never retained, so the next call executes again
+        assertThat(singleFlight.size(), is(0));
+        assertThat(singleFlight.execute(KEY, 60_000L, () -> "retried"), is("retried"));
+        assertThat(singleFlight.getExecutedCount(), is(2L));
+
+    }
+
+    @Test
+    public void retainsResultsForTtl() throws Exception {
+
+        AtomicInteger executions = new AtomicInteger();
+        Callable<Object> work = executions::incrementAndGet;
+
+        assertThat(singleFlight.execute(KEY, 60_000L, work), is(1));
+        assertThat(singleFlight.execute(KEY, 60_000L, work), is(1));
+        assertThat(singleFlight.execute("other", 60_000L, work), is(2));
+        assertThat(singleFlight.getExecutedCount(), is(2L));
+        assertThat(singleFlight.getCachedCount(), is(1L));
+
+        singleFlight.clear();
+        assertThat(singleFlight.execute(KEY, 0L, work), is(3));
+        assertThat(singleFlight.execute(KEY, 0L, work), is(4));
+        assertThat(singleFlight.getExecutedCount(), is(4L));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Start a leader executing the specified (blocking) work, then the
+     * remaining callers, and return once every one of them is waiting for
+     * the leader.</p>
+     */
+    private List<Future<Object>> start(Callable<Object> work) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> singleFlight.execute(KEY, 0L, () -> {
+            started.countDown();
+            return work.call();
+        })));
+        assertThat(started.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        for (int i = 1; i < CALLS; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute(KEY, 0L, () -> {
+                fail("Only the leader should execute");
+                return null;
+            })));
+        }
+        await(singleFlight::getCoalescedCount, CALLS - 1);
+        return futures;
+    }
+
+    private static void await(LongSupplier count, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (count.getAsLong() < expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for " + expected + " coalesced calls");
+            }
+            Thread.sleep(10L);
+        }
+    }
+
+}
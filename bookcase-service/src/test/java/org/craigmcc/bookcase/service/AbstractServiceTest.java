@@ -15,12 +15,22 @@
  */
 package org.craigmcc.bookcase.service;
 
+import org.craigmcc.bookcase.browse.BrowseCriteria;
+import org.craigmcc.bookcase.catalog.CatalogSnapshot;
+import org.craigmcc.bookcase.cluster.Invalidation;
+import org.craigmcc.bookcase.coalesce.Coalesced;
 import org.craigmcc.bookcase.event.DeletedModelEvent;
 import org.craigmcc.bookcase.event.converter.MutatedModelEventTypeConverter;
+import org.craigmcc.bookcase.export.ExportSection;
 import org.craigmcc.bookcase.event.validator.EventTypeValidator;
 import org.craigmcc.bookcase.model.Constants;
 import org.craigmcc.bookcase.model.converter.BookLocationConverter;
+import org.craigmcc.bookcase.model.text.PrefixIndex;
 import org.craigmcc.bookcase.model.validator.BookLocationValidator;
+import org.craigmcc.bookcase.outbox.OutboxMessage;
+import org.craigmcc.bookcase.projection.Projection;
+import org.craigmcc.bookcase.statistics.SlowQueryInterceptor;
+import org.craigmcc.bookcase.tenant.TenantScoped;
 import org.craigmcc.library.model.Model;
 import org.craigmcc.library.model.ModelService;
 import org.craigmcc.library.shared.exception.BadRequest;
@@ -51,16 +61,35 @@ public abstract class AbstractServiceTest {
         archive.addClasses(AbstractServiceTest.class, ModelService.class);
         archive.addClasses
                 (DevModeDepopulateService.class, DevModePopulateService.class);
+        archive.addClasses
+                (AuthorMatchService.class, CatalogSnapshotService.class, CatalogStatisticsService.class);
+        archive.addClasses(ClusterInvalidationService.class, CoalescingService.class);
+        archive.addClasses(DevModeStartupService.class);
+        archive.addClasses(OrdinalRenumberService.class, OrdinalUpdater.class);
+        archive.addClasses
+                (PersistenceStatisticsService.class, PersistenceUnits.class, ReadQueryService.class);
+        archive.addClasses(ProjectionService.class, ProjectionSnapshotService.class);
+        archive.addClasses(SortKeyService.class, SuggestService.class);
         archive.addPackages(true,
                 "org.apache.commons.lang3"
         );
         archive.addPackages(true,
+                BrowseCriteria.class.getPackage(),         // org.craigmcc.bookcase.browse
+                CatalogSnapshot.class.getPackage(),        // org.craigmcc.bookcase.catalog
+                Invalidation.class.getPackage(),           // org.craigmcc.bookcase.cluster
+                Coalesced.class.getPackage(),              // org.craigmcc.bookcase.coalesce
                 MutatedModelEventTypeConverter.class.getPackage(), // org.craigmcc.bookcase.event.converter
                 EventTypeValidator.class.getPackage(),     // org.craigmcc.bookcase.event.validator
+                ExportSection.class.getPackage(),          // org.craigmcc.bookcase.export
                 Constants.class.getPackage(),              // org.craigmcc.bookcase.model
                 BookLocationConverter.class.getPackage(),  // org.craigmcc.bookcase.model.converter
                 BookLocationValidator.class.getPackage(),  // org.craigmcc.bookcase.model.validator
+                PrefixIndex.class.getPackage(),            // org.craigmcc.bookcase.model.text
+                OutboxMessage.class.getPackage(),          // org.craigmcc.bookcase.outbox
+                Projection.class.getPackage(),             // org.craigmcc.bookcase.projection
                 DeletedModelEvent.class.getPackage(),      // org.craigmcc.bookcase.service.event
+                SlowQueryInterceptor.class.getPackage(),   // org.craigmcc.bookcase.statistics
+                TenantScoped.class.getPackage(),           // org.craigmcc.bookcase.tenant
                 Model.class.getPackage(),                  // org.craigmcc.library.model
                 BadRequest.class.getPackage()              // org.craigmcc.library.shared.exception
         );
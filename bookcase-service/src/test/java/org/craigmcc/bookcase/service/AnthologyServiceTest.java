@@ -36,14 +36,18 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
 import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
 import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
@@ -75,7 +79,7 @@ public class AnthologyServiceTest extends AbstractServiceTest {
     @Inject
     DevModePopulateService devModePopulateService;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     EntityManager entityManager;
 
     // Lifecycle Methods -----------------------------------------------------
@@ -166,6 +170,48 @@ public class AnthologyServiceTest extends AbstractServiceTest {
 
     }
 
+    // findByAuthorIds() tests
+
+    @Test
+    public void findByAuthorIdsEmpty() throws Exception {
+        assertThat(anthologyService.findByAuthorIds(Collections.emptyList()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void findByAuthorIdsHappy() throws Exception {
+        List<Anthology> all = anthologyService.findAll();
+        List<Long> authorIds = all.stream()
+                .map(Anthology::getAuthorId).distinct().collect(Collectors.toList());
+        assertThat(authorIds.size(), is(greaterThan(1)));
+        authorIds.remove(0);
+        authorIds.add(Long.MAX_VALUE);
+        List<Anthology> anthologies = anthologyService.findByAuthorIds(authorIds);
+        assertThat(ids(anthologies), is(all.stream()
+                .filter(m -> authorIds.contains(m.getAuthorId()))
+                .map(Anthology::getId).collect(Collectors.toSet())));
+    }
+
+    // findByIds() tests
+
+    @Test
+    public void findByIdsEmpty() throws Exception {
+        assertThat(anthologyService.findByIds(Collections.emptyList()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void findByIdsHappy() throws Exception {
+        List<Anthology> all = anthologyService.findAll();
+        List<Long> anthologyIds = all.stream()
+                .map(Anthology::getId).distinct().collect(Collectors.toList());
+        assertThat(anthologyIds.size(), is(greaterThan(1)));
+        anthologyIds.remove(0);
+        anthologyIds.add(Long.MAX_VALUE);
+        List<Anthology> anthologies = anthologyService.findByIds(anthologyIds);
+        assertThat(ids(anthologies), is(all.stream()
+                .filter(m -> anthologyIds.contains(m.getId()))
+                .map(Anthology::getId).collect(Collectors.toSet())));
+    }
+
     // insert() tests
 
     @Test
@@ -312,6 +358,10 @@ public class AnthologyServiceTest extends AbstractServiceTest {
         return query.getResultList();
     }
 
+    private static Set<Long> ids(List<Anthology> models) {
+        return models.stream().map(Anthology::getId).collect(Collectors.toSet());
+    }
+
     private Anthology newAnthology() {
         List<Author> authors = findAllAuthors();
         assertThat(authors.size(), is(greaterThan(0)));
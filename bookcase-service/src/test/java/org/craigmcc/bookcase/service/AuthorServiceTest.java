@@ -19,12 +19,14 @@ import org.craigmcc.bookcase.model.Anthology;
 import org.craigmcc.bookcase.model.Author;
 import org.craigmcc.bookcase.model.Book;
 import org.craigmcc.bookcase.model.Series;
+import org.craigmcc.bookcase.model.TenantContext;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.NotFound;
 import org.craigmcc.library.shared.exception.NotUnique;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
 import org.junit.After;
 import org.junit.Before;
@@ -47,6 +49,7 @@ import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
 import static org.craigmcc.bookcase.model.Constants.FIRST_NAME_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.LAST_NAME_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
@@ -63,11 +66,17 @@ public class AuthorServiceTest extends AbstractServiceTest {
         JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "testAuthor.jar")
                 .addClass(AuthorService.class);
         addServiceFixtures(archive, false);
+        // Register the second tenant used by insertOtherTenant()
+        archive.addAsManifestResource
+                (new StringAsset("tenant.ids=other\n"), "microprofile-config.properties");
         System.out.println("AuthorServiceTest:  Assembled Archive:");
         System.out.println(archive.toString(true));
         return archive;
     }
 
+    @Inject
+    AuthorMatchService authorMatchService;
+
     @Inject
     AuthorService authorService;
 
@@ -77,7 +86,7 @@ public class AuthorServiceTest extends AbstractServiceTest {
     @Inject
     DevModePopulateService devModePopulateService;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     EntityManager entityManager;
 
     // Lifecycle Methods -----------------------------------------------------
@@ -85,12 +94,14 @@ public class AuthorServiceTest extends AbstractServiceTest {
     @After
     public void after() {
         devModeDepopulateService.depopulate();
+        authorMatchService.rebuild();
     }
 
     @Before
     public void before() {
         devModeDepopulateService.depopulate();
         devModePopulateService.populate();
+        authorMatchService.rebuild();
     }
 
     // Test Methods ----------------------------------------------------------
@@ -185,6 +196,44 @@ public class AuthorServiceTest extends AbstractServiceTest {
 
     }
 
+    // findByName() tests
+
+    @Test
+    public void findByNameHappy() throws Exception {
+
+        // Whole names in either order match best
+        List<Author> authors = authorService.findByName("Fred Flintstone");
+        assertThat(authors.get(0).getFirstName(), is("Fred"));
+        assertThat(authorService.findByName("Flintstone, Fred").get(0).getFirstName(), is("Fred"));
+
+        // A last name matches every author with it, in last name, first name order
+        authors = authorService.findByName("flintstone");
+        assertThat(authors.size(), is(2));
+        assertThat(authors.get(0).getFirstName(), is("Fred"));
+        assertThat(authors.get(1).getFirstName(), is("Wilma"));
+
+        // Multi-word first names
+        authors = authorService.findByName("Bam Bam Rubble");
+        assertThat(authors.size(), is(2));
+        assertThat(authors.get(0).getLastName(), is("Rubble"));
+
+    }
+
+    @Test
+    public void findByNameNone() throws Exception {
+        assertThat(authorService.findByName("Zaphod Beeblebrox").size(), is(0));
+    }
+
+    @Test
+    public void findByNameTypos() throws Exception {
+
+        List<Author> authors = authorService.findByName("Wilma Flinstone");
+        assertThat(authors.get(0).getFirstName(), is("Wilma"));
+        assertThat(authors.get(0).getLastName(), is("Flintstone"));
+        assertThat(authorService.findByName("Rubbel").size(), is(2));
+
+    }
+
     // insert() tests
 
     @Test
@@ -230,6 +279,68 @@ public class AuthorServiceTest extends AbstractServiceTest {
 
     }
 
+    @Test
+    public void insertNotUniqueNormalized() throws Exception {
+
+        Author author = new Author("  barney", "RUBBLE ", null);
+        assertThrows(NotUnique.class,
+                () -> authorService.insert(author));
+
+    }
+
+    @Test
+    public void insertOtherTenant() throws Exception {
+
+        List<Author> authors = authorService.findAll();
+        assertThat(authors.size(), is(greaterThan(0)));
+
+        Author inserted;
+        TenantContext.set("other");
+        try {
+            authorMatchService.rebuild();
+
+            // Names need only be unique within a tenant
+            inserted = authorService.insert(new Author("Barney", "Rubble", null));
+            assertThat(inserted.getTenantId(), is("other"));
+
+            // Authors of other tenants are invisible
+            List<Author> others = authorService.findAll();
+            assertThat(others.size(), is(1));
+            assertThat(others.get(0).getId(), is(inserted.getId()));
+            assertThrows(NotFound.class,
+                    () -> authorService.find(authors.get(0).getId()));
+        } finally {
+            TenantContext.clear();
+        }
+
+        assertThat(authorService.findAll().size(), is(authors.size()));
+        assertThrows(NotFound.class,
+                () -> authorService.find(inserted.getId()));
+
+    }
+
+    // isVisible() tests
+
+    @Test
+    public void isVisibleHappy() throws Exception {
+
+        Author inserted;
+        TenantContext.set("other");
+        try {
+            authorMatchService.rebuild();
+            inserted = authorService.insert(new Author("Visible", "Elsewhere", null));
+            assertThat(authorService.isVisible(inserted.getId()), is(true));
+        } finally {
+            TenantContext.clear();
+        }
+
+        // The current tenant's authors, and unknown ones, are visible
+        assertThat(authorService.isVisible(authorService.findAll().get(0).getId()), is(true));
+        assertThat(authorService.isVisible(Long.MAX_VALUE), is(true));
+        assertThat(authorService.isVisible(inserted.getId()), is(false));
+
+    }
+
     // update() tests
 
     @Test
@@ -15,10 +15,13 @@
  */
 package org.craigmcc.bookcase.service;
 
+import org.craigmcc.bookcase.browse.BrowseCriteria;
+import org.craigmcc.bookcase.browse.BrowsePage;
 import org.craigmcc.bookcase.model.Author;
 import org.craigmcc.bookcase.model.Book;
 import org.craigmcc.bookcase.model.Member;
 import org.craigmcc.bookcase.model.Story;
+import org.craigmcc.bookcase.model.text.SortKeys;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.NotFound;
 import org.jboss.arquillian.container.test.api.Deployment;
@@ -36,19 +39,31 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
 import static org.craigmcc.bookcase.model.Constants.BOOK_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
 import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
+import static org.craigmcc.bookcase.model.Constants.READ_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
 import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThrows;
 
@@ -69,13 +84,16 @@ public class BookServiceTest extends AbstractServiceTest {
     @Inject
     BookService bookService;
 
+    @Inject
+    CoalescingService coalescingService;
+
     @Inject
     DevModeDepopulateService devModeDepopulateService;
 
     @Inject
     DevModePopulateService devModePopulateService;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     EntityManager entityManager;
 
     // Lifecycle Methods -----------------------------------------------------
@@ -93,6 +111,70 @@ public class BookServiceTest extends AbstractServiceTest {
 
     // Test Methods ----------------------------------------------------------
 
+    // browse() tests
+
+    @Test
+    public void browseFacets() throws Exception {
+
+        List<Book> books = findAllBooks();
+        BrowsePage<Book> page = bookService.browse(new BrowseCriteria());
+        assertThat(page.getTotal(), is((long) books.size()));
+        for (Map.Entry<String, Map<String, Long>> facet : page.getFacets().entrySet()) {
+            assertThat(facet.getKey(), sum(facet.getValue()), is((long) books.size()));
+        }
+
+        // Each facet ignores its own filter, but applies the others
+        Book first = books.get(0);
+        BrowseCriteria criteria = new BrowseCriteria();
+        criteria.setAuthorId(first.getAuthorId());
+        page = bookService.browse(criteria);
+        long byAuthor = books.stream().filter(b -> b.getAuthorId().equals(first.getAuthorId())).count();
+        assertThat(page.getTotal(), is(byAuthor));
+        assertThat(sum(page.getFacets().get(AUTHOR_ID_COLUMN)), is((long) books.size()));
+        assertThat(sum(page.getFacets().get(READ_COLUMN)), is(byAuthor));
+        for (Book book : page.getItems()) {
+            assertThat(book.getAuthorId(), is(first.getAuthorId()));
+        }
+
+    }
+
+    @Test
+    public void browsePaging() throws Exception {
+
+        List<Book> books = findAllBooks();
+        assertThat(books.size(), is(greaterThan(2)));
+
+        BrowseCriteria criteria = new BrowseCriteria();
+        criteria.setLimit(2);
+        List<Book> browsed = new ArrayList<>();
+        do {
+            BrowsePage<Book> page = bookService.browse(criteria);
+            assertThat(page.getItems().size(), is(lessThanOrEqualTo(2)));
+            browsed.addAll(page.getItems());
+            criteria.setAfter(page.getNext());
+        } while (criteria.getAfter() != null);
+
+        assertThat(browsed.size(), is(books.size()));
+        assertThat(browsed.stream().map(Book::getId).distinct().count(), is((long) books.size()));
+        // Browsing is ordered by title key (as stored, ignoring leading articles)
+        for (int i = 1; i < browsed.size(); i++) {
+            assertThat(SortKeys.titleKey(browsed.get(i - 1).getTitle())
+                            .compareTo(SortKeys.titleKey(browsed.get(i).getTitle())),
+                    is(lessThanOrEqualTo(0)));
+        }
+
+    }
+
+    @Test
+    public void browseBadRequest() throws Exception {
+        BrowseCriteria criteria = new BrowseCriteria();
+        criteria.setLimit(0);
+        assertThrows(BadRequest.class, () -> bookService.browse(criteria));
+        criteria.setLimit(BrowseCriteria.DEFAULT_LIMIT);
+        criteria.setAfter("not a cursor");
+        assertThrows(BadRequest.class, () -> bookService.browse(criteria));
+    }
+
     // delete() tests
 
     @Test
@@ -159,6 +241,41 @@ public class BookServiceTest extends AbstractServiceTest {
 
     // findAll() tests
 
+    /**
+     * <p>Concurrent calls through the interceptor all get the right result.
+     * How many of them are coalesced depends on timing, so that is verified
+     * deterministically by {@link org.craigmcc.bookcase.coalesce.SingleFlightTest}.</p>
+     */
+    @Test
+    public void findAllConcurrent() throws Exception {
+
+        int calls = 8;
+        long before = coalescingService.getExecutedCount() +
+                coalescingService.getCoalescedCount() + coalescingService.getCachedCount();
+        long executedBefore = coalescingService.getExecutedCount();
+        ExecutorService executor = Executors.newFixedThreadPool(calls);
+        try {
+            List<Future<List<Book>>> futures = new ArrayList<>();
+            for (int i = 0; i < calls; i++) {
+                futures.add(executor.submit(() -> bookService.findAll()));
+            }
+            List<Book> expected = findAllBooks();
+            for (Future<List<Book>> future : futures) {
+                assertThat(future.get(), is(expected));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Every call either executed or shared another call's execution
+        long after = coalescingService.getExecutedCount() +
+                coalescingService.getCoalescedCount() + coalescingService.getCachedCount();
+        assertThat(after - before, is((long) calls));
+        assertThat(coalescingService.getExecutedCount() - executedBefore,
+                is(lessThanOrEqualTo((long) calls)));
+
+    }
+
     @Test
     public void findAllHappy() throws Exception {
 
@@ -175,6 +292,42 @@ public class BookServiceTest extends AbstractServiceTest {
 
     }
 
+    // findByAuthorId() tests
+
+    @Test
+    public void findByAuthorIdHappy() throws Exception {
+        List<Book> all = findAllBooks();
+        for (Author author : findAllAuthors()) {
+            List<Book> books = bookService.findByAuthorId(author.getId());
+            for (Book book : books) {
+                assertThat(book.getAuthorId(), is(author.getId()));
+            }
+            assertThat((long) books.size(), is(all.stream()
+                    .filter(b -> b.getAuthorId().equals(author.getId())).count()));
+        }
+    }
+
+    // findByAuthorIds() tests
+
+    @Test
+    public void findByAuthorIdsEmpty() throws Exception {
+        assertThat(bookService.findByAuthorIds(Collections.emptyList()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void findByAuthorIdsHappy() throws Exception {
+        List<Book> all = bookService.findAll();
+        List<Long> authorIds = all.stream()
+                .map(Book::getAuthorId).distinct().collect(Collectors.toList());
+        assertThat(authorIds.size(), is(greaterThan(1)));
+        authorIds.remove(0);
+        authorIds.add(Long.MAX_VALUE);
+        List<Book> books = bookService.findByAuthorIds(authorIds);
+        assertThat(ids(books), is(all.stream()
+                .filter(m -> authorIds.contains(m.getAuthorId()))
+                .map(Book::getId).collect(Collectors.toSet())));
+    }
+
     // insert() tests
 
     @Test
@@ -328,6 +481,10 @@ public class BookServiceTest extends AbstractServiceTest {
         return query.getResultList();
     }
 
+    private static Set<Long> ids(List<Book> models) {
+        return models.stream().map(Book::getId).collect(Collectors.toSet());
+    }
+
     private Book newBook() {
         List<Author> authors = findAllAuthors();
         assertThat(authors.size(), is(greaterThan(0)));
@@ -339,4 +496,8 @@ public class BookServiceTest extends AbstractServiceTest {
                 "New Book");
     }
 
+    private long sum(Map<String, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.catalog.CatalogStatistics;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+@Category(ServiceTests.class)
+@RunWith(Arquillian.class)
+public class CatalogStatisticsServiceTest extends AbstractServiceTest {
+
+    @Deployment
+    public static JavaArchive createDeployment() {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "testCatalogStatistics.jar")
+                .addClass(BookService.class);
+        addServiceFixtures(archive, false);
+        System.out.println("CatalogStatisticsServiceTest:  Assembled Archive:");
+        System.out.println(archive.toString(true));
+        return archive;
+    }
+
+    @Inject
+    BookService bookService;
+
+    @Inject
+    CatalogStatisticsService catalogStatisticsService;
+
+    @Inject
+    DevModeDepopulateService devModeDepopulateService;
+
+    @Inject
+    DevModePopulateService devModePopulateService;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    EntityManager entityManager;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        devModeDepopulateService.depopulate();
+        catalogStatisticsService.reconcile();
+    }
+
+    @Before
+    public void before() {
+        devModeDepopulateService.depopulate();
+        devModePopulateService.populate();
+        catalogStatisticsService.reconcile();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // getStatistics() tests
+
+    @Test
+    public void getStatisticsHappy() throws Exception {
+
+        CatalogStatistics statistics = catalogStatisticsService.getStatistics();
+        assertThat(statistics.getBooks(), is(count(BOOK_NAME, null)));
+        assertThat(statistics.getBooks(), is(greaterThan(0L)));
+        assertThat(statistics.getReadBooks(), is(count(BOOK_NAME, "x.read = true")));
+        assertThat(statistics.getBooksByLocation().values().stream().mapToLong(Long::longValue).sum(),
+                is(statistics.getBooks()));
+        assertThat(statistics.getUnreadBooksByLocation().values().stream().mapToLong(Long::longValue).sum(),
+                is(statistics.getUnreadBooks()));
+
+        for (Author author : findAllAuthors()) {
+            assertThat(catalogStatisticsService.getAuthorBookCount(author.getId()),
+                    is(count(BOOK_NAME, "x.authorId = " + author.getId())));
+        }
+
+    }
+
+    // handle*Model() tests
+
+    @Test
+    public void handleModelEvents() throws Exception {
+
+        CatalogStatistics before = catalogStatisticsService.getStatistics();
+        Author author = findAllAuthors().get(0);
+        long authorBooks = catalogStatisticsService.getAuthorBookCount(author.getId());
+
+        // Insert an unread book
+        Book book = bookService.insert(new Book(author.getId(), Book.Location.BOX, null, false, "Counted Book"));
+        assertThat(catalogStatisticsService.getStatistics().getBooks(), is(before.getBooks() + 1));
+        assertThat(catalogStatisticsService.getStatistics().getUnreadBooks(), is(before.getUnreadBooks() + 1));
+        assertThat(catalogStatisticsService.getAuthorBookCount(author.getId()), is(authorBooks + 1));
+
+        // Update it to read, in a different location
+        book.setLocation(Book.Location.OTHER);
+        book.setRead(true);
+        bookService.update(book.getId(), book);
+        assertThat(catalogStatisticsService.getStatistics().getBooks(), is(before.getBooks() + 1));
+        assertThat(catalogStatisticsService.getStatistics().getReadBooks(), is(before.getReadBooks() + 1));
+        assertThat(catalogStatisticsService.getStatistics().getUnreadBooks(), is(before.getUnreadBooks()));
+
+        // Incremental counters agree with the database
+        assertThat(catalogStatisticsService.reconcile(), is(0L));
+
+        // Delete it again
+        bookService.delete(book.getId());
+        assertThat(catalogStatisticsService.getStatistics().getBooks(), is(before.getBooks()));
+        assertThat(catalogStatisticsService.getAuthorBookCount(author.getId()), is(authorBooks));
+
+    }
+
+    // reconcile() tests
+
+    @Test
+    public void reconcileDrift() throws Exception {
+
+        // Bulk changes that fire no events are found by reconciliation
+        long books = catalogStatisticsService.getStatistics().getBooks();
+        devModeDepopulateService.depopulate();
+        assertThat(catalogStatisticsService.getStatistics().getBooks(), is(books));
+        assertThat(catalogStatisticsService.reconcile(), is(greaterThan(0L)));
+        assertThat(catalogStatisticsService.getStatistics().getBooks(), is(0L));
+        assertThat(catalogStatisticsService.reconcile(), is(0L));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private long count(String name, String where) {
+        return entityManager.createQuery("SELECT COUNT(x) FROM " + name + " x" +
+                ((where != null) ? " WHERE " + where : ""), Long.class)
+                .getSingleResult();
+    }
+
+    private List<Author> findAllAuthors() {
+        return entityManager.createNamedQuery
+                (AUTHOR_NAME + ".findAll", Author.class)
+                .getResultList();
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.event.EventPartition;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.craigmcc.bookcase.projection.Projection;
+import org.hibernate.Session;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.annotation.Resource;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.UserTransaction;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.craigmcc.bookcase.model.Constants.MUTATED_MODEL_EVENT_TABLE;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * <p>Converts, extends, and expires the partitions of the mutated model
+ * event table.  Partitioning requires PostgreSQL, so these tests are
+ * skipped unless the test data source is PostgreSQL (as it is under the
+ * <code>arq-wildfly-postgres</code> profile).</p>
+ */
+@Category(ServiceTests.class)
+@RunWith(Arquillian.class)
+public class EventPartitionServiceTest extends AbstractServiceTest {
+
+    @Deployment
+    public static JavaArchive createDeployment() {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "testEventPartition.jar")
+                .addClass(EventPartitionService.class)
+                .addClass(MutatedModelEventService.class);
+        addServiceFixtures(archive, false);
+        archive.addAsManifestResource(new StringAsset(
+                "event.partition.enabled=false\n" +
+                "event.partition.period=DAYS\n" +
+                "event.partition.premake=1\n" +
+                "event.retention.action=DROP\n" +
+                "event.retention.periods=2\n" +
+                "projection.catchup.interval=0\n"), "microprofile-config.properties");
+        System.out.println("EventPartitionServiceTest:  Assembled Archive:");
+        System.out.println(archive.toString(true));
+        return archive;
+    }
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    EntityManager entityManager;
+
+    @Inject
+    EventPartitionService eventPartitionService;
+
+    @Inject
+    ProjectionSnapshotService projectionSnapshotService;
+
+    @Inject
+    @Any
+    Instance<Projection> projections;
+
+    @Resource(lookup = "java:comp/UserTransaction")
+    UserTransaction userTransaction;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final String TABLE = MUTATED_MODEL_EVENT_TABLE.toLowerCase();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() throws Exception {
+        if (isPostgres()) {
+            deleteSnapshots();
+        }
+    }
+
+    @Before
+    public void before() throws Exception {
+        assumeTrue("Event partitioning requires PostgreSQL", isPostgres());
+        deleteSnapshots();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void convertCreateAndExpire() throws Exception {
+
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        Long expiredId = record(today.minusDays(10));
+        Long currentId = record(LocalDateTime.now());
+
+        // Conversion covers every existing event, through the premade period
+        eventPartitionService.maintain();
+        List<EventPartition> partitions = eventPartitionService.getPartitions();
+        assertThat(partitions.size(), is(12));
+        assertThat(partitions.get(0).getFrom(), is(today.minusDays(10)));
+        assertThat(partitions.get(partitions.size() - 1).getTo(), is(today.plusDays(2)));
+        assertThat(count(TABLE), is(2L));
+        assertThat(count(TABLE + "_default"), is(0L));
+
+        // Expired partitions are kept while a projection has no snapshot
+        assertThat(exists(expiredId), is(true));
+
+        // Events beyond every range land in the default partition
+        Long futureId = record(today.plusDays(30));
+        assertThat(count(TABLE + "_default"), is(1L));
+
+        // Once every projection has been snapshotted, expired partitions go
+        for (Projection projection : projections) {
+            transaction(() -> projectionSnapshotService.save(projection.getName(), currentId, LocalDateTime.now(), "{}"));
+        }
+        eventPartitionService.maintain();
+        partitions = eventPartitionService.getPartitions();
+        assertThat(partitions.get(0).getFrom(), is(today.minusDays(2)));
+        assertThat(exists(expiredId), is(false));
+        assertThat(exists(currentId), is(true));
+        assertThat(exists(futureId), is(true));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private long count(String table) {
+        return ((Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM " + table)
+                .getSingleResult()).longValue();
+    }
+
+    private void deleteSnapshots() throws Exception {
+        for (Projection projection : projections) {
+            transaction(() -> projectionSnapshotService.delete(projection.getName()));
+        }
+    }
+
+    private boolean exists(Long id) {
+        return ((Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM " + TABLE + " WHERE id = :id")
+                .setParameter("id", id)
+                .getSingleResult()).longValue() > 0L;
+    }
+
+    private boolean isPostgres() {
+        return entityManager.unwrap(Session.class).doReturningWork(connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+    }
+
+    /**
+     * <p>Record an event, and then backdate (or postdate) it.</p>
+     */
+    private Long record(LocalDateTime updated) throws Exception {
+        MutatedModelEvent event = new MutatedModelEvent("Partitioned event", MutatedModelEvent.Type.INSERTED);
+        transaction(() -> entityManager.persist(event));
+        transaction(() -> entityManager.createNativeQuery("UPDATE " + TABLE + " SET updated = :updated WHERE id = :id")
+                .setParameter("updated", Timestamp.valueOf(updated))
+                .setParameter("id", event.getId())
+                .executeUpdate());
+        return event.getId();
+    }
+
+    private void transaction(Runnable work) throws Exception {
+        userTransaction.begin();
+        try {
+            entityManager.joinTransaction();
+            work.run();
+            userTransaction.commit();
+        } catch (Exception e) {
+            userTransaction.rollback();
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.export.ExportFormat;
+import org.craigmcc.bookcase.export.ExportSection;
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
+import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+@Category(ServiceTests.class)
+@RunWith(Arquillian.class)
+public class ExportServiceTest extends AbstractServiceTest {
+
+    @Deployment
+    public static JavaArchive createDeployment() {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "testExport.jar")
+                .addClass(AuthorService.class)
+                .addClass(ExportService.class)
+                .addPackage(ExportFormat.class.getPackage());
+        addServiceFixtures(archive, false);
+        // Register the second tenant used by exportCurrentTenantOnly()
+        archive.addAsManifestResource
+                (new StringAsset("tenant.ids=other\n"), "microprofile-config.properties");
+        System.out.println("ExportServiceTest:  Assembled Archive:");
+        System.out.println(archive.toString(true));
+        return archive;
+    }
+
+    @Inject
+    AuthorService authorService;
+
+    @Inject
+    DevModeDepopulateService devModeDepopulateService;
+
+    @Inject
+    DevModePopulateService devModePopulateService;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    EntityManager entityManager;
+
+    @Inject
+    ExportService exportService;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        devModeDepopulateService.depopulate();
+    }
+
+    @Before
+    public void before() {
+        devModeDepopulateService.depopulate();
+        devModePopulateService.populate();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // export() tests
+
+    @Test
+    public void exportCsv() throws Exception {
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Map<String, Long> counts = exportService.export(ExportFormat.CSV, stream);
+
+        // Sections are exported in dependency order
+        assertThat(counts.keySet(), contains(AUTHOR_NAME, ANTHOLOGY_NAME, BOOK_NAME,
+                SERIES_NAME, MEMBER_NAME, STORY_NAME));
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            assertThat(entry.getKey(), entry.getValue(), is(count(entry.getKey())));
+        }
+        assertThat(counts.get(BOOK_NAME), is(greaterThan(0L)));
+
+        // Each section has a header row, and each row starts with its type
+        List<String> lines = new String(stream.toByteArray(), StandardCharsets.UTF_8)
+                .lines().collect(Collectors.toList());
+        List<String> headers = lines.stream()
+                .filter(line -> line.startsWith("type,"))
+                .collect(Collectors.toList());
+        assertThat(headers.size(), is(ExportSection.SECTIONS.size()));
+        assertThat(headers.get(0), is("type,id,firstName,lastName,notes,published,updated,version"));
+        long bookRows = lines.stream()
+                .filter(line -> line.startsWith(BOOK_NAME + ","))
+                .count();
+        assertThat(bookRows, is(counts.get(BOOK_NAME)));
+
+    }
+
+    @Test
+    public void exportCurrentTenantOnly() throws Exception {
+
+        Author other;
+        TenantContext.set("other");
+        try {
+            other = authorService.insert(new Author("Other", "Tenant", null));
+        } finally {
+            TenantContext.clear();
+        }
+
+        // The default tenant's export does not include the other tenant's author
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Map<String, Long> counts = exportService.export(ExportFormat.CSV, stream);
+        assertThat(counts.get(AUTHOR_NAME), is(count(AUTHOR_NAME)));
+        assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8)
+                .lines().anyMatch(line -> line.startsWith(AUTHOR_NAME + "," + other.getId() + ",")),
+                is(false));
+
+        // Whereas the other tenant's export includes only that author
+        stream = new ByteArrayOutputStream();
+        TenantContext.set("other");
+        try {
+            counts = exportService.export(ExportFormat.CSV, stream);
+        } finally {
+            TenantContext.clear();
+        }
+        assertThat(counts.get(AUTHOR_NAME), is(1L));
+        assertThat(counts.get(BOOK_NAME), is(0L));
+        assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8)
+                .lines().anyMatch(line -> line.startsWith(AUTHOR_NAME + "," + other.getId() + ",")), is(true));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private long count(String type) {
+        return entityManager.createQuery
+                ("SELECT COUNT(x) FROM " + type + " x WHERE x." + TENANT_ID_COLUMN + " = :" + TENANT_ID_COLUMN, Long.class)
+                .setParameter(TENANT_ID_COLUMN, DEFAULT_TENANT_ID)
+                .getSingleResult();
+    }
+
+}
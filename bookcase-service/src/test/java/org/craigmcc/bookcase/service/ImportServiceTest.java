@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.export.ExportFormat;
+import org.craigmcc.bookcase.importer.ImportReport;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+@Category(ServiceTests.class)
+@RunWith(Arquillian.class)
+public class ImportServiceTest extends AbstractServiceTest {
+
+    @Deployment
+    public static JavaArchive createDeployment() {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "testImport.jar")
+                .addClasses(ExportService.class, ImportChunkService.class, ImportService.class)
+                .addPackage(ExportFormat.class.getPackage())
+                .addPackage(ImportReport.class.getPackage());
+        addServiceFixtures(archive, false);
+        System.out.println("ImportServiceTest:  Assembled Archive:");
+        System.out.println(archive.toString(true));
+        return archive;
+    }
+
+    @Inject
+    DevModeDepopulateService devModeDepopulateService;
+
+    @Inject
+    DevModePopulateService devModePopulateService;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    EntityManager entityManager;
+
+    @Inject
+    ExportService exportService;
+
+    @Inject
+    ImportService importService;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        devModeDepopulateService.depopulate();
+    }
+
+    @Before
+    public void before() {
+        devModeDepopulateService.depopulate();
+        devModePopulateService.populate();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // importCatalog() tests
+
+    @Test
+    public void importRejected() throws Exception {
+
+        long authors = count(AUTHOR_NAME);
+        long books = count(BOOK_NAME);
+        String csv =
+                "type,id,firstName,lastName\n" +
+                "Author,1,Test,Importer\n" +
+                "Author,2,,\n" +
+                "type,id,authorId,author,title\n" +
+                "Book,1,1,,Imported Book\n" +
+                "Book,2,3,,Missing Author\n" +
+                "Book,3,,Nobody|Known,Unknown Author\n" +
+                "Book,4,1,,\n";
+
+        ImportReport report = importService.importCatalog("rejected", ExportFormat.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false);
+
+        assertThat(report.getStatus(), is(ImportReport.Status.COMPLETED));
+        assertThat(report.getRead(), is(6L));
+        assertThat(report.getInserted(), is(2L));
+        assertThat(report.getRejected(), is(4L));
+        assertThat(report.getErrors().size(), is(4));
+        assertThat(count(AUTHOR_NAME), is(authors + 1));
+        assertThat(count(BOOK_NAME), is(books + 1));
+
+    }
+
+    @Test
+    public void importRoundTrip() throws Exception {
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Map<String, Long> counts = exportService.export(ExportFormat.CSV, stream);
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        devModeDepopulateService.depopulate();
+
+        ImportReport report = importService.importCatalog("roundTrip", ExportFormat.CSV,
+                new ByteArrayInputStream(stream.toByteArray()), false);
+
+        assertThat(report.getStatus(), is(ImportReport.Status.COMPLETED));
+        assertThat(report.getRejected(), is(0L));
+        assertThat(report.getInserted(), is(total));
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            assertThat(entry.getKey(), count(entry.getKey()), is(entry.getValue()));
+        }
+        assertThat(importService.getReport("roundTrip").getStatus(), is(ImportReport.Status.COMPLETED));
+
+        // Importing the same authors again matches them instead of duplicating them
+        report = importService.importCatalog("roundTrip", ExportFormat.CSV,
+                new ByteArrayInputStream(stream.toByteArray()), false);
+        assertThat(report.getMatched(), is(counts.get(AUTHOR_NAME)));
+        assertThat(count(AUTHOR_NAME), is(counts.get(AUTHOR_NAME)));
+
+    }
+
+    // getReport() tests
+
+    @Test
+    public void getReportMissing() throws Exception {
+        try {
+            importService.getReport("missing");
+            fail("Should have thrown NotFound");
+        } catch (NotFound e) {
+            // Expected result
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private long count(String type) {
+        return entityManager.createQuery("SELECT COUNT(x) FROM " + type + " x", Long.class)
+                .getSingleResult();
+    }
+
+}
@@ -17,6 +17,7 @@ package org.craigmcc.bookcase.service;
 
 import org.craigmcc.bookcase.model.Book;
 import org.craigmcc.bookcase.model.Member;
+import org.craigmcc.bookcase.model.Ordinals;
 import org.craigmcc.bookcase.model.Series;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.NotFound;
@@ -35,12 +36,17 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
 import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
 import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
@@ -71,7 +77,7 @@ public class MemberServiceTest extends AbstractServiceTest {
     @Inject
     DevModePopulateService devModePopulateService;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     EntityManager entityManager;
 
     // Lifecycle Methods -----------------------------------------------------
@@ -165,6 +171,27 @@ public class MemberServiceTest extends AbstractServiceTest {
 
     }
 
+    // findBySeriesIds() tests
+
+    @Test
+    public void findBySeriesIdsEmpty() throws Exception {
+        assertThat(memberService.findBySeriesIds(Collections.emptyList()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void findBySeriesIdsHappy() throws Exception {
+        List<Member> all = memberService.findAll();
+        List<Long> seriesIds = all.stream()
+                .map(Member::getSeriesId).distinct().collect(Collectors.toList());
+        assertThat(seriesIds.size(), is(greaterThan(1)));
+        seriesIds.remove(0);
+        seriesIds.add(Long.MAX_VALUE);
+        List<Member> members = memberService.findBySeriesIds(seriesIds);
+        assertThat(new HashSet<>(ids(members)), is(all.stream()
+                .filter(m -> seriesIds.contains(m.getSeriesId()))
+                .map(Member::getId).collect(Collectors.toSet())));
+    }
+
     // insert() tests
 
     @Test
@@ -215,6 +242,90 @@ public class MemberServiceTest extends AbstractServiceTest {
         // No uniqueness constraints to test
     }
 
+    // insertAt() tests
+
+    @Test
+    public void insertAtHappy() throws Exception {
+
+        Long seriesId = findFirstMember().getSeriesId();
+        List<Member> before = memberService.findBySeriesId(seriesId);
+        assertThat(before.size(), is(greaterThan(1)));
+
+        Member member = newMember();
+        member.setSeriesId(seriesId);
+        Member inserted = memberService.insertAt(member, 1);
+
+        List<Member> after = memberService.findBySeriesId(seriesId);
+        assertThat(after.size(), is(before.size() + 1));
+        assertThat(after.get(0).getId(), is(before.get(0).getId()));
+        assertThat(after.get(1).getId(), is(inserted.getId()));
+        assertThat(after.get(2).getId(), is(before.get(1).getId()));
+        assertOrdered(after);
+
+    }
+
+    // renumberCrowded() tests
+
+    @Test
+    public void renumberCrowdedHappy() throws Exception {
+
+        Long seriesId = findFirstMember().getSeriesId();
+        List<Long> before = ids(memberService.findBySeriesId(seriesId));
+
+        memberService.renumberCrowded();
+        assertThat(memberService.renumberCrowded(), is(0));
+
+        List<Member> after = memberService.findBySeriesId(seriesId);
+        assertThat(ids(after), is(before));
+        for (int i = 0; i < after.size(); i++) {
+            assertThat(after.get(i).getOrdinal(), is(Ordinals.position(i)));
+        }
+
+    }
+
+    // reorder() tests
+
+    @Test
+    public void reorderHappy() throws Exception {
+
+        Long seriesId = findFirstMember().getSeriesId();
+        List<Long> memberIds = ids(memberService.findBySeriesId(seriesId));
+        assertThat(memberIds.size(), is(greaterThan(1)));
+        Collections.reverse(memberIds);
+
+        List<Member> reordered = memberService.reorder(seriesId, memberIds);
+        assertThat(ids(reordered), is(memberIds));
+        assertOrdered(reordered);
+        assertThat(ids(memberService.findBySeriesId(seriesId)), is(memberIds));
+
+    }
+
+    @Test
+    public void reorderBadRequest() throws Exception {
+
+        Long seriesId = findFirstMember().getSeriesId();
+        List<Long> memberIds = ids(memberService.findBySeriesId(seriesId));
+        assertThat(memberIds.size(), is(greaterThan(1)));
+
+        // Missing member
+        final List<Long> memberIds0 = new ArrayList<>(memberIds.subList(1, memberIds.size()));
+        assertThrows(BadRequest.class,
+                () -> memberService.reorder(seriesId, memberIds0));
+
+        // Duplicate member
+        final List<Long> memberIds1 = new ArrayList<>(memberIds);
+        memberIds1.set(0, memberIds1.get(1));
+        assertThrows(BadRequest.class,
+                () -> memberService.reorder(seriesId, memberIds1));
+
+        // Unknown member
+        final List<Long> memberIds2 = new ArrayList<>(memberIds);
+        memberIds2.set(0, Long.MAX_VALUE);
+        assertThrows(BadRequest.class,
+                () -> memberService.reorder(seriesId, memberIds2));
+
+    }
+
     // update() tests
 
     @Test
@@ -280,6 +391,16 @@ public class MemberServiceTest extends AbstractServiceTest {
 
     // Private Methods -------------------------------------------------------
 
+    private void assertOrdered(List<Member> members) {
+        Integer previousOrdinal = null;
+        for (Member member : members) {
+            if (previousOrdinal != null) {
+                assertThat(member.getOrdinal(), is(greaterThan(previousOrdinal)));
+            }
+            previousOrdinal = member.getOrdinal();
+        }
+    }
+
     private List<Member> findAllMembers() {
         return entityManager.createNamedQuery
                 (MEMBER_NAME + ".findAll", Member.class)
@@ -316,6 +437,14 @@ public class MemberServiceTest extends AbstractServiceTest {
         }
     }
 
+    private List<Long> ids(List<Member> members) {
+        List<Long> results = new ArrayList<>();
+        for (Member member : members) {
+            results.add(member.getId());
+        }
+        return results;
+    }
+
     private Member newMember() {
         return new Member(findFirstBook().getId(), 123, findFirstSeries().getId());
     }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.ejb.EJBException;
+import javax.jms.Destination;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * <p>Relays the outbox in batches, against an outbox held in memory (see
+ * {@link OutboxServiceTest} for the outbox itself).</p>
+ */
+@Category(ServiceTests.class)
+public class OutboxRelayServiceTest {
+
+    private Outbox outbox;
+
+    private long relayed;
+
+    private OutboxRelayService relayService;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        outbox = new Outbox();
+        relayed = 0L;
+        relayService = new OutboxRelayService();
+        relayService.setBatchSize(3);
+        relayService.outboxService = outbox;
+        relayService.relayed = new Counter() {
+            @Override
+            public void inc() {
+                inc(1L);
+            }
+            @Override
+            public void inc(long n) {
+                relayed += n;
+            }
+            @Override
+            public long getCount() {
+                return relayed;
+            }
+        };
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void disabledLeavesOutboxAlone() {
+
+        // Disabled (the default), so no destination lookup, metrics, or timer
+        // (none of which are available here)
+        outbox.waiting = 5;
+        relayService.startup();
+        assertThat(outbox.batches, is(empty()));
+        assertThat(outbox.waiting, is(5));
+
+    }
+
+    @Test
+    public void failedRelayIsRetriedLater() {
+
+        outbox.waiting = 7;
+        outbox.failures = 1;
+        relayService.handleTimeout();
+        assertThat(outbox.waiting, is(7));
+        assertThat(relayed, is(0L));
+
+        relayService.handleTimeout();
+        assertThat(outbox.waiting, is(0));
+        assertThat(relayed, is(7L));
+
+    }
+
+    @Test
+    public void relayEmptyOutbox() {
+
+        assertThat(relayService.relay(), is(0L));
+        assertThat(outbox.batches, contains(0));
+
+    }
+
+    @Test
+    public void relayInBatchesUntilEmpty() {
+
+        outbox.waiting = 7;
+        assertThat(relayService.relay(), is(7L));
+        assertThat(outbox.batches, contains(3, 3, 1));
+        assertThat(outbox.waiting, is(0));
+        assertThat(relayed, is(7L));
+
+    }
+
+    @Test
+    public void relayFullBatchesThenOneEmpty() {
+
+        // A full last batch might have left more, so the relay asks again
+        outbox.waiting = 6;
+        assertThat(relayService.relay(), is(6L));
+        assertThat(outbox.batches, contains(3, 3, 0));
+
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Outbox of a number of waiting messages, which records the size of
+     * each batch relayed, and fails the first <code>failures</code>
+     * relays.</p>
+     */
+    private static class Outbox extends OutboxService {
+
+        private final List<Integer> batches = new ArrayList<>();
+        private int failures = 0;
+        private int waiting = 0;
+
+        @Override
+        public long count() {
+            return waiting;
+        }
+
+        @Override
+        public LocalDateTime findOldest() {
+            return (waiting > 0) ? LocalDateTime.now() : null;
+        }
+
+        @Override
+        public int relay(Destination destination, int limit) {
+            if (failures > 0) {
+                failures--;
+                throw new EJBException("Relay failed");
+            }
+            int sent = Math.min(waiting, limit);
+            batches.add(sent);
+            waiting -= sent;
+            return sent;
+        }
+
+    }
+
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.event.InsertedModelEvent;
+import org.craigmcc.bookcase.event.MutatedModelEvent;
+import org.craigmcc.bookcase.model.Author;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.annotation.Priority;
+import javax.annotation.Resource;
+import javax.enterprise.inject.Alternative;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+import javax.jms.Destination;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.UserTransaction;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * <p>Writes outbox messages in the transaction of each model mutation, and
+ * relays (and then deletes) them.  The test server has no messaging
+ * subsystem, so messages are "sent" through a {@link JMSContext} that just
+ * records them.</p>
+ */
+@Category(ServiceTests.class)
+@RunWith(Arquillian.class)
+public class OutboxServiceTest extends AbstractServiceTest {
+
+    @Deployment
+    public static JavaArchive createDeployment() {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "testOutbox.jar")
+                .addClass(AuthorService.class)
+                .addClass(OutboxService.class)
+                .addClass(RecordingJMSContext.class);
+        addServiceFixtures(archive, false);
+        archive.addAsManifestResource
+                (new StringAsset("outbox.enabled=true\n"), "microprofile-config.properties");
+        System.out.println("OutboxServiceTest:  Assembled Archive:");
+        System.out.println(archive.toString(true));
+        return archive;
+    }
+
+    @Inject
+    AuthorService authorService;
+
+    @Inject
+    DevModeDepopulateService devModeDepopulateService;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    EntityManager entityManager;
+
+    @Inject
+    OutboxService outboxService;
+
+    @Resource(lookup = "java:comp/UserTransaction")
+    UserTransaction userTransaction;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Destination DESTINATION = (Destination) Proxy.newProxyInstance(
+            OutboxServiceTest.class.getClassLoader(),
+            new Class<?>[] { Destination.class },
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        devModeDepopulateService.depopulate();
+        RecordingJMSContext.SENT.clear();
+    }
+
+    @Before
+    public void before() {
+        devModeDepopulateService.depopulate();
+        RecordingJMSContext.SENT.clear();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void disabledWritesNothing() throws Exception {
+
+        Author author = authorService.insert(new Author("Disabled", "Outbox", null));
+        assertThat(outboxService.count(), is(1L));
+
+        OutboxService disabled = new OutboxService();
+        disabled.setEnabled(false);
+        disabled.entityManager = entityManager;
+        transaction(() -> disabled.handleInsertedModel(new InsertedModelEvent(author)));
+        assertThat(outboxService.count(), is(1L));
+
+        // Whereas the same event, while enabled, is written
+        disabled.setEnabled(true);
+        transaction(() -> disabled.handleInsertedModel(new InsertedModelEvent(author)));
+        assertThat(outboxService.count(), is(2L));
+
+    }
+
+    @Test
+    public void relayInOrderAndDelete() throws Exception {
+
+        Author first = authorService.insert(new Author("First", "Outbox", null));
+        Author second = authorService.insert(new Author("Second", "Outbox", null));
+        assertThat(outboxService.count(), is(2L));
+
+        // Only the oldest message, up to the limit, is sent and deleted
+        assertThat(transaction(() -> outboxService.relay(DESTINATION, 1)), is(1));
+        assertThat(outboxService.count(), is(1L));
+        assertThat(RecordingJMSContext.SENT.size(), is(1));
+        Map<String, Object> sent = RecordingJMSContext.SENT.get(0);
+        assertThat(sent.get("JMSXGroupID"), is(AUTHOR_NAME + ":" + first.getId()));
+        assertThat(sent.get("modelId"), is(first.getId()));
+        assertThat(sent.get("modelType"), is(AUTHOR_NAME));
+        assertThat(sent.get("type"), is(MutatedModelEvent.Type.INSERTED.name()));
+        assertThat(sent.get("destination"), is(DESTINATION));
+
+        // The rest follow, and then there is nothing left to send
+        assertThat(transaction(() -> outboxService.relay(DESTINATION, 10)), is(1));
+        assertThat(outboxService.count(), is(0L));
+        assertThat(outboxService.findOldest(), is(nullValue()));
+        assertThat(RecordingJMSContext.SENT.get(1).get("modelId"), is(second.getId()));
+        assertThat(transaction(() -> outboxService.relay(DESTINATION, 10)), is(0));
+        assertThat(RecordingJMSContext.SENT.size(), is(2));
+
+    }
+
+    @Test
+    public void relayRolledBackKeepsMessages() throws Exception {
+
+        authorService.insert(new Author("Kept", "Outbox", null));
+
+        userTransaction.begin();
+        try {
+            assertThat(outboxService.relay(DESTINATION, 10), is(1));
+            assertThat(outboxService.count(), is(0L));
+        } finally {
+            userTransaction.rollback();
+        }
+
+        // A relay that fails leaves its messages to be sent again
+        assertThat(outboxService.count(), is(1L));
+
+    }
+
+    @Test
+    public void writeInMutationTransaction() throws Exception {
+
+        // The message is visible inside the transaction of the mutation ...
+        userTransaction.begin();
+        try {
+            authorService.insert(new Author("Rolled", "Back", null));
+            assertThat(outboxService.count(), is(1L));
+        } finally {
+            userTransaction.rollback();
+        }
+
+        // ... and disappears with it when that transaction rolls back
+        assertThat(outboxService.count(), is(0L));
+
+        userTransaction.begin();
+        try {
+            authorService.insert(new Author("Committed", "Outbox", null));
+            userTransaction.commit();
+        } catch (Exception e) {
+            userTransaction.rollback();
+            throw e;
+        }
+        assertThat(outboxService.count(), is(1L));
+        assertThat(outboxService.findOldest(), is(notNullValue()));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void transaction(Runnable work) throws Exception {
+        transaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private <T> T transaction(Work<T> work) throws Exception {
+        userTransaction.begin();
+        try {
+            entityManager.joinTransaction();
+            T result = work.run();
+            userTransaction.commit();
+            return result;
+        } catch (Exception e) {
+            userTransaction.rollback();
+            throw e;
+        }
+    }
+
+    // Inner Classes ---------------------------------------------------------
+
+    /**
+     * <p>Produces a {@link JMSContext} whose producers record the properties
+     * (and destination and body) of each message sent, instead of sending
+     * it.  It is a prioritized alternative, so it also replaces the
+     * container's own context on servers with a messaging subsystem.</p>
+     */
+    @Alternative
+    @Priority(Interceptor.Priority.APPLICATION)
+    public static class RecordingJMSContext {
+
+        static final List<Map<String, Object>> SENT =
+                Collections.synchronizedList(new ArrayList<>());
+
+        @Produces
+        public JMSContext produce() {
+            return (JMSContext) Proxy.newProxyInstance(
+                    OutboxServiceTest.class.getClassLoader(),
+                    new Class<?>[] { JMSContext.class },
+                    (proxy, method, args) -> {
+                        if ("createProducer".equals(method.getName())) {
+                            return producer(new HashMap<>());
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private static JMSProducer producer(Map<String, Object> properties) {
+            return (JMSProducer) Proxy.newProxyInstance(
+                    OutboxServiceTest.class.getClassLoader(),
+                    new Class<?>[] { JMSProducer.class },
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "send":
+                                Map<String, Object> message = new HashMap<>(properties);
+                                message.put("body", args[1]);
+                                message.put("destination", args[0]);
+                                SENT.add(message);
+                                return proxy;
+                            case "setProperty":
+                                properties.put((String) args[0], args[1]);
+                                return proxy;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface Work<T> {
+        T run() throws Exception;
+    }
+
+}
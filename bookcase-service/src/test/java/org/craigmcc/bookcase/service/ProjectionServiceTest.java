@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.projection.AuthorSummary;
+import org.craigmcc.bookcase.projection.AuthorSummaryProjection;
+import org.craigmcc.bookcase.projection.ProjectionStatus;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.projection.AuthorSummaryProjection.NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+@Category(ServiceTests.class)
+@RunWith(Arquillian.class)
+public class ProjectionServiceTest extends AbstractServiceTest {
+
+    @Deployment
+    public static JavaArchive createDeployment() {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "testProjection.jar")
+                .addClass(BookService.class)
+                .addClass(MutatedModelEventService.class);
+        addServiceFixtures(archive, false);
+        System.out.println("ProjectionServiceTest:  Assembled Archive:");
+        System.out.println(archive.toString(true));
+        return archive;
+    }
+
+    @Inject
+    AuthorSummaryProjection authorSummaryProjection;
+
+    @Inject
+    BookService bookService;
+
+    @Inject
+    DevModeDepopulateService devModeDepopulateService;
+
+    @Inject
+    DevModePopulateService devModePopulateService;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    EntityManager entityManager;
+
+    @Inject
+    ProjectionService projectionService;
+
+    @Inject
+    @ConfigProperty(name = "projection.settle.delay", defaultValue = "5000")
+    Long settleDelay;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        devModeDepopulateService.depopulate();
+        projectionService.rebuild();
+    }
+
+    @Before
+    public void before() {
+        devModeDepopulateService.depopulate();
+        devModePopulateService.populate();
+        projectionService.rebuild();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // catchUp() tests
+
+    @Test
+    public void catchUpHappy() throws Exception {
+
+        Author author = findFirstAuthor();
+        AuthorSummary before = authorSummaryProjection.getSummary(author.getId());
+
+        // Inserts are projected once they have settled
+        bookService.insert(new Book(author.getId(), Book.Location.BOX, null, true, "Projected Read Book"));
+        Book book = bookService.insert(new Book(author.getId(), Book.Location.BOX, null, false, "Projected Book"));
+        settle();
+        ProjectionStatus status = projectionService.catchUp(NAME);
+        assertThat(status.getEvents(), is(2L));
+        AuthorSummary summary = authorSummaryProjection.getSummary(author.getId());
+        assertThat(summary.getBooks(), is(before.getBooks() + 2));
+        assertThat(summary.getReadBooks(), is(before.getReadBooks() + 1));
+
+        // Updates replace, and deletes subtract, earlier state
+        book.setRead(true);
+        bookService.update(book.getId(), book);
+        settle();
+        projectionService.catchUp(NAME);
+        assertThat(authorSummaryProjection.getSummary(author.getId()).getReadBooks(),
+                is(before.getReadBooks() + 2));
+        bookService.delete(book.getId());
+        settle();
+        projectionService.catchUp(NAME);
+        summary = authorSummaryProjection.getSummary(author.getId());
+        assertThat(summary.getBooks(), is(before.getBooks() + 1));
+        assertThat(summary.getReadBooks(), is(before.getReadBooks() + 1));
+
+    }
+
+    // rebuild() tests
+
+    @Test
+    public void rebuildFromSnapshot() throws Exception {
+
+        Author author = findFirstAuthor();
+        AuthorSummary before = authorSummaryProjection.getSummary(author.getId());
+        bookService.insert(new Book(author.getId(), Book.Location.BOX, null, false, "Snapshotted Book"));
+        settle();
+        ProjectionStatus snapshotted = projectionService.snapshot(NAME);
+        assertThat(snapshotted.getSnapshotEventId(), is(snapshotted.getEventId()));
+
+        // Rebuilds only replay the events after the snapshot
+        bookService.insert(new Book(author.getId(), Book.Location.BOX, null, false, "Replayed Book"));
+        settle();
+        ProjectionStatus rebuilt = projectionService.rebuild(NAME, false);
+        assertThat(rebuilt.getEvents(), is(1L));
+        assertThat(authorSummaryProjection.getSummary(author.getId()).getBooks(),
+                is(before.getBooks() + 2));
+
+        // Full rebuilds replay every event, with the same result
+        rebuilt = projectionService.rebuild(NAME, true);
+        assertThat(rebuilt.getEvents(), is(2L));
+        assertThat(rebuilt.getSnapshotEventId(), is(rebuilt.getEventId()));
+        assertThat(authorSummaryProjection.getSummary(author.getId()).getBooks(),
+                is(before.getBooks() + 2));
+
+    }
+
+    @Test
+    public void rebuildNotFound() throws Exception {
+
+        try {
+            projectionService.rebuild("unknownProjection", false);
+            fail("Should have thrown NotFound");
+        } catch (NotFound e) {
+            /* Expected result */
+        }
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Author findFirstAuthor() {
+        return entityManager.createNamedQuery
+                (AUTHOR_NAME + ".findAll", Author.class)
+                .setMaxResults(1)
+                .getSingleResult();
+    }
+
+    /**
+     * <p>Wait until recorded events are old enough to be replayed.</p>
+     */
+    private void settle() throws InterruptedException {
+        Thread.sleep(settleDelay + 100L);
+    }
+
+}
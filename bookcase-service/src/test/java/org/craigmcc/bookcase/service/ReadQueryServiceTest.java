@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.TenantContext;
+import org.hibernate.Session;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.craigmcc.bookcase.model.Constants.TENANT_FILTER;
+import static org.craigmcc.bookcase.model.Constants.TENANT_ID_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
+import static org.craigmcc.bookcase.service.ReadQueryService.FLUSH_MODE_HINT;
+import static org.craigmcc.bookcase.service.ReadQueryService.READ_ONLY_HINT;
+import static org.craigmcc.library.model.Constants.ID_COLUMN;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * <p>Runs read only queries with the read replica disabled (the default),
+ * so that every query goes to the primary database.</p>
+ */
+@Category(ServiceTests.class)
+@RunWith(Arquillian.class)
+public class ReadQueryServiceTest extends AbstractServiceTest {
+
+    @Deployment
+    public static JavaArchive createDeployment() {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "testReadQuery.jar")
+                .addClass(AuthorService.class);
+        addServiceFixtures(archive, false);
+        // Register the second tenant used by queriesSeeCurrentTenantOnly()
+        archive.addAsManifestResource
+                (new StringAsset("tenant.ids=other\n"), "microprofile-config.properties");
+        System.out.println("ReadQueryServiceTest:  Assembled Archive:");
+        System.out.println(archive.toString(true));
+        return archive;
+    }
+
+    @Inject
+    AuthorService authorService;
+
+    @Inject
+    DevModeDepopulateService devModeDepopulateService;
+
+    @Inject
+    DevModePopulateService devModePopulateService;
+
+    @PersistenceContext(unitName = PRIMARY_UNIT)
+    EntityManager entityManager;
+
+    @Inject
+    ReadQueryService readQueryService;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        devModeDepopulateService.depopulate();
+    }
+
+    @Before
+    public void before() {
+        devModeDepopulateService.depopulate();
+        devModePopulateService.populate();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // execute() tests
+
+    @Test
+    public void executeEnablesTenantFilter() throws Exception {
+
+        assertThat(readQueryService.execute(entityManager ->
+                entityManager.unwrap(Session.class).getEnabledFilter(TENANT_FILTER)),
+                is(notNullValue()));
+
+    }
+
+    // getResultList() and getSingleResult() tests
+
+    @Test
+    public void queriesSeeCurrentTenantOnly() throws Exception {
+
+        List<Author> authors = readQueryService.getResultList(AUTHOR_NAME + ".findAll", Author.class);
+        assertThat(authors.size(), is(greaterThan(0)));
+        Long authorId = authors.get(0).getId();
+        assertThat(readQueryService.getSingleResult
+                (AUTHOR_NAME + ".findById", Author.class, ID_COLUMN, authorId), is(notNullValue()));
+
+        TenantContext.set("other");
+        try {
+            assertThat(readQueryService.getResultList(AUTHOR_NAME + ".findAll", Author.class).size(), is(0));
+            assertThat(readQueryService.getSingleResult
+                    (AUTHOR_NAME + ".findById", Author.class, ID_COLUMN, authorId), is(nullValue()));
+            assertThat(readQueryService.execute(entityManager ->
+                    entityManager.createNamedQuery(AUTHOR_NAME + ".findAll", Author.class)
+                            .getResultList()).size(), is(0));
+        } finally {
+            TenantContext.clear();
+        }
+
+    }
+
+    // readOnly() tests
+
+    @Test
+    public void readOnlyHints() throws Exception {
+
+        TypedQuery<Author> query = entityManager.createNamedQuery(AUTHOR_NAME + ".findAll", Author.class);
+        assertThat(ReadQueryService.readOnly(query), is(query));
+        assertThat(query.getHints(), hasEntry(READ_ONLY_HINT, (Object) true));
+        assertThat(query.getHints(), hasEntry(FLUSH_MODE_HINT, (Object) "MANUAL"));
+
+    }
+
+    // Replica routing tests
+
+    @Test
+    public void replicaDisabled() throws Exception {
+
+        assertThat(readQueryService.isReplicaActive(), is(false));
+        assertThat(readQueryService.createReplicaEntityManager(), is(nullValue()));
+
+        // So queries run on the primary, whose rows (and no others) they see
+        long count = entityManager.createQuery("SELECT COUNT(a) FROM " + AUTHOR_NAME
+                + " a WHERE a." + TENANT_ID_COLUMN + " = :" + TENANT_ID_COLUMN, Long.class)
+                .setParameter(TENANT_ID_COLUMN, DEFAULT_TENANT_ID)
+                .getSingleResult();
+        assertThat(count, is(greaterThan(0L)));
+        assertThat(readQueryService.getResultList(AUTHOR_NAME + ".findAll", Author.class).size(),
+                is((int) count));
+
+    }
+
+}
@@ -35,14 +35,18 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.craigmcc.bookcase.model.Constants.AUTHOR_NAME;
 import static org.craigmcc.bookcase.model.Constants.MEMBER_NAME;
 import static org.craigmcc.bookcase.model.Constants.SERIES_ID_COLUMN;
 import static org.craigmcc.bookcase.model.Constants.SERIES_NAME;
 import static org.craigmcc.bookcase.model.Constants.TITLE_COLUMN;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
@@ -73,7 +77,7 @@ public class SeriesServiceTest extends AbstractServiceTest {
     @Inject
     DevModePopulateService devModePopulateService;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     EntityManager entityManager;
 
     // Lifecycle Methods -----------------------------------------------------
@@ -166,6 +170,48 @@ public class SeriesServiceTest extends AbstractServiceTest {
 
     }
 
+    // findByAuthorIds() tests
+
+    @Test
+    public void findByAuthorIdsEmpty() throws Exception {
+        assertThat(seriesService.findByAuthorIds(Collections.emptyList()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void findByAuthorIdsHappy() throws Exception {
+        List<Series> all = seriesService.findAll();
+        List<Long> authorIds = all.stream()
+                .map(Series::getAuthorId).distinct().collect(Collectors.toList());
+        assertThat(authorIds.size(), is(greaterThan(1)));
+        authorIds.remove(0);
+        authorIds.add(Long.MAX_VALUE);
+        List<Series> serieses = seriesService.findByAuthorIds(authorIds);
+        assertThat(ids(serieses), is(all.stream()
+                .filter(m -> authorIds.contains(m.getAuthorId()))
+                .map(Series::getId).collect(Collectors.toSet())));
+    }
+
+    // findByIds() tests
+
+    @Test
+    public void findByIdsEmpty() throws Exception {
+        assertThat(seriesService.findByIds(Collections.emptyList()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void findByIdsHappy() throws Exception {
+        List<Series> all = seriesService.findAll();
+        List<Long> seriesIds = all.stream()
+                .map(Series::getId).distinct().collect(Collectors.toList());
+        assertThat(seriesIds.size(), is(greaterThan(1)));
+        seriesIds.remove(0);
+        seriesIds.add(Long.MAX_VALUE);
+        List<Series> serieses = seriesService.findByIds(seriesIds);
+        assertThat(ids(serieses), is(all.stream()
+                .filter(m -> seriesIds.contains(m.getId()))
+                .map(Series::getId).collect(Collectors.toSet())));
+    }
+
     // insert() tests
 
     @Test
@@ -318,6 +364,10 @@ public class SeriesServiceTest extends AbstractServiceTest {
         return query.getResultList();
     }
 
+    private static Set<Long> ids(List<Series> models) {
+        return models.stream().map(Series::getId).collect(Collectors.toSet());
+    }
+
     private Series newSeries() {
         List<Author> authors = findAllAuthors();
         assertThat(authors.size(), is(greaterThan(0)));
@@ -17,6 +17,7 @@ package org.craigmcc.bookcase.service;
 
 import org.craigmcc.bookcase.model.Anthology;
 import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.Ordinals;
 import org.craigmcc.bookcase.model.Story;
 import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.NotFound;
@@ -35,12 +36,17 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.craigmcc.bookcase.model.Constants.ANTHOLOGY_NAME;
 import static org.craigmcc.bookcase.model.Constants.BOOK_NAME;
 import static org.craigmcc.bookcase.model.Constants.STORY_NAME;
+import static org.craigmcc.bookcase.service.PersistenceUnits.PRIMARY_UNIT;
 import static org.craigmcc.library.model.Constants.ID_COLUMN;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
@@ -71,7 +77,7 @@ public class StoryServiceTest extends AbstractServiceTest {
     @Inject
     DevModePopulateService devModePopulateService;
 
-    @PersistenceContext
+    @PersistenceContext(unitName = PRIMARY_UNIT)
     EntityManager entityManager;
 
     // Lifecycle Methods -----------------------------------------------------
@@ -165,6 +171,27 @@ public class StoryServiceTest extends AbstractServiceTest {
 
     }
 
+    // findByAnthologyIds() tests
+
+    @Test
+    public void findByAnthologyIdsEmpty() throws Exception {
+        assertThat(storyService.findByAnthologyIds(Collections.emptyList()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void findByAnthologyIdsHappy() throws Exception {
+        List<Story> all = storyService.findAll();
+        List<Long> anthologyIds = all.stream()
+                .map(Story::getAnthologyId).distinct().collect(Collectors.toList());
+        assertThat(anthologyIds.size(), is(greaterThan(1)));
+        anthologyIds.remove(0);
+        anthologyIds.add(Long.MAX_VALUE);
+        List<Story> stories = storyService.findByAnthologyIds(anthologyIds);
+        assertThat(new HashSet<>(ids(stories)), is(all.stream()
+                .filter(m -> anthologyIds.contains(m.getAnthologyId()))
+                .map(Story::getId).collect(Collectors.toSet())));
+    }
+
     // insert() tests
 
     @Test
@@ -215,6 +242,90 @@ public class StoryServiceTest extends AbstractServiceTest {
         // No uniqueness constraints to test
     }
 
+    // insertAt() tests
+
+    @Test
+    public void insertAtHappy() throws Exception {
+
+        Long anthologyId = findFirstStory().getAnthologyId();
+        List<Story> before = storyService.findByAnthologyId(anthologyId);
+        assertThat(before.size(), is(greaterThan(1)));
+
+        Story story = newStory();
+        story.setAnthologyId(anthologyId);
+        Story inserted = storyService.insertAt(story, 1);
+
+        List<Story> after = storyService.findByAnthologyId(anthologyId);
+        assertThat(after.size(), is(before.size() + 1));
+        assertThat(after.get(0).getId(), is(before.get(0).getId()));
+        assertThat(after.get(1).getId(), is(inserted.getId()));
+        assertThat(after.get(2).getId(), is(before.get(1).getId()));
+        assertOrdered(after);
+
+    }
+
+    // renumberCrowded() tests
+
+    @Test
+    public void renumberCrowdedHappy() throws Exception {
+
+        Long anthologyId = findFirstStory().getAnthologyId();
+        List<Long> before = ids(storyService.findByAnthologyId(anthologyId));
+
+        storyService.renumberCrowded();
+        assertThat(storyService.renumberCrowded(), is(0));
+
+        List<Story> after = storyService.findByAnthologyId(anthologyId);
+        assertThat(ids(after), is(before));
+        for (int i = 0; i < after.size(); i++) {
+            assertThat(after.get(i).getOrdinal(), is(Ordinals.position(i)));
+        }
+
+    }
+
+    // reorder() tests
+
+    @Test
+    public void reorderHappy() throws Exception {
+
+        Long anthologyId = findFirstStory().getAnthologyId();
+        List<Long> storyIds = ids(storyService.findByAnthologyId(anthologyId));
+        assertThat(storyIds.size(), is(greaterThan(1)));
+        Collections.reverse(storyIds);
+
+        List<Story> reordered = storyService.reorder(anthologyId, storyIds);
+        assertThat(ids(reordered), is(storyIds));
+        assertOrdered(reordered);
+        assertThat(ids(storyService.findByAnthologyId(anthologyId)), is(storyIds));
+
+    }
+
+    @Test
+    public void reorderBadRequest() throws Exception {
+
+        Long anthologyId = findFirstStory().getAnthologyId();
+        List<Long> storyIds = ids(storyService.findByAnthologyId(anthologyId));
+        assertThat(storyIds.size(), is(greaterThan(1)));
+
+        // Missing story
+        final List<Long> storyIds0 = new ArrayList<>(storyIds.subList(1, storyIds.size()));
+        assertThrows(BadRequest.class,
+                () -> storyService.reorder(anthologyId, storyIds0));
+
+        // Duplicate story
+        final List<Long> storyIds1 = new ArrayList<>(storyIds);
+        storyIds1.set(0, storyIds1.get(1));
+        assertThrows(BadRequest.class,
+                () -> storyService.reorder(anthologyId, storyIds1));
+
+        // Unknown story
+        final List<Long> storyIds2 = new ArrayList<>(storyIds);
+        storyIds2.set(0, Long.MAX_VALUE);
+        assertThrows(BadRequest.class,
+                () -> storyService.reorder(anthologyId, storyIds2));
+
+    }
+
     // update() tests
 
     @Test
@@ -286,6 +397,16 @@ public class StoryServiceTest extends AbstractServiceTest {
 
     // Private Methods -------------------------------------------------------
 
+    private void assertOrdered(List<Story> stories) {
+        Integer previousOrdinal = null;
+        for (Story story : stories) {
+            if (previousOrdinal != null) {
+                assertThat(story.getOrdinal(), is(greaterThan(previousOrdinal)));
+            }
+            previousOrdinal = story.getOrdinal();
+        }
+    }
+
     private List<Story> findAllStories() {
         return entityManager.createNamedQuery
                 (STORY_NAME + ".findAll", Story.class)
@@ -322,6 +443,14 @@ public class StoryServiceTest extends AbstractServiceTest {
         }
     }
 
+    private List<Long> ids(List<Story> stories) {
+        List<Long> results = new ArrayList<>();
+        for (Story story : stories) {
+            results.add(story.getId());
+        }
+        return results;
+    }
+
     private Story newStory() {
         return new Story(findFirstAnthology().getId(), findFirstBook().getId(), 123);
     }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.service;
+
+import org.craigmcc.bookcase.model.Author;
+import org.craigmcc.bookcase.model.Book;
+import org.craigmcc.bookcase.model.text.Suggestion;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.fail;
+
+@Category(ServiceTests.class)
+@RunWith(Arquillian.class)
+public class SuggestServiceTest extends AbstractServiceTest {
+
+    @Deployment
+    public static JavaArchive createDeployment() {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "testSuggest.jar")
+                .addClasses(AuthorService.class, BookService.class);
+        addServiceFixtures(archive, false);
+        System.out.println("SuggestServiceTest:  Assembled Archive:");
+        System.out.println(archive.toString(true));
+        return archive;
+    }
+
+    @Inject
+    AuthorService authorService;
+
+    @Inject
+    BookService bookService;
+
+    @Inject
+    CatalogStatisticsService catalogStatisticsService;
+
+    @Inject
+    DevModeDepopulateService devModeDepopulateService;
+
+    @Inject
+    DevModePopulateService devModePopulateService;
+
+    @Inject
+    SuggestService suggestService;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        devModeDepopulateService.depopulate();
+        catalogStatisticsService.reconcile();
+        suggestService.rebuild();
+    }
+
+    @Before
+    public void before() {
+        devModeDepopulateService.depopulate();
+        devModePopulateService.populate();
+        catalogStatisticsService.reconcile();
+        suggestService.rebuild();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // handle*Model() tests
+
+    @Test
+    public void handleModelEvents() throws Exception {
+
+        Author author = authorService.insert(new Author("Zoë", "Quixotica", null));
+        assertThat(ids(suggestService.suggest("quix", "author", null, null)).contains(author.getId()), is(true));
+        assertThat(ids(suggestService.suggest("zoe q", "author", null, null)).contains(author.getId()), is(true));
+        assertThat(suggestService.suggest("quix", "author", null, null).get(0).getWeight(), is(0L));
+
+        // Adding a book makes the author more popular, and the book findable by any word
+        Book book = bookService.insert(new Book(author.getId(), Book.Location.BOX, null, false,
+                "The Unlikely Zeppelin"));
+        assertThat(suggestService.suggest("quix", "author", null, null).get(0).getWeight(), is(1L));
+        assertThat(ids(suggestService.suggest("zeppel", "book", null, null)).contains(book.getId()), is(true));
+
+        // Renaming the book replaces its keys
+        book.setTitle("The Unlikely Dirigible");
+        bookService.update(book.getId(), book);
+        assertThat(ids(suggestService.suggest("zeppel", "book", null, null)).contains(book.getId()), is(false));
+        assertThat(ids(suggestService.suggest("dirig", "book", null, null)).contains(book.getId()), is(true));
+
+        // Deleting the author removes it and its books
+        authorService.delete(author.getId());
+        assertThat(suggestService.suggest("quix", "author", null, null).isEmpty(), is(true));
+        assertThat(suggestService.suggest("dirig", "book", null, null).isEmpty(), is(true));
+
+    }
+
+    // suggest() tests
+
+    @Test
+    public void suggestBadRequest() throws Exception {
+
+        for (Object[] arguments : new Object[][] {
+                { "bogus", null, null },
+                { null, 0, null },
+                { null, SuggestService.MAX_LIMIT + 1, null },
+                { null, null, "bogus" }
+        }) {
+            try {
+                suggestService.suggest("a", (String) arguments[0], (Integer) arguments[1], (String) arguments[2]);
+                fail("Should have thrown BadRequest");
+            } catch (BadRequest e) {
+                /* Expected result */
+            }
+        }
+
+    }
+
+    @Test
+    public void suggestHappy() throws Exception {
+
+        assertThat(suggestService.suggest("  ", null, null, null).isEmpty(), is(true));
+
+        // Popularity order across types
+        List<Suggestion> suggestions = suggestService.suggest("t", null, 20, "popularity");
+        assertThat(suggestions.size(), is(greaterThan(0)));
+        for (int i = 1; i < suggestions.size(); i++) {
+            assertThat(suggestions.get(i).getWeight(),
+                    is(lessThanOrEqualTo(suggestions.get(i - 1).getWeight())));
+        }
+
+        // Alphabetical order of the matched text
+        suggestions = suggestService.suggest("T", "book,series", 20, "alphabetical");
+        assertThat(suggestions.size(), is(greaterThan(0)));
+        for (int i = 1; i < suggestions.size(); i++) {
+            assertThat(suggestions.get(i).getMatch().compareTo(suggestions.get(i - 1).getMatch()),
+                    is(greaterThanOrEqualTo(0)));
+            assertThat(suggestions.get(i).getMatch().startsWith("t"), is(true));
+        }
+
+        assertThat(suggestService.suggest("t", null, 2, null).size(), is(lessThanOrEqualTo(2)));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private List<Long> ids(List<Suggestion> suggestions) {
+        List<Long> results = new ArrayList<>();
+        for (Suggestion suggestion : suggestions) {
+            results.add(suggestion.getId());
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.statistics;
+
+import org.craigmcc.bookcase.service.ServiceTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * <p>Drives {@link SlowStatementInspector} and {@link SlowStatementListener}
+ * through the callbacks Hibernate makes around each statement.</p>
+ */
+@Category(ServiceTests.class)
+public class SlowStatementListenerTest {
+
+    private SlowStatementInspector inspector;
+
+    private SlowStatementListener listener;
+
+    private Map<String, Long> recorded;
+
+    // Static Variables ------------------------------------------------------
+
+    private static final long SLOW = 20L;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @After
+    public void after() {
+        SlowStatementListener.uninstall();
+        SlowStatementInspector.take();
+    }
+
+    @Before
+    public void before() {
+        inspector = new SlowStatementInspector();
+        listener = new SlowStatementListener();
+        recorded = new LinkedHashMap<>();
+        SlowStatementListener.install(SLOW, recorded::put);
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void fastStatementsAreNotRecorded() throws Exception {
+
+        execute("SELECT 1", 0L);
+        assertThat(recorded.keySet(), is(empty()));
+
+    }
+
+    @Test
+    public void inspectorLeavesSqlUnchanged() {
+
+        assertThat(inspector.inspect("SELECT 1"), is("SELECT 1"));
+        assertThat(SlowStatementInspector.take(), is("SELECT 1"));
+        assertThat(SlowStatementInspector.take(), is(nullValue()));
+
+    }
+
+    @Test
+    public void nothingRecordedWhenDisabled() throws Exception {
+
+        SlowStatementListener.install(0L, recorded::put);
+        execute("SELECT 1", SLOW);
+        SlowStatementListener.install(SLOW, recorded::put);
+        SlowStatementListener.uninstall();
+        execute("SELECT 2", SLOW);
+        assertThat(recorded.keySet(), is(empty()));
+
+    }
+
+    @Test
+    public void slowBatchesAreRecorded() throws Exception {
+
+        inspector.inspect("INSERT INTO book VALUES (?)");
+        listener.jdbcPrepareStatementStart();
+        listener.jdbcPrepareStatementEnd();
+        listener.jdbcExecuteBatchStart();
+        Thread.sleep(SLOW);
+        listener.jdbcExecuteBatchEnd();
+
+        assertThat(recorded.keySet(),
+                contains(SlowStatementListener.BATCH_PREFIX + "INSERT INTO book VALUES (?)"));
+
+    }
+
+    @Test
+    public void slowStatementsAreRecordedWithTheirSql() throws Exception {
+
+        execute("SELECT 1", 0L);
+        execute("SELECT * FROM book WHERE title = ?", SLOW);
+        execute("SELECT 2", 0L);
+
+        assertThat(recorded.keySet(), contains("SELECT * FROM book WHERE title = ?"));
+        assertThat(recorded.get("SELECT * FROM book WHERE title = ?"), is(greaterThanOrEqualTo(SLOW)));
+
+    }
+
+    @Test
+    public void statementsWithoutInspectedSqlAreRecorded() throws Exception {
+
+        listener.jdbcExecuteStatementStart();
+        Thread.sleep(SLOW);
+        listener.jdbcExecuteStatementEnd();
+
+        assertThat(recorded.keySet(), contains(SlowStatementListener.UNKNOWN_SQL));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    /**
+     * <p>Make the callbacks Hibernate makes to prepare and execute the
+     * specified statement, which takes (at least) the specified time.</p>
+     */
+    private void execute(String sql, long millis) throws InterruptedException {
+        inspector.inspect(sql);
+        listener.jdbcPrepareStatementStart();
+        listener.jdbcPrepareStatementEnd();
+        listener.jdbcExecuteStatementStart();
+        if (millis > 0L) {
+            Thread.sleep(millis);
+        }
+        listener.jdbcExecuteStatementEnd();
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.tenant;
+
+import org.craigmcc.bookcase.service.ServiceTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
+
+@Category(ServiceTests.class)
+public class TenantCacheTest {
+
+    private final TenantCache<String> cache =
+            new TenantCache<>(tenantId -> tenantId.startsWith("known"));
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void clearAndRemove() {
+
+        cache.get("known1", () -> "one");
+        cache.get("known2", () -> "two");
+        cache.remove("known1");
+        assertThat(cache.get("known1"), is(nullValue()));
+        assertThat(cache.tenantIds(), contains("known2"));
+        cache.clear();
+        assertThat(cache.tenantIds().isEmpty(), is(true));
+        assertThat(cache.get("known2", () -> "again"), is("again"));
+
+    }
+
+    @Test
+    public void loadOnce() {
+
+        AtomicInteger loads = new AtomicInteger();
+        assertThat(cache.get("known1"), is(nullValue()));
+        assertThat(cache.get("known1", () -> "value" + loads.incrementAndGet()), is("value1"));
+        assertThat(cache.get("known1", () -> "value" + loads.incrementAndGet()), is("value1"));
+        assertThat(cache.get("known1"), is("value1"));
+        assertThat(loads.get(), is(1));
+
+    }
+
+    @Test
+    public void loadsDoNotBlockOtherTenants() throws Exception {
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slow = executor.submit(() -> cache.get("known1", () -> {
+                loading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "slow";
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS), is(true));
+
+            // Another tenant loads (and its lock is taken) while the first is still loading
+            assertThat(cache.get("known2", () -> "fast"), is("fast"));
+            synchronized (cache.lock("known2")) {
+                cache.put("known2", "replaced");
+            }
+            assertThat(cache.get("known2"), is("replaced"));
+            assertThat(cache.get("known1"), is(nullValue()));
+
+            release.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS), is("slow"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+    }
+
+    @Test
+    public void unknownTenants() {
+        assertThrows(IllegalStateException.class,
+                () -> cache.get("random", () -> "value"));
+        assertThrows(IllegalStateException.class,
+                () -> cache.lock("random"));
+        assertThrows(IllegalStateException.class,
+                () -> cache.put("random", "value"));
+        assertThat(cache.get("random"), is(nullValue()));
+        assertThat(cache.tenantIds().isEmpty(), is(true));
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.craigmcc.bookcase.tenant;
+
+import org.craigmcc.bookcase.service.ServiceTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.craigmcc.bookcase.model.Constants.DEFAULT_TENANT_ID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+@Category(ServiceTests.class)
+public class TenantRegistryTest {
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void isKnown() {
+
+        TenantRegistry registry = new TenantRegistry();
+        registry.setIds("smith, jones");
+        registry.startup();
+
+        assertThat(registry.isKnown(DEFAULT_TENANT_ID), is(true));
+        assertThat(registry.isKnown("jones"), is(true));
+        assertThat(registry.isKnown("smith"), is(true));
+        assertThat(registry.isKnown("brown"), is(false));
+        assertThat(registry.isKnown(" smith"), is(false));
+        assertThat(registry.isKnown(null), is(false));
+
+    }
+
+    @Test
+    public void parseDefaultOnly() {
+        assertThat(TenantRegistry.parse(null), contains(DEFAULT_TENANT_ID));
+        assertThat(TenantRegistry.parse(" , "), contains(DEFAULT_TENANT_ID));
+    }
+
+    @Test
+    public void parseInvalid() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TenantRegistry.parse("smith,-jones"));
+    }
+
+    @Test
+    public void parseOrdered() {
+        assertThat(TenantRegistry.parse("smith,jones,smith"),
+                contains(DEFAULT_TENANT_ID, "jones", "smith"));
+    }
+
+}